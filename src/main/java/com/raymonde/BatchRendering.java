@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde;
+
+import com.raymonde.render.Camera;
+import com.raymonde.render.Renderer;
+import com.raymonde.render.RendererFactory;
+import com.raymonde.render.RenderingException;
+import com.raymonde.render.RenderingSurface;
+import com.raymonde.save.AsyncSceneSaver;
+import com.raymonde.save.SaveException;
+import com.raymonde.save.SceneSaver;
+import com.raymonde.scene.Scene;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.raymonde.core.TimeLogger.logElapsedTime;
+
+/**
+ * Base class of the rendering modes that produce several images out of a single loaded {@link Scene}.
+ * Images are rendered by a pool of threads, each of them using its own {@link Renderer}. Saving an image
+ * is handed over to an {@link AsyncSceneSaver}, so that a rendering thread starts the next image while the
+ * previous one is encoded. A rendering thread only waits when the encoders fall behind.
+ */
+public abstract class BatchRendering {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchRendering.class);
+
+    /**
+     * The type of renderer used for each image (see {@link RendererFactory}).
+     */
+    private final String rendererType;
+
+    /**
+     * The number of images rendered concurrently.
+     */
+    private final int threads;
+
+    /**
+     * Saves the rendered images.
+     */
+    private SceneSaver saver = new SceneSaver();
+
+    /**
+     * The number of images encoded concurrently.
+     */
+    private int saveThreads = 1;
+
+    /**
+     * @param rendererType The type of renderer used for each image.
+     * @param threads The number of images rendered concurrently.
+     */
+    protected BatchRendering(final String rendererType, final int threads) {
+        checkArgument(threads > 0, "at least one rendering thread is required");
+        this.rendererType = rendererType;
+        this.threads = threads;
+    }
+
+    /**
+     * Renders and saves every specified job.
+     *
+     * @param jobs The images to render.
+     *
+     * @throws RenderingException if an image cannot be rendered.
+     * @throws SaveException if an image cannot be saved.
+     */
+    protected void run(final List<Job> jobs) throws RenderingException, SaveException {
+
+        final ExecutorService renderingPool = Executors.newFixedThreadPool(threads);
+
+        // Each rendering thread may have an image waiting to be saved before it blocks
+        try (AsyncSceneSaver asyncSaver = new AsyncSceneSaver(saver, saveThreads, threads)) {
+            final List<Future<Object>> renderedImages = new ArrayList<>(jobs.size());
+            for (Job job : jobs) {
+                renderedImages.add(renderingPool.submit(() -> {
+                    final RenderingSurface rendered = render(job);
+                    logger.info("{} rendered, saving it to {}", job.description, job.filename);
+                    asyncSaver.save(rendered, job.filename);
+                    return null;
+                }));
+            }
+
+            for (Future<Object> renderedImage : renderedImages) {
+                renderedImage.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RenderingException("batch rendering has been interrupted", ex);
+        } catch (ExecutionException ex) {
+            rethrow(ex.getCause());
+        } finally {
+            renderingPool.shutdownNow();
+        }
+    }
+
+    /**
+     * @param saver Saves the rendered images.
+     */
+    public void setSceneSaver(final SceneSaver saver) {
+        this.saver = saver;
+    }
+
+    /**
+     * @param saveThreads The number of images encoded concurrently.
+     */
+    public void setSaveThreads(final int saveThreads) {
+        checkArgument(saveThreads > 0, "at least one saving thread is required");
+        this.saveThreads = saveThreads;
+    }
+
+    private RenderingSurface render(final Job job) throws RenderingException {
+        // Renderers are not meant to be shared between threads, each image gets its own
+        final Renderer renderer = RendererFactory.createRenderer(rendererType);
+
+        final Scene scene = job.scene.get();
+        // Frames with moved lights need their own photon map, the other ones share the already prepared one
+        scene.prepare();
+
+        logger.info("start rendering {}", job.description);
+        return logElapsedTime("rendering " + job.description, () ->
+                renderer.renderSceneThroughCamera(scene, job.camera))
+                .andReturn();
+    }
+
+    private static void rethrow(final Throwable cause) throws RenderingException, SaveException {
+        if (cause instanceof RenderingException) {
+            throw (RenderingException) cause;
+        }
+        if (cause instanceof SaveException) {
+            throw (SaveException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        throw new RenderingException("batch rendering failed", cause);
+    }
+
+    /**
+     * An image to render: a scene seen through a camera, saved to a file.
+     */
+    protected static final class Job {
+
+        private final String description;
+
+        private final Supplier<Scene> scene;
+
+        private final Camera camera;
+
+        private final String filename;
+
+        /**
+         * @param description A description of the image, used for logging.
+         * @param scene The scene to render.
+         * @param camera The point of view.
+         * @param filename The file the image will be saved to.
+         */
+        protected Job(final String description, final Scene scene, final Camera camera, final String filename) {
+            this(description, () -> scene, camera, filename);
+        }
+
+        /**
+         * @param description A description of the image, used for logging.
+         * @param scene Creates the scene to render when the image is rendered, so that it can be collected as
+         * soon as the image is.
+         * @param camera The point of view.
+         * @param filename The file the image will be saved to.
+         */
+        protected Job(final String description, final Supplier<Scene> scene, final Camera camera,
+                final String filename) {
+            this.description = description;
+            this.scene = scene;
+            this.camera = camera;
+            this.filename = filename;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde;
+
+import com.raymonde.animation.Animation;
+import com.raymonde.animation.FrameRange;
+import com.raymonde.render.RenderingException;
+import com.raymonde.save.SaveException;
+import com.raymonde.save.SaverUtiliy;
+import com.raymonde.scene.Scene;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code FrameSequenceRendering} renders a range of frames of a {@link Scene} in a single run.
+ * The scene is loaded once and shared by every frame: only the animated camera, lights and primitives
+ * are derived for each frame (see {@link Animation}).
+ */
+public class FrameSequenceRendering extends BatchRendering {
+
+    /**
+     * The output filename, see {@link SaverUtiliy#frameFilename(String, int)}.
+     */
+    private final String outputFilename;
+
+    /**
+     * @param rendererType The type of renderer used for each frame.
+     * @param outputFilename The output filename, possibly containing a format specifier for the frame number.
+     * @param frameThreads The number of frames rendered concurrently.
+     */
+    public FrameSequenceRendering(final String rendererType, final String outputFilename, final int frameThreads) {
+        super(rendererType, frameThreads);
+        this.outputFilename = outputFilename;
+    }
+
+    /**
+     * Renders and saves the specified frames of the scene.
+     *
+     * @param scene The scene to render.
+     * @param animation The animation of the scene, {@code null} if the scene is still.
+     * @param frames The frames to render.
+     *
+     * @throws RenderingException if a frame cannot be rendered.
+     * @throws SaveException if a frame cannot be saved.
+     */
+    public void render(final Scene scene, final Animation animation, final FrameRange frames)
+            throws RenderingException, SaveException {
+
+        final List<Job> jobs = new ArrayList<>(frames.size());
+        for (int frame : frames) {
+            // The scenes of the frames are derived when rendered, not all kept until the last frame is
+            jobs.add(new Job("frame " + frame,
+                    () -> animation != null ? animation.sceneAt(scene, frame) : scene,
+                    animation != null ? animation.cameraAt(scene.getDefaultCamera(), frame) : scene.getDefaultCamera(),
+                    SaverUtiliy.frameFilename(outputFilename, frame)));
+        }
+
+        run(jobs);
+    }
+}
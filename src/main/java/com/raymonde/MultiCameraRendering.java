@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde;
+
+import com.raymonde.render.Camera;
+import com.raymonde.render.RenderingException;
+import com.raymonde.save.SaveException;
+import com.raymonde.save.SaverUtiliy;
+import com.raymonde.scene.Scene;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@code MultiCameraRendering} renders a {@link Scene} through several of its cameras in a single run.
+ * Every camera shares the same loaded scene, and each image is saved to its own file, named after the
+ * camera (e.g. {@code "out.png"} becomes {@code "out_front.png"} for the camera {@code front}).
+ */
+public class MultiCameraRendering extends BatchRendering {
+
+    /**
+     * Value of the camera selection meaning every camera of the scene.
+     */
+    public static final String ALL_CAMERAS = "all";
+
+    /**
+     * The output filename, see {@link SaverUtiliy#cameraFilename(String, String)}.
+     */
+    private final String outputFilename;
+
+    /**
+     * @param rendererType The type of renderer used for each camera.
+     * @param outputFilename The output filename, each camera name will be appended to it.
+     * @param cameraThreads The number of cameras rendered concurrently.
+     */
+    public MultiCameraRendering(final String rendererType, final String outputFilename, final int cameraThreads) {
+        super(rendererType, cameraThreads);
+        this.outputFilename = outputFilename;
+    }
+
+    /**
+     * Renders and saves the scene through each of the specified cameras.
+     *
+     * @param scene The scene to render.
+     * @param cameraNames The names of the cameras to render the scene through.
+     *
+     * @throws RenderingException if an image cannot be rendered.
+     * @throws SaveException if an image cannot be saved.
+     */
+    public void render(final Scene scene, final Collection<String> cameraNames)
+            throws RenderingException, SaveException {
+
+        final List<Job> jobs = new ArrayList<>(cameraNames.size());
+        for (String cameraName : cameraNames) {
+            final Camera camera = scene.getCamera(cameraName);
+            checkArgument(camera != null, "camera %s does not exist in the scene", cameraName);
+
+            jobs.add(new Job("camera " + cameraName, scene, camera,
+                    SaverUtiliy.cameraFilename(outputFilename, cameraName)));
+        }
+
+        run(jobs);
+    }
+
+    /**
+     * Returns the names of the cameras designated by the specified selection, which is either
+     * {@value #ALL_CAMERAS} or a comma separated list of camera names.
+     *
+     * @param scene The scene.
+     * @param selection The camera selection.
+     *
+     * @return The selected camera names.
+     */
+    public static Collection<String> selectCameras(final Scene scene, final String selection) {
+        if (ALL_CAMERAS.equals(selection.trim())) {
+            return scene.getCameras().keySet();
+        }
+
+        final List<String> names = new ArrayList<>();
+        for (String name : selection.split(",")) {
+            if (!name.trim().isEmpty()) {
+                names.add(name.trim());
+            }
+        }
+        return names;
+    }
+}
@@ -17,10 +17,13 @@
  */
 package com.raymonde;
 
+import com.raymonde.save.PngCompression;
 import org.kohsuke.args4j.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
  * Uses the args4j API.
  */
@@ -29,6 +32,7 @@ public class OptionParsing {
     private static final Logger logger = 
             LoggerFactory.getLogger(OptionParsing.class);
     
+    @Option(name="-r", aliases="--renderer", usage="the renderer to use (e.g. default, wavefront, path-tracing)")
     private String renderer = "default";
     
     @Option(name="-o", required=true, aliases="--output")
@@ -36,7 +40,37 @@ public class OptionParsing {
     
     @Argument(index=0)
     private String sceneFilename;
+
+    @Option(name="--frames", usage="renders the specified frames (e.g. 0-23) of the scene animation")
+    private String frames;
+
+    @Option(name="--frame-threads", usage="number of frames rendered concurrently in batch mode")
+    private int frameThreads = 1;
+
+    @Option(name="--cameras", usage="renders the scene through the specified cameras (comma separated names, or all)")
+    private String cameras;
+
+    @Option(name="--camera-threads", usage="number of cameras rendered concurrently")
+    private int cameraThreads = Runtime.getRuntime().availableProcessors();
     
+    @Option(name="--save-threads", usage="number of images encoded concurrently in batch mode, while the next ones are rendered")
+    private int saveThreads = 1;
+
+    @Option(name="--png-compression", usage="the trade-off between file size and speed: fastest, balanced or smallest")
+    private PngCompression pngCompression = PngCompression.BALANCED;
+
+    @Option(name="--progressive", usage="saves the image after each pass of progressive renderers")
+    private boolean progressive;
+
+    @Option(name="--checkpoint", usage="records the progress of path tracing in the specified file, resuming from it if it exists")
+    private String checkpointFilename;
+
+    @Option(name="--surface-file", usage="renders onto a surface mapped onto the specified file, for images larger than the heap")
+    private String surfaceFilename;
+
+    @Option(name="--relight", usage="relights the rendered image with the lights and ambient color of each specified scene file (comma separated), without tracing primary rays again")
+    private String relight;
+
     public OptionParsing(final String [] args) {
         CmdLineParser parser = new CmdLineParser(this);
         try {
@@ -47,6 +81,26 @@ public class OptionParsing {
         }
     }
 
+    /**
+     * Checks that the options of a rendering mode are not combined with options it would ignore: batches of
+     * frames ({@code --frames}) or of cameras ({@code --cameras}) and relit images ({@code --relight}) are
+     * rendered without checkpoint, mapped surface nor progressive previews, which only apply to single images.
+     *
+     * @throws IllegalArgumentException if options of different modes are combined.
+     */
+    public void checkModes() {
+        checkArgument(frames == null || cameras == null, "--frames and --cameras cannot be combined");
+        final String mode = frames != null ? "--frames" : cameras != null ? "--cameras" : "--relight";
+        if (frames != null || cameras != null) {
+            checkArgument(relight == null, "%s and --relight cannot be combined", mode);
+        }
+        if (frames != null || cameras != null || relight != null) {
+            checkArgument(checkpointFilename == null, "%s and --checkpoint cannot be combined", mode);
+            checkArgument(surfaceFilename == null, "%s and --surface-file cannot be combined", mode);
+            checkArgument(!progressive, "%s and --progressive cannot be combined", mode);
+        }
+    }
+
     /**
      * Returns the parsed scene filename.
      * 
@@ -68,4 +122,94 @@ public class OptionParsing {
     public String getOutputFilename() {
         return outputFilename;
     }
+
+    /**
+     * Returns the parsed frame range, {@code null} if none was specified.
+     *
+     * @return The parsed frame range
+     */
+    public String getFrames() {
+        return frames;
+    }
+
+    /**
+     * Returns the number of frames that can be rendered concurrently in batch mode.
+     *
+     * @return The number of frames rendered concurrently
+     */
+    public int getFrameThreads() {
+        return frameThreads;
+    }
+
+    /**
+     * Returns the parsed camera selection, {@code null} if none was specified.
+     *
+     * @return The parsed camera selection
+     */
+    public String getCameras() {
+        return cameras;
+    }
+
+    /**
+     * Returns the number of cameras that can be rendered concurrently.
+     *
+     * @return The number of cameras rendered concurrently
+     */
+    public int getCameraThreads() {
+        return cameraThreads;
+    }
+
+    /**
+     * Returns the number of images that can be encoded concurrently in batch mode.
+     *
+     * @return The number of images encoded concurrently
+     */
+    public int getSaveThreads() {
+        return saveThreads;
+    }
+
+    /**
+     * Returns whether the image should be saved after each pass of progressive renderers.
+     *
+     * @return {@code true} to save intermediate images
+     */
+    public boolean isProgressive() {
+        return progressive;
+    }
+
+    /**
+     * Returns the file the progress of the rendering is recorded in, {@code null} if none was specified.
+     *
+     * @return The checkpoint filename
+     */
+    public String getCheckpointFilename() {
+        return checkpointFilename;
+    }
+
+    /**
+     * Returns the file onto which the rendered surface is mapped, {@code null} if it should be kept on the heap.
+     *
+     * @return The surface filename
+     */
+    public String getSurfaceFilename() {
+        return surfaceFilename;
+    }
+
+    /**
+     * Returns the scene files whose lighting the rendered image is relit with, {@code null} if none was specified.
+     *
+     * @return The comma separated scene filenames
+     */
+    public String getRelight() {
+        return relight;
+    }
+
+    /**
+     * Returns the trade-off between the size of the saved images and the time spent compressing them.
+     *
+     * @return The PNG compression
+     */
+    public PngCompression getPngCompression() {
+        return pngCompression;
+    }
 }
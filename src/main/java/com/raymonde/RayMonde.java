@@ -18,19 +18,34 @@
 
 package com.raymonde;
 
+import com.raymonde.animation.Animation;
+import com.raymonde.animation.FrameRange;
 import com.raymonde.load.SceneBuildingException;
 import com.raymonde.load.yaml.YamlSceneBuilder;
+import com.raymonde.render.AuxiliaryBuffers;
+import com.raymonde.render.Camera;
+import com.raymonde.render.DefaultRenderer;
+import com.raymonde.render.FrameBuffer;
+import com.raymonde.render.GBuffer;
+import com.raymonde.render.MappedRenderingSurface;
+import com.raymonde.render.PathTracingRenderer;
 import com.raymonde.render.Renderer;
 import com.raymonde.render.RendererFactory;
 import com.raymonde.render.RenderingException;
 import com.raymonde.render.RenderingSurface;
+import com.raymonde.save.PngWriter;
 import com.raymonde.save.SaveException;
+import com.raymonde.save.SaverUtiliy;
 import com.raymonde.save.SceneSaver;
 import com.raymonde.scene.Scene;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collection;
 
 import static com.raymonde.core.TimeLogger.logElapsedTime;
 
@@ -70,8 +85,7 @@ public class RayMonde {
         logger.info("starting ray-monde");
 
         OptionParsing opt = new OptionParsing(args);
-
-        Renderer renderer  = RendererFactory.createRenderer(opt.getRenderer());
+        opt.checkModes();
 
         String filename = opt.getSceneFilename();
         
@@ -83,17 +97,187 @@ public class RayMonde {
                 .andReturn();
         logger.info("scene loaded", filename);
 
-        logger.info("start rendering scene", filename);
-        final RenderingSurface rendered = logElapsedTime("rendering scene", () ->
-                renderer.renderSceneThroughCamera(scene, scene.getDefaultCamera()))
-                .andReturn();
-        logger.info("rendering scene finished", filename);
+        logElapsedTime("preparing scene", scene::prepare);
+
+        if (opt.getCameras() != null) {
+            renderCameras(opt, scene);
+        } else if (opt.getFrames() != null) {
+            renderFrames(opt, scene);
+        } else if (opt.getRelight() != null) {
+            renderRelitImages(opt, scene);
+        } else {
+            if (scene.getAnimation() != null) {
+                final FrameRange frames = scene.getAnimation().getFrames();
+                logger.info("rendering a still image of the animated scene, use --frames {}-{} to render its frames",
+                        frames.first(), frames.last());
+            }
+            renderSingleImage(opt, scene);
+        }
+
+        logger.info("finishing ray-monde");
+    }
+
+    /**
+     * Renders the scene through its default camera and saves the result.
+     */
+    private static void renderSingleImage(final OptionParsing opt, final Scene scene)
+            throws RenderingException, SaveException, IOException {
+        Renderer renderer  = RendererFactory.createRenderer(opt.getRenderer());
+        if (opt.getCheckpointFilename() != null && renderer instanceof PathTracingRenderer) {
+            // A checkpoint of another version of the scene file is not resumed
+            ((PathTracingRenderer) renderer).setCheckpointFile(Paths.get(opt.getCheckpointFilename()),
+                    Files.readAllBytes(Paths.get(opt.getSceneFilename())));
+        }
+        if (opt.isProgressive() && renderer instanceof PathTracingRenderer) {
+            ((PathTracingRenderer) renderer).setProgressListener((buffer, pass, passes) -> {
+                logger.info("pass {}/{} completed, saving preview", pass, passes);
+                try {
+                    new SceneSaver(opt.getPngCompression()).save(buffer, opt.getOutputFilename());
+                } catch (SaveException e) {
+                    logger.warn("cannot save preview to {}", opt.getOutputFilename(), e);
+                }
+            });
+        }
+
+        if (SceneSaver.isHighDynamicRange(opt.getOutputFilename())) {
+            renderHighDynamicRangeImage(opt, scene, renderer);
+            return;
+        }
+
+        if (opt.isProgressive()) {
+            logger.info("start rendering scene");
+            final RenderingSurface rendered = logElapsedTime("rendering scene", () ->
+                    renderer.renderSceneThroughCamera(scene, scene.getDefaultCamera()))
+                    .andReturn();
+            logger.info("rendering scene finished");
+
+            logger.info("saving scene to {}", opt.getOutputFilename());
+            SceneSaver ss = new SceneSaver(opt.getPngCompression());
+            ss.save(rendered, opt.getOutputFilename());
+            logger.info("file {} saved", opt.getOutputFilename());
+            return;
+        }
+
+        // Rows are saved as soon as they are rendered, from the heap or from the mapped file
+        final Camera camera = scene.getDefaultCamera();
+        logger.info("start rendering scene to {}", opt.getOutputFilename());
+        try (MappedRenderingSurface mapped = opt.getSurfaceFilename() != null
+                    ? new MappedRenderingSurface(Paths.get(opt.getSurfaceFilename()),
+                            camera.getPixelWidth(), camera.getPixelHeight())
+                    : null;
+                PngWriter writer = new SceneSaver(opt.getPngCompression())
+                        .streamTo(opt.getOutputFilename(), camera.getPixelWidth(), camera.getPixelHeight())) {
+            final RenderingSurface surface = mapped != null ? mapped : camera.createRenderingSurface();
+            surface.setRowListener(writer);
+            logElapsedTime("rendering scene", () -> renderer.renderSceneOnto(scene, camera, surface))
+                    .andReturn();
+        } catch (IOException e) {
+            logger.error("an error occurred while trying to save rendered scene to {}", opt.getOutputFilename(), e);
+            throw new SaveException("image couldn't be saved", e);
+        }
+        logger.info("file {} saved", opt.getOutputFilename());
+    }
+
+    /**
+     * Renders the scene through its default camera and saves the linear colors of the result.
+     */
+    private static void renderHighDynamicRangeImage(final OptionParsing opt, final Scene scene,
+            final Renderer renderer) throws RenderingException, SaveException {
+        final Camera camera = scene.getDefaultCamera();
+        logger.info("start rendering scene");
+        final FrameBuffer rendered;
+        if (renderer instanceof PathTracingRenderer) {
+            rendered = logElapsedTime("rendering scene", () ->
+                    ((PathTracingRenderer) renderer).renderImage(scene, camera))
+                    .andReturn();
+        } else {
+            logger.warn("the {} renderer clamps colors, only the path-tracing one renders high dynamic range",
+                    opt.getRenderer());
+            // The depth, normal, albedo and identifiers are recorded along the colors, for the auxiliary channels
+            final RenderingSurface surface = camera.createRenderingSurface();
+            surface.setAuxiliaryBuffers(new AuxiliaryBuffers(camera.getPixelWidth() * camera.getPixelHeight()));
+            rendered = FrameBuffer.of(logElapsedTime("rendering scene", () ->
+                    renderer.renderSceneOnto(scene, camera, surface))
+                    .andReturn());
+        }
+        logger.info("rendering scene finished");
 
         logger.info("saving scene to {}", opt.getOutputFilename());
-        SceneSaver ss = new SceneSaver();
-        ss.save(rendered, opt.getOutputFilename());
+        new SceneSaver(opt.getPngCompression()).save(rendered, opt.getOutputFilename());
         logger.info("file {} saved", opt.getOutputFilename());
+    }
 
-        logger.info("finishing ray-monde");
+    /**
+     * Renders the scene through its default camera, then relights it with the lights and the ambient color of
+     * each of the specified scene files, from the primary intersections cached by the first rendering. Each
+     * relit image is saved next to the first one, suffixed with the name of the scene file of its lights.
+     */
+    private static void renderRelitImages(final OptionParsing opt, final Scene scene)
+            throws RenderingException, SaveException, SceneBuildingException {
+        if (!"default".equals(opt.getRenderer())) {
+            logger.warn("only the default renderer relights scenes, the {} renderer is not used", opt.getRenderer());
+        }
+        final DefaultRenderer renderer = new DefaultRenderer();
+        final Camera camera = scene.getDefaultCamera();
+        final GBuffer gBuffer = new GBuffer(camera);
+        final SceneSaver saver = new SceneSaver(opt.getPngCompression());
+
+        logger.info("start rendering scene");
+        final RenderingSurface rendered = logElapsedTime("rendering scene", () ->
+                renderer.renderSceneOnto(scene, camera, camera.createRenderingSurface(), gBuffer))
+                .andReturn();
+        saver.save(rendered, opt.getOutputFilename());
+        logger.info("file {} saved", opt.getOutputFilename());
+
+        for (String lightingFilename : opt.getRelight().split(",")) {
+            if (lightingFilename.trim().isEmpty()) {
+                continue;
+            }
+            final File lightingFile = new File(lightingFilename.trim());
+            final Scene relit = scene.withLighting(new YamlSceneBuilder().fromFile(lightingFile).build());
+            relit.prepare();
+
+            logger.info("start relighting scene with the lights of {}", lightingFile);
+            final RenderingSurface surface = logElapsedTime("relighting scene", () ->
+                    renderer.relight(relit, gBuffer, camera.createRenderingSurface()))
+                    .andReturn();
+            final String name = lightingFile.getName().replaceFirst("\\.[^.]*$", "");
+            final String outputFilename = SaverUtiliy.withSuffix(opt.getOutputFilename(), "_" + name);
+            saver.save(surface, outputFilename);
+            logger.info("file {} saved", outputFilename);
+        }
+    }
+
+    /**
+     * Renders a range of frames of the scene animation, the scene being loaded only once.
+     */
+    private static void renderFrames(final OptionParsing opt, final Scene scene)
+            throws RenderingException, SaveException {
+        final Animation animation = scene.getAnimation();
+        final FrameRange frames = FrameRange.parse(opt.getFrames());
+
+        logger.info("start rendering frames {} to {}", frames.first(), frames.last());
+        final FrameSequenceRendering rendering =
+                new FrameSequenceRendering(opt.getRenderer(), opt.getOutputFilename(), opt.getFrameThreads());
+        rendering.setSceneSaver(new SceneSaver(opt.getPngCompression()));
+        rendering.setSaveThreads(opt.getSaveThreads());
+        rendering.render(scene, animation, frames);
+        logger.info("rendering frames finished");
+    }
+
+    /**
+     * Renders the scene through each of the selected cameras, the scene being loaded only once.
+     */
+    private static void renderCameras(final OptionParsing opt, final Scene scene)
+            throws RenderingException, SaveException {
+        final Collection<String> cameraNames = MultiCameraRendering.selectCameras(scene, opt.getCameras());
+
+        logger.info("start rendering cameras {}", cameraNames);
+        final MultiCameraRendering rendering =
+                new MultiCameraRendering(opt.getRenderer(), opt.getOutputFilename(), opt.getCameraThreads());
+        rendering.setSceneSaver(new SceneSaver(opt.getPngCompression()));
+        rendering.setSaveThreads(opt.getSaveThreads());
+        rendering.render(scene, cameraNames);
+        logger.info("rendering cameras finished");
     }
 }
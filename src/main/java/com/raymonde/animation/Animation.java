@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.animation;
+
+import com.raymonde.core.Vector;
+import com.raymonde.render.Camera;
+import com.raymonde.render.light.Light;
+import com.raymonde.render.primitive.Primitive;
+import com.raymonde.scene.Scene;
+import lombok.Builder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.google.common.base.MoreObjects.firstNonNull;
+
+/**
+ * {@code Animation} describes how the point of view, the lights and the primitives of a {@link Scene} evolve
+ * over a {@link FrameRange range of frames}. It never modifies the scene it is applied to: each frame is
+ * obtained as a lightweight copy that shares the primitives with the original scene. When primitives move,
+ * the copy gets its own copy of the tree of the primitives, refit to their positions at the frame.
+ */
+public class Animation {
+
+    private static final Logger logger = LoggerFactory.getLogger(Animation.class);
+
+    /**
+     * The frames of the animation.
+     */
+    private final FrameRange frames;
+
+    /**
+     * Keyframes of the camera position.
+     */
+    private final VectorTrack cameraPosition;
+
+    /**
+     * Keyframes of the camera direction.
+     */
+    private final VectorTrack cameraDirection;
+
+    /**
+     * Keyframes of the camera up vector.
+     */
+    private final VectorTrack cameraUp;
+
+    /**
+     * Keyframes of the lights positions, indexed by light name.
+     */
+    private final Map<String, VectorTrack> lightPositions;
+
+    /**
+     * Keyframes of the translations of the primitives from their position in the scene, indexed by
+     * primitive name.
+     */
+    private final Map<String, VectorTrack> primitiveTranslations;
+
+    /**
+     * @param frames The frames of the animation.
+     * @param cameraPosition The camera position keyframes, may be {@code null}.
+     * @param cameraDirection The camera direction keyframes, may be {@code null}.
+     * @param cameraUp The camera up vector keyframes, may be {@code null}.
+     * @param lightPositions The light position keyframes indexed by light name, may be {@code null}.
+     * @param primitiveTranslations The primitive translation keyframes indexed by primitive name, may be
+     *                              {@code null}.
+     */
+    @Builder
+    public Animation(final FrameRange frames,
+            final VectorTrack cameraPosition,
+            final VectorTrack cameraDirection,
+            final VectorTrack cameraUp,
+            final Map<String, VectorTrack> lightPositions,
+            final Map<String, VectorTrack> primitiveTranslations) {
+        this.frames = frames;
+        this.cameraPosition = firstNonNull(cameraPosition, new VectorTrack());
+        this.cameraDirection = firstNonNull(cameraDirection, new VectorTrack());
+        this.cameraUp = firstNonNull(cameraUp, new VectorTrack());
+        this.lightPositions = lightPositions != null
+                ? new LinkedHashMap<>(lightPositions)
+                : Collections.emptyMap();
+        this.primitiveTranslations = primitiveTranslations != null
+                ? new LinkedHashMap<>(primitiveTranslations)
+                : Collections.emptyMap();
+    }
+
+    /**
+     * @return the frames of the animation.
+     */
+    public FrameRange getFrames() {
+        return frames;
+    }
+
+    /**
+     * Returns {@code true} if the point of view changes during the animation.
+     *
+     * @return {@code true} or {@code false} whether the camera is animated.
+     */
+    public boolean isCameraAnimated() {
+        return !(cameraPosition.isEmpty() && cameraDirection.isEmpty() && cameraUp.isEmpty());
+    }
+
+    /**
+     * Returns the specified camera as it is at the specified frame.
+     *
+     * @param camera The camera to animate.
+     * @param frame The frame number.
+     *
+     * @return The camera at the specified frame.
+     */
+    public Camera cameraAt(final Camera camera, final int frame) {
+        if (!isCameraAnimated()) {
+            return camera;
+        }
+
+        return camera.movedTo(
+                valueOrDefault(cameraPosition, frame, camera.getPosition()),
+                valueOrDefault(cameraDirection, frame, camera.getDirection()),
+                valueOrDefault(cameraUp, frame, camera.getUp()));
+    }
+
+    /**
+     * Returns the specified scene as it is at the specified frame.
+     *
+     * @param scene The scene to animate.
+     * @param frame The frame number.
+     *
+     * @return The scene at the specified frame.
+     */
+    public Scene sceneAt(final Scene scene, final int frame) {
+        if (lightPositions.isEmpty() && primitiveTranslations.isEmpty()) {
+            return scene;
+        }
+
+        final Map<String, Light> movedLights = new LinkedHashMap<>();
+        for (Map.Entry<String, VectorTrack> track : lightPositions.entrySet()) {
+            final Light light = scene.getLight(track.getKey());
+            if (light == null) {
+                logger.warn("animated light {} does not exist in the scene", track.getKey());
+                continue;
+            }
+            movedLights.put(track.getKey(), light.movedTo(track.getValue().valueAt(frame)));
+        }
+
+        final Scene sceneAtFrame = scene.withLights(movedLights);
+        if (primitiveTranslations.isEmpty()) {
+            return sceneAtFrame;
+        }
+
+        // Primitives are moved from their position in the original scene, so that refits do not accumulate
+        final Map<String, Primitive> movedPrimitives = new LinkedHashMap<>();
+        for (Map.Entry<String, VectorTrack> track : primitiveTranslations.entrySet()) {
+            final Primitive primitive = scene.getPrimitive(track.getKey());
+            if (primitive == null) {
+                logger.warn("animated primitive {} does not exist in the scene", track.getKey());
+                continue;
+            }
+            movedPrimitives.put(track.getKey(), primitive.translated(track.getValue().valueAt(frame)));
+        }
+        if (!movedPrimitives.isEmpty()) {
+            sceneAtFrame.replacePrimitives(movedPrimitives);
+        }
+        return sceneAtFrame;
+    }
+
+    private static Vector valueOrDefault(final VectorTrack track, final int frame, final Vector defaultValue) {
+        return track.isEmpty() ? defaultValue : track.valueAt(frame);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.animation;
+
+import com.google.common.base.MoreObjects;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@code FrameRange} represents an inclusive range of frame numbers, e.g. {@code [0, 23]}.
+ */
+@ThreadSafe
+@Immutable
+public final class FrameRange implements Iterable<Integer> {
+
+    /**
+     * The first frame of the range.
+     */
+    private final int first;
+
+    /**
+     * The last frame of the range (inclusive).
+     */
+    private final int last;
+
+    /**
+     * Constructs a {@code FrameRange} going from {@code first} to {@code last} (both inclusive).
+     *
+     * @param first The first frame.
+     * @param last The last frame.
+     */
+    public FrameRange(final int first, final int last) {
+        checkArgument(first >= 0, "first frame must be positive");
+        checkArgument(last >= first, "last frame must not be lower than first frame");
+        this.first = first;
+        this.last = last;
+    }
+
+    /**
+     * @return the first frame
+     */
+    public int first() {
+        return first;
+    }
+
+    /**
+     * @return the last frame
+     */
+    public int last() {
+        return last;
+    }
+
+    /**
+     * Returns the number of frames in the range.
+     *
+     * @return The number of frames in the range.
+     */
+    public int size() {
+        return last - first + 1;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<Integer>() {
+            private int next = first;
+
+            @Override
+            public boolean hasNext() {
+                return next <= last;
+            }
+
+            @Override
+            public Integer next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return next++;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("first", first)
+                .add("last", last)
+                .toString();
+    }
+
+    /**
+     * Parses a frame range written as {@code "first-last"} (e.g. {@code "0-23"}) or as a single frame
+     * number (e.g. {@code "12"}).
+     *
+     * @param range The range to parse.
+     *
+     * @return The parsed {@code FrameRange}.
+     *
+     * @throws IllegalArgumentException if the range cannot be parsed.
+     */
+    public static FrameRange parse(final String range) {
+        final String[] bounds = range.trim().split("-");
+        checkArgument(bounds.length == 1 || bounds.length == 2, "invalid frame range %s", range);
+
+        try {
+            final int first = Integer.parseInt(bounds[0].trim());
+            final int last = bounds.length == 2 ? Integer.parseInt(bounds[1].trim()) : first;
+            return new FrameRange(first, last);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("invalid frame range " + range, ex);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.animation;
+
+import com.raymonde.core.Vector;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@code VectorTrack} stores {@link Vector} keyframes and linearly interpolates between them.
+ * Before the first keyframe (resp. after the last one) the value of the first (resp. last) keyframe is
+ * returned.
+ *
+ * Keyframes are expected to be added while loading the scene. Once loaded, a track can be read by many
+ * threads at the same time.
+ */
+public class VectorTrack {
+
+    /**
+     * The keyframes, indexed by frame number.
+     */
+    private final NavigableMap<Integer, Vector> keyframes = new TreeMap<>();
+
+    /**
+     * Adds a keyframe to the track. An existing keyframe at the same frame is replaced.
+     *
+     * @param frame The frame number.
+     * @param value The value at the specified frame.
+     *
+     * @return itself (allow to chain calls)
+     */
+    public VectorTrack addKeyframe(final int frame, final Vector value) {
+        keyframes.put(frame, checkNotNull(value, "keyframe value cannot be null"));
+        return this;
+    }
+
+    /**
+     * Returns {@code true} if the track does not contain any keyframe.
+     *
+     * @return {@code true} or {@code false} whether the track is empty.
+     */
+    public boolean isEmpty() {
+        return keyframes.isEmpty();
+    }
+
+    /**
+     * Returns the interpolated value at the specified frame, {@code null} if the track is empty.
+     *
+     * @param frame The frame number.
+     *
+     * @return The interpolated value.
+     */
+    public Vector valueAt(final int frame) {
+        if (keyframes.isEmpty()) {
+            return null;
+        }
+
+        final Map.Entry<Integer, Vector> before = keyframes.floorEntry(frame);
+        final Map.Entry<Integer, Vector> after = keyframes.ceilingEntry(frame);
+
+        if (before == null) {
+            return after.getValue();
+        }
+        if (after == null || before.getKey().equals(after.getKey())) {
+            return before.getValue();
+        }
+
+        final double t = (double) (frame - before.getKey()) / (after.getKey() - before.getKey());
+        return before.getValue().add(Vector.joining(before.getValue(), after.getValue()).multiply(t));
+    }
+}
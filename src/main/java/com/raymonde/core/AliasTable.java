@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.core;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@code AliasTable} samples an index with a probability proportional to its weight in constant time
+ * (Walker's alias method, built with Vose's algorithm).
+ *
+ * Each entry of the table holds a threshold and an alias: a uniform random number picks an entry, and
+ * its fractional part decides between the entry and its alias.
+ */
+@ThreadSafe
+@Immutable
+public final class AliasTable {
+
+    private final double[] probabilities;
+
+    private final double[] thresholds;
+
+    private final int[] aliases;
+
+    /**
+     * Builds the table of the specified weights. If every weight is zero, indexes are sampled uniformly.
+     *
+     * @param weights The weights, positive or zero.
+     */
+    public AliasTable(final double[] weights) {
+        checkArgument(weights.length > 0, "at least one weight is required");
+
+        final int n = weights.length;
+        double sum = 0.;
+        for (double weight : weights) {
+            checkArgument(weight >= 0. && !Double.isInfinite(weight), "weights must be positive and finite");
+            sum += weight;
+        }
+
+        probabilities = new double[n];
+        thresholds = new double[n];
+        aliases = new int[n];
+
+        final Deque<Integer> small = new ArrayDeque<>();
+        final Deque<Integer> large = new ArrayDeque<>();
+        for (int i = 0; i < n; i++) {
+            probabilities[i] = sum > 0. ? weights[i] / sum : 1. / n;
+            thresholds[i] = probabilities[i] * n;
+            aliases[i] = i;
+            (thresholds[i] < 1. ? small : large).push(i);
+        }
+
+        while (!small.isEmpty() && !large.isEmpty()) {
+            final int less = small.pop();
+            final int more = large.pop();
+            aliases[less] = more;
+            thresholds[more] = thresholds[more] + thresholds[less] - 1.;
+            (thresholds[more] < 1. ? small : large).push(more);
+        }
+        // Remaining entries are only off by rounding errors
+        while (!large.isEmpty()) {
+            thresholds[large.pop()] = 1.;
+        }
+        while (!small.isEmpty()) {
+            thresholds[small.pop()] = 1.;
+        }
+    }
+
+    /**
+     * Samples an index.
+     *
+     * @param u A uniform random number in {@code [0, 1)}.
+     *
+     * @return The sampled index.
+     */
+    public int sample(final double u) {
+        final double scaled = u * probabilities.length;
+        final int entry = Math.min((int) scaled, probabilities.length - 1);
+        return scaled - entry < thresholds[entry] ? entry : aliases[entry];
+    }
+
+    /**
+     * @param index The index.
+     *
+     * @return the probability that the specified index is sampled
+     */
+    public double probability(final int index) {
+        return probabilities[index];
+    }
+
+    /**
+     * @return the number of indexes
+     */
+    public int size() {
+        return probabilities.length;
+    }
+}
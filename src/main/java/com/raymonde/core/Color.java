@@ -365,6 +365,19 @@ public final class Color {
         return Color.BLACK;
     }
 
+    /**
+     * Returns the color of the specified RGB value.
+     *
+     * @param rgb The RGB value, decomposed as in {@link #rgb()}.
+     *
+     * @return The color.
+     */
+    public static Color fromRgb(final int rgb) {
+        final Color color = new Color();
+        color.setBasic((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+        return color;
+    }
+
     /**
      * Checks whether a color component is valid (within 0. and 1.)
      *
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.core;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * {@code ColorAccumulator} sums weighted {@link Color}s with a double precision per component.
+ * Unlike chained calls to {@link Color#multiply(double)} and {@link Color#add(Color)}, intermediate
+ * results are neither rounded to 8 bits nor clamped: clamping only occurs in {@link #toColor()}.
+ *
+ * Instances are mutable and meant to be reused by a single thread.
+ */
+@NotThreadSafe
+public final class ColorAccumulator {
+
+    private double r;
+
+    private double g;
+
+    private double b;
+
+    /**
+     * Resets the accumulated color to black.
+     *
+     * @return itself (allow to chain calls)
+     */
+    public ColorAccumulator reset() {
+        r = 0.;
+        g = 0.;
+        b = 0.;
+        return this;
+    }
+
+    /**
+     * Adds the specified color multiplied by the specified weight.
+     *
+     * @param color The color to add.
+     * @param weight The weight of the color.
+     *
+     * @return itself (allow to chain calls)
+     */
+    public ColorAccumulator add(final Color color, final double weight) {
+        r += color.r() * weight;
+        g += color.g() * weight;
+        b += color.b() * weight;
+        return this;
+    }
+
+    /**
+     * Adds the specified components.
+     *
+     * @param red The red component to add.
+     * @param green The green component to add.
+     * @param blue The blue component to add.
+     *
+     * @return itself (allow to chain calls)
+     */
+    public ColorAccumulator add(final double red, final double green, final double blue) {
+        r += red;
+        g += green;
+        b += blue;
+        return this;
+    }
+
+    /**
+     * @return the accumulated red component, not clamped
+     */
+    public double r() {
+        return r;
+    }
+
+    /**
+     * @return the accumulated green component, not clamped
+     */
+    public double g() {
+        return g;
+    }
+
+    /**
+     * @return the accumulated blue component, not clamped
+     */
+    public double b() {
+        return b;
+    }
+
+    /**
+     * Returns the accumulated color, each component being clamped between 0.0 and 1.0.
+     *
+     * @return The accumulated color.
+     */
+    public Color toColor() {
+        return new Color(clamp(r), clamp(g), clamp(b));
+    }
+
+    private static double clamp(final double value) {
+        return Math.max(0., Math.min(1., value));
+    }
+}
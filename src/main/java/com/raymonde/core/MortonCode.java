@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.core;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@code MortonCode} interleaves the bits of 3D integer coordinates (Z-order curve). Points that are
+ * close in space tend to get close codes, so that sorting by Morton code groups neighbouring points.
+ */
+public final class MortonCode {
+
+    /**
+     * The number of bits of each coordinate.
+     */
+    public static final int BITS_PER_AXIS = 10;
+
+    /**
+     * The number of distinct values of each coordinate.
+     */
+    public static final int CELLS_PER_AXIS = 1 << BITS_PER_AXIS;
+
+    private MortonCode() {
+    }
+
+    /**
+     * Computes the Morton code of the specified cell. Bits of {@code x} come first, i.e. the lowest bit
+     * of the code is the lowest bit of {@code x}.
+     *
+     * @param x The abscissa of the cell, between {@code 0} and {@code CELLS_PER_AXIS - 1}.
+     * @param y The ordinate of the cell, between {@code 0} and {@code CELLS_PER_AXIS - 1}.
+     * @param z The applicate of the cell, between {@code 0} and {@code CELLS_PER_AXIS - 1}.
+     *
+     * @return The 30 bits Morton code of the cell.
+     */
+    public static int encode(final int x, final int y, final int z) {
+        checkArgument(x >= 0 && x < CELLS_PER_AXIS, "x is out of range: %s", x);
+        checkArgument(y >= 0 && y < CELLS_PER_AXIS, "y is out of range: %s", y);
+        checkArgument(z >= 0 && z < CELLS_PER_AXIS, "z is out of range: %s", z);
+
+        return interleave(x, y, z);
+    }
+
+    /**
+     * Computes the Morton code of the cell containing the specified point, the specified bounds being
+     * divided into {@code CELLS_PER_AXIS} cells along each axis. Points outside the bounds are clamped.
+     *
+     * @param point The point.
+     * @param min The lower corner of the bounds.
+     * @param max The upper corner of the bounds.
+     *
+     * @return The 30 bits Morton code of the cell.
+     */
+    public static int encode(final Vector point, final Vector min, final Vector max) {
+        // Quantized coordinates are in range already, they are not checked again for every ray
+        return interleave(
+                quantize(point.x(), min.x(), max.x()),
+                quantize(point.y(), min.y(), max.y()),
+                quantize(point.z(), min.z(), max.z()));
+    }
+
+    private static int quantize(final double value, final double min, final double max) {
+        final double extent = max - min;
+        if (!(extent > 0.)) {
+            return 0;
+        }
+        final int cell = (int) ((value - min) / extent * CELLS_PER_AXIS);
+        return Math.max(0, Math.min(CELLS_PER_AXIS - 1, cell));
+    }
+
+    private static int interleave(final int x, final int y, final int z) {
+        return spread(x) | (spread(y) << 1) | (spread(z) << 2);
+    }
+
+    /**
+     * Inserts two zero bits between each of the 10 lowest bits of the specified value.
+     */
+    private static int spread(final int value) {
+        int v = value & 0x3ff;
+        v = (v | (v << 16)) & 0x030000ff;
+        v = (v | (v << 8)) & 0x0300f00f;
+        v = (v | (v << 4)) & 0x030c30c3;
+        v = (v | (v << 2)) & 0x09249249;
+        return v;
+    }
+}
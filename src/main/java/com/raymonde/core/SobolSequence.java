@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.core;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@code SobolSequence} generates the first two dimensions of the Sobol low-discrepancy sequence.
+ *
+ * The first {@code 2^k} points fill the unit square evenly: every rectangle of area {@code 2^-k} whose sides
+ * are powers of two contains exactly one point. Points can be scrambled by XOR-ing their bits with random
+ * values, which preserves this property while decorrelating the sequences of different pixels.
+ */
+public final class SobolSequence {
+
+    /**
+     * The direction numbers of the second dimension, the first one being the van der Corput sequence.
+     */
+    private static final int[] DIRECTIONS = new int[Integer.SIZE];
+
+    static {
+        DIRECTIONS[0] = 1 << 31;
+        for (int i = 1; i < DIRECTIONS.length; i++) {
+            DIRECTIONS[i] = DIRECTIONS[i - 1] ^ (DIRECTIONS[i - 1] >>> 1);
+        }
+    }
+
+    private SobolSequence() {
+    }
+
+    /**
+     * Computes the specified point of the sequence, scrambled.
+     *
+     * @param index The index of the point in the sequence.
+     * @param scramble The random bits the coordinates are XOR-ed with, {@code 0} for the original sequence.
+     * @param point Receives the two coordinates, in {@code [0, 1)}.
+     */
+    public static void sample(final int index, final long scramble, final double[] point) {
+        checkArgument(index >= 0, "the index must be positive");
+
+        int y = 0;
+        for (int bits = index, i = 0; bits != 0; bits >>>= 1, i++) {
+            if ((bits & 1) != 0) {
+                y ^= DIRECTIONS[i];
+            }
+        }
+        point[0] = toUnit(Integer.reverse(index) ^ (int) scramble);
+        point[1] = toUnit(y ^ (int) (scramble >>> 32));
+    }
+
+    /**
+     * Maps 32 bits to {@code [0, 1)}.
+     */
+    private static double toUnit(final int bits) {
+        return (bits & 0xffffffffL) * 0x1p-32;
+    }
+}
@@ -18,12 +18,19 @@
 
 package com.raymonde.load.yaml;
 
+import com.raymonde.animation.Animation;
+import com.raymonde.animation.FrameRange;
+import com.raymonde.animation.VectorTrack;
 import com.raymonde.core.Color;
 import com.raymonde.core.Vector;
 import com.raymonde.load.SceneBuilder;
 import com.raymonde.load.SceneBuildingException;
 import com.raymonde.render.Camera;
+import com.raymonde.render.IrradianceCache;
+import com.raymonde.render.PathTracingSettings;
+import com.raymonde.render.PhotonTracer;
 import com.raymonde.render.RenderingSurface;
+import com.raymonde.render.SampleSequence;
 import com.raymonde.render.light.Light;
 import com.raymonde.render.light.OmnidirectionalLight;
 import com.raymonde.render.material.*;
@@ -42,7 +49,9 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -112,9 +121,18 @@ public class YamlSceneBuilder implements SceneBuilder {
         val scene = new Scene();
         scene.setAmbientColor(parseColor(sceneConfig.get("ambient")));
 
-        Map<String, Object> cameraConfig = castAs(sceneConfig.get("camera"), Map.class);
-        Camera camera = parseCamera(cameraConfig);
-        scene.addCamera(cameraConfig.get("name").toString(), camera);
+        if (sceneConfig.containsKey("camera")) {
+            Map<String, Object> cameraConfig = castAs(sceneConfig.get("camera"), Map.class);
+            Camera camera = parseCamera(cameraConfig);
+            scene.addCamera(cameraConfig.get("name").toString(), camera);
+        }
+
+        if (sceneConfig.containsKey("cameras")) {
+            Collection<Map> camerasConfig = castAs(sceneConfig.get("cameras"), Collection.class);
+            for (Map<String, Object> cameraConfig : camerasConfig) {
+                scene.addCamera(cameraConfig.get("name").toString(), parseCamera(cameraConfig));
+            }
+        }
 
         Collection<Map> primitivesConfig = castAs(sceneConfig.get("primitives"), Collection.class);
         for (Map<String, Object> primitive : primitivesConfig) {
@@ -126,9 +144,118 @@ public class YamlSceneBuilder implements SceneBuilder {
             scene.addLight(light.get("name").toString(), parseLight(light));
         }
 
+        if (sceneConfig.containsKey("lightSampling")) {
+            Map<String, Object> samplingConfig = castAs(sceneConfig.get("lightSampling"), Map.class);
+            scene.setLightSamples((int) samplingConfig.get("samples"));
+        }
+
+        if (sceneConfig.containsKey("irradianceCache")) {
+            scene.setIrradianceCache(parseIrradianceCache(castAs(sceneConfig.get("irradianceCache"), Map.class)));
+        }
+
+        if (sceneConfig.containsKey("photonMap")) {
+            scene.setPhotonTracer(parsePhotonTracer(castAs(sceneConfig.get("photonMap"), Map.class)));
+        }
+
+        if (sceneConfig.containsKey("pathTracing")) {
+            scene.setPathTracingSettings(parsePathTracingSettings(castAs(sceneConfig.get("pathTracing"), Map.class)));
+        }
+
+        if (sceneConfig.containsKey("animation")) {
+            scene.setAnimation(parseAnimation(castAs(sceneConfig.get("animation"), Map.class)));
+        }
+
         return scene;
     }
 
+    @SuppressWarnings("unchecked")
+    private Animation parseAnimation(final Map<String, Object> animationConfig) {
+        Map<String, Object> framesConfig = castAs(animationConfig.get("frames"), Map.class);
+
+        val cameraPosition = new VectorTrack();
+        val cameraDirection = new VectorTrack();
+        val cameraUp = new VectorTrack();
+        if (animationConfig.containsKey("camera")) {
+            Collection<Map> keyframesConfig = castAs(animationConfig.get("camera"), Collection.class);
+            for (Map<String, Object> keyframe : keyframesConfig) {
+                int frame = (int) keyframe.get("frame");
+                if (keyframe.containsKey("position")) {
+                    cameraPosition.addKeyframe(frame, parseVector(keyframe.get("position")));
+                }
+                if (keyframe.containsKey("direction")) {
+                    cameraDirection.addKeyframe(frame, parseVector(keyframe.get("direction")));
+                }
+                if (keyframe.containsKey("up")) {
+                    cameraUp.addKeyframe(frame, parseVector(keyframe.get("up")));
+                }
+            }
+        }
+
+        Map<String, VectorTrack> lightPositions = new LinkedHashMap<>();
+        if (animationConfig.containsKey("lights")) {
+            Collection<Map> lightsConfig = castAs(animationConfig.get("lights"), Collection.class);
+            for (Map<String, Object> lightConfig : lightsConfig) {
+                val lightPosition = new VectorTrack();
+                Collection<Map> keyframesConfig = castAs(lightConfig.get("keyframes"), Collection.class);
+                for (Map<String, Object> keyframe : keyframesConfig) {
+                    lightPosition.addKeyframe((int) keyframe.get("frame"), parseVector(keyframe.get("position")));
+                }
+                lightPositions.put(lightConfig.get("name").toString(), lightPosition);
+            }
+        }
+
+        Map<String, VectorTrack> primitiveTranslations = new LinkedHashMap<>();
+        if (animationConfig.containsKey("primitives")) {
+            Collection<Map> primitivesConfig = castAs(animationConfig.get("primitives"), Collection.class);
+            for (Map<String, Object> primitiveConfig : primitivesConfig) {
+                val translation = new VectorTrack();
+                Collection<Map> keyframesConfig = castAs(primitiveConfig.get("keyframes"), Collection.class);
+                for (Map<String, Object> keyframe : keyframesConfig) {
+                    translation.addKeyframe((int) keyframe.get("frame"), parseVector(keyframe.get("translation")));
+                }
+                primitiveTranslations.put(primitiveConfig.get("name").toString(), translation);
+            }
+        }
+
+        return Animation.builder()
+                .frames(new FrameRange((int) framesConfig.get("first"), (int) framesConfig.get("last")))
+                .cameraPosition(cameraPosition)
+                .cameraDirection(cameraDirection)
+                .cameraUp(cameraUp)
+                .lightPositions(lightPositions)
+                .primitiveTranslations(primitiveTranslations)
+                .build();
+    }
+
+    private IrradianceCache parseIrradianceCache(final Map<String, Object> cacheConfig) {
+        return IrradianceCache.builder()
+                .samples((int) cacheConfig.getOrDefault("samples", IrradianceCache.DEFAULT_SAMPLES))
+                .accuracy((double) cacheConfig.getOrDefault("accuracy", IrradianceCache.DEFAULT_ACCURACY))
+                .minSpacing((double) cacheConfig.get("minSpacing"))
+                .maxSpacing((double) cacheConfig.get("maxSpacing"))
+                .build();
+    }
+
+    private PhotonTracer parsePhotonTracer(final Map<String, Object> photonMapConfig) {
+        return PhotonTracer.builder()
+                .photons((int) photonMapConfig.get("photons"))
+                .neighbours((int) photonMapConfig.getOrDefault("neighbours", PhotonTracer.DEFAULT_NEIGHBOURS))
+                .maxRadius((double) photonMapConfig.get("maxRadius"))
+                .build();
+    }
+
+    private PathTracingSettings parsePathTracingSettings(final Map<String, Object> pathTracingConfig) {
+        final Object sequence = pathTracingConfig.get("sequence");
+        return PathTracingSettings.builder()
+                .samples((int) pathTracingConfig.getOrDefault("samples", 0))
+                .passes((int) pathTracingConfig.getOrDefault("passes", 0))
+                .maxDepth((int) pathTracingConfig.getOrDefault("maxDepth", 0))
+                .sequence(sequence == null ? null : SampleSequence.valueOf(sequence.toString().toUpperCase(Locale.ROOT)))
+                .seed(((Number) pathTracingConfig.getOrDefault("seed", 0)).longValue())
+                .denoised((boolean) pathTracingConfig.getOrDefault("denoise", false))
+                .build();
+    }
+
     private static final <T> T castAs(Object object, Class<T> targetClass) {
         return targetClass.cast(object);
     }
@@ -177,7 +304,7 @@ public class YamlSceneBuilder implements SceneBuilder {
                 .first(parseVector(points.get(0)))
                 .second(parseVector(points.get(1)))
                 .third(parseVector(points.get(2)))
-                .material(parseMaterial(primitiveConfig.get("material")))
+                .material(parseRootMaterial(primitiveConfig.get("material")))
                 .build();
     }
 
@@ -185,7 +312,7 @@ public class YamlSceneBuilder implements SceneBuilder {
         return Plane.builder()
                 .normal(parseVector(primitiveConfig.get("normal")))
                 .distance((double) primitiveConfig.get("distance"))
-                .material(parseMaterial(primitiveConfig.get("material")))
+                .material(parseRootMaterial(primitiveConfig.get("material")))
                 .build();
     }
 
@@ -193,7 +320,7 @@ public class YamlSceneBuilder implements SceneBuilder {
         return Sphere.builder()
                 .origin(parseVector(primitiveConfig.get("position")))
                 .radius((double) primitiveConfig.get("radius"))
-                .material(parseMaterial(primitiveConfig.get("material")))
+                .material(parseRootMaterial(primitiveConfig.get("material")))
                 .build();
     }
 
@@ -216,6 +343,13 @@ public class YamlSceneBuilder implements SceneBuilder {
                 .build();
     }
 
+    /**
+     * Parses the material of a primitive and compiles it, see {@link MaterialCompiler}.
+     */
+    private Material parseRootMaterial(Object materialConfig) {
+        return MaterialCompiler.compile(parseMaterial(materialConfig));
+    }
+
     private Material parseMaterial(Object materialConfig) {
 
         @SuppressWarnings("unchecked") final Map<String, Object> config = (Map<String, Object>)materialConfig;
@@ -257,10 +391,21 @@ public class YamlSceneBuilder implements SceneBuilder {
         return PhongMaterial.builder()
                 .diffuse((double) materialConfig.get("diffuse"))
                 .specular((double) materialConfig.get("specular"))
+                .accuracy(parseSpecularAccuracy(materialConfig.get("accuracy")))
                 .subMaterial(subMaterial)
                 .build();
     }
 
+    /**
+     * Parses the optional accuracy of the specular term ("exact", the default, "fast" or "approximate").
+     */
+    private SpecularAccuracy parseSpecularAccuracy(Object accuracyConfig) {
+        if (accuracyConfig == null) {
+            return null;
+        }
+        return SpecularAccuracy.valueOf(accuracyConfig.toString().toUpperCase(Locale.ROOT));
+    }
+
     private Material parseRefractiveMaterial(Map<String, Object> materialConfig) {
         Material subMaterial = parseSubMaterialIfExists(materialConfig);
 
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import com.raymonde.core.Color;
+import com.raymonde.core.Vector;
+import com.raymonde.render.primitive.Primitive;
+import com.raymonde.scene.Scene;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.nio.ByteBuffer;
+
+/**
+ * {@code AuxiliaryBuffers} hold, for each pixel, features of the surfaces seen through it: the normal, the
+ * distance to the camera and the diffuse albedo, averaged over the samples of the pixel, along with the
+ * identifiers of the primitive and of the material first seen (see {@link Scene#primitiveId(Primitive)}).
+ * They are noise-free compared to the colors, guide the {@link Denoiser} along the edges of the image, and
+ * can be saved along the colors for compositing.
+ *
+ * Pixels are indexed row by row. Pixels through which no surface is seen get a zero normal, depth, albedo
+ * and identifiers.
+ * Distinct pixels can be accumulated by distinct threads, provided the buffers are read only once they are done.
+ */
+@NotThreadSafe
+public final class AuxiliaryBuffers {
+
+    /**
+     * The number of bytes of the features of a pixel, see {@link #writePixel(int, ByteBuffer)}.
+     */
+    static final int PIXEL_BYTES = 40;
+
+    private final float[] normals;
+
+    private final float[] depths;
+
+    private final float[] albedos;
+
+    private final int[] primitiveIds;
+
+    private final int[] materialIds;
+
+    /**
+     * The number of samples accumulated in each pixel, surfaces being hit or not.
+     */
+    private final int[] samples;
+
+    /**
+     * @param size The number of pixels.
+     */
+    public AuxiliaryBuffers(final int size) {
+        this.normals = new float[3 * size];
+        this.depths = new float[size];
+        this.albedos = new float[3 * size];
+        this.primitiveIds = new int[size];
+        this.materialIds = new int[size];
+        this.samples = new int[size];
+    }
+
+    /**
+     * Adds the features of the surface seen by a sample of the specified pixel.
+     *
+     * @param index The index of the pixel.
+     * @param normal The normal of the surface, facing the camera.
+     * @param depth The distance from the camera to the surface.
+     * @param albedo The diffuse albedo of the surface.
+     */
+    public void accumulate(final int index, final Vector normal, final double depth, final Color albedo) {
+        normals[3 * index] += normal.x();
+        normals[3 * index + 1] += normal.y();
+        normals[3 * index + 2] += normal.z();
+        depths[index] += depth;
+        albedos[3 * index] += albedo.r();
+        albedos[3 * index + 1] += albedo.g();
+        albedos[3 * index + 2] += albedo.b();
+        samples[index]++;
+    }
+
+    /**
+     * Records the features of the surface hit by a primary ray of the specified pixel.
+     *
+     * @param index The index of the pixel.
+     * @param scene The scene the surface belongs to.
+     * @param hit The intersection of the primary ray with the surface.
+     * @param albedo The diffuse albedo of the surface.
+     */
+    public void record(final int index, final Scene scene, final IntersectionResult hit, final Color albedo) {
+        final Vector normal = hit.normal();
+        final Vector facing = normal.dot(hit.getIncomingRay().direction()) > 0. ? normal.opposite() : normal;
+        accumulate(index, facing, hit.distance(), albedo);
+        identify(index, scene.primitiveId(hit.primitive()), scene.materialId(hit.primitive().getMaterial()));
+    }
+
+    /**
+     * Sets the identifiers of the primitive and of the material seen through the specified pixel, unless
+     * they are set already: identifiers cannot be averaged, the first ones are kept.
+     *
+     * @param index The index of the pixel.
+     * @param primitiveId The identifier of the primitive.
+     * @param materialId The identifier of the material.
+     */
+    public void identify(final int index, final int primitiveId, final int materialId) {
+        if (primitiveIds[index] == 0 && materialIds[index] == 0) {
+            primitiveIds[index] = primitiveId;
+            materialIds[index] = materialId;
+        }
+    }
+
+    /**
+     * Records a sample of the specified pixel that did not hit any surface.
+     *
+     * @param index The index of the pixel.
+     */
+    public void accumulateMiss(final int index) {
+        samples[index]++;
+    }
+
+    /**
+     * @param index The index of the pixel.
+     * @param component The component, {@code 0} for x, {@code 1} for y, {@code 2} for z.
+     *
+     * @return the average normal of the pixel
+     */
+    public double normal(final int index, final int component) {
+        return average(normals[3 * index + component], index);
+    }
+
+    /**
+     * @param index The index of the pixel.
+     *
+     * @return the average distance from the camera to the surfaces seen through the pixel
+     */
+    public double depth(final int index) {
+        return average(depths[index], index);
+    }
+
+    /**
+     * @param index The index of the pixel.
+     * @param component The component, {@code 0} for red, {@code 1} for green, {@code 2} for blue.
+     *
+     * @return the average diffuse albedo of the pixel
+     */
+    public double albedo(final int index, final int component) {
+        return average(albedos[3 * index + component], index);
+    }
+
+    /**
+     * @param index The index of the pixel.
+     *
+     * @return the identifier of the primitive seen through the pixel, {@code 0} if there is none
+     */
+    public int primitiveId(final int index) {
+        return primitiveIds[index];
+    }
+
+    /**
+     * @param index The index of the pixel.
+     *
+     * @return the identifier of the material seen through the pixel, {@code 0} if there is none
+     */
+    public int materialId(final int index) {
+        return materialIds[index];
+    }
+
+    /**
+     * Writes the accumulated features of the specified pixel.
+     *
+     * @param index The index of the pixel.
+     * @param out Receives {@link #PIXEL_BYTES} bytes.
+     */
+    void writePixel(final int index, final ByteBuffer out) {
+        for (int c = 0; c < 3; c++) {
+            out.putFloat(normals[3 * index + c]);
+        }
+        out.putFloat(depths[index]);
+        for (int c = 0; c < 3; c++) {
+            out.putFloat(albedos[3 * index + c]);
+        }
+        out.putInt(samples[index]);
+        out.putInt(primitiveIds[index]).putInt(materialIds[index]);
+    }
+
+    /**
+     * Restores the accumulated features of the specified pixel.
+     *
+     * @param index The index of the pixel.
+     * @param in Holds the {@link #PIXEL_BYTES} bytes written by {@link #writePixel(int, ByteBuffer)}.
+     */
+    void readPixel(final int index, final ByteBuffer in) {
+        for (int c = 0; c < 3; c++) {
+            normals[3 * index + c] = in.getFloat();
+        }
+        depths[index] = in.getFloat();
+        for (int c = 0; c < 3; c++) {
+            albedos[3 * index + c] = in.getFloat();
+        }
+        samples[index] = in.getInt();
+        primitiveIds[index] = in.getInt();
+        materialIds[index] = in.getInt();
+    }
+
+    private double average(final float sum, final int index) {
+        return samples[index] == 0 ? 0. : sum / samples[index];
+    }
+}
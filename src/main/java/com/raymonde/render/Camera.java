@@ -69,6 +69,14 @@ public class Camera {
         this.renderingSurfaceSpec = new RenderingSurfaceSpec(width, height, pixelWidth, pixelHeight, distance);
     }
 
+    private Camera(final Vector position, final Vector direction, final Vector up, final RenderingSurfaceSpec renderingSurfaceSpec) {
+        this.position = position;
+        this.direction = direction.normalized();
+        this.up = up.normalized();
+        this.directionCrossUp = direction.cross(up).normalized();
+        this.renderingSurfaceSpec = renderingSurfaceSpec;
+    }
+
     /**
      * @return the position
      */
@@ -83,6 +91,62 @@ public class Camera {
         return this.direction;
     }
 
+    /**
+     * @return the up vector
+     */
+    public Vector getUp() {
+        return this.up;
+    }
+
+    /**
+     * Returns a {@code Camera} placed and oriented as specified, but sharing the rendering surface's
+     * information of the current one.
+     *
+     * @param position The position of the returned camera.
+     * @param direction The direction of the returned camera.
+     * @param up The up vector of the returned camera.
+     *
+     * @return The moved camera.
+     */
+    public Camera movedTo(final Vector position, final Vector direction, final Vector up) {
+        return new Camera(position, direction, up, renderingSurfaceSpec);
+    }
+
+    /**
+     * @return the width in pixels of the surfaces rendered through the camera
+     */
+    public int getPixelWidth() {
+        return renderingSurfaceSpec.getPixelWidth();
+    }
+
+    /**
+     * @return the height in pixels of the surfaces rendered through the camera
+     */
+    public int getPixelHeight() {
+        return renderingSurfaceSpec.getPixelHeight();
+    }
+
+    /**
+     * @return the distance from the camera position to its screen
+     */
+    public double getDistance() {
+        return renderingSurfaceSpec.getDistance();
+    }
+
+    /**
+     * @return the width of the screen of the camera
+     */
+    public double getWidth() {
+        return renderingSurfaceSpec.getWidth();
+    }
+
+    /**
+     * @return the height of the screen of the camera
+     */
+    public double getHeight() {
+        return renderingSurfaceSpec.getHeight();
+    }
+
     public RenderingSurface createRenderingSurface() {
         return new RenderingSurface(renderingSurfaceSpec.getPixelWidth(), renderingSurfaceSpec.getPixelHeight());
     }
@@ -97,19 +161,67 @@ public class Camera {
      * @return the resulting {@link Ray}
      */
     public Ray rayThroughPixel(final Pixel pixel) {
-        return Ray.joining(position, absolutePositionOfPixel(pixel));
+        return Ray.joining(position, absolutePositionOfPixel(pixel.x(), pixel.y()));
+    }
+
+    /**
+     * Returns a {@link Ray} that goes from the camera origin to a point of the specified pixel, offset from
+     * its center. Used to sample the area of the pixel.
+     *
+     * @param pixel the {@link Pixel} the resulting ray should pass through
+     * @param dx the horizontal offset from the center, in pixels, between {@code -0.5} and {@code 0.5}
+     * @param dy the vertical offset from the center, in pixels, between {@code -0.5} and {@code 0.5}
+     *
+     * @return the resulting {@link Ray}
+     */
+    public Ray rayThroughPixel(final Pixel pixel, final double dx, final double dy) {
+        return Ray.joining(position, absolutePositionOfPixel(pixel.x() + dx, pixel.y() + dy));
+    }
+
+    /**
+     * Projects the specified point onto the screen of the camera, inverting
+     * {@link #rayThroughPixel(Pixel, double, double)}: the ray through the returned position passes through
+     * the point.
+     *
+     * @param point A point of the scene.
+     *
+     * @return The position on the screen, in pixels, as the x and y coordinates of a vector whose z coordinate
+     * is the distance to the point along the view direction divided by the distance of the screen.
+     * {@code null} if the point is not in front of the camera.
+     */
+    public Vector project(final Vector point) {
+        final Vector toScreen = direction.multiply(renderingSurfaceSpec.getDistance());
+        final Vector toPoint = point.subtract(position);
+
+        // Solves toPoint = t * (toScreen + a * directionCrossUp + b * up), the basis may not be orthogonal
+        final double determinant = determinant(toScreen, directionCrossUp, up);
+        final double t = determinant(toPoint, directionCrossUp, up) / determinant;
+        if (!(t > 0.)) {
+            return null;
+        }
+        final double a = determinant(toScreen, toPoint, up) / determinant / t;
+        final double b = determinant(toScreen, directionCrossUp, toPoint) / determinant / t;
+
+        final double x = a / renderingSurfaceSpec.widthOfPixel() + (renderingSurfaceSpec.getPixelWidth() - 1) / 2.;
+        final double y = (renderingSurfaceSpec.getPixelHeight() - 1) / 2. - b / renderingSurfaceSpec.heightOfPixel();
+        return new Vector(x, y, t);
+    }
+
+    private static double determinant(final Vector first, final Vector second, final Vector third) {
+        return first.dot(second.cross(third));
     }
 
     /**
-     * Computes the absolute position of the specified pixel on the screen.
+     * Computes the absolute position of the specified point on the screen.
      *
-     * @param pixel
-     * @return a {@code Vector} representing the absolute position of the specified pixel on the rendering screen.
+     * @param x the abscissa of the point, in pixels
+     * @param y the ordinate of the point, in pixels
+     * @return a {@code Vector} representing the absolute position of the specified point on the rendering screen.
      */
-    private Vector absolutePositionOfPixel(final Pixel pixel) {
+    private Vector absolutePositionOfPixel(final double x, final double y) {
 
-        final double yFactor = (renderingSurfaceSpec.getPixelHeight() - 1) / 2. - pixel.y();
-        final double xFactor = pixel.x() - ((renderingSurfaceSpec.getPixelWidth() - 1) / 2.);
+        final double yFactor = (renderingSurfaceSpec.getPixelHeight() - 1) / 2. - y;
+        final double xFactor = x - ((renderingSurfaceSpec.getPixelWidth() - 1) / 2.);
 
         final double somethingDependingOnX = xFactor * renderingSurfaceSpec.widthOfPixel();
         final double somethingDependingOnY = yFactor * renderingSurfaceSpec.heightOfPixel();
@@ -23,13 +23,17 @@ import com.raymonde.scene.Scene;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.BitSet;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
  * The default renderer. The initial renderer developed for ray-monde.
  */
 public class DefaultRenderer implements Renderer {
 
     /**
-     *
+     * The maximum depth of the ray tree (i.e. the number of successive reflections/refractions).
      */
     protected static final int DEFAULT_MAX_DEPTH = 8;
 
@@ -43,6 +47,12 @@ public class DefaultRenderer implements Renderer {
      */
     private Scene scene;
 
+    /**
+     * Evaluates the ray tree of each primary ray.
+     */
+    private final RayTreeEvaluator evaluator =
+            new RayTreeEvaluator(DEFAULT_MAX_DEPTH, new RussianRoulette(RussianRoulette.DEFAULT_THRESHOLD));
+
     /**
      * Renders the specified {@link Scene} through the specified {@link Camera}
      *
@@ -52,24 +62,133 @@ public class DefaultRenderer implements Renderer {
      * @return
      */
     public RenderingSurface renderSceneThroughCamera(final Scene scene, final Camera camera) {
+        return renderSceneOnto(scene, camera, camera.createRenderingSurface());
+    }
+
+    /**
+     * Renders the specified {@link Scene} through the specified {@link Camera} onto the specified surface,
+     * row by row.
+     *
+     * @param scene
+     * @param camera
+     * @param rendered
+     *
+     * @return
+     */
+    @Override
+    public RenderingSurface renderSceneOnto(final Scene scene, final Camera camera,
+            final RenderingSurface rendered) {
+        return renderSceneOnto(scene, camera, rendered, null);
+    }
+
+    /**
+     * Renders the specified {@link Scene} through the specified {@link Camera} onto the specified surface,
+     * row by row, caching the nearest intersection of each primary ray so that the scene can be
+     * {@link #relight(Scene, GBuffer, RenderingSurface) relit} afterwards.
+     *
+     * @param scene The scene.
+     * @param camera The camera.
+     * @param rendered The surface to render onto, as large as the surfaces of the camera.
+     * @param gBuffer Receives the primary intersections, may be {@code null}.
+     *
+     * @return The specified surface.
+     */
+    public RenderingSurface renderSceneOnto(final Scene scene, final Camera camera,
+            final RenderingSurface rendered, final GBuffer gBuffer) {
+        checkArgument(gBuffer == null || gBuffer.getCamera() == camera, "the G-buffer caches another camera");
         // TODO: shouldn't need to have to set the scene
         setScene(scene);
-        RenderingSurface rendered = camera.createRenderingSurface();
+        ShadowCache.current().clear();
 
+        final AuxiliaryBuffers auxiliary = rendered.getAuxiliaryBuffers();
         rendered.eachPixel(pixel -> {
-            Ray ray = camera.rayThroughPixel(pixel);
+            final int index = pixel.y() * rendered.getPixelWidth() + pixel.x();
+            final IntersectionResult hit = scene.nearestIntersection(camera.rayThroughPixel(pixel));
+            if (gBuffer != null) {
+                gBuffer.record(index, hit);
+            }
 
             RenderingContext ctx = new RenderingContext(0, 1.);
             ctx.setRefraction(1.0);
-            Color computedColor = computeColor(ray, ctx);
+            rendered.setPixelColor(pixel, evaluator.evaluate(this, scene, hit, ctx, auxiliary, index));
+        });
+
+        return rendered;
+    }
+
+    /**
+     * Shades the specified scene again from the primary intersections cached by a previous rendering, which
+     * is much cheaper than rendering it again when only its lights or its ambient color changed: shadow and
+     * secondary rays are traced, primary rays are not.
+     *
+     * @param scene The scene, whose primitives must be those the intersections were cached from (see
+     *              {@link Scene#withLighting(Scene)}).
+     * @param gBuffer The primary intersections.
+     * @param rendered The surface to render onto, as large as the surfaces of the camera.
+     *
+     * @return The specified surface.
+     */
+    public RenderingSurface relight(final Scene scene, final GBuffer gBuffer, final RenderingSurface rendered) {
+        checkArgument(rendered.getPixelWidth() == gBuffer.getCamera().getPixelWidth()
+                && rendered.getPixelHeight() == gBuffer.getCamera().getPixelHeight(),
+                "the surface does not match the G-buffer");
+        setScene(scene);
+        ShadowCache.current().clear();
 
-            rendered.setPixelColor(pixel, computedColor);
+        final AuxiliaryBuffers auxiliary = rendered.getAuxiliaryBuffers();
+        rendered.eachPixel(pixel -> {
+            RenderingContext ctx = new RenderingContext(0, 1.);
+            ctx.setRefraction(1.0);
+            rendered.setPixelColor(pixel, evaluator.evaluate(this, scene, gBuffer.hit(pixel), ctx, auxiliary,
+                    pixel.y() * rendered.getPixelWidth() + pixel.x()));
         });
 
         return rendered;
     }
 
     /**
+     * Renders again the specified pixels of a surface rendered with a G-buffer, after the scene changed.
+     * The primary rays of the pixels to trace again are intersected with the scene, and their intersections
+     * are recorded in the G-buffer. The other pixels are shaded from the intersections it caches.
+     *
+     * @param scene The scene.
+     * @param gBuffer The primary intersections.
+     * @param rendered The surface to render onto, as large as the surfaces of the camera.
+     * @param retraced The indexes of the pixels whose primary rays must be traced again.
+     * @param reshaded The indexes of the pixels to shade again from the G-buffer.
+     *
+     * @return The specified surface.
+     */
+    public RenderingSurface renderPixels(final Scene scene, final GBuffer gBuffer, final RenderingSurface rendered,
+            final BitSet retraced, final BitSet reshaded) {
+        setScene(scene);
+        ShadowCache.current().clear();
+
+        final Camera camera = gBuffer.getCamera();
+        final AuxiliaryBuffers auxiliary = rendered.getAuxiliaryBuffers();
+        final BitSet pixels = (BitSet) retraced.clone();
+        pixels.or(reshaded);
+        final int width = rendered.getPixelWidth();
+        for (int index = pixels.nextSetBit(0); index >= 0; index = pixels.nextSetBit(index + 1)) {
+            final Pixel pixel = new Pixel(index % width, index / width);
+            final IntersectionResult hit;
+            if (retraced.get(index)) {
+                hit = scene.nearestIntersection(camera.rayThroughPixel(pixel));
+                gBuffer.record(index, hit);
+            } else {
+                hit = gBuffer.hit(pixel);
+            }
+
+            RenderingContext ctx = new RenderingContext(0, 1.);
+            ctx.setRefraction(1.0);
+            rendered.setPixelColor(pixel, evaluator.evaluate(this, scene, hit, ctx, auxiliary, index));
+        }
+
+        return rendered;
+    }
+
+    /**
+     * Computes the color seen along the specified ray, reflections and refractions included.
      *
      * @param ray The ray.
      * @param ctx The current context.
@@ -78,19 +197,14 @@ public class DefaultRenderer implements Renderer {
      */
     public Color computeColor(final Ray ray,
             final RenderingContext ctx) {
+        return evaluator.evaluate(this, getScene(), ray, ctx);
+    }
 
-        //double refraction = ctx.getRefraction();
-        Scene sc = getScene();
-        IntersectionResult intersection = sc.nearestIntersection(ray);
-
-        Color result = Color.black();
-        
-        if (intersection != null) {
-            result = intersection.primitive().getMaterial()
-                .computeColor(this, sc, intersection, ctx);
-        }
-
-        return result;
+    /**
+     * @return the maximum depth of the ray tree
+     */
+    public int getMaxDepth() {
+        return evaluator.getMaxDepth();
     }
     
     /**
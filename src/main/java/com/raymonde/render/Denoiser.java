@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import lombok.Builder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@code Denoiser} smooths the noise of images rendered with few samples per pixel, while keeping their
+ * edges sharp. It implements the edge-avoiding à-trous wavelet filter: each iteration applies a 5x5
+ * B3-spline kernel whose taps are spread twice as far apart as in the previous iteration, so that a few
+ * iterations cover a wide footprint at a low cost.
+ *
+ * Each tap is weighted by how similar the neighbouring pixel is to the filtered one, regarding its color and
+ * the {@link AuxiliaryBuffers features} of the seen surface (normal, depth, albedo). Pixels seeing another
+ * surface hardly contribute, which keeps geometric edges and texture edges intact. Color differences are
+ * relative to the brightness of the pixels, as the noise of bright pixels is larger, and their tolerance is
+ * tightened at each iteration, as the noise decreases.
+ *
+ * Each iteration filters the tiles of the image in parallel.
+ */
+@ThreadSafe
+@Immutable
+public class Denoiser {
+
+    public static final int DEFAULT_ITERATIONS = 5;
+
+    public static final double DEFAULT_COLOR_SIGMA = 1.;
+
+    public static final double DEFAULT_NORMAL_SIGMA = 0.3;
+
+    public static final double DEFAULT_DEPTH_SIGMA = 0.05;
+
+    public static final double DEFAULT_ALBEDO_SIGMA = 0.1;
+
+    private static final Logger logger = LoggerFactory.getLogger(Denoiser.class);
+
+    /**
+     * The width and height in pixels of the tiles filtered in parallel.
+     */
+    private static final int TILE_SIZE = 32;
+
+    /**
+     * Keeps the relative color differences of dark pixels bounded.
+     */
+    private static final double EPSILON = 1e-2;
+
+    /**
+     * The B3-spline kernel, along one axis.
+     */
+    private static final double[] KERNEL = {1. / 16., 1. / 4., 3. / 8., 1. / 4., 1. / 16.};
+
+    /**
+     * The number of iterations, i.e. of kernel sizes.
+     */
+    private final int iterations;
+
+    /**
+     * The tolerance to color differences of the first iteration.
+     */
+    private final double colorSigma;
+
+    /**
+     * The tolerance to normal differences.
+     */
+    private final double normalSigma;
+
+    /**
+     * The tolerance to depth differences, relative to the depth.
+     */
+    private final double depthSigma;
+
+    /**
+     * The tolerance to albedo differences.
+     */
+    private final double albedoSigma;
+
+    /**
+     * Zero values stand for the defaults.
+     *
+     * @param iterations The number of iterations, i.e. of kernel sizes.
+     * @param colorSigma The tolerance to color differences of the first iteration.
+     * @param normalSigma The tolerance to normal differences.
+     * @param depthSigma The tolerance to depth differences, relative to the depth.
+     * @param albedoSigma The tolerance to albedo differences.
+     */
+    @Builder
+    public Denoiser(final int iterations, final double colorSigma, final double normalSigma,
+            final double depthSigma, final double albedoSigma) {
+        checkArgument(iterations >= 0, "the number of iterations must be positive");
+        checkArgument(colorSigma >= 0. && normalSigma >= 0. && depthSigma >= 0. && albedoSigma >= 0.,
+                "the tolerances must be positive");
+
+        this.iterations = iterations == 0 ? DEFAULT_ITERATIONS : iterations;
+        this.colorSigma = colorSigma == 0. ? DEFAULT_COLOR_SIGMA : colorSigma;
+        this.normalSigma = normalSigma == 0. ? DEFAULT_NORMAL_SIGMA : normalSigma;
+        this.depthSigma = depthSigma == 0. ? DEFAULT_DEPTH_SIGMA : depthSigma;
+        this.albedoSigma = albedoSigma == 0. ? DEFAULT_ALBEDO_SIGMA : albedoSigma;
+    }
+
+    /**
+     * Filters the averaged samples of the specified buffer.
+     *
+     * @param buffer The noisy buffer, along with its auxiliary buffers.
+     *
+     * @return A buffer holding a single, filtered, sample per pixel. It shares the auxiliary buffers of the
+     * specified one.
+     */
+    public FrameBuffer denoise(final FrameBuffer buffer) {
+        final int width = buffer.getWidth();
+        final int height = buffer.getHeight();
+        final Guide guide = new Guide(buffer.getAuxiliaryBuffers(), width * height);
+
+        float[] colors = new float[3 * width * height];
+        float[] filtered = new float[3 * width * height];
+        for (int i = 0; i < width * height; i++) {
+            colors[3 * i] = (float) buffer.red(i);
+            colors[3 * i + 1] = (float) buffer.green(i);
+            colors[3 * i + 2] = (float) buffer.blue(i);
+        }
+
+        final List<Tile> tiles = Tile.covering(width, height, TILE_SIZE);
+        logger.debug("denoising {}x{} pixels with {} iterations", width, height, iterations);
+
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            final int step = 1 << iteration;
+            final double sigma = colorSigma / Math.sqrt(step);
+            final float[] source = colors;
+            final float[] target = filtered;
+            tiles.parallelStream().forEach(tile -> filter(tile, width, height, step, sigma, guide, source, target));
+
+            filtered = colors;
+            colors = target;
+        }
+
+        final FrameBuffer denoised = new FrameBuffer(width, height, buffer.getAuxiliaryBuffers());
+        for (int i = 0; i < width * height; i++) {
+            denoised.accumulate(i, colors[3 * i], colors[3 * i + 1], colors[3 * i + 2], 1);
+        }
+        return denoised;
+    }
+
+    /**
+     * Applies one iteration of the filter to a tile.
+     */
+    private void filter(final Tile tile, final int width, final int height, final int step, final double sigma,
+            final Guide guide, final float[] source, final float[] target) {
+        final double inverseColor = 1. / (sigma * sigma);
+        final double inverseNormal = 1. / (normalSigma * normalSigma);
+        final double inverseAlbedo = 1. / (albedoSigma * albedoSigma);
+
+        for (int y = tile.y(); y < tile.y() + tile.height(); y++) {
+            for (int x = tile.x(); x < tile.x() + tile.width(); x++) {
+                final int p = y * width + x;
+                double sumR = 0.;
+                double sumG = 0.;
+                double sumB = 0.;
+                double sumWeights = 0.;
+
+                for (int j = -2; j <= 2; j++) {
+                    final int qy = y + j * step;
+                    if (qy < 0 || qy >= height) {
+                        continue;
+                    }
+                    for (int i = -2; i <= 2; i++) {
+                        final int qx = x + i * step;
+                        if (qx < 0 || qx >= width) {
+                            continue;
+                        }
+                        final int q = qy * width + qx;
+
+                        final double colorDistance = squaredDistance(source, p, q)
+                                / (squaredNorm(source, p) + squaredNorm(source, q) + EPSILON);
+                        final double normalDistance = squaredDistance(guide.normals, p, q);
+                        final double albedoDistance = squaredDistance(guide.albedos, p, q);
+                        final double farthest = Math.max(guide.depths[p], guide.depths[q]);
+                        final double depthDistance = farthest > 0.
+                                ? Math.abs(guide.depths[p] - guide.depths[q]) / farthest : 0.;
+
+                        final double weight = KERNEL[i + 2] * KERNEL[j + 2] * Math.exp(
+                                - colorDistance * inverseColor
+                                - normalDistance * inverseNormal
+                                - albedoDistance * inverseAlbedo
+                                - depthDistance / depthSigma);
+
+                        sumR += source[3 * q] * weight;
+                        sumG += source[3 * q + 1] * weight;
+                        sumB += source[3 * q + 2] * weight;
+                        sumWeights += weight;
+                    }
+                }
+
+                // The filtered pixel itself always has a non-zero weight
+                target[3 * p] = (float) (sumR / sumWeights);
+                target[3 * p + 1] = (float) (sumG / sumWeights);
+                target[3 * p + 2] = (float) (sumB / sumWeights);
+            }
+        }
+    }
+
+    private static double squaredNorm(final float[] values, final int p) {
+        return values[3 * p] * values[3 * p] + values[3 * p + 1] * values[3 * p + 1] + values[3 * p + 2] * values[3 * p + 2];
+    }
+
+    private static double squaredDistance(final float[] values, final int p, final int q) {
+        final double dx = values[3 * p] - values[3 * q];
+        final double dy = values[3 * p + 1] - values[3 * q + 1];
+        final double dz = values[3 * p + 2] - values[3 * q + 2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * The averaged auxiliary buffers, laid out like the colors.
+     */
+    private static final class Guide {
+
+        private final float[] normals;
+
+        private final float[] depths;
+
+        private final float[] albedos;
+
+        private Guide(final AuxiliaryBuffers auxiliary, final int size) {
+            this.normals = new float[3 * size];
+            this.depths = new float[size];
+            this.albedos = new float[3 * size];
+            for (int i = 0; i < size; i++) {
+                for (int c = 0; c < 3; c++) {
+                    normals[3 * i + c] = (float) auxiliary.normal(i, c);
+                    albedos[3 * i + c] = (float) auxiliary.albedo(i, c);
+                }
+                depths[i] = (float) auxiliary.depth(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import com.raymonde.core.Color;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.nio.ByteBuffer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@code FrameBuffer} accumulates the samples of each pixel with a float precision per component. Unlike a
+ * {@link RenderingSurface}, values are neither rounded to 8 bits nor clamped, so that many samples can be
+ * averaged without loss.
+ *
+ * Pixels are indexed row by row. Distinct pixels can be accumulated by distinct threads, provided the
+ * buffer is read only once they are done.
+ */
+@NotThreadSafe
+public final class FrameBuffer {
+
+    /**
+     * The number of bytes of the state of a pixel, see {@link #writePixel(int, ByteBuffer)}.
+     */
+    static final int PIXEL_BYTES = 16 + AuxiliaryBuffers.PIXEL_BYTES;
+
+    private final int width;
+
+    private final int height;
+
+    private final float[] red;
+
+    private final float[] green;
+
+    private final float[] blue;
+
+    /**
+     * The number of samples accumulated in each pixel.
+     */
+    private final int[] samples;
+
+    /**
+     * The features of the surfaces seen through each pixel.
+     */
+    private final AuxiliaryBuffers auxiliaryBuffers;
+
+    /**
+     * @param width The width in pixels of the buffer.
+     * @param height The height in pixels of the buffer.
+     */
+    public FrameBuffer(final int width, final int height) {
+        this(width, height, new AuxiliaryBuffers(width * height));
+    }
+
+    /**
+     * @param width The width in pixels of the buffer.
+     * @param height The height in pixels of the buffer.
+     * @param auxiliaryBuffers The features of the surfaces seen through each pixel, shared with another buffer.
+     */
+    FrameBuffer(final int width, final int height, final AuxiliaryBuffers auxiliaryBuffers) {
+        checkArgument(width > 0 && height > 0, "the dimensions must be strictly positive");
+        this.width = width;
+        this.height = height;
+        this.red = new float[width * height];
+        this.green = new float[width * height];
+        this.blue = new float[width * height];
+        this.samples = new int[width * height];
+        this.auxiliaryBuffers = auxiliaryBuffers;
+    }
+
+    /**
+     * Creates a buffer holding a single sample per pixel, the color of the pixel on the specified surface.
+     * Pixels that have not been set are black. The buffer shares the auxiliary buffers of the surface, if any.
+     *
+     * @param surface The rendered surface.
+     *
+     * @return The resulting buffer.
+     */
+    public static FrameBuffer of(final RenderingSurface surface) {
+        final int width = surface.getPixelWidth();
+        final int height = surface.getPixelHeight();
+        final AuxiliaryBuffers auxiliary = surface.getAuxiliaryBuffers();
+        final FrameBuffer buffer = new FrameBuffer(width, height,
+                auxiliary != null ? auxiliary : new AuxiliaryBuffers(width * height));
+        final Color[] colors = surface.getColors();
+        for (int index = 0; index < colors.length; index++) {
+            final Color color = colors[index] != null ? colors[index] : Color.black();
+            buffer.accumulate(index, color.r(), color.g(), color.b(), 1);
+        }
+        return buffer;
+    }
+
+    /**
+     * Adds the sum of some samples to the specified pixel.
+     *
+     * @param index The index of the pixel, i.e. {@code y * width + x}.
+     * @param r The sum of the red components of the samples.
+     * @param g The sum of the green components of the samples.
+     * @param b The sum of the blue components of the samples.
+     * @param count The number of samples.
+     */
+    public void accumulate(final int index, final double r, final double g, final double b, final int count) {
+        red[index] += r;
+        green[index] += g;
+        blue[index] += b;
+        samples[index] += count;
+    }
+
+    /**
+     * @param index The index of the pixel.
+     *
+     * @return the average red component of the samples of the pixel, {@code 0} if it has none
+     */
+    public double red(final int index) {
+        return samples[index] == 0 ? 0. : red[index] / samples[index];
+    }
+
+    /**
+     * @param index The index of the pixel.
+     *
+     * @return the average green component of the samples of the pixel, {@code 0} if it has none
+     */
+    public double green(final int index) {
+        return samples[index] == 0 ? 0. : green[index] / samples[index];
+    }
+
+    /**
+     * @param index The index of the pixel.
+     *
+     * @return the average blue component of the samples of the pixel, {@code 0} if it has none
+     */
+    public double blue(final int index) {
+        return samples[index] == 0 ? 0. : blue[index] / samples[index];
+    }
+
+    /**
+     * @param index The index of the pixel.
+     *
+     * @return the number of samples accumulated in the pixel
+     */
+    public int samples(final int index) {
+        return samples[index];
+    }
+
+    /**
+     * Writes the accumulated samples of the specified pixel, along with its auxiliary features, so that they
+     * can be restored with {@link #readPixel(int, ByteBuffer)}.
+     *
+     * @param index The index of the pixel.
+     * @param out Receives {@link #PIXEL_BYTES} bytes.
+     */
+    void writePixel(final int index, final ByteBuffer out) {
+        out.putFloat(red[index]).putFloat(green[index]).putFloat(blue[index]).putInt(samples[index]);
+        auxiliaryBuffers.writePixel(index, out);
+    }
+
+    /**
+     * Restores the accumulated samples of the specified pixel, along with its auxiliary features.
+     *
+     * @param index The index of the pixel.
+     * @param in Holds the {@link #PIXEL_BYTES} bytes written by {@link #writePixel(int, ByteBuffer)}.
+     */
+    void readPixel(final int index, final ByteBuffer in) {
+        red[index] = in.getFloat();
+        green[index] = in.getFloat();
+        blue[index] = in.getFloat();
+        samples[index] = in.getInt();
+        auxiliaryBuffers.readPixel(index, in);
+    }
+
+    /**
+     * @return the features of the surfaces seen through each pixel
+     */
+    public AuxiliaryBuffers getAuxiliaryBuffers() {
+        return auxiliaryBuffers;
+    }
+
+    /**
+     * @return the width in pixels of the buffer
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height in pixels of the buffer
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Averages the samples of each pixel into a new {@link RenderingSurface}, which shares the auxiliary
+     * buffers.
+     *
+     * @return The resulting surface.
+     */
+    public RenderingSurface toRenderingSurface() {
+        final RenderingSurface surface = new RenderingSurface(width, height);
+        surface.setAuxiliaryBuffers(auxiliaryBuffers);
+        return copyOnto(surface);
+    }
+
+    /**
+     * Averages the samples of each pixel onto the specified surface, e.g. one stored off the heap, without
+     * building an intermediate surface. If the surface has auxiliary buffers, they are replaced by those of
+     * the buffer.
+     *
+     * @param surface The surface, as large as the buffer.
+     *
+     * @return The specified surface.
+     */
+    public RenderingSurface copyOnto(final RenderingSurface surface) {
+        checkArgument(surface.getPixelWidth() == width && surface.getPixelHeight() == height,
+                "the surface does not match the buffer");
+        if (surface.getAuxiliaryBuffers() != null) {
+            surface.setAuxiliaryBuffers(auxiliaryBuffers);
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final int index = y * width + x;
+                surface.setPixelColor(new Pixel(x, y),
+                        new Color(clamp(red(index)), clamp(green(index)), clamp(blue(index))));
+            }
+        }
+        return surface;
+    }
+
+    /**
+     * Returns the clamped average of the specified sums of samples, the color the pixel would get if they
+     * were accumulated in an empty buffer.
+     *
+     * @param r The sum of the red components of the samples.
+     * @param g The sum of the green components of the samples.
+     * @param b The sum of the blue components of the samples.
+     * @param count The number of samples, strictly positive.
+     *
+     * @return The average color.
+     */
+    static Color average(final double r, final double g, final double b, final int count) {
+        // Sums are stored in single precision
+        return new Color(clamp((float) r / count), clamp((float) g / count), clamp((float) b / count));
+    }
+
+    private static double clamp(final double value) {
+        return Math.max(0., Math.min(1., value));
+    }
+}
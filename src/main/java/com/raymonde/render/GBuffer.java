@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import com.raymonde.core.Vector;
+import com.raymonde.render.primitive.Primitive;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@code GBuffer} caches, for each pixel of a camera, the nearest intersection of its primary ray: the
+ * position and normal of the surface and the primitive hit, which gives the material. A scene whose lights
+ * or ambient color changed can then be shaded again from the cache, without intersecting the primary rays
+ * with the scene again (see {@link DefaultRenderer#relight(com.raymonde.scene.Scene, GBuffer, RenderingSurface)}).
+ *
+ * The view direction is not stored: primary rays are recomputed from the camera, which is cheap and gives
+ * back the very same rays. The cache is only valid as long as the primitives and the camera are unchanged.
+ *
+ * Pixels are indexed row by row. Distinct pixels can be recorded by distinct threads, provided the buffer is
+ * read only once they are done.
+ */
+@NotThreadSafe
+public final class GBuffer {
+
+    private final Camera camera;
+
+    private final double[] positions;
+
+    private final double[] normals;
+
+    private final double[] distances;
+
+    /**
+     * The primitive hit through each pixel, {@code null} if there is none.
+     */
+    private final Primitive[] primitives;
+
+    /**
+     * @param camera The camera whose primary rays are cached.
+     */
+    public GBuffer(final Camera camera) {
+        final long size = (long) camera.getPixelWidth() * camera.getPixelHeight();
+        checkArgument(size <= Integer.MAX_VALUE / 3, "the camera has too many pixels to be cached");
+        this.camera = camera;
+        this.positions = new double[3 * (int) size];
+        this.normals = new double[3 * (int) size];
+        this.distances = new double[(int) size];
+        this.primitives = new Primitive[(int) size];
+    }
+
+    /**
+     * Records the nearest intersection of the primary ray of the specified pixel.
+     *
+     * @param index The index of the pixel.
+     * @param hit The intersection, {@code null} if the ray does not hit anything.
+     */
+    public void record(final int index, final IntersectionResult hit) {
+        if (hit == null) {
+            primitives[index] = null;
+            return;
+        }
+        primitives[index] = hit.primitive();
+        distances[index] = hit.distance();
+        put(positions, index, hit.getIntersectionPosition());
+        put(normals, index, hit.normal());
+    }
+
+    /**
+     * Returns the nearest intersection of the primary ray of the specified pixel, as recorded.
+     *
+     * @param pixel The pixel.
+     *
+     * @return The intersection, {@code null} if the ray does not hit anything.
+     */
+    public IntersectionResult hit(final Pixel pixel) {
+        final int index = pixel.y() * camera.getPixelWidth() + pixel.x();
+        final Primitive primitive = primitives[index];
+        if (primitive == null) {
+            return null;
+        }
+        return new IntersectionResult(primitive, camera.rayThroughPixel(pixel), distances[index],
+                get(positions, index), get(normals, index));
+    }
+
+    /**
+     * Returns the position of the surface seen through the specified pixel.
+     *
+     * @param index The index of the pixel.
+     *
+     * @return The position, {@code null} if the primary ray does not hit anything.
+     */
+    public Vector position(final int index) {
+        return primitives[index] == null ? null : get(positions, index);
+    }
+
+    /**
+     * @return the camera whose primary rays are cached
+     */
+    public Camera getCamera() {
+        return camera;
+    }
+
+    private static void put(final double[] values, final int index, final Vector vector) {
+        values[3 * index] = vector.x();
+        values[3 * index + 1] = vector.y();
+        values[3 * index + 2] = vector.z();
+    }
+
+    private static Vector get(final double[] values, final int index) {
+        return new Vector(values[3 * index], values[3 * index + 1], values[3 * index + 2]);
+    }
+}
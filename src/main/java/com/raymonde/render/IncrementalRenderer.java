@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import com.raymonde.core.Vector;
+import com.raymonde.render.light.Light;
+import com.raymonde.render.primitive.BoundingBox;
+import com.raymonde.scene.Scene;
+import com.raymonde.scene.SceneChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * {@code IncrementalRenderer} keeps the image of a scene up to date while the scene is edited, e.g. by an
+ * interactive layout tool. The first rendering caches the primary intersections in a {@link GBuffer}; the
+ * following ones only render again the pixels the changes recorded by the scene (see
+ * {@link Scene#trackChanges()}) may affect:
+ * <ul>
+ * <li>a primitive added, moved or removed: the pixels its box projects onto, before and after the change,
+ * are traced again, and the pixels whose shadow rays pass through one of the boxes are shaded again;</li>
+ * <li>a light added, moved or removed: the pixels seeing a surface within its influence are shaded again;</li>
+ * <li>the ambient color: every pixel seeing a surface is shaded again.</li>
+ * </ul>
+ * Pixels seeing a surface that emits secondary rays (reflections, refractions) are shaded again on every
+ * change, since these rays may see anything. Scenes with indirect lighting or caustics are rendered again
+ * entirely.
+ */
+@NotThreadSafe
+public class IncrementalRenderer {
+
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalRenderer.class);
+
+    private final DefaultRenderer renderer = new DefaultRenderer();
+
+    private final Scene scene;
+
+    private final Camera camera;
+
+    private final GBuffer gBuffer;
+
+    private final RenderingSurface surface;
+
+    /**
+     * The pixels seeing a surface that emits secondary rays.
+     */
+    private final BitSet secondaryPixels = new BitSet();
+
+    private boolean rendered;
+
+    private int renderedPixels;
+
+    /**
+     * @param scene The scene, whose changes are tracked from the first rendering on.
+     * @param camera The camera the scene is rendered through.
+     */
+    public IncrementalRenderer(final Scene scene, final Camera camera) {
+        this.scene = scene;
+        this.camera = camera;
+        this.gBuffer = new GBuffer(camera);
+        this.surface = camera.createRenderingSurface();
+    }
+
+    /**
+     * Renders the whole scene the first time, then only the pixels affected by the changes made to the scene
+     * since the previous rendering.
+     *
+     * @return The up to date surface, the same at each call.
+     */
+    public RenderingSurface render() {
+        if (!rendered) {
+            scene.trackChanges();
+            scene.takeChanges();
+            renderAll();
+            rendered = true;
+            return surface;
+        }
+
+        final List<SceneChange> changes = scene.takeChanges();
+        if (changes.isEmpty()) {
+            renderedPixels = 0;
+            return surface;
+        }
+        if (scene.getIrradianceCache() != null || scene.getPhotonTracer() != null) {
+            renderAll();
+            return surface;
+        }
+
+        final int size = camera.getPixelWidth() * camera.getPixelHeight();
+        final BitSet retraced = new BitSet(size);
+        final List<BoundingBox> boxes = new ArrayList<>();
+        final List<Light> lights = new ArrayList<>();
+        boolean ambient = false;
+        for (SceneChange change : changes) {
+            addBounds(change.getPrimitiveBefore() == null ? null : change.getPrimitiveBefore().bounds(), boxes);
+            addBounds(change.getPrimitiveAfter() == null ? null : change.getPrimitiveAfter().bounds(), boxes);
+            if (change.getLightBefore() != null) {
+                lights.add(change.getLightBefore());
+            }
+            if (change.getLightAfter() != null) {
+                lights.add(change.getLightAfter());
+            }
+            ambient |= change.isAmbientColorChange();
+        }
+        for (BoundingBox box : boxes) {
+            markProjection(box, retraced);
+        }
+        if (retraced.cardinality() == size) {
+            renderAll();
+            return surface;
+        }
+
+        final BitSet reshaded = (BitSet) secondaryPixels.clone();
+        for (int index = 0; index < size; index++) {
+            if (retraced.get(index) || reshaded.get(index)) {
+                continue;
+            }
+            final Vector position = gBuffer.position(index);
+            if (position != null && (ambient || isLitBy(position, lights) || isShadowedBy(position, boxes))) {
+                reshaded.set(index);
+            }
+        }
+
+        renderer.renderPixels(scene, gBuffer, surface, retraced, reshaded);
+        for (int index = retraced.nextSetBit(0); index >= 0; index = retraced.nextSetBit(index + 1)) {
+            updateSecondaryPixel(index);
+        }
+        reshaded.or(retraced);
+        renderedPixels = reshaded.cardinality();
+        logger.debug("{} changes, {} pixels traced again, {} rendered again", changes.size(),
+                retraced.cardinality(), renderedPixels);
+        return surface;
+    }
+
+    /**
+     * @return the number of pixels rendered by the last call to {@link #render()}
+     */
+    public int getRenderedPixels() {
+        return renderedPixels;
+    }
+
+    private void renderAll() {
+        renderer.renderSceneOnto(scene, camera, surface, gBuffer);
+        final int size = camera.getPixelWidth() * camera.getPixelHeight();
+        for (int index = 0; index < size; index++) {
+            updateSecondaryPixel(index);
+        }
+        renderedPixels = size;
+    }
+
+    private void updateSecondaryPixel(final int index) {
+        final int width = camera.getPixelWidth();
+        final IntersectionResult hit = gBuffer.hit(new Pixel(index % width, index / width));
+        final boolean[] emits = new boolean[1];
+        if (hit != null) {
+            hit.primitive().getMaterial().emitSecondaryRays(hit, new RenderingContext(0, 1.), 1.,
+                    (ray, weight, ctx) -> emits[0] = true);
+        }
+        secondaryPixels.set(index, emits[0]);
+    }
+
+    private static void addBounds(final BoundingBox box, final List<BoundingBox> boxes) {
+        if (box != null && !box.isEmpty()) {
+            boxes.add(box);
+        }
+    }
+
+    /**
+     * Marks the pixels the specified box may project onto, every pixel when it is not entirely in front of
+     * the camera.
+     */
+    private void markProjection(final BoundingBox box, final BitSet pixels) {
+        final int width = camera.getPixelWidth();
+        final int height = camera.getPixelHeight();
+        if (box.isInfinite()) {
+            pixels.set(0, width * height);
+            return;
+        }
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (Vector corner : box.corners()) {
+            final Vector projected = camera.project(corner);
+            if (projected == null) {
+                pixels.set(0, width * height);
+                return;
+            }
+            minX = Math.min(minX, projected.x());
+            minY = Math.min(minY, projected.y());
+            maxX = Math.max(maxX, projected.x());
+            maxY = Math.max(maxY, projected.y());
+        }
+
+        // One more pixel around, rays pass through the centers of the pixels
+        final int x0 = (int) Math.max(0., Math.floor(minX) - 1.);
+        final int y0 = (int) Math.max(0., Math.floor(minY) - 1.);
+        final int x1 = (int) Math.min(width - 1., Math.ceil(maxX) + 1.);
+        final int y1 = (int) Math.min(height - 1., Math.ceil(maxY) + 1.);
+        for (int y = y0; y <= y1; y++) {
+            if (x0 <= x1) {
+                pixels.set(y * width + x0, y * width + x1 + 1);
+            }
+        }
+    }
+
+    private static boolean isLitBy(final Vector position, final List<Light> lights) {
+        for (Light light : lights) {
+            if (position.distanceTo(light.getPosition()) <= light.getInfluenceRadius()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tells whether a shadow ray from the specified position toward a light of the scene passes through one
+     * of the specified boxes.
+     */
+    private boolean isShadowedBy(final Vector position, final List<BoundingBox> boxes) {
+        if (boxes.isEmpty()) {
+            return false;
+        }
+        for (Light light : scene.lightsAt(position)) {
+            final Ray ray = Ray.joining(position, light.getPosition());
+            final double distance = position.distanceTo(light.getPosition());
+            for (BoundingBox box : boxes) {
+                if (box.entryDistance(ray, distance) != Double.POSITIVE_INFINITY) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
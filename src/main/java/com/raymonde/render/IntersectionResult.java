@@ -88,6 +88,23 @@ public final class IntersectionResult {
         this.intersect = firstNonNull(intersect, false);
     }
 
+    /**
+     * Constructs the intersection of the specified ray with the specified primitive, whose position and
+     * normal are known already (see {@link GBuffer}).
+     *
+     * @param primitive The primitive intersected.
+     * @param ray The ray that intersect.
+     * @param distance The distance from the ray origin where the intersection occurred.
+     * @param position The intersection point.
+     * @param normal The normalized normal of the primitive at the intersection point.
+     */
+    IntersectionResult(final Primitive primitive, final Ray ray, final double distance, final Vector position,
+            final Vector normal) {
+        this(primitive, ray, true, distance);
+        this.intersectionPoint = position;
+        this._normal = normal;
+    }
+
     /**
      * Returns whether an intersection occured between the ray and the primitive
      * @return
@@ -133,7 +150,7 @@ public final class IntersectionResult {
 
     public Vector normal() {
         if (_normal == null) {
-            _normal = primitive.normalAt(intersectionPoint).normalized();
+            _normal = primitive.normalAt(getIntersectionPosition()).normalized();
         }
 
         return _normal;
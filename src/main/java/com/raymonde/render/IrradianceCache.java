@@ -0,0 +1,375 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import com.raymonde.core.Color;
+import com.raymonde.core.ColorAccumulator;
+import com.raymonde.core.Vector;
+import com.raymonde.render.material.Material;
+import com.raymonde.scene.Scene;
+import lombok.Builder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@code IrradianceCache} computes the diffuse indirect lighting (light bounced once by the surfaces of the
+ * scene) at sparse points, and interpolates it everywhere else (Ward's irradiance caching).
+ *
+ * When no cached record is close enough to a point, a new record is computed by sampling the hemisphere
+ * around the normal with cosine-weighted rays. The color seen along those rays is the direct lighting of
+ * the surfaces they hit, without the ambient term which is added once at the shaded point: the gathering
+ * rendering context keeps materials from querying the cache again and from adding the ambient term.
+ * A record is valid within a distance proportional to the harmonic mean distance of the surfaces seen from
+ * it, and for similar normals.
+ *
+ * Records are stored in an octree which grows as needed. The cache only depends on the geometry and the
+ * lights of the scene, it can be reused to render other frames of a still scene.
+ */
+@ThreadSafe
+public class IrradianceCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(IrradianceCache.class);
+
+    public static final int DEFAULT_SAMPLES = 64;
+
+    public static final double DEFAULT_ACCURACY = 0.3;
+
+    /**
+     * The number of hemisphere rays traced to compute a record.
+     */
+    private final int samples;
+
+    /**
+     * The maximum interpolation error: the lower, the more records.
+     */
+    private final double accuracy;
+
+    /**
+     * Bounds the validity radius of records, so that records are neither too dense nor too sparse.
+     */
+    private final double minSpacing;
+
+    private final double maxSpacing;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @GuardedBy("lock")
+    private Node root;
+
+    @GuardedBy("lock")
+    private int size;
+
+    /**
+     * @param samples The number of hemisphere rays traced to compute a record.
+     * @param accuracy The maximum interpolation error.
+     * @param minSpacing The minimum validity radius of a record.
+     * @param maxSpacing The maximum validity radius of a record.
+     */
+    @Builder
+    public IrradianceCache(final int samples, final double accuracy, final double minSpacing, final double maxSpacing) {
+        checkArgument(samples > 0, "the number of samples must be strictly positive");
+        checkArgument(accuracy > 0., "the accuracy must be strictly positive");
+        checkArgument(minSpacing > 0. && minSpacing <= maxSpacing, "spacings must be positive and ordered");
+
+        this.samples = samples;
+        this.accuracy = accuracy;
+        this.minSpacing = minSpacing;
+        this.maxSpacing = maxSpacing;
+    }
+
+    /**
+     * Returns a cache with the same settings as the current one, but without any record.
+     *
+     * @return The empty cache.
+     */
+    public IrradianceCache emptyCopy() {
+        return new IrradianceCache(samples, accuracy, minSpacing, maxSpacing);
+    }
+
+    /**
+     * Returns the indirect light received at the specified point, interpolated from the cached records or
+     * computed if none is close enough.
+     *
+     * @param renderer The renderer, given to the materials.
+     * @param scene The scene.
+     * @param point The point.
+     * @param normal The normal of the surface at the point, facing the viewer.
+     * @param ctx The rendering context of the shaded ray.
+     *
+     * @return The average color seen from the point, weighted by the cosine to the normal.
+     */
+    public Color irradianceAt(final Renderer renderer, final Scene scene, final Vector point, final Vector normal,
+            final RenderingContext ctx) {
+        final ColorAccumulator interpolated = new ColorAccumulator();
+        final double totalWeight;
+
+        lock.readLock().lock();
+        try {
+            totalWeight = root == null ? 0. : root.interpolate(point, normal, interpolated, accuracy);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (totalWeight > 0.) {
+            return new Color(
+                    clamp(interpolated.r() / totalWeight),
+                    clamp(interpolated.g() / totalWeight),
+                    clamp(interpolated.b() / totalWeight));
+        }
+
+        final Record record = computeRecord(renderer, scene, point, normal, ctx);
+        insert(record);
+        return record.irradiance;
+    }
+
+    /**
+     * @return the number of cached records
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Samples the hemisphere above the specified point.
+     */
+    private Record computeRecord(final Renderer renderer, final Scene scene, final Vector point, final Vector normal,
+            final RenderingContext ctx) {
+        final RenderingContext gatheringCtx = new RenderingContext(ctx.getDepth() + 1, ctx.getRefraction());
+        gatheringCtx.setGathering(true);
+        // The ambient term is added at the shaded point, bounced light comes on top of it
+        gatheringCtx.setBouncing(true);
+
+        // An orthonormal basis around the normal
+        final Vector helper = Math.abs(normal.x()) > 0.9 ? new Vector(0., 1., 0.) : new Vector(1., 0., 0.);
+        final Vector tangent = normal.cross(helper).normalized();
+        final Vector bitangent = normal.cross(tangent);
+
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final ColorAccumulator seen = new ColorAccumulator();
+        double inverseDistances = 0.;
+
+        for (int i = 0; i < samples; i++) {
+            // Cosine-weighted direction: the average of the seen colors is the irradiance divided by pi
+            final double u = random.nextDouble();
+            final double phi = 2. * Math.PI * random.nextDouble();
+            final double sinTheta = Math.sqrt(u);
+            final Vector direction = tangent.multiply(sinTheta * Math.cos(phi))
+                    .add(bitangent.multiply(sinTheta * Math.sin(phi)))
+                    .add(normal.multiply(Math.sqrt(1. - u)));
+
+            final IntersectionResult hit = scene.nearestIntersection(new Ray(point, direction));
+            if (hit == null) {
+                continue;
+            }
+            final Material material = hit.primitive().getMaterial();
+            seen.add(material.computeColor(renderer, scene, hit, gatheringCtx), 1.);
+            inverseDistances += 1. / hit.distance();
+        }
+
+        final Color irradiance = new Color(
+                clamp(seen.r() / samples), clamp(seen.g() / samples), clamp(seen.b() / samples));
+        final double harmonicMean = inverseDistances > 0. ? samples / inverseDistances : Double.POSITIVE_INFINITY;
+        final double radius = Math.max(minSpacing, Math.min(maxSpacing, harmonicMean));
+
+        return new Record(point, normal, irradiance, radius);
+    }
+
+    private void insert(final Record record) {
+        lock.writeLock().lock();
+        try {
+            if (root == null) {
+                root = new Node(record.position, record.radius * 4.);
+            }
+            // Grows the octree until it contains the record
+            while (!root.contains(record.position)) {
+                root = root.parent(record.position);
+            }
+            root.insert(record, record.radius * accuracy);
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.debug("irradiance record cached at {}", record.position);
+    }
+
+    private static double clamp(final double value) {
+        return Math.max(0., Math.min(1., value));
+    }
+
+    /**
+     * The indirect light received at a point.
+     */
+    private static final class Record {
+
+        /**
+         * Bounds the weight of a record used at its own position.
+         */
+        private static final double MIN_ERROR = 1e-6;
+
+        private final Vector position;
+
+        private final Vector normal;
+
+        private final Color irradiance;
+
+        /**
+         * The harmonic mean distance to the surfaces seen from the record.
+         */
+        private final double radius;
+
+        private Record(final Vector position, final Vector normal, final Color irradiance, final double radius) {
+            this.position = position;
+            this.normal = normal;
+            this.irradiance = irradiance;
+            this.radius = radius;
+        }
+
+        /**
+         * Ward's weight of the record for the specified point, {@code 0} if the record is not valid there.
+         */
+        private double weight(final Vector point, final Vector pointNormal, final double accuracy) {
+            final double cosine = Math.min(1., normal.dot(pointNormal));
+            if (cosine <= 0.) {
+                return 0.;
+            }
+            final double error = point.distanceTo(position) / radius + Math.sqrt(1. - cosine);
+            if (error >= accuracy) {
+                return 0.;
+            }
+            return 1. / Math.max(error, MIN_ERROR);
+        }
+    }
+
+    /**
+     * A cubic node of the octree. A record is stored in the smallest node that contains its position and
+     * whose half size is at least its validity radius, so that records valid at a point are found in the nodes
+     * whose bounds, extended by their half size, contain the point.
+     */
+    private static final class Node {
+
+        private final Vector center;
+
+        private final double halfSize;
+
+        private final List<Record> records = new ArrayList<>();
+
+        private final Node[] children = new Node[8];
+
+        private Node(final Vector center, final double halfSize) {
+            this.center = center;
+            this.halfSize = halfSize;
+        }
+
+        private boolean contains(final Vector point) {
+            return Math.abs(point.x() - center.x()) <= halfSize
+                    && Math.abs(point.y() - center.y()) <= halfSize
+                    && Math.abs(point.z() - center.z()) <= halfSize;
+        }
+
+        private int octant(final Vector point) {
+            return (point.x() > center.x() ? 1 : 0)
+                    | (point.y() > center.y() ? 2 : 0)
+                    | (point.z() > center.z() ? 4 : 0);
+        }
+
+        private Vector childCenter(final int octant) {
+            final double quarter = halfSize / 2.;
+            return new Vector(
+                    center.x() + ((octant & 1) != 0 ? quarter : -quarter),
+                    center.y() + ((octant & 2) != 0 ? quarter : -quarter),
+                    center.z() + ((octant & 4) != 0 ? quarter : -quarter));
+        }
+
+        /**
+         * Returns a node twice as large, containing the current one as a child, and extended toward the
+         * specified point.
+         */
+        private Node parent(final Vector towards) {
+            final double sx = towards.x() > center.x() ? 1. : -1.;
+            final double sy = towards.y() > center.y() ? 1. : -1.;
+            final double sz = towards.z() > center.z() ? 1. : -1.;
+            final Node parent = new Node(new Vector(
+                    center.x() + sx * halfSize,
+                    center.y() + sy * halfSize,
+                    center.z() + sz * halfSize), halfSize * 2.);
+            parent.children[parent.octant(center)] = this;
+            return parent;
+        }
+
+        /**
+         * @param validity The distance within which the record may be used.
+         */
+        private void insert(final Record record, final double validity) {
+            Node node = this;
+            while (node.halfSize / 2. >= validity) {
+                final int octant = node.octant(record.position);
+                if (node.children[octant] == null) {
+                    node.children[octant] = new Node(node.childCenter(octant), node.halfSize / 2.);
+                }
+                node = node.children[octant];
+            }
+            node.records.add(record);
+        }
+
+        /**
+         * Adds the weighted irradiance of the records valid at the specified point.
+         *
+         * @return The sum of the weights.
+         */
+        private double interpolate(final Vector point, final Vector normal, final ColorAccumulator irradiance,
+                final double accuracy) {
+            final double extent = 2. * halfSize;
+            if (Math.abs(point.x() - center.x()) > extent
+                    || Math.abs(point.y() - center.y()) > extent
+                    || Math.abs(point.z() - center.z()) > extent) {
+                return 0.;
+            }
+
+            double totalWeight = 0.;
+            for (Record record : records) {
+                final double weight = record.weight(point, normal, accuracy);
+                if (weight > 0.) {
+                    irradiance.add(record.irradiance, weight);
+                    totalWeight += weight;
+                }
+            }
+            for (Node child : children) {
+                if (child != null) {
+                    totalWeight += child.interpolate(point, normal, irradiance, accuracy);
+                }
+            }
+            return totalWeight;
+        }
+    }
+}
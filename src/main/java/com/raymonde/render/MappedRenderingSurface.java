@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import com.raymonde.core.Color;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * {@code MappedRenderingSurface} is a {@link RenderingSurface} whose colors are stored in a memory-mapped file
+ * rather than on the heap, so that surfaces larger than the heap, or even than the physical memory, can be
+ * rendered. Each pixel is stored as its RGB integer (see {@link Color#rgb()}), row by row. Pixels that have
+ * not been set are zero, which the opaque RGB integers of colors never are.
+ *
+ * The file is mapped in regions of whole rows, of at most {@value #REGION_BYTES} bytes each. Once all the
+ * pixels of a region are set, the region is written back to the file: the operating system is then free to
+ * evict its pages, and a tile-based renderer only keeps the regions it is working on in memory.
+ *
+ * Closing the surface closes the file, which is kept. The mapped regions remain readable until they are
+ * garbage collected.
+ */
+@ThreadSafe
+public class MappedRenderingSurface extends RenderingSurface implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedRenderingSurface.class);
+
+    /**
+     * The maximum number of bytes of a mapped region.
+     */
+    private static final long REGION_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+
+    private final int rowsPerRegion;
+
+    private final MappedByteBuffer[] regions;
+
+    /**
+     * The number of pixels set in each region.
+     */
+    private final AtomicIntegerArray pixelsSetPerRegion;
+
+    /**
+     * Creates the specified file, replacing any existing one, and maps it.
+     *
+     * @param file The file storing the colors.
+     * @param pixelWidth The width in pixel of the surface.
+     * @param pixelHeight The height in pixel of the surface.
+     *
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    public MappedRenderingSurface(final Path file, final int pixelWidth, final int pixelHeight) throws IOException {
+        super(pixelWidth, pixelHeight, null);
+        checkArgument(pixelWidth > 0 && pixelHeight > 0, "the dimensions must be strictly positive");
+        checkArgument(4L * pixelWidth <= REGION_BYTES, "the surface is too wide");
+
+        this.rowsPerRegion = (int) Math.min(pixelHeight, REGION_BYTES / (4L * pixelWidth));
+        this.regions = new MappedByteBuffer[(pixelHeight + rowsPerRegion - 1) / rowsPerRegion];
+        this.pixelsSetPerRegion = new AtomicIntegerArray(regions.length);
+        this.channel = FileChannel.open(file, READ, WRITE, CREATE, TRUNCATE_EXISTING);
+
+        try {
+            for (int r = 0; r < regions.length; r++) {
+                // Mapping beyond the end of the file grows it, with zeros
+                regions[r] = channel.map(FileChannel.MapMode.READ_WRITE,
+                        4L * pixelWidth * rowsPerRegion * r, 4L * pixelWidth * rowsOfRegion(r));
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        logger.debug("mapped {} regions of {} rows onto {}", regions.length, rowsPerRegion, file);
+    }
+
+    @Override
+    protected Color storedColor(final int x, final int y) {
+        final int rgb = regions[y / rowsPerRegion].getInt(offset(x, y));
+        return rgb == 0 ? null : Color.fromRgb(rgb);
+    }
+
+    @Override
+    protected void storeColor(final int x, final int y, final Color color) {
+        regions[y / rowsPerRegion].putInt(offset(x, y), color.rgb());
+    }
+
+    @Override
+    protected void copyStoredRow(final int y, final int [] rgb) {
+        final IntBuffer row = regions[y / rowsPerRegion].duplicate().asIntBuffer();
+        row.position(offset(0, y) / 4);
+        row.get(rgb, 0, getPixelWidth());
+        final int black = Color.black().rgb();
+        for (int x = 0; x < getPixelWidth(); x++) {
+            if (rgb[x] == 0) {
+                rgb[x] = black;
+            }
+        }
+    }
+
+    /**
+     * Writes the region of the pixel back to the file once all its pixels are set.
+     */
+    @Override
+    protected void pixelSet(final Pixel pixel) {
+        final int r = pixel.y() / rowsPerRegion;
+        if (pixelsSetPerRegion.incrementAndGet(r) == getPixelWidth() * rowsOfRegion(r)) {
+            regions[r].force();
+            logger.debug("region {} written back", r);
+        }
+    }
+
+    /**
+     * Writes all the regions back to the file.
+     */
+    public void flush() {
+        for (MappedByteBuffer region : regions) {
+            region.force();
+        }
+    }
+
+    /**
+     * Writes all the regions back to the file, then closes it.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private int rowsOfRegion(final int r) {
+        return Math.min(rowsPerRegion, getPixelHeight() - r * rowsPerRegion);
+    }
+
+    /**
+     * @return the offset in bytes of the pixel in its region
+     */
+    private int offset(final int x, final int y) {
+        return 4 * ((y % rowsPerRegion) * getPixelWidth() + x);
+    }
+}
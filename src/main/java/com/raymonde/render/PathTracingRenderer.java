@@ -0,0 +1,587 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import com.raymonde.core.Color;
+import com.raymonde.core.TimeLogger;
+import com.raymonde.core.Vector;
+import com.raymonde.render.material.Material;
+import com.raymonde.scene.Scene;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.DoubleSupplier;
+import java.util.stream.IntStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A Monte Carlo renderer: the color of each pixel is the average of many random paths, which accounts
+ * for the light bounced between diffuse surfaces (global illumination) on top of the reflections and
+ * refractions of the other renderers.
+ *
+ * At each bounce, the color computed by the material (direct lighting) is added, weighted by the
+ * throughput of the path. The path then goes on along a single direction, chosen among the secondary
+ * rays emitted by the material and a cosine-weighted diffuse direction, with a probability proportional
+ * to their weight. When the weights add up to less than one, the path may be terminated instead
+ * (Russian roulette). The throughput is divided by the probability of each choice, so that the
+ * estimate is unbiased.
+ *
+ * The surface is split into {@link Tile}s rendered in parallel. Each tile draws its random numbers from
+ * its own {@link SplittableRandom} stream, split from a seeded one: threads never contend on a shared
+ * generator and a same seed renders a same image. The positions of the samples in a pixel come from
+ * the {@link SampleSequence} of the settings.
+ *
+ * Samples are accumulated in a {@link FrameBuffer}, along with the {@link AuxiliaryBuffers} of the surfaces
+ * seen by the primary rays. They can be split into passes over the whole surface, the
+ * {@link ProgressListener} being notified after each of them. Once all passes are done, the image may be
+ * filtered by the {@link Denoiser}, which makes a few samples per pixel enough for previews. Long
+ * renderings may record their progress in a {@link RenderCheckpoint}, to be resumed if they are killed.
+ *
+ * The settings are taken from the scene (see {@link Scene#getPathTracingSettings()}) unless the renderer
+ * was given its own.
+ */
+@ThreadSafe
+public class PathTracingRenderer implements Renderer {
+
+    /**
+     * The width and height in pixels of the tiles.
+     */
+    public static final int DEFAULT_TILE_SIZE = 16;
+
+    private static final Logger logger = LoggerFactory.getLogger(PathTracingRenderer.class);
+
+    private static final Denoiser DENOISER = Denoiser.builder().build();
+
+    /**
+     * The settings of the renderer, {@code null} to use the ones of the scene.
+     */
+    private final PathTracingSettings settings;
+
+    /**
+     * Notified after each pass, may be {@code null}.
+     */
+    private volatile ProgressListener progressListener;
+
+    /**
+     * Records the progress of the renderings, may be {@code null}.
+     */
+    private volatile Path checkpointFile;
+
+    /**
+     * The digest of the source of the rendered scenes, which identifies them in the checkpoints.
+     */
+    private volatile byte[] sceneDigest;
+
+    public PathTracingRenderer() {
+        this(null);
+    }
+
+    /**
+     * @param settings The settings of the renderer, {@code null} to use the ones of the rendered scenes.
+     */
+    public PathTracingRenderer(final PathTracingSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * @param progressListener Notified after each pass, {@code null} to stop notifying.
+     */
+    public void setProgressListener(final ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Sets the file the progress of the renderings is recorded in. A rendering killed before its end is
+     * resumed from that file, provided the source of the scene, the camera and the settings did not change,
+     * and renders the same image. The file is deleted once the rendering is completed.
+     *
+     * @param checkpointFile The file, {@code null} to stop recording the progress.
+     * @param sceneSource The source the rendered scenes are built from, e.g. the content of their file.
+     */
+    public void setCheckpointFile(final Path checkpointFile, final byte[] sceneSource) {
+        this.checkpointFile = checkpointFile;
+        this.sceneDigest = checkpointFile == null ? null : sha256().digest(sceneSource);
+    }
+
+    /**
+     * Renders the specified {@link Scene} through the specified {@link Camera}, the resulting image being
+     * denoised if the settings say so.
+     */
+    @Override
+    public RenderingSurface renderSceneThroughCamera(final Scene scene, final Camera camera) {
+        return renderImage(scene, camera).toRenderingSurface();
+    }
+
+    /**
+     * Renders the specified {@link Scene} through the specified {@link Camera}, the resulting image being
+     * denoised if the settings say so. Unlike {@link #renderSceneThroughCamera(Scene, Camera)}, colors are
+     * neither clamped nor rounded.
+     *
+     * @param scene The scene to render.
+     * @param camera The point of view from which to render the scene.
+     *
+     * @return The rendered image.
+     */
+    public FrameBuffer renderImage(final Scene scene, final Camera camera) {
+        final FrameBuffer buffer = renderToFrameBuffer(scene, camera);
+        if (settingsFor(scene).isDenoised()) {
+            return TimeLogger.logElapsedTime("denoising", () -> DENOISER.denoise(buffer))
+                    .andReturn();
+        }
+        return buffer;
+    }
+
+    /**
+     * Renders the specified {@link Scene} through the specified {@link Camera}, without clamping nor rounding
+     * the averaged samples.
+     *
+     * @param scene The scene to render.
+     * @param camera The point of view from which to render the scene.
+     *
+     * @return The accumulated samples.
+     */
+    public FrameBuffer renderToFrameBuffer(final Scene scene, final Camera camera) {
+        final PathTracingSettings used = settingsFor(scene);
+        final FrameBuffer buffer = new FrameBuffer(camera.getPixelWidth(), camera.getPixelHeight());
+        final List<Tile> tiles = Tile.covering(camera.getPixelWidth(), camera.getPixelHeight(), DEFAULT_TILE_SIZE);
+        final SplittableRandom root = new SplittableRandom(used.getSeed());
+
+        logger.debug("path tracing {} tiles with {}", tiles.size(), used);
+
+        final RenderCheckpoint checkpoint = openCheckpoint(used, camera, buffer, tiles);
+        try {
+            int firstSample = 0;
+            for (int pass = 0; pass < used.getPasses(); pass++) {
+                // Streams are split sequentially, so that they do not depend on the scheduling of the tiles
+                final List<SplittableRandom> streams = new ArrayList<>(tiles.size());
+                for (int i = 0; i < tiles.size(); i++) {
+                    streams.add(root.split());
+                }
+
+                final int current = pass;
+                final int first = firstSample;
+                final int count = used.samplesOfPass(pass);
+                IntStream.range(0, tiles.size()).parallel().forEach(i -> {
+                    // Tiles restored from the checkpoint are not rendered again
+                    if (checkpoint != null && checkpoint.passesCompleted(i) > current) {
+                        return;
+                    }
+                    new TileTracer(scene, camera, used, streams.get(i)).trace(tiles.get(i), buffer, first, count);
+                    if (checkpoint != null) {
+                        checkpoint.tileCompleted(i, current + 1);
+                    }
+                });
+                firstSample += count;
+
+                if (checkpoint != null && pass + 1 < used.getPasses()) {
+                    checkpoint.passCompleted();
+                }
+
+                final ProgressListener listener = progressListener;
+                if (listener != null) {
+                    listener.passCompleted(buffer, pass + 1, used.getPasses());
+                }
+            }
+        } finally {
+            closeCheckpoint(checkpoint);
+        }
+
+        if (checkpoint != null) {
+            checkpoint.delete();
+        }
+        return buffer;
+    }
+
+    /**
+     * Renders the specified {@link Scene} through the specified {@link Camera} onto the specified surface.
+     * A rendering made of a single pass, neither denoised, checkpointed nor previewed, writes each tile onto
+     * the surface as soon as it is traced: the image is never held on the heap, which is what a surface
+     * stored off the heap (see {@link MappedRenderingSurface}) is for. Other renderings need the samples of
+     * the whole image, they are accumulated in a {@link FrameBuffer} and then copied onto the surface.
+     */
+    @Override
+    public RenderingSurface renderSceneOnto(final Scene scene, final Camera camera,
+            final RenderingSurface surface) {
+        checkArgument(surface.getPixelWidth() == camera.getPixelWidth()
+                && surface.getPixelHeight() == camera.getPixelHeight(), "the surface does not match the camera");
+
+        final PathTracingSettings used = settingsFor(scene);
+        if (used.getPasses() > 1 || used.isDenoised() || checkpointFile != null || progressListener != null) {
+            if (surface instanceof MappedRenderingSurface) {
+                logger.warn("passes, denoising, checkpoints and previews need the whole image in memory, "
+                        + "it is copied onto the mapped surface once rendered");
+            }
+            return renderImage(scene, camera).copyOnto(surface);
+        }
+
+        final List<Tile> tiles = surface.tiles(DEFAULT_TILE_SIZE);
+        final SplittableRandom root = new SplittableRandom(used.getSeed());
+        // Same streams as the first pass of a buffered rendering, which renders the same image
+        final List<SplittableRandom> streams = new ArrayList<>(tiles.size());
+        for (int i = 0; i < tiles.size(); i++) {
+            streams.add(root.split());
+        }
+        logger.debug("path tracing {} tiles onto the surface with {}", tiles.size(), used);
+        IntStream.range(0, tiles.size()).parallel().forEach(i ->
+                new TileTracer(scene, camera, used, streams.get(i))
+                        .traceOnto(tiles.get(i), surface, used.samplesOfPass(0)));
+        return surface;
+    }
+
+    /**
+     * Opens the checkpoint of the rendering, if any, restoring the tiles it records into the buffer.
+     *
+     * @return The checkpoint, {@code null} if the rendering is not checkpointed.
+     */
+    private RenderCheckpoint openCheckpoint(final PathTracingSettings used, final Camera camera,
+            final FrameBuffer buffer, final List<Tile> tiles) {
+        final Path file = checkpointFile;
+        if (file == null) {
+            return null;
+        }
+        final long fingerprint = fingerprint(used, camera);
+        try {
+            return RenderCheckpoint.open(file, fingerprint, buffer, tiles);
+        } catch (IOException e) {
+            logger.warn("cannot checkpoint the rendering to {}, going on without checkpoints", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Identifies a rendering in its checkpoint: the first 64 bits of a SHA-256 digest of the source of the
+     * scene, of the camera and of the settings.
+     */
+    private long fingerprint(final PathTracingSettings used, final Camera camera) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.write(sceneDigest);
+            for (Vector vector : new Vector[] {camera.getPosition(), camera.getDirection(), camera.getUp()}) {
+                out.writeDouble(vector.x());
+                out.writeDouble(vector.y());
+                out.writeDouble(vector.z());
+            }
+            out.writeDouble(camera.getDistance());
+            out.writeDouble(camera.getWidth());
+            out.writeDouble(camera.getHeight());
+            out.writeInt(camera.getPixelWidth());
+            out.writeInt(camera.getPixelHeight());
+            out.writeInt(used.getSamples());
+            out.writeInt(used.getPasses());
+            out.writeInt(used.getMaxDepth());
+            out.writeUTF(used.getSequence().name());
+            out.writeLong(used.getSeed());
+            out.writeInt(DEFAULT_TILE_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ByteBuffer.wrap(sha256().digest(bytes.toByteArray())).getLong();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void closeCheckpoint(final RenderCheckpoint checkpoint) {
+        if (checkpoint == null) {
+            return;
+        }
+        try {
+            checkpoint.close();
+        } catch (IOException e) {
+            logger.warn("cannot close the checkpoint", e);
+        }
+    }
+
+    private PathTracingSettings settingsFor(final Scene scene) {
+        if (settings != null) {
+            return settings;
+        }
+        return scene.getPathTracingSettings() == null ? PathTracingSettings.defaults() : scene.getPathTracingSettings();
+    }
+
+    /**
+     * Derives the scramble of the sample positions of a pixel from the seed (SplitMix64 finalizer).
+     */
+    private static long scramble(final long seed, final int pixel) {
+        long z = seed + (pixel + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Traces the paths of a tile, with its own random stream. It receives the secondary rays emitted by the
+     * materials, among which the next direction of the path is chosen.
+     */
+    @NotThreadSafe
+    private final class TileTracer implements SecondaryRaySink {
+
+        private final Scene scene;
+
+        private final Camera camera;
+
+        private final PathTracingSettings settings;
+
+        private final SplittableRandom random;
+
+        /**
+         * Draws from the stream of the tile, for the materials.
+         */
+        private final DoubleSupplier uniform;
+
+        private final double[] point = new double[2];
+
+        /**
+         * The color of the current path.
+         */
+        private double red;
+
+        private double green;
+
+        private double blue;
+
+        /**
+         * The sums of the colors of the samples of the last traced pixel.
+         */
+        private double sumRed;
+
+        private double sumGreen;
+
+        private double sumBlue;
+
+        private final List<Ray> rays = new ArrayList<>(2);
+
+        private final List<RenderingContext> contexts = new ArrayList<>(2);
+
+        private double[] weights = new double[2];
+
+        private TileTracer(final Scene scene, final Camera camera, final PathTracingSettings settings,
+                final SplittableRandom random) {
+            this.scene = scene;
+            this.camera = camera;
+            this.settings = settings;
+            this.random = random;
+            this.uniform = random::nextDouble;
+        }
+
+        /**
+         * Traces the specified samples of every pixel of the tile.
+         */
+        private void trace(final Tile tile, final FrameBuffer buffer, final int firstSample, final int count) {
+            // Occluders of another tile are unlikely to be relevant
+            ShadowCache.current().clear();
+
+            for (int i = 0; i < tile.size(); i++) {
+                final Pixel pixel = tile.pixel(i);
+                final int index = pixel.y() * buffer.getWidth() + pixel.x();
+                tracePixel(pixel, index, buffer.getAuxiliaryBuffers(), firstSample, count);
+                buffer.accumulate(index, sumRed, sumGreen, sumBlue, count);
+            }
+        }
+
+        /**
+         * Traces the first samples of every pixel of the tile, and sets their average onto the surface.
+         */
+        private void traceOnto(final Tile tile, final RenderingSurface surface, final int count) {
+            ShadowCache.current().clear();
+
+            final AuxiliaryBuffers auxiliary = surface.getAuxiliaryBuffers();
+            for (int i = 0; i < tile.size(); i++) {
+                final Pixel pixel = tile.pixel(i);
+                final int index = pixel.y() * surface.getPixelWidth() + pixel.x();
+                tracePixel(pixel, index, auxiliary, 0, count);
+                surface.setPixelColor(pixel, FrameBuffer.average(sumRed, sumGreen, sumBlue, count));
+            }
+        }
+
+        /**
+         * Traces the specified samples of a pixel, whose colors are summed into {@code sumRed},
+         * {@code sumGreen} and {@code sumBlue}.
+         */
+        private void tracePixel(final Pixel pixel, final int index, final AuxiliaryBuffers auxiliary,
+                final int firstSample, final int count) {
+            final long scramble = scramble(settings.getSeed(), index);
+
+            double r = 0.;
+            double g = 0.;
+            double b = 0.;
+            for (int s = firstSample; s < firstSample + count; s++) {
+                settings.getSequence().sample(s, scramble, random, point);
+                tracePath(camera.rayThroughPixel(pixel, point[0] - 0.5, point[1] - 0.5), auxiliary, index);
+                r += red;
+                g += green;
+                b += blue;
+            }
+            sumRed = r;
+            sumGreen = g;
+            sumBlue = b;
+        }
+
+        /**
+         * Computes the color of a single path starting with the specified ray, and records the features of
+         * the first surface it hits.
+         */
+        private void tracePath(final Ray primary, final AuxiliaryBuffers auxiliary, final int index) {
+            red = 0.;
+            green = 0.;
+            blue = 0.;
+
+            double throughputR = 1.;
+            double throughputG = 1.;
+            double throughputB = 1.;
+
+            Ray ray = primary;
+            RenderingContext ctx = new RenderingContext(0, 1.);
+
+            while (true) {
+                // Indirect lighting is sampled by the path itself, not by the caches of the scene
+                ctx.setGathering(true);
+                // Lights are sampled from the stream of the tile too, resumed renderings draw the same ones
+                ctx.setRandom(uniform);
+
+                final IntersectionResult hit = scene.nearestIntersection(ray);
+                if (hit == null) {
+                    if (ray == primary && auxiliary != null) {
+                        auxiliary.accumulateMiss(index);
+                    }
+                    return;
+                }
+
+                final Material material = hit.primitive().getMaterial();
+                final Color color = material.computeColor(PathTracingRenderer.this, scene, hit, ctx);
+                final Color albedo = material.diffuseAlbedo(PathTracingRenderer.this, scene, hit, ctx);
+                if (ray == primary && auxiliary != null) {
+                    auxiliary.record(index, scene, hit, albedo);
+                }
+                red += throughputR * color.r();
+                green += throughputG * color.g();
+                blue += throughputB * color.b();
+
+                if (ctx.getDepth() >= settings.getMaxDepth()) {
+                    return;
+                }
+
+                rays.clear();
+                contexts.clear();
+                material.emitSecondaryRays(hit, ctx, 1., this);
+                double total = 0.;
+                for (int i = 0; i < rays.size(); i++) {
+                    total += weights[i];
+                }
+
+                final double diffuse = (albedo.r() + albedo.g() + albedo.b()) / 3.;
+                total += diffuse;
+
+                /*
+                 * Each continuation is chosen with a probability of its weight divided by the scale, and the
+                 * path ends with the remaining probability, if any.
+                 */
+                final double scale = Math.max(1., total);
+                double u = random.nextDouble() * scale;
+                if (u >= total) {
+                    return;
+                }
+
+                int chosen = 0;
+                while (chosen < rays.size() && u >= weights[chosen]) {
+                    u -= weights[chosen];
+                    chosen++;
+                }
+
+                if (chosen < rays.size()) {
+                    throughputR *= scale;
+                    throughputG *= scale;
+                    throughputB *= scale;
+                    ray = rays.get(chosen);
+                    ctx = contexts.get(chosen);
+                } else {
+                    throughputR *= albedo.r() * scale / diffuse;
+                    throughputG *= albedo.g() * scale / diffuse;
+                    throughputB *= albedo.b() * scale / diffuse;
+                    ray = diffuseRay(hit);
+                    ctx = new RenderingContext(ctx.getDepth() + 1, ctx.getRefraction());
+                }
+                ctx.setThroughput((throughputR + throughputG + throughputB) / 3.);
+            }
+        }
+
+        /**
+         * Draws a cosine-weighted direction in the hemisphere above the intersection, on the side of the
+         * incoming ray.
+         */
+        private Ray diffuseRay(final IntersectionResult hit) {
+            final Vector normal = facingNormal(hit);
+
+            final Vector helper = Math.abs(normal.x()) > 0.9 ? new Vector(0., 1., 0.) : new Vector(1., 0., 0.);
+            final Vector tangent = normal.cross(helper).normalized();
+            final Vector bitangent = normal.cross(tangent);
+
+            final double u = random.nextDouble();
+            final double phi = 2. * Math.PI * random.nextDouble();
+            final double sinTheta = Math.sqrt(u);
+            final Vector direction = tangent.multiply(sinTheta * Math.cos(phi))
+                    .add(bitangent.multiply(sinTheta * Math.sin(phi)))
+                    .add(normal.multiply(Math.sqrt(1. - u)));
+
+            return new Ray(hit.getIntersectionPosition(), direction);
+        }
+
+        /**
+         * @return the normal of the intersected surface, on the side of the incoming ray
+         */
+        private Vector facingNormal(final IntersectionResult hit) {
+            final Vector normal = hit.normal();
+            return normal.dot(hit.getIncomingRay().direction()) > 0. ? normal.opposite() : normal;
+        }
+
+        @Override
+        public void emit(final Ray ray, final double weight, final RenderingContext ctx) {
+            if (!(weight > 0.)) {
+                return;
+            }
+            if (rays.size() == weights.length) {
+                weights = Arrays.copyOf(weights, weights.length * 2);
+            }
+            weights[rays.size()] = weight;
+            rays.add(ray);
+            contexts.add(ctx);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import lombok.Builder;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The parameters of the {@link PathTracingRenderer}.
+ */
+@ThreadSafe
+@Immutable
+public final class PathTracingSettings {
+
+    public static final int DEFAULT_SAMPLES = 16;
+
+    public static final int DEFAULT_PASSES = 1;
+
+    public static final int DEFAULT_MAX_DEPTH = 8;
+
+    /**
+     * The number of samples of each pixel.
+     */
+    private final int samples;
+
+    /**
+     * The number of passes the samples are split into.
+     */
+    private final int passes;
+
+    /**
+     * The maximum number of bounces of a path.
+     */
+    private final int maxDepth;
+
+    /**
+     * The sequence the positions of the samples in a pixel are drawn from.
+     */
+    private final SampleSequence sequence;
+
+    /**
+     * The seed of the random streams: a same seed renders a same image.
+     */
+    private final long seed;
+
+    /**
+     * Whether the image is filtered by the {@link Denoiser} once rendered.
+     */
+    private final boolean denoised;
+
+    /**
+     * Zero or {@code null} values stand for the defaults.
+     *
+     * @param samples The number of samples of each pixel.
+     * @param passes The number of passes the samples are split into, each of them being reported to the
+     *               {@link ProgressListener} of the renderer.
+     * @param maxDepth The maximum number of bounces of a path.
+     * @param sequence The sequence the positions of the samples in a pixel are drawn from,
+     *                 {@link SampleSequence#SOBOL} if {@code null}.
+     * @param seed The seed of the random streams.
+     * @param denoised Whether the image is filtered by the {@link Denoiser} once rendered.
+     */
+    @Builder
+    public PathTracingSettings(final int samples, final int passes, final int maxDepth,
+            final SampleSequence sequence, final long seed, final boolean denoised) {
+        checkArgument(samples >= 0, "the number of samples must be positive");
+        checkArgument(passes >= 0, "the number of passes must be positive");
+        checkArgument(maxDepth >= 0, "the maximum depth must be positive");
+
+        this.samples = samples == 0 ? DEFAULT_SAMPLES : samples;
+        this.passes = Math.min(this.samples, passes == 0 ? DEFAULT_PASSES : passes);
+        this.maxDepth = maxDepth == 0 ? DEFAULT_MAX_DEPTH : maxDepth;
+        this.sequence = sequence == null ? SampleSequence.SOBOL : sequence;
+        this.seed = seed;
+        this.denoised = denoised;
+    }
+
+    /**
+     * @return the settings used when none is specified
+     */
+    public static PathTracingSettings defaults() {
+        return builder().build();
+    }
+
+    /**
+     * @return the number of samples of each pixel
+     */
+    public int getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return the number of passes the samples are split into
+     */
+    public int getPasses() {
+        return passes;
+    }
+
+    /**
+     * @return the maximum number of bounces of a path
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return the sequence the positions of the samples in a pixel are drawn from
+     */
+    public SampleSequence getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the seed of the random streams
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return whether the image is filtered by the {@link Denoiser} once rendered
+     */
+    public boolean isDenoised() {
+        return denoised;
+    }
+
+    /**
+     * @param pass The index of the pass.
+     *
+     * @return the number of samples of each pixel computed by the specified pass
+     */
+    public int samplesOfPass(final int pass) {
+        return (int) ((long) samples * (pass + 1) / passes - (long) samples * pass / passes);
+    }
+}
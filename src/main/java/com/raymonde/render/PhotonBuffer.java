@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import com.raymonde.core.Vector;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * A growable list of photons stored in flat arrays: three coordinates per photon for the position, the
+ * incoming direction and the power.
+ */
+@NotThreadSafe
+final class PhotonBuffer {
+
+    private double[] positions;
+
+    private double[] directions;
+
+    private double[] powers;
+
+    private int size;
+
+    PhotonBuffer(final int initialCapacity) {
+        positions = new double[3 * Math.max(1, initialCapacity)];
+        directions = new double[positions.length];
+        powers = new double[positions.length];
+    }
+
+    /**
+     * Adds a photon.
+     *
+     * @param position The position of the photon.
+     * @param direction The direction the photon came along.
+     * @param r The red power of the photon.
+     * @param g The green power of the photon.
+     * @param b The blue power of the photon.
+     */
+    void add(final Vector position, final Vector direction, final double r, final double g, final double b) {
+        ensureCapacity(size + 1);
+        final int i = 3 * size;
+        positions[i] = position.x();
+        positions[i + 1] = position.y();
+        positions[i + 2] = position.z();
+        directions[i] = direction.x();
+        directions[i + 1] = direction.y();
+        directions[i + 2] = direction.z();
+        powers[i] = r;
+        powers[i + 1] = g;
+        powers[i + 2] = b;
+        size++;
+    }
+
+    /**
+     * Adds every photon of the specified buffer.
+     *
+     * @param other The buffer to add.
+     *
+     * @return itself (allow to chain calls)
+     */
+    PhotonBuffer addAll(final PhotonBuffer other) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.positions, 0, positions, 3 * size, 3 * other.size);
+        System.arraycopy(other.directions, 0, directions, 3 * size, 3 * other.size);
+        System.arraycopy(other.powers, 0, powers, 3 * size, 3 * other.size);
+        size += other.size;
+        return this;
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (3 * capacity > positions.length) {
+            final int length = Math.max(3 * capacity, 2 * positions.length);
+            positions = Arrays.copyOf(positions, length);
+            directions = Arrays.copyOf(directions, length);
+            powers = Arrays.copyOf(powers, length);
+        }
+    }
+
+    double[] positions() {
+        return positions;
+    }
+
+    double[] directions() {
+        return directions;
+    }
+
+    double[] powers() {
+        return powers;
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import com.raymonde.core.Color;
+import com.raymonde.core.Vector;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * {@code PhotonMap} stores the photons that reached diffuse surfaces after at least one specular bounce,
+ * and estimates the caustic light they bring at any point from its nearest photons.
+ *
+ * Photons are organized as a balanced kd-tree laid out in flat arrays: the photons of the index range
+ * {@code [lo, hi)} are split by the median photon at {@code (lo + hi) / 2}, photons before it being below
+ * it along its splitting axis. The map is immutable once built, lookups do not take any lock.
+ *
+ * @see PhotonTracer
+ */
+@ThreadSafe
+@Immutable
+public final class PhotonMap {
+
+    private final int size;
+
+    private final double[] positions;
+
+    private final double[] directions;
+
+    private final double[] powers;
+
+    /**
+     * The splitting axis (0, 1 or 2) of each photon.
+     */
+    private final byte[] axes;
+
+    /**
+     * The distance beyond which photons are ignored.
+     */
+    private final double maxRadius;
+
+    /**
+     * The per-thread buffers of the nearest neighbours searches.
+     */
+    private final ThreadLocal<NearestPhotons> searches;
+
+    /**
+     * Builds the map of the specified photons.
+     *
+     * @param photons The photons, left untouched.
+     * @param neighbours The number of photons the estimate is made of.
+     * @param maxRadius The distance beyond which photons are ignored.
+     */
+    PhotonMap(final PhotonBuffer photons, final int neighbours, final double maxRadius) {
+        this.size = photons.size();
+        this.maxRadius = maxRadius;
+        this.searches = ThreadLocal.withInitial(() -> new NearestPhotons(neighbours));
+
+        final int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        final byte[] axesOfOrder = new byte[size];
+        balance(photons.positions(), order, axesOfOrder, 0, size);
+
+        positions = new double[3 * size];
+        directions = new double[3 * size];
+        powers = new double[3 * size];
+        axes = axesOfOrder;
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(photons.positions(), 3 * order[i], positions, 3 * i, 3);
+            System.arraycopy(photons.directions(), 3 * order[i], directions, 3 * i, 3);
+            System.arraycopy(photons.powers(), 3 * order[i], powers, 3 * i, 3);
+        }
+    }
+
+    /**
+     * Estimates the light brought by the photons around the specified point, coming from the side the
+     * specified normal faces.
+     *
+     * @param point The point.
+     * @param normal The normal of the surface at the point, facing the viewer.
+     *
+     * @return The estimated irradiance, black if no photon is close enough.
+     */
+    public Color irradianceAt(final Vector point, final Vector normal) {
+        if (size == 0) {
+            return Color.black();
+        }
+
+        final NearestPhotons nearest = searches.get();
+        nearest.reset(maxRadius * maxRadius);
+        search(nearest, point.x(), point.y(), point.z(), 0, size);
+
+        if (nearest.count == 0) {
+            return Color.black();
+        }
+
+        double r = 0., g = 0., b = 0.;
+        for (int k = 0; k < nearest.count; k++) {
+            final int i = 3 * nearest.photons[k];
+            final double incidence = directions[i] * normal.x()
+                    + directions[i + 1] * normal.y()
+                    + directions[i + 2] * normal.z();
+            if (incidence < 0.) {
+                r += powers[i];
+                g += powers[i + 1];
+                b += powers[i + 2];
+            }
+        }
+
+        /*
+         * The photons are spread over the disc whose radius is the distance to the farthest of them. When
+         * fewer photons than requested are found, they are spread over the whole search disc instead, so
+         * that isolated photons do not show up as bright spots.
+         */
+        final double area = Math.PI * (nearest.isFull() ? nearest.farthestDistance() : maxRadius * maxRadius);
+        return new Color(clamp(r / area), clamp(g / area), clamp(b / area));
+    }
+
+    /**
+     * @return the number of photons in the map
+     */
+    public int size() {
+        return size;
+    }
+
+    private void search(final NearestPhotons nearest, final double x, final double y, final double z,
+            final int lo, final int hi) {
+        if (lo >= hi) {
+            return;
+        }
+        final int mid = (lo + hi) >>> 1;
+        final int axis = axes[mid];
+        final double delta = (axis == 0 ? x : axis == 1 ? y : z) - positions[3 * mid + axis];
+
+        // The side of the point first, the other one only if the splitting plane is close enough
+        if (delta < 0.) {
+            search(nearest, x, y, z, lo, mid);
+        } else {
+            search(nearest, x, y, z, mid + 1, hi);
+        }
+
+        final double dx = x - positions[3 * mid];
+        final double dy = y - positions[3 * mid + 1];
+        final double dz = z - positions[3 * mid + 2];
+        nearest.offer(mid, dx * dx + dy * dy + dz * dz);
+
+        if (delta * delta < nearest.maxDistance) {
+            if (delta < 0.) {
+                search(nearest, x, y, z, mid + 1, hi);
+            } else {
+                search(nearest, x, y, z, lo, mid);
+            }
+        }
+    }
+
+    /**
+     * Arranges the photons of {@code order[lo, hi)} as a balanced kd-tree.
+     */
+    private static void balance(final double[] positions, final int[] order, final byte[] axes,
+            final int lo, final int hi) {
+        if (hi - lo <= 0) {
+            return;
+        }
+
+        // Splits along the largest extent of the photons of the range
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int i = lo; i < hi; i++) {
+            final int p = 3 * order[i];
+            minX = Math.min(minX, positions[p]);
+            maxX = Math.max(maxX, positions[p]);
+            minY = Math.min(minY, positions[p + 1]);
+            maxY = Math.max(maxY, positions[p + 1]);
+            minZ = Math.min(minZ, positions[p + 2]);
+            maxZ = Math.max(maxZ, positions[p + 2]);
+        }
+        final double extentX = maxX - minX;
+        final double extentY = maxY - minY;
+        final double extentZ = maxZ - minZ;
+        final int axis = extentX >= extentY && extentX >= extentZ ? 0 : extentY >= extentZ ? 1 : 2;
+
+        final int mid = (lo + hi) >>> 1;
+        select(positions, order, axis, lo, hi - 1, mid);
+        axes[mid] = (byte) axis;
+
+        balance(positions, order, axes, lo, mid);
+        balance(positions, order, axes, mid + 1, hi);
+    }
+
+    /**
+     * Partially sorts {@code order[left, right]} so that the photon at {@code nth} is the one that would be
+     * there if the range was sorted along the specified axis (quickselect).
+     */
+    private static void select(final double[] positions, final int[] order, final int axis,
+            final int from, final int to, final int nth) {
+        int left = from;
+        int right = to;
+        while (left < right) {
+            final double pivot = positions[3 * order[(left + right) >>> 1] + axis];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (positions[3 * order[i] + axis] < pivot) {
+                    i++;
+                }
+                while (positions[3 * order[j] + axis] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    final int swap = order[i];
+                    order[i] = order[j];
+                    order[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (nth <= j) {
+                right = j;
+            } else if (nth >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static double clamp(final double value) {
+        return Math.max(0., Math.min(1., value));
+    }
+
+    /**
+     * The nearest photons found so far, kept in a max-heap on their squared distance.
+     */
+    private static final class NearestPhotons {
+
+        private final int[] photons;
+
+        private final double[] distances;
+
+        private int count;
+
+        /**
+         * The squared distance beyond which photons are not considered.
+         */
+        private double maxDistance;
+
+        private NearestPhotons(final int capacity) {
+            photons = new int[capacity];
+            distances = new double[capacity];
+        }
+
+        private void reset(final double maxDistance) {
+            this.count = 0;
+            this.maxDistance = maxDistance;
+        }
+
+        private void offer(final int photon, final double distance) {
+            if (distance >= maxDistance) {
+                return;
+            }
+            if (count < photons.length) {
+                // Sifts up the new photon
+                int child = count++;
+                while (child > 0) {
+                    final int parent = (child - 1) / 2;
+                    if (distances[parent] >= distance) {
+                        break;
+                    }
+                    photons[child] = photons[parent];
+                    distances[child] = distances[parent];
+                    child = parent;
+                }
+                photons[child] = photon;
+                distances[child] = distance;
+                if (count == photons.length) {
+                    maxDistance = distances[0];
+                }
+                return;
+            }
+
+            // Replaces the farthest photon and sifts it down
+            int parent = 0;
+            while (true) {
+                int child = 2 * parent + 1;
+                if (child >= count) {
+                    break;
+                }
+                if (child + 1 < count && distances[child + 1] > distances[child]) {
+                    child++;
+                }
+                if (distances[child] <= distance) {
+                    break;
+                }
+                photons[parent] = photons[child];
+                distances[parent] = distances[child];
+                parent = child;
+            }
+            photons[parent] = photon;
+            distances[parent] = distance;
+            maxDistance = distances[0];
+        }
+
+        private boolean isFull() {
+            return count == photons.length;
+        }
+
+        private double farthestDistance() {
+            return distances[0];
+        }
+    }
+}
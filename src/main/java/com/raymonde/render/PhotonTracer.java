@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import com.raymonde.core.Color;
+import com.raymonde.core.Vector;
+import com.raymonde.render.light.Light;
+import com.raymonde.render.light.OmnidirectionalLight;
+import com.raymonde.render.material.Material;
+import com.raymonde.scene.Scene;
+import lombok.Builder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@code PhotonTracer} builds the caustics {@link PhotonMap} of a scene.
+ *
+ * Photons are emitted uniformly from each {@link OmnidirectionalLight} and follow the secondary rays emitted
+ * by the materials they hit (see {@link Material#emitSecondaryRays}), i.e. they are reflected and refracted
+ * by {@code ReflectiveMaterial}s and {@code RefractiveMaterial}s. The part of the power of a photon that is
+ * not carried by a secondary ray is stored where the photon lands, provided it bounced at least once:
+ * direct lighting is computed by the materials themselves.
+ *
+ * Photons are emitted in parallel batches, each of them filling its own buffer.
+ */
+@ThreadSafe
+@Immutable
+public class PhotonTracer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhotonTracer.class);
+
+    public static final int DEFAULT_NEIGHBOURS = 64;
+
+    /**
+     * The number of photons emitted by each batch.
+     */
+    private static final int BATCH_SIZE = 4096;
+
+    /**
+     * The maximum number of specular bounces of a photon.
+     */
+    private static final int MAX_DEPTH = 8;
+
+    /**
+     * Terminates photons whose power fell far below their initial power.
+     */
+    private static final RussianRoulette ROULETTE = new RussianRoulette(RussianRoulette.DEFAULT_THRESHOLD);
+
+    /**
+     * The number of photons emitted by each light.
+     */
+    private final int photons;
+
+    /**
+     * The number of photons the estimate of the photon map is made of.
+     */
+    private final int neighbours;
+
+    /**
+     * The distance beyond which photons are ignored by the estimate.
+     */
+    private final double maxRadius;
+
+    /**
+     * @param photons The number of photons emitted by each light.
+     * @param neighbours The number of photons the estimate of the photon map is made of.
+     * @param maxRadius The distance beyond which photons are ignored by the estimate.
+     */
+    @Builder
+    public PhotonTracer(final int photons, final int neighbours, final double maxRadius) {
+        checkArgument(photons > 0, "the number of photons must be strictly positive");
+        checkArgument(neighbours > 0, "the number of neighbours must be strictly positive");
+        checkArgument(maxRadius > 0., "the maximum radius must be strictly positive");
+
+        this.photons = photons;
+        this.neighbours = neighbours;
+        this.maxRadius = maxRadius;
+    }
+
+    /**
+     * Emits the photons of every light of the scene and builds the resulting map.
+     *
+     * @param scene The scene.
+     *
+     * @return The photon map.
+     */
+    public PhotonMap trace(final Scene scene) {
+        final PhotonBuffer stored = new PhotonBuffer(0);
+
+        for (Light light : scene.getLights()) {
+            if (!(light instanceof OmnidirectionalLight)) {
+                continue;
+            }
+            final OmnidirectionalLight omni = (OmnidirectionalLight) light;
+            final double attenuation = omni.getAttenuation().x();
+            if (!(attenuation > 0.)) {
+                continue;
+            }
+
+            // The intensity of the light is color / attenuation, its flux is shared by the photons
+            final double share = 4. * Math.PI / (attenuation * photons);
+            final Color color = omni.getColor();
+            final double[] power = {color.r() * share, color.g() * share, color.b() * share};
+
+            final int batches = (photons + BATCH_SIZE - 1) / BATCH_SIZE;
+            final PhotonBuffer photonsOfLight = IntStream.range(0, batches)
+                    .parallel()
+                    .mapToObj(batch -> emit(scene, omni.getPosition(), power,
+                            Math.min(BATCH_SIZE, photons - batch * BATCH_SIZE)))
+                    .collect(() -> new PhotonBuffer(0), PhotonBuffer::addAll, PhotonBuffer::addAll);
+            stored.addAll(photonsOfLight);
+        }
+
+        logger.info("{} photons stored in the photon map", stored.size());
+        return new PhotonMap(stored, neighbours, maxRadius);
+    }
+
+    /**
+     * Emits a batch of photons from the specified position.
+     */
+    private PhotonBuffer emit(final Scene scene, final Vector position, final double[] power, final int count) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final PhotonBuffer buffer = new PhotonBuffer(count / 8);
+        final SecondaryRayStack stack = new SecondaryRayStack(2 * (MAX_DEPTH + 1));
+        final double[] emitted = new double[1];
+
+        final SecondaryRaySink sink = (ray, weight, ctx) -> {
+            emitted[0] += weight;
+            final double surviving = ROULETTE.survivingThroughput(weight, random.nextDouble());
+            if (surviving > 0. && ctx.getDepth() <= MAX_DEPTH) {
+                ctx.setThroughput(surviving);
+                stack.push(ray, surviving, ctx);
+            }
+        };
+
+        for (int i = 0; i < count; i++) {
+            // Uniform direction on the unit sphere
+            final double z = 2. * random.nextDouble() - 1.;
+            final double phi = 2. * Math.PI * random.nextDouble();
+            final double radius = Math.sqrt(1. - z * z);
+            final Vector direction = new Vector(radius * Math.cos(phi), radius * Math.sin(phi), z);
+
+            stack.push(new Ray(position, direction), 1., new RenderingContext(0, 1.));
+            while (!stack.isEmpty()) {
+                final Ray ray = stack.topRay();
+                final double weight = stack.topWeight();
+                final RenderingContext ctx = stack.topContext();
+                stack.pop();
+
+                final IntersectionResult hit = scene.nearestIntersection(ray);
+                if (hit == null) {
+                    continue;
+                }
+
+                emitted[0] = 0.;
+                hit.primitive().getMaterial().emitSecondaryRays(hit, ctx, weight, sink);
+
+                final double landed = weight - emitted[0];
+                if (ctx.getDepth() > 0 && landed > 0.) {
+                    buffer.add(hit.getIntersectionPosition(), ray.direction(),
+                            power[0] * landed, power[1] * landed, power[2] * landed);
+                }
+            }
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+/**
+ * Notified by progressive renderers each time a pass over the whole surface is completed.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    /**
+     * Called once a pass is completed, from the thread that started the rendering.
+     *
+     * @param buffer The samples accumulated so far. It must not be kept after this method returns, as
+     *               the next pass updates it.
+     * @param pass The number of completed passes.
+     * @param passes The total number of passes.
+     */
+    void passCompleted(FrameBuffer buffer, int pass, int passes);
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import com.raymonde.core.Color;
+import com.raymonde.core.ColorAccumulator;
+import com.raymonde.render.material.Material;
+import com.raymonde.scene.Scene;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * {@code RayTreeEvaluator} computes the color seen along a ray, including the contribution of the
+ * secondary rays (reflection, refraction) emitted by the intersected {@link Material}s.
+ *
+ * The ray tree is evaluated iteratively: pending rays are kept, along with their weight, on a
+ * {@link SecondaryRayStack} allocated once per thread. A secondary ray is dropped when its depth
+ * reaches the maximum depth. Rays of low weight play the {@link RussianRoulette}: most of them are
+ * terminated, the surviving ones are reweighted. The roulette draws from a hash of the ray and of its
+ * pixel (see {@link RussianRoulette#uniform(Ray, int)}), so that renderings are reproducible.
+ */
+@ThreadSafe
+public class RayTreeEvaluator {
+
+    /**
+     * The maximum depth of the ray tree.
+     */
+    private final int maxDepth;
+
+    /**
+     * Terminates secondary rays of low weight.
+     */
+    private final RussianRoulette roulette;
+
+    /**
+     * The per-thread stack and accumulator.
+     */
+    private final ThreadLocal<Workspace> workspaces;
+
+    /**
+     * @param maxDepth The maximum depth of the ray tree.
+     * @param roulette Terminates secondary rays of low weight.
+     */
+    public RayTreeEvaluator(final int maxDepth, final RussianRoulette roulette) {
+        this.maxDepth = maxDepth;
+        this.roulette = roulette;
+        /*
+         * A depth-first traversal holds the rays emitted by each hit of the path being followed, but the one
+         * it follows: with at most two rays per hit (reflection and refraction), (maxDepth + 1) rays. Chained
+         * materials may emit more rays per hit, the stack then grows beyond this capacity and keeps its size
+         * for the following trees of the thread.
+         */
+        this.workspaces = ThreadLocal.withInitial(() -> new Workspace(2 * (maxDepth + 1)));
+    }
+
+    /**
+     * Computes the color seen along the specified ray.
+     *
+     * @param renderer The renderer, given to the materials.
+     * @param scene The scene.
+     * @param ray The ray.
+     * @param ctx The rendering context of the ray.
+     *
+     * @return The resulting color.
+     */
+    public Color evaluate(final Renderer renderer, final Scene scene, final Ray ray, final RenderingContext ctx) {
+        // Without a pixel, the roulette draws from a hash of the rays only
+        return evaluate(renderer, scene, ray, ctx, null, 0);
+    }
+
+    /**
+     * Computes the color seen along the specified primary ray, and records the features of the first surface
+     * it hits.
+     *
+     * @param renderer The renderer, given to the materials.
+     * @param scene The scene.
+     * @param ray The primary ray.
+     * @param ctx The rendering context of the ray.
+     * @param auxiliary Receives the features of the first surface hit, may be {@code null}.
+     * @param index The index of the pixel of the ray in the auxiliary buffers.
+     *
+     * @return The resulting color.
+     */
+    public Color evaluate(final Renderer renderer, final Scene scene, final Ray ray, final RenderingContext ctx,
+            final AuxiliaryBuffers auxiliary, final int index) {
+        return evaluate(renderer, scene, scene.nearestIntersection(ray), ctx, auxiliary, index);
+    }
+
+    /**
+     * Computes the color seen along a primary ray whose nearest intersection is known already, e.g. cached
+     * in a {@link GBuffer}: only the secondary rays are traced.
+     *
+     * @param renderer The renderer, given to the materials.
+     * @param scene The scene.
+     * @param hit The nearest intersection of the primary ray, {@code null} if it does not hit anything.
+     * @param ctx The rendering context of the primary ray.
+     * @param auxiliary Receives the features of the first surface hit, may be {@code null}.
+     * @param index The index of the pixel of the ray in the auxiliary buffers.
+     *
+     * @return The resulting color.
+     */
+    public Color evaluate(final Renderer renderer, final Scene scene, final IntersectionResult hit,
+            final RenderingContext ctx, final AuxiliaryBuffers auxiliary, final int index) {
+        final Workspace workspace = workspaces.get();
+        final SecondaryRayStack stack = workspace.stack;
+        workspace.color.reset();
+        workspace.pixel = index;
+        stack.clear();
+
+        if (auxiliary != null) {
+            record(renderer, scene, hit, ctx, auxiliary, index);
+        }
+        shade(renderer, scene, hit, 1., ctx, workspace);
+
+        while (!stack.isEmpty()) {
+            final Ray currentRay = stack.topRay();
+            final double weight = stack.topWeight();
+            final RenderingContext currentCtx = stack.topContext();
+            stack.pop();
+
+            shade(renderer, scene, scene.nearestIntersection(currentRay), weight, currentCtx, workspace);
+        }
+
+        return workspace.color.toColor();
+    }
+
+    /**
+     * Adds the weighted color of the intersected material, if any, and pushes the secondary rays it emits.
+     */
+    private void shade(final Renderer renderer, final Scene scene, final IntersectionResult intersection,
+            final double weight, final RenderingContext ctx, final Workspace workspace) {
+        if (intersection == null) {
+            return;
+        }
+
+        final Material material = intersection.primitive().getMaterial();
+        workspace.color.add(material.computeColor(renderer, scene, intersection, ctx), weight);
+
+        if (ctx.getDepth() < maxDepth) {
+            material.emitSecondaryRays(intersection, ctx, weight, workspace);
+        }
+    }
+
+    /**
+     * Records the features of the surface hit by a primary ray, if any.
+     */
+    static void record(final Renderer renderer, final Scene scene, final IntersectionResult hit,
+            final RenderingContext ctx, final AuxiliaryBuffers auxiliary, final int index) {
+        if (hit == null) {
+            auxiliary.accumulateMiss(index);
+        } else {
+            auxiliary.record(index, scene, hit, hit.primitive().getMaterial().diffuseAlbedo(renderer, scene, hit, ctx));
+        }
+    }
+
+    /**
+     * @return the maximum depth of the ray tree
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Per-thread state of the evaluator. It receives the secondary rays emitted by the materials and
+     * pushes those that survive the roulette.
+     */
+    private final class Workspace implements SecondaryRaySink {
+
+        private final SecondaryRayStack stack;
+
+        private final ColorAccumulator color = new ColorAccumulator();
+
+        /**
+         * The index of the pixel of the evaluated ray tree.
+         */
+        private int pixel;
+
+        private Workspace(final int capacity) {
+            this.stack = new SecondaryRayStack(capacity);
+        }
+
+        @Override
+        public void emit(final Ray ray, final double weight, final RenderingContext ctx) {
+            final double surviving = roulette.survivingThroughput(weight, RussianRoulette.uniform(ray, pixel));
+            if (surviving > 0.) {
+                ctx.setThroughput(surviving);
+                stack.push(ray, surviving, ctx);
+            }
+        }
+    }
+}
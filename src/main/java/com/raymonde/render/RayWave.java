@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import com.raymonde.core.MortonCode;
+import com.raymonde.core.Vector;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * A batch of rays traced together by the {@link WavefrontRenderer}. Each ray is stored, in parallel
+ * arrays, along with its weight, its rendering context and the index of the pixel it contributes to.
+ *
+ * A wave also collects the secondary rays of the next wave: the pixel index of an emitted ray is the
+ * one set by {@link #emitFor(int, int)}, and rays of low weight play the {@link RussianRoulette}.
+ *
+ * Secondary rays are incoherent. {@link #sortCoherently()} bins them by direction octant and by origin
+ * cell, so that rays that are likely to hit the same primitives are traced one after the other.
+ */
+@NotThreadSafe
+final class RayWave implements SecondaryRaySink {
+
+    private final RussianRoulette roulette;
+
+    private Ray[] rays;
+
+    private double[] weights;
+
+    private RenderingContext[] contexts;
+
+    private int[] pixels;
+
+    private int size;
+
+    /**
+     * The sort keys and the arrays the rays are sorted into, kept from one sort to the next.
+     */
+    private long[] keys = new long[0];
+
+    private Ray[] sortedRays = new Ray[0];
+
+    private double[] sortedWeights = new double[0];
+
+    private RenderingContext[] sortedContexts = new RenderingContext[0];
+
+    private int[] sortedPixels = new int[0];
+
+    /**
+     * The index of the pixel secondary rays are emitted for.
+     */
+    private int emittingPixel;
+
+    /**
+     * The index of that pixel on the rendered surface, which the roulette draws from.
+     */
+    private int emittingSurfacePixel;
+
+    /**
+     * @param initialCapacity The number of rays the wave can hold before growing.
+     * @param roulette Terminates emitted rays of low weight.
+     */
+    RayWave(final int initialCapacity, final RussianRoulette roulette) {
+        this.roulette = roulette;
+        rays = new Ray[initialCapacity];
+        weights = new double[initialCapacity];
+        contexts = new RenderingContext[initialCapacity];
+        pixels = new int[initialCapacity];
+    }
+
+    /**
+     * Adds a ray to the wave.
+     *
+     * @param ray The ray.
+     * @param weight The weight of the ray.
+     * @param ctx The rendering context of the ray.
+     * @param pixel The index of the pixel the ray contributes to.
+     */
+    void add(final Ray ray, final double weight, final RenderingContext ctx, final int pixel) {
+        if (size == rays.length) {
+            final int capacity = Math.max(1, rays.length * 2);
+            rays = Arrays.copyOf(rays, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+            contexts = Arrays.copyOf(contexts, capacity);
+            pixels = Arrays.copyOf(pixels, capacity);
+        }
+        rays[size] = ray;
+        weights[size] = weight;
+        contexts[size] = ctx;
+        pixels[size] = pixel;
+        size++;
+    }
+
+    /**
+     * Sets the index of the pixel the next emitted rays contribute to.
+     *
+     * @param pixel The index of the pixel.
+     * @param surfacePixel The index of the pixel on the rendered surface, see
+     *                     {@link RussianRoulette#uniform(Ray, int)}.
+     *
+     * @return itself, to be given as a {@link SecondaryRaySink}
+     */
+    RayWave emitFor(final int pixel, final int surfacePixel) {
+        this.emittingPixel = pixel;
+        this.emittingSurfacePixel = surfacePixel;
+        return this;
+    }
+
+    @Override
+    public void emit(final Ray ray, final double weight, final RenderingContext ctx) {
+        final double surviving = roulette.survivingThroughput(weight, RussianRoulette.uniform(ray, emittingSurfacePixel));
+        if (surviving > 0.) {
+            ctx.setThroughput(surviving);
+            add(ray, surviving, ctx, emittingPixel);
+        }
+    }
+
+    Ray ray(final int i) {
+        return rays[i];
+    }
+
+    double weight(final int i) {
+        return weights[i];
+    }
+
+    RenderingContext context(final int i) {
+        return contexts[i];
+    }
+
+    int pixel(final int i) {
+        return pixels[i];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Sorts the rays of the wave by direction octant, then by the Morton code of the cell of their origin
+     * within the bounds of all the origins of the wave.
+     */
+    void sortCoherently() {
+        if (size < 2) {
+            return;
+        }
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            final Vector origin = rays[i].origin();
+            minX = Math.min(minX, origin.x());
+            minY = Math.min(minY, origin.y());
+            minZ = Math.min(minZ, origin.z());
+            maxX = Math.max(maxX, origin.x());
+            maxY = Math.max(maxY, origin.y());
+            maxZ = Math.max(maxZ, origin.z());
+        }
+        final Vector min = new Vector(minX, minY, minZ);
+        final Vector max = new Vector(maxX, maxY, maxZ);
+
+        if (keys.length < size) {
+            keys = new long[rays.length];
+        }
+
+        // The 3 bits octant and the 30 bits Morton code make the upper bits of the key, the index of the
+        // ray the 31 lower ones. The sign bit is flipped, so that keys sort as unsigned values.
+        for (int i = 0; i < size; i++) {
+            final long bin = ((long) octant(rays[i].direction()) << 30) | MortonCode.encode(rays[i].origin(), min, max);
+            keys[i] = ((bin << 31) | i) ^ Long.MIN_VALUE;
+        }
+        Arrays.sort(keys, 0, size);
+
+        if (sortedRays.length < rays.length) {
+            sortedRays = new Ray[rays.length];
+            sortedWeights = new double[rays.length];
+            sortedContexts = new RenderingContext[rays.length];
+            sortedPixels = new int[rays.length];
+        }
+        for (int k = 0; k < size; k++) {
+            final int i = (int) (keys[k] & Integer.MAX_VALUE);
+            sortedRays[k] = rays[i];
+            sortedWeights[k] = weights[i];
+            sortedContexts[k] = contexts[i];
+            sortedPixels[k] = pixels[i];
+        }
+
+        // The unsorted arrays receive the next sort, without keeping rays alive until then
+        final Ray[] unsortedRays = rays;
+        final double[] unsortedWeights = weights;
+        final RenderingContext[] unsortedContexts = contexts;
+        final int[] unsortedPixels = pixels;
+        rays = sortedRays;
+        weights = sortedWeights;
+        contexts = sortedContexts;
+        pixels = sortedPixels;
+        Arrays.fill(unsortedRays, 0, size, null);
+        Arrays.fill(unsortedContexts, 0, size, null);
+        sortedRays = unsortedRays;
+        sortedWeights = unsortedWeights;
+        sortedContexts = unsortedContexts;
+        sortedPixels = unsortedPixels;
+    }
+
+    private static int octant(final Vector direction) {
+        return (direction.x() < 0. ? 1 : 0) | (direction.y() < 0. ? 2 : 0) | (direction.z() < 0. ? 4 : 0);
+    }
+
+    /**
+     * Removes every ray of the wave, keeping the allocated arrays.
+     */
+    void clear() {
+        Arrays.fill(rays, 0, size, null);
+        Arrays.fill(contexts, 0, size, null);
+        size = 0;
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * {@code RenderCheckpoint} records the progress of a {@link PathTracingRenderer} in an append-only log, so
+ * that a killed rendering can be resumed where it stopped, and end up with the same image.
+ *
+ * Each time a tile completes a pass, a record holding the accumulated samples of its pixels (auxiliary
+ * features included) is appended to the log, along with a checksum: a record torn by a kill is detected and
+ * dropped when the log is read back. Once a pass is completed, the log is compacted into a new file holding
+ * the latest record of each tile, which atomically replaces the log.
+ *
+ * Records are handed to the operating system as they are written, which is enough to survive the kill of
+ * the process. Compacted logs are also forced to the storage device.
+ */
+@ThreadSafe
+final class RenderCheckpoint implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RenderCheckpoint.class);
+
+    private static final int MAGIC_NUMBER = 0x524d434b;
+
+    private static final int VERSION = 1;
+
+    /**
+     * Magic number, version, fingerprint, width, height and number of tiles.
+     */
+    private static final int HEADER_BYTES = 28;
+
+    /**
+     * Pass, tile and length of the pixels, before the pixels and their checksum.
+     */
+    private static final int RECORD_HEADER_BYTES = 12;
+
+    private final Path file;
+
+    /**
+     * Identifies the settings of the rendering: a log of other settings is not resumed.
+     */
+    private final long fingerprint;
+
+    private final FrameBuffer buffer;
+
+    private final List<Tile> tiles;
+
+    @GuardedBy("this")
+    private final int[] passesCompleted;
+
+    @GuardedBy("this")
+    private FileChannel channel;
+
+    /**
+     * Whether writing the log failed, in which case the rendering goes on without checkpoints.
+     */
+    @GuardedBy("this")
+    private boolean failed;
+
+    private RenderCheckpoint(final Path file, final long fingerprint, final FrameBuffer buffer,
+            final List<Tile> tiles) {
+        this.file = file;
+        this.fingerprint = fingerprint;
+        this.buffer = buffer;
+        this.tiles = tiles;
+        this.passesCompleted = new int[tiles.size()];
+    }
+
+    /**
+     * Opens the specified log, restoring into the buffer the tiles it records if it was written with the same
+     * fingerprint. Otherwise, the log is started over.
+     *
+     * @param file The log.
+     * @param fingerprint Identifies the settings of the rendering.
+     * @param buffer The buffer being rendered.
+     * @param tiles The tiles the buffer is rendered by.
+     *
+     * @return The opened checkpoint.
+     *
+     * @throws IOException if the log can neither be read nor started over.
+     */
+    static RenderCheckpoint open(final Path file, final long fingerprint, final FrameBuffer buffer,
+            final List<Tile> tiles) throws IOException {
+        final RenderCheckpoint checkpoint = new RenderCheckpoint(file, fingerprint, buffer, tiles);
+        synchronized (checkpoint) {
+            checkpoint.restore();
+        }
+        return checkpoint;
+    }
+
+    /**
+     * @param tile The index of the tile.
+     *
+     * @return the number of passes the tile has completed
+     */
+    synchronized int passesCompleted(final int tile) {
+        return passesCompleted[tile];
+    }
+
+    /**
+     * Records that the specified tile has completed the specified number of passes. Must be called by the
+     * thread that rendered the tile, before any other pass of the tile starts.
+     *
+     * @param tile The index of the tile.
+     * @param passes The number of passes the tile has completed.
+     */
+    void tileCompleted(final int tile, final int passes) {
+        final ByteBuffer record = record(tile, passes);
+        synchronized (this) {
+            if (failed) {
+                return;
+            }
+            try {
+                writeFully(channel, record);
+                passesCompleted[tile] = passes;
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    /**
+     * Compacts the log into the latest record of each tile. Must be called while no tile is being rendered.
+     */
+    synchronized void passCompleted() {
+        if (failed) {
+            return;
+        }
+        try {
+            compact();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Closes then deletes the log, once the rendering is completed.
+     */
+    synchronized void delete() {
+        try {
+            close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("cannot delete the checkpoint {}", file, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    @GuardedBy("this")
+    private void restore() throws IOException {
+        long validLength = 0L;
+        int restored = 0;
+        if (Files.exists(file)) {
+            try (FileChannel in = FileChannel.open(file, READ)) {
+                final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                if (readFully(in, header) && header.getInt() == MAGIC_NUMBER && header.getInt() == VERSION
+                        && header.getLong() == fingerprint && header.getInt() == buffer.getWidth()
+                        && header.getInt() == buffer.getHeight() && header.getInt() == tiles.size()) {
+                    validLength = HEADER_BYTES;
+                    for (long length = readRecord(in); length > 0; length = readRecord(in)) {
+                        validLength += length;
+                        restored++;
+                    }
+                } else {
+                    logger.warn("the checkpoint {} does not match the rendering, starting over", file);
+                }
+            }
+        }
+
+        if (validLength == 0L) {
+            compact();
+            return;
+        }
+
+        // A record torn by a kill is dropped
+        channel = FileChannel.open(file, WRITE);
+        channel.truncate(validLength);
+        channel.position(validLength);
+        logger.info("resuming the rendering from {}, {} tile passes restored", file, restored);
+    }
+
+    /**
+     * Reads a record of the log and restores its tile into the buffer.
+     *
+     * @return The length of the record, {@code 0} at the end of the log or if the record is torn.
+     */
+    @GuardedBy("this")
+    private long readRecord(final FileChannel in) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        if (!readFully(in, header)) {
+            return 0L;
+        }
+        final int passes = header.getInt();
+        final int tile = header.getInt();
+        final int length = header.getInt();
+        if (tile < 0 || tile >= tiles.size() || length != tiles.get(tile).size() * FrameBuffer.PIXEL_BYTES) {
+            return 0L;
+        }
+
+        final ByteBuffer pixels = ByteBuffer.allocate(length + 4);
+        if (!readFully(in, pixels)) {
+            return 0L;
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(header.array());
+        crc.update(pixels.array(), 0, length);
+        if (pixels.getInt(length) != (int) crc.getValue()) {
+            return 0L;
+        }
+
+        final Tile restored = tiles.get(tile);
+        for (int i = 0; i < restored.size(); i++) {
+            final Pixel pixel = restored.pixel(i);
+            buffer.readPixel(pixel.y() * buffer.getWidth() + pixel.x(), pixels);
+        }
+        passesCompleted[tile] = passes;
+        return RECORD_HEADER_BYTES + length + 4;
+    }
+
+    /**
+     * Writes the latest record of each tile into a new log, which then replaces the current one.
+     */
+    @GuardedBy("this")
+    private void compact() throws IOException {
+        final Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(compacted, WRITE, CREATE, TRUNCATE_EXISTING)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC_NUMBER).putInt(VERSION).putLong(fingerprint)
+                    .putInt(buffer.getWidth()).putInt(buffer.getHeight()).putInt(tiles.size());
+            header.flip();
+            writeFully(out, header);
+            for (int tile = 0; tile < tiles.size(); tile++) {
+                if (passesCompleted[tile] > 0) {
+                    writeFully(out, record(tile, passesCompleted[tile]));
+                }
+            }
+            out.force(true);
+        }
+
+        if (channel != null) {
+            channel.close();
+        }
+        Files.move(compacted, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        channel = FileChannel.open(file, WRITE);
+        channel.position(channel.size());
+    }
+
+    private ByteBuffer record(final int tile, final int passes) {
+        final Tile recorded = tiles.get(tile);
+        final int length = recorded.size() * FrameBuffer.PIXEL_BYTES;
+        final ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + length + 4);
+        record.putInt(passes).putInt(tile).putInt(length);
+        for (int i = 0; i < recorded.size(); i++) {
+            final Pixel pixel = recorded.pixel(i);
+            buffer.writePixel(pixel.y() * buffer.getWidth() + pixel.x(), record);
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, RECORD_HEADER_BYTES + length);
+        record.putInt((int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    @GuardedBy("this")
+    private void fail(final IOException e) {
+        logger.error("cannot write the checkpoint {}, going on without checkpoints", file, e);
+        failed = true;
+    }
+
+    private static boolean readFully(final FileChannel in, final ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            if (in.read(bytes) < 0) {
+                return false;
+            }
+        }
+        bytes.flip();
+        return true;
+    }
+
+    private static void writeFully(final FileChannel out, final ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+    }
+}
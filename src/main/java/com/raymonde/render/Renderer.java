@@ -18,8 +18,11 @@
 
 package com.raymonde.render;
 
+import com.raymonde.core.Color;
 import com.raymonde.scene.Scene;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
  * Base interface that any renderer should implements.
  */
@@ -38,4 +41,55 @@ public interface Renderer {
      * @see Camera
      */
     RenderingSurface renderSceneThroughCamera(Scene scene, Camera camera) throws RenderingException;
+
+    /**
+     * Renders the specified {@link Scene} through the specified {@link Camera}, notifying the specified
+     * listener of each completed row of the resulting surface.
+     * Rows are notified as they are completed by {@link #renderSceneOnto(Scene, Camera, RenderingSurface)}.
+     *
+     * @param scene The {@link Scene} object to render
+     * @param camera The point of view from which to render the scene
+     * @param listener Notified of each completed row
+     *
+     * @return return the resulting {@link RenderingSurface}
+     *
+     * @throws RenderingException if an unrecoverable error raises during rendering process.
+     */
+    default RenderingSurface renderSceneThroughCamera(final Scene scene, final Camera camera,
+            final RowListener listener) throws RenderingException {
+        final RenderingSurface surface = camera.createRenderingSurface();
+        surface.setRowListener(listener);
+        return renderSceneOnto(scene, camera, surface);
+    }
+
+    /**
+     * Renders the specified {@link Scene} through the specified {@link Camera} onto the specified surface,
+     * which may be stored off the heap (see {@link MappedRenderingSurface}).
+     * Renderers that set the pixels one by one should override this method: by default, the scene is
+     * rendered onto a new surface which is then copied. If the surface has auxiliary buffers, they are replaced
+     * by those of the new surface, when it has some.
+     *
+     * @param scene The {@link Scene} object to render
+     * @param camera The point of view from which to render the scene
+     * @param surface The surface to render onto, as large as the surfaces of the camera
+     *
+     * @return return the specified {@link RenderingSurface}
+     *
+     * @throws RenderingException if an unrecoverable error raises during rendering process.
+     */
+    default RenderingSurface renderSceneOnto(final Scene scene, final Camera camera,
+            final RenderingSurface surface) throws RenderingException {
+        checkArgument(surface.getPixelWidth() == camera.getPixelWidth()
+                && surface.getPixelHeight() == camera.getPixelHeight(), "the surface does not match the camera");
+
+        final RenderingSurface rendered = renderSceneThroughCamera(scene, camera);
+        if (surface.getAuxiliaryBuffers() != null && rendered.getAuxiliaryBuffers() != null) {
+            surface.setAuxiliaryBuffers(rendered.getAuxiliaryBuffers());
+        }
+        surface.eachPixel(pixel -> {
+            final Color color = rendered.getPixelColor(pixel);
+            surface.setPixelColor(pixel, color != null ? color : Color.black());
+        });
+        return surface;
+    }
 }
@@ -18,6 +18,8 @@
 
 package com.raymonde.render;
 
+import java.util.function.DoubleSupplier;
+
 /**
  * {@code RenderingContext} objects stores key elements (such as refraction factor, or depth) that are
  * specific to the current rendering step.
@@ -36,6 +38,30 @@ public class RenderingContext {
 
     private boolean out;
 
+    /**
+     * Whether the ray gathers indirect lighting, in which case materials must not query the
+     * {@link IrradianceCache} again.
+     */
+    private boolean gathering;
+
+    /**
+     * Whether the ray gathers the light bounced toward a record of the {@link IrradianceCache}, in which case
+     * materials leave out the ambient term: it is added once at the shaded point, not with each bounce.
+     */
+    private boolean bouncing;
+
+    /**
+     * The contribution of the color seen along the ray to the final pixel color, i.e. the product of the
+     * reflectivity/transmission factors along its path.
+     */
+    private double throughput = 1.;
+
+    /**
+     * Draws the uniform random numbers materials sample with (e.g. lights), {@code null} to draw them from
+     * {@link java.util.concurrent.ThreadLocalRandom}.
+     */
+    private DoubleSupplier random;
+
     public RenderingContext() {
 
     }
@@ -87,6 +113,64 @@ public class RenderingContext {
         this.out = out;
     }
 
+    /**
+     * @return whether the ray gathers indirect lighting
+     */
+    public boolean isGathering() {
+        return this.gathering;
+    }
+
+    /**
+     * @param gathering whether the ray gathers indirect lighting
+     */
+    public void setGathering(final boolean gathering) {
+        this.gathering = gathering;
+    }
+
+    /**
+     * @return whether the ray gathers bounced light, without the ambient term
+     */
+    public boolean isBouncing() {
+        return this.bouncing;
+    }
+
+    /**
+     * @param bouncing whether the ray gathers bounced light, without the ambient term
+     */
+    public void setBouncing(final boolean bouncing) {
+        this.bouncing = bouncing;
+    }
+
+    /**
+     * @return the contribution of the color seen along the ray to the final pixel color
+     */
+    public double getThroughput() {
+        return this.throughput;
+    }
+
+    /**
+     * @param throughput the contribution of the color seen along the ray to the final pixel color
+     */
+    public void setThroughput(final double throughput) {
+        this.throughput = throughput;
+    }
+
+    /**
+     * @return the source of the uniform random numbers materials sample with, {@code null} if they are drawn
+     * from {@link java.util.concurrent.ThreadLocalRandom}
+     */
+    public DoubleSupplier getRandom() {
+        return this.random;
+    }
+
+    /**
+     * @param random the source of the uniform random numbers materials sample with, e.g. a seeded stream so
+     *               that the rendering is reproducible
+     */
+    public void setRandom(final DoubleSupplier random) {
+        this.random = random;
+    }
+
     public static RenderingContext incremented(final RenderingContext ctx) {
         return new RenderingContext(ctx.getDepth()+1, ctx.getRefraction());
     }
@@ -24,10 +24,13 @@ import com.raymonde.core.Vector;
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 
+import static com.google.common.base.Preconditions.checkState;
+
 /**
  * {@code RenderingSurface} is the plane where the scene will be rendered onto.
  * Note that the origin {@code (0, 0)} is the upper-left corner.
@@ -64,11 +67,28 @@ public class RenderingSurface {
      * An array of {@link Color} objects.
      * The size of the array is : {@code pixelWidth * pixelHeight} and each point
      * {@code (x, y)} on the surface is located at the position {@code [y * pixelWidth + x]} of the array.
+     * It is {@code null} when the colors are stored by a subclass.
      */
     @GuardedBy("rwLock")
     // Maybe Should rely on concurrentCollection for thread safety
     private Color [] colors;
 
+    /**
+     * The number of pixels set in each row, counted only when a row listener is set.
+     */
+    @GuardedBy("rwLock")
+    private int [] pixelsSetPerRow;
+
+    /**
+     * Notified when a row is completed, may be {@code null}.
+     */
+    private volatile RowListener rowListener;
+
+    /**
+     * Receives the features of the surfaces seen through each pixel, may be {@code null}.
+     */
+    private volatile AuxiliaryBuffers auxiliaryBuffers;
+
     /**
      * Constructs a {@link RenderingSurface} instance
      * with the specified width and height (in pixels).
@@ -77,9 +97,7 @@ public class RenderingSurface {
      * @param pixelHeight The height in pixel of the surface.
      */
     public RenderingSurface(final int pixelWidth, final int pixelHeight) {
-        this.pixelHeight = pixelHeight;
-        this.pixelWidth = pixelWidth;
-        colors = new Color[pixelWidth * pixelHeight];
+        this(pixelWidth, pixelHeight, new Color[pixelWidth * pixelHeight]);
     }
 
     /**
@@ -101,6 +119,20 @@ public class RenderingSurface {
         return pixelHeight;
     }
 
+    /**
+     * Constructs a {@link RenderingSurface} instance with the specified width and height (in pixels).
+     *
+     * @param pixelWidth The width in pixel of the surface.
+     * @param pixelHeight The height in pixel of the surface.
+     * @param colors The array storing the colors, {@code null} if they are stored by the subclass (see
+     *               {@link #storedColor(int, int)} and {@link #storeColor(int, int, Color)}).
+     */
+    protected RenderingSurface(final int pixelWidth, final int pixelHeight, final Color [] colors) {
+        this.pixelHeight = pixelHeight;
+        this.pixelWidth = pixelWidth;
+        this.colors = colors;
+    }
+
     /**
      * Sets the specified {@link Color} for the specified {@link Pixel}.
      *
@@ -108,12 +140,138 @@ public class RenderingSurface {
      * @param color The color to set at the specified position.
      */
     public void setPixelColor(final Pixel pixel, final Color color) {
+        final RowListener listener = rowListener;
+        boolean firstSet;
+        boolean rowCompleted = false;
         try {
             rwLock.writeLock().lock();
-            colors[pixel.y() * pixelWidth + pixel.x()] = color;
+            firstSet = storedColor(pixel.x(), pixel.y()) == null;
+            if (listener != null && firstSet) {
+                rowCompleted = ++pixelsSetPerRow[pixel.y()] == pixelWidth;
+            }
+            storeColor(pixel.x(), pixel.y(), color);
         } finally {
             rwLock.writeLock().unlock();
         }
+        if (firstSet) {
+            pixelSet(pixel);
+        }
+        if (rowCompleted) {
+            listener.rowCompleted(this, pixel.y());
+        }
+    }
+
+    /**
+     * Returns the {@link Color} of the specified {@link Pixel}.
+     *
+     * @param pixel The pixel.
+     *
+     * @return The color of the pixel, {@code null} if it has not been set.
+     */
+    public Color getPixelColor(final Pixel pixel) {
+        try {
+            rwLock.readLock().lock();
+            return storedColor(pixel.x(), pixel.y());
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the stored color of the specified pixel. Called while holding the lock of the surface.
+     *
+     * @param x The abscissa of the pixel.
+     * @param y The ordinate of the pixel.
+     *
+     * @return The color of the pixel, {@code null} if it has not been set.
+     */
+    protected Color storedColor(final int x, final int y) {
+        return colors[y * pixelWidth + x];
+    }
+
+    /**
+     * Stores the color of the specified pixel. Called while holding the write lock of the surface.
+     *
+     * @param x The abscissa of the pixel.
+     * @param y The ordinate of the pixel.
+     * @param color The color of the pixel.
+     */
+    protected void storeColor(final int x, final int y, final Color color) {
+        colors[y * pixelWidth + x] = color;
+    }
+
+    /**
+     * Called, without holding the lock of the surface, the first time the specified pixel is set. Does
+     * nothing by default.
+     *
+     * @param pixel The pixel.
+     */
+    protected void pixelSet(final Pixel pixel) {
+    }
+
+    /**
+     * Sets the listener notified each time all the pixels of a row have been set. It must be set before
+     * the first pixel is.
+     *
+     * @param rowListener The listener, {@code null} to stop notifying.
+     */
+    public void setRowListener(final RowListener rowListener) {
+        try {
+            rwLock.writeLock().lock();
+            if (pixelsSetPerRow == null) {
+                pixelsSetPerRow = new int[pixelHeight];
+            }
+            this.rowListener = rowListener;
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the buffers the renderers record the features of the surfaces seen through each pixel into (depth,
+     * normal, albedo, identifiers), along with the colors. They must be set before the surface is rendered.
+     *
+     * @param auxiliaryBuffers The buffers, as large as the surface, {@code null} to record nothing.
+     */
+    public void setAuxiliaryBuffers(final AuxiliaryBuffers auxiliaryBuffers) {
+        this.auxiliaryBuffers = auxiliaryBuffers;
+    }
+
+    /**
+     * @return the features of the surfaces seen through each pixel, {@code null} if they are not recorded
+     */
+    public AuxiliaryBuffers getAuxiliaryBuffers() {
+        return auxiliaryBuffers;
+    }
+
+    /**
+     * Copies the colors of the specified row, as RGB integers (see {@link Color#rgb()}). Pixels that have not
+     * been set are black.
+     *
+     * @param y The row.
+     * @param rgb Receives the {@code pixelWidth} colors of the row.
+     */
+    public void copyRow(final int y, final int [] rgb) {
+        try {
+            rwLock.readLock().lock();
+            copyStoredRow(y, rgb);
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the stored colors of the specified row, as RGB integers. Called while holding the lock of the
+     * surface.
+     *
+     * @param y The row.
+     * @param rgb Receives the {@code pixelWidth} colors of the row, black for pixels that have not been set.
+     */
+    protected void copyStoredRow(final int y, final int [] rgb) {
+        for (int x = 0; x < pixelWidth; x++) {
+            final Color color = storedColor(x, y);
+            rgb[x] = color != null ? color.rgb() : Color.black().rgb();
+        }
     }
 
     /**
@@ -140,6 +298,17 @@ public class RenderingSurface {
     public Color [] getColors() {
         try {
             rwLock.readLock().lock();
+            if (colors == null) {
+                checkState((long) pixelWidth * pixelHeight <= Integer.MAX_VALUE - 8,
+                        "the surface is too large to be copied in an array");
+                final Color[] copy = new Color[pixelWidth * pixelHeight];
+                for (int y = 0; y < pixelHeight; y++) {
+                    for (int x = 0; x < pixelWidth; x++) {
+                        copy[y * pixelWidth + x] = storedColor(x, y);
+                    }
+                }
+                return copy;
+            }
             return Arrays.copyOf(colors, colors.length);
         } finally {
             rwLock.readLock().unlock();
@@ -154,10 +323,23 @@ public class RenderingSurface {
      * @see Pixel
      */
     public void eachPixel(final Consumer<Pixel> lambda) {
-        for (int w = 0; w < pixelWidth; w++) {
-            for (int h = 0; h < pixelHeight; h++) {
+        // Row by row, so that rows are completed one after the other
+        for (int h = 0; h < pixelHeight; h++) {
+            for (int w = 0; w < pixelWidth; w++) {
                 lambda.accept(new Pixel(w, h));
             }
         }
     }
+
+    /**
+     * Splits the surface into square {@link Tile}s of the specified size, row by row. Tiles of the last
+     * column and of the last row are cropped to the surface.
+     *
+     * @param size The width and height in pixels of the tiles.
+     *
+     * @return The tiles covering the whole surface.
+     */
+    public List<Tile> tiles(final int size) {
+        return Tile.covering(pixelWidth, pixelHeight, size);
+    }
 }
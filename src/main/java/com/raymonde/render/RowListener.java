@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+/**
+ * Notified each time every pixel of a row of a {@link RenderingSurface} has been set, so that finished rows
+ * can be processed (e.g. saved) while the rest of the surface is being rendered.
+ *
+ * @see RenderingSurface#setRowListener(RowListener)
+ */
+@FunctionalInterface
+public interface RowListener {
+
+    /**
+     * Called once per row, from the thread that set the last pixel of the row. Rows may complete in any order.
+     *
+     * @param surface The surface.
+     * @param y The completed row.
+     */
+    void rowCompleted(RenderingSurface surface, int y);
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@code RussianRoulette} terminates secondary rays of low throughput at random, instead of tracing them
+ * all or dropping them all.
+ *
+ * A ray whose throughput is below the threshold survives with a probability proportional to its throughput,
+ * and the throughput of the surviving rays is raised to the threshold. The expected contribution of the
+ * ray is unchanged: the rendered image stays unbiased while most negligible rays are not traced.
+ */
+@ThreadSafe
+@Immutable
+public final class RussianRoulette {
+
+    /**
+     * The default throughput below which rays play the roulette.
+     */
+    public static final double DEFAULT_THRESHOLD = 1. / 32.;
+
+    /**
+     * The throughput below which rays play the roulette.
+     */
+    private final double threshold;
+
+    /**
+     * @param threshold The throughput below which rays play the roulette, {@code 0} to trace every ray.
+     */
+    public RussianRoulette(final double threshold) {
+        checkArgument(threshold >= 0. && threshold <= 1., "the threshold must be between 0.0 and 1.0");
+        this.threshold = threshold;
+    }
+
+    /**
+     * Returns the throughput a ray should be traced with, {@code 0} if it is terminated.
+     *
+     * @param throughput The throughput of the ray.
+     * @param u A uniform random number in {@code [0, 1)}.
+     *
+     * @return The throughput of the surviving ray, {@code 0} if the ray is terminated.
+     */
+    public double survivingThroughput(final double throughput, final double u) {
+        if (throughput >= threshold) {
+            return throughput;
+        }
+        return u * threshold < throughput ? threshold : 0.;
+    }
+
+    /**
+     * Returns the uniform random number the specified ray plays the roulette with, derived from a hash of the
+     * ray and of the pixel it contributes to (SplitMix64 finalizer). A ray always gets the same number whatever
+     * the renderer, the thread or the order rays are traced in: renderings are reproducible, and still parts
+     * of an animation do not flicker from one frame to the next.
+     *
+     * @param ray The ray.
+     * @param pixel The index of the pixel the ray contributes to.
+     *
+     * @return A uniform number in {@code [0, 1)}.
+     */
+    public static double uniform(final Ray ray, final int pixel) {
+        long z = (pixel + 1) * 0x9E3779B97F4A7C15L;
+        z = mix(z, ray.origin().x());
+        z = mix(z, ray.origin().y());
+        z = mix(z, ray.origin().z());
+        z = mix(z, ray.direction().x());
+        z = mix(z, ray.direction().y());
+        z = mix(z, ray.direction().z());
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    private static long mix(final long hash, final double value) {
+        return (hash ^ Double.doubleToLongBits(value)) * 0x9E3779B97F4A7C15L + 0x632BE59BD9B4E019L;
+    }
+
+    /**
+     * @return the throughput below which rays play the roulette
+     */
+    public double getThreshold() {
+        return threshold;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import com.raymonde.core.SobolSequence;
+
+import java.util.SplittableRandom;
+
+/**
+ * The sequences the {@link PathTracingRenderer} can draw the positions of the samples of a pixel from.
+ */
+public enum SampleSequence {
+
+    /**
+     * Independent uniform positions.
+     */
+    RANDOM {
+        @Override
+        public void sample(final int index, final long scramble, final SplittableRandom random, final double[] point) {
+            point[0] = random.nextDouble();
+            point[1] = random.nextDouble();
+        }
+    },
+
+    /**
+     * Scrambled Sobol positions: the samples of a pixel cover its area evenly, which lowers the noise for
+     * a same number of samples.
+     */
+    SOBOL {
+        @Override
+        public void sample(final int index, final long scramble, final SplittableRandom random, final double[] point) {
+            SobolSequence.sample(index, scramble, point);
+        }
+    };
+
+    /**
+     * Computes the position of a sample in the unit square.
+     *
+     * @param index The index of the sample in the pixel.
+     * @param scramble Random bits specific to the pixel.
+     * @param random The random stream of the current thread.
+     * @param point Receives the two coordinates, in {@code [0, 1)}.
+     */
+    public abstract void sample(int index, long scramble, SplittableRandom random, double[] point);
+}
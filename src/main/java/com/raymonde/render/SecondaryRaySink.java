@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import com.raymonde.render.material.Material;
+
+/**
+ * Receives the secondary rays (reflected, refracted...) emitted by {@link Material}s.
+ * The receiver decides when, and whether, those rays are traced.
+ *
+ * @see Material#emitSecondaryRays(IntersectionResult, RenderingContext, double, SecondaryRaySink)
+ */
+@FunctionalInterface
+public interface SecondaryRaySink {
+
+    /**
+     * Receives a secondary ray.
+     *
+     * @param ray The secondary ray.
+     * @param weight The contribution of the color seen along the ray to the final pixel color.
+     * @param ctx The rendering context the ray should be traced with.
+     */
+    void emit(Ray ray, double weight, RenderingContext ctx);
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * A stack of pending rays along with their weight and rendering context.
+ * Entries are stored in parallel arrays allocated once, so that pushing and popping rays does not
+ * allocate anything unless the initial capacity is exceeded.
+ */
+@NotThreadSafe
+public final class SecondaryRayStack {
+
+    private Ray[] rays;
+
+    private double[] weights;
+
+    private RenderingContext[] contexts;
+
+    private int size;
+
+    /**
+     * @param initialCapacity The number of entries the stack can hold before growing.
+     */
+    public SecondaryRayStack(final int initialCapacity) {
+        rays = new Ray[initialCapacity];
+        weights = new double[initialCapacity];
+        contexts = new RenderingContext[initialCapacity];
+    }
+
+    /**
+     * Pushes a ray on top of the stack.
+     *
+     * @param ray The ray.
+     * @param weight The weight of the ray.
+     * @param ctx The rendering context of the ray.
+     */
+    public void push(final Ray ray, final double weight, final RenderingContext ctx) {
+        if (size == rays.length) {
+            final int capacity = Math.max(1, rays.length * 2);
+            rays = Arrays.copyOf(rays, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+            contexts = Arrays.copyOf(contexts, capacity);
+        }
+        rays[size] = ray;
+        weights[size] = weight;
+        contexts[size] = ctx;
+        size++;
+    }
+
+    /**
+     * Removes the top entry of the stack. Its values must have been read beforehand.
+     */
+    public void pop() {
+        size--;
+        rays[size] = null;
+        contexts[size] = null;
+    }
+
+    /**
+     * @return the ray on top of the stack
+     */
+    public Ray topRay() {
+        return rays[size - 1];
+    }
+
+    /**
+     * @return the weight of the ray on top of the stack
+     */
+    public double topWeight() {
+        return weights[size - 1];
+    }
+
+    /**
+     * @return the rendering context of the ray on top of the stack
+     */
+    public RenderingContext topContext() {
+        return contexts[size - 1];
+    }
+
+    /**
+     * @return {@code true} if the stack does not hold any ray
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every entry of the stack.
+     */
+    public void clear() {
+        Arrays.fill(rays, 0, size, null);
+        Arrays.fill(contexts, 0, size, null);
+        size = 0;
+    }
+}
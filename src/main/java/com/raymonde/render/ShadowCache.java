@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import com.raymonde.render.light.Light;
+import com.raymonde.render.primitive.Primitive;
+import com.raymonde.scene.Scene;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * {@code ShadowCache} remembers, for each light, the last primitive found to occlude a shadow ray towards
+ * it. Neighbouring pixels usually share their occluders: testing that primitive first avoids most full
+ * scene queries.
+ *
+ * Each thread has its own cache, see {@link #current()}. Renderers {@link #clear() clear} it whenever they
+ * move to another area of the image (a tile) or another scene.
+ */
+@NotThreadSafe
+public final class ShadowCache {
+
+    private static final ThreadLocal<ShadowCache> CACHES = ThreadLocal.withInitial(ShadowCache::new);
+
+    /**
+     * The last occluder of each light, lights being compared by identity.
+     */
+    private final Map<Light, Primitive> occluders = new IdentityHashMap<>();
+
+    /**
+     * @return the cache of the current thread
+     */
+    public static ShadowCache current() {
+        return CACHES.get();
+    }
+
+    /**
+     * Tells whether the specified shadow ray is occluded before reaching the specified light.
+     *
+     * @param scene The scene.
+     * @param light The light the ray goes to.
+     * @param ray The shadow ray.
+     * @param distanceToLight The distance between the origin of the ray and the light.
+     *
+     * @return {@code true} if a primitive lies between the origin of the ray and the light.
+     */
+    public boolean isOccluded(final Scene scene, final Light light, final Ray ray, final double distanceToLight) {
+        final Primitive last = occluders.get(light);
+        if (last != null && scene.occludes(last, ray, distanceToLight)) {
+            return true;
+        }
+
+        final Primitive occluder = scene.firstOccluder(ray, distanceToLight);
+        if (occluder == null) {
+            // The last occluder is kept, next rays are likely to be occluded by it again
+            return false;
+        }
+        occluders.put(light, occluder);
+        return true;
+    }
+
+    /**
+     * Forgets every occluder.
+     */
+    public void clear() {
+        occluders.clear();
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import com.google.common.base.MoreObjects;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A rectangular area of a {@link RenderingSurface}. Pixels of a tile are indexed row by row, from
+ * {@code 0} to {@code size() - 1}.
+ *
+ * @see RenderingSurface#tiles(int)
+ */
+@Immutable
+public final class Tile {
+
+    private final int x;
+
+    private final int y;
+
+    private final int width;
+
+    private final int height;
+
+    /**
+     * @param x The abscissa of the upper-left pixel of the tile.
+     * @param y The ordinate of the upper-left pixel of the tile.
+     * @param width The width in pixels of the tile.
+     * @param height The height in pixels of the tile.
+     */
+    public Tile(final int x, final int y, final int width, final int height) {
+        checkArgument(x >= 0, "x must be positive");
+        checkArgument(y >= 0, "y must be positive");
+        checkArgument(width > 0, "width must be strictly positive");
+        checkArgument(height > 0, "height must be strictly positive");
+
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Splits an area into square tiles of the specified size, row by row. Tiles of the last column and of
+     * the last row are cropped to the area.
+     *
+     * @param width The width in pixels of the area.
+     * @param height The height in pixels of the area.
+     * @param size The width and height in pixels of the tiles.
+     *
+     * @return The tiles covering the whole area.
+     */
+    public static List<Tile> covering(final int width, final int height, final int size) {
+        return stream(width, height, size).collect(Collectors.toList());
+    }
+
+    /**
+     * Streams the tiles of {@link #covering(int, int, int)} one after the other, without holding them all
+     * in memory.
+     *
+     * @param width The width in pixels of the area.
+     * @param height The height in pixels of the area.
+     * @param size The width and height in pixels of the tiles.
+     *
+     * @return The tiles covering the whole area, row by row.
+     */
+    public static Stream<Tile> stream(final int width, final int height, final int size) {
+        checkArgument(size > 0, "size must be strictly positive");
+
+        final int columns = (width + size - 1) / size;
+        final long count = (long) columns * ((height + size - 1) / size);
+        return LongStream.range(0, count).mapToObj(i -> {
+            final int x = (int) (i % columns) * size;
+            final int y = (int) (i / columns) * size;
+            return new Tile(x, y, Math.min(size, width - x), Math.min(size, height - y));
+        });
+    }
+
+    public int x() {
+        return x;
+    }
+
+    public int y() {
+        return y;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /**
+     * @return the number of pixels of the tile
+     */
+    public int size() {
+        return width * height;
+    }
+
+    /**
+     * Returns the pixel of the surface at the specified index of the tile.
+     *
+     * @param index The index of the pixel in the tile, row by row.
+     *
+     * @return The corresponding pixel of the surface.
+     */
+    public Pixel pixel(final int index) {
+        return new Pixel(x + index % width, y + index / width);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("x", x)
+                .add("y", y)
+                .add("width", width)
+                .add("height", height)
+                .toString();
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render;
+
+import com.raymonde.core.Color;
+import com.raymonde.render.material.Material;
+import com.raymonde.scene.Scene;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A renderer that traces rays breadth-first, one wave at a time, instead of evaluating the whole ray
+ * tree of each pixel before moving to the next one.
+ *
+ * The surface is split into {@link Tile}s rendered in parallel. For each tile, all primary rays are
+ * generated as a batch, then each wave goes through the following stages:
+ * <ol>
+ *     <li>secondary rays are binned by direction and origin (see {@link RayWave#sortCoherently()}),</li>
+ *     <li>every ray of the wave is intersected with the scene,</li>
+ *     <li>hits are grouped by type of {@link Material},</li>
+ *     <li>each group is shaded in turn, the emitted secondary rays making up the next wave.</li>
+ * </ol>
+ * Each stage runs the same code over the whole wave, which keeps the scene data and the material code
+ * paths hot in the caches.
+ */
+@ThreadSafe
+public class WavefrontRenderer implements Renderer {
+
+    /**
+     * The width and height in pixels of the tiles.
+     */
+    public static final int DEFAULT_TILE_SIZE = 16;
+
+    private static final Logger logger = LoggerFactory.getLogger(WavefrontRenderer.class);
+
+    private final int tileSize;
+
+    private final int maxDepth;
+
+    private final RussianRoulette roulette;
+
+    public WavefrontRenderer() {
+        this(DEFAULT_TILE_SIZE, DefaultRenderer.DEFAULT_MAX_DEPTH, new RussianRoulette(RussianRoulette.DEFAULT_THRESHOLD));
+    }
+
+    /**
+     * @param tileSize The width and height in pixels of the tiles.
+     * @param maxDepth The maximum depth of the ray tree.
+     * @param roulette Terminates secondary rays of low weight.
+     */
+    public WavefrontRenderer(final int tileSize, final int maxDepth, final RussianRoulette roulette) {
+        this.tileSize = tileSize;
+        this.maxDepth = maxDepth;
+        this.roulette = roulette;
+    }
+
+    @Override
+    public RenderingSurface renderSceneThroughCamera(final Scene scene, final Camera camera) {
+        return renderSceneOnto(scene, camera, camera.createRenderingSurface());
+    }
+
+    /**
+     * Renders the specified {@link Scene} through the specified {@link Camera} onto the specified surface,
+     * tile by tile. Rows are completed as soon as the tiles covering them are done. Tiles are streamed, so
+     * that huge surfaces do not need a huge list of tiles.
+     */
+    @Override
+    public RenderingSurface renderSceneOnto(final Scene scene, final Camera camera,
+            final RenderingSurface surface) {
+        logger.debug("rendering tiles of {}x{} pixels", tileSize, tileSize);
+        Tile.stream(surface.getPixelWidth(), surface.getPixelHeight(), tileSize)
+                .parallel()
+                .forEach(tile -> renderTile(scene, camera, surface, tile));
+
+        return surface;
+    }
+
+    /**
+     * Renders a single tile, wave after wave.
+     */
+    private void renderTile(final Scene scene, final Camera camera, final RenderingSurface surface, final Tile tile) {
+        final int size = tile.size();
+        final double[] red = new double[size];
+        final double[] green = new double[size];
+        final double[] blue = new double[size];
+
+        // Occluders of another tile are unlikely to be relevant
+        ShadowCache.current().clear();
+
+        RayWave wave = new RayWave(size, roulette);
+        RayWave next = new RayWave(size, roulette);
+
+        for (int i = 0; i < size; i++) {
+            wave.add(camera.rayThroughPixel(tile.pixel(i)), 1., new RenderingContext(0, 1.), i);
+        }
+
+        final MaterialGroups groups = new MaterialGroups();
+        IntersectionResult[] hits = new IntersectionResult[size];
+
+        final AuxiliaryBuffers auxiliary = surface.getAuxiliaryBuffers();
+        boolean primary = true;
+        while (!wave.isEmpty()) {
+            // Primary rays are coherent already
+            if (!primary) {
+                wave.sortCoherently();
+            }
+
+            final int count = wave.size();
+            if (hits.length < count) {
+                hits = new IntersectionResult[count];
+            }
+
+            // Intersection stage
+            groups.reset(count);
+            for (int i = 0; i < count; i++) {
+                hits[i] = scene.nearestIntersection(wave.ray(i));
+                groups.assign(i, hits[i] == null ? null : hits[i].primitive().getMaterial());
+                if (primary && auxiliary != null) {
+                    final Pixel pixel = tile.pixel(wave.pixel(i));
+                    RayTreeEvaluator.record(this, scene, hits[i], wave.context(i), auxiliary,
+                            pixel.y() * surface.getPixelWidth() + pixel.x());
+                }
+            }
+            primary = false;
+
+            // Shading stage, one type of material after the other
+            final int[] order = groups.order();
+            for (int k = 0; k < groups.hitCount(); k++) {
+                final int i = order[k];
+                final IntersectionResult hit = hits[i];
+                final Material material = hit.primitive().getMaterial();
+                final RenderingContext ctx = wave.context(i);
+                final double weight = wave.weight(i);
+                final int pixel = wave.pixel(i);
+
+                final Color color = material.computeColor(this, scene, hit, ctx);
+                red[pixel] += color.r() * weight;
+                green[pixel] += color.g() * weight;
+                blue[pixel] += color.b() * weight;
+
+                if (ctx.getDepth() < maxDepth) {
+                    final Pixel surfacePixel = tile.pixel(pixel);
+                    material.emitSecondaryRays(hit, ctx, weight, next.emitFor(pixel,
+                            surfacePixel.y() * surface.getPixelWidth() + surfacePixel.x()));
+                }
+            }
+
+            final RayWave shaded = wave;
+            wave = next;
+            next = shaded;
+            next.clear();
+        }
+
+        for (int i = 0; i < size; i++) {
+            surface.setPixelColor(tile.pixel(i), new Color(clamp(red[i]), clamp(green[i]), clamp(blue[i])));
+        }
+    }
+
+    private static double clamp(final double value) {
+        return Math.max(0., Math.min(1., value));
+    }
+
+    /**
+     * Groups the rays of a wave by the type of the material they hit, using a counting sort.
+     */
+    private static final class MaterialGroups {
+
+        /**
+         * The material types met so far in the tile, the index being the group.
+         */
+        private final List<Class<?>> types = new ArrayList<>();
+
+        private int[] groupOfRay = new int[0];
+
+        private int[] order = new int[0];
+
+        private int count;
+
+        private int hitCount;
+
+        void reset(final int count) {
+            this.count = count;
+            if (groupOfRay.length < count) {
+                groupOfRay = new int[count];
+                order = new int[count];
+            }
+        }
+
+        /**
+         * Records the material hit by a ray, {@code null} if the ray did not hit anything.
+         */
+        void assign(final int ray, final Material material) {
+            if (material == null) {
+                groupOfRay[ray] = -1;
+                return;
+            }
+            final Class<?> type = material.getClass();
+            int group = types.indexOf(type);
+            if (group < 0) {
+                group = types.size();
+                types.add(type);
+            }
+            groupOfRay[ray] = group;
+        }
+
+        /**
+         * @return the indexes of the rays that hit something, sorted by group
+         */
+        int[] order() {
+            final int[] offsets = new int[types.size() + 1];
+            for (int i = 0; i < count; i++) {
+                if (groupOfRay[i] >= 0) {
+                    offsets[groupOfRay[i] + 1]++;
+                }
+            }
+            for (int g = 0; g < types.size(); g++) {
+                offsets[g + 1] += offsets[g];
+            }
+            hitCount = offsets[types.size()];
+            for (int i = 0; i < count; i++) {
+                if (groupOfRay[i] >= 0) {
+                    order[offsets[groupOfRay[i]]++] = i;
+                }
+            }
+            return order;
+        }
+
+        /**
+         * @return the number of rays that hit something, valid after {@link #order()}
+         */
+        int hitCount() {
+            return hitCount;
+        }
+    }
+}
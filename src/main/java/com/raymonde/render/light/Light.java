@@ -49,6 +49,37 @@ public abstract class Light {
      */
     public abstract Color colorAt(final Vector point);
 
+    /**
+     * Returns the distance beyond which the contribution of the light is negligible, i.e. lower than half
+     * an 8 bits color level. Lights whose contribution never vanishes return
+     * {@link Double#POSITIVE_INFINITY}, which is the default.
+     *
+     * @return The radius of the sphere of influence of the light.
+     */
+    public double getInfluenceRadius() {
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns an estimate of the power of the light, used to sample the lights proportionally to their
+     * contribution. Only the ratios between the powers of the lights of a scene matter.
+     *
+     * @return The estimated power of the light.
+     */
+    public double getPower() {
+        return 1.;
+    }
+
+    /**
+     * Returns a light similar to the current one but placed at the specified position.
+     * The current light is left unchanged.
+     *
+     * @param position The position of the returned light.
+     *
+     * @return The moved light.
+     */
+    public abstract Light movedTo(final Vector position);
+
     /**
      * @return the position
      */
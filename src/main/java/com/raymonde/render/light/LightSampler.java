@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render.light;
+
+import com.raymonde.core.AliasTable;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collection;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@code LightSampler} picks lights at random, with a probability proportional to their
+ * {@link Light#getPower() power}, so that shading a point costs a fixed number of shadow rays whatever the
+ * number of lights in the scene.
+ *
+ * The contribution of a sampled light must be divided by {@code samples * probability} for the estimate to
+ * converge to the contribution of all the lights.
+ */
+@ThreadSafe
+@Immutable
+public final class LightSampler {
+
+    private final Light[] lights;
+
+    private final AliasTable table;
+
+    private final int samples;
+
+    /**
+     * @param lights The lights to sample, at least one.
+     * @param samples The number of lights sampled for each shaded point.
+     */
+    public LightSampler(final Collection<Light> lights, final int samples) {
+        checkArgument(!lights.isEmpty(), "at least one light is required");
+        checkArgument(samples > 0, "the number of samples must be strictly positive");
+
+        this.lights = lights.toArray(new Light[lights.size()]);
+        this.samples = samples;
+
+        final double[] powers = new double[this.lights.length];
+        for (int i = 0; i < powers.length; i++) {
+            powers[i] = this.lights[i].getPower();
+        }
+        this.table = new AliasTable(powers);
+    }
+
+    /**
+     * Samples a light.
+     *
+     * @param u A uniform random number in {@code [0, 1)}.
+     *
+     * @return The index of the sampled light, see {@link #light(int)} and {@link #probability(int)}.
+     */
+    public int sample(final double u) {
+        return table.sample(u);
+    }
+
+    /**
+     * @param index The index of a light.
+     *
+     * @return the light at the specified index
+     */
+    public Light light(final int index) {
+        return lights[index];
+    }
+
+    /**
+     * @param index The index of a light.
+     *
+     * @return the probability that the light at the specified index is sampled
+     */
+    public double probability(final int index) {
+        return table.probability(index);
+    }
+
+    /**
+     * @return the number of lights sampled for each shaded point
+     */
+    public int getSamples() {
+        return samples;
+    }
+}
@@ -30,6 +30,11 @@ import javax.annotation.concurrent.ThreadSafe;
 @Immutable
 public class OmnidirectionalLight extends Light {
 
+    /**
+     * The contribution below which the light is ignored: half an 8 bits color level.
+     */
+    private static final double NEGLIGIBLE_CONTRIBUTION = 1. / 512.;
+
     /**
      * 
      */
@@ -62,6 +67,36 @@ public class OmnidirectionalLight extends Light {
         return getColor().multiply(attCoeff);
     }
 
+    /**
+     * The color received from the light decreases with the square of the distance, the influence radius is
+     * the distance at which its brightest component falls below half an 8 bits color level.
+     */
+    @Override
+    public double getInfluenceRadius() {
+        final double brightest = Math.max(color.r(), Math.max(color.g(), color.b()));
+        final double factor = attenuation.x();
+        if (!(factor > 0.)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.sqrt(brightest / (factor * NEGLIGIBLE_CONTRIBUTION));
+    }
+
+    /**
+     * The power of the light is estimated as the sum of the components of the color it gives at a unit
+     * distance.
+     */
+    @Override
+    public double getPower() {
+        final double sum = color.r() + color.g() + color.b();
+        final double factor = attenuation.x();
+        return factor > 0. ? sum / factor : sum;
+    }
+
+    @Override
+    public Light movedTo(final Vector position) {
+        return new OmnidirectionalLight(position, color, attenuation);
+    }
+
     /**
      * @return the attenuation
      */
@@ -22,6 +22,7 @@ import com.raymonde.core.Color;
 import com.raymonde.render.IntersectionResult;
 import com.raymonde.render.Renderer;
 import com.raymonde.render.RenderingContext;
+import com.raymonde.render.SecondaryRaySink;
 import com.raymonde.scene.Scene;
 
 /**
@@ -55,6 +56,30 @@ public abstract class AbstractMaterial implements Material {
             final IntersectionResult inter,
             final RenderingContext ctx);
 
+    /**
+     * Emits the secondary rays of the sub-material, if any.
+     */
+    @Override
+    public void emitSecondaryRays(final IntersectionResult inter,
+            final RenderingContext ctx,
+            final double weight,
+            final SecondaryRaySink sink) {
+        if (subMaterial != null) {
+            subMaterial.emitSecondaryRays(inter, ctx, weight, sink);
+        }
+    }
+
+    /**
+     * Returns the diffuse albedo of the sub-material, if any.
+     */
+    @Override
+    public Color diffuseAlbedo(final Renderer renderer,
+            final Scene scene,
+            final IntersectionResult inter,
+            final RenderingContext ctx) {
+        return subMaterial == null ? Color.black() : subMaterial.diffuseAlbedo(renderer, scene, inter, ctx);
+    }
+
     /**
      * @return the subMaterial
      */
@@ -53,4 +53,11 @@ public class ColorMaterial extends AbstractMaterial implements Material {
             final RenderingContext ctx) {
         return color;
     }
+
+    /**
+     * @return the color of the material
+     */
+    public Color getColor() {
+        return color;
+    }
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render.material;
+
+import com.raymonde.core.Color;
+import com.raymonde.render.IntersectionResult;
+import com.raymonde.render.Renderer;
+import com.raymonde.render.RenderingContext;
+import com.raymonde.scene.Scene;
+
+/**
+ * A {@link PhongMaterial} whose sub-material is a {@link ColorMaterial}, flattened by the
+ * {@link MaterialCompiler}: the color of the surface is a constant, so shading does not go through the
+ * sub-material anymore.
+ *
+ * The sub-material is still referenced, for introspection and for the secondary rays it may emit.
+ */
+public final class CompiledPhongMaterial extends PhongMaterial {
+
+    /**
+     * The color of the surface, taken from the sub-material.
+     */
+    private final Color baseColor;
+
+    /**
+     * @param phong The compiled material.
+     * @param subMaterial The sub-material of the compiled material, possibly compiled too.
+     */
+    CompiledPhongMaterial(final PhongMaterial phong, final ColorMaterial subMaterial) {
+        super(phong.getDiffuseFactor(), phong.getSpecularFactor(), subMaterial, phong.getAccuracy());
+        this.baseColor = subMaterial.getColor();
+    }
+
+    @Override
+    public Color computeColor(final Renderer renderer,
+            final Scene scene,
+            final IntersectionResult intersection,
+            final RenderingContext ctx) {
+        return shade(renderer, scene, intersection, ctx, baseColor);
+    }
+
+    @Override
+    public Color diffuseAlbedo(final Renderer renderer,
+            final Scene scene,
+            final IntersectionResult intersection,
+            final RenderingContext ctx) {
+        return baseColor.multiply(getDiffuseFactor());
+    }
+
+    /**
+     * @return the constant color of the surface
+     */
+    public Color getBaseColor() {
+        return baseColor;
+    }
+}
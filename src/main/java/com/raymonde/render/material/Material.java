@@ -21,6 +21,7 @@ import com.raymonde.core.Color;
 import com.raymonde.render.IntersectionResult;
 import com.raymonde.render.Renderer;
 import com.raymonde.render.RenderingContext;
+import com.raymonde.render.SecondaryRaySink;
 import com.raymonde.scene.Scene;
 
 /**
@@ -29,6 +30,8 @@ import com.raymonde.scene.Scene;
 public interface Material {
     
     /**
+     * Computes the color of the surface at the intersection, without the contribution of the secondary
+     * rays emitted by {@link #emitSecondaryRays(IntersectionResult, RenderingContext, double, SecondaryRaySink)}.
      *
      * @param renderer The renderer.
      * @param scene The scene.
@@ -41,4 +44,39 @@ public interface Material {
         final Scene scene,
         final IntersectionResult inter,
         final RenderingContext ctx);
+
+    /**
+     * Emits the secondary rays (reflected, refracted...) whose colors add up to the one returned by
+     * {@link #computeColor(Renderer, Scene, IntersectionResult, RenderingContext)}.
+     * Materials that do not emit any secondary ray do not need to override this method.
+     *
+     * @param inter The intersection.
+     * @param ctx The rendering context of the intersecting ray.
+     * @param weight The contribution of the current surface to the final pixel color.
+     * @param sink The receiver of the emitted rays.
+     */
+    default void emitSecondaryRays(final IntersectionResult inter,
+        final RenderingContext ctx,
+        final double weight,
+        final SecondaryRaySink sink) {
+    }
+
+    /**
+     * Returns the fraction of the light coming from any direction that the surface reflects diffusely,
+     * i.e. the factor applied to the indirect lighting received at the intersection.
+     * Materials that do not reflect light diffusely do not need to override this method.
+     *
+     * @param renderer The renderer.
+     * @param scene The scene.
+     * @param inter The intersection.
+     * @param ctx The rendering context.
+     *
+     * @return The diffuse albedo, black by default.
+     */
+    default Color diffuseAlbedo(final Renderer renderer,
+        final Scene scene,
+        final IntersectionResult inter,
+        final RenderingContext ctx) {
+        return Color.black();
+    }
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render.material;
+
+/**
+ * {@code MaterialCompiler} simplifies chains of nested materials once the scene is loaded, so that
+ * shading a hit goes through as few virtual calls as possible.
+ *
+ * <ul>
+ *     <li>{@code phong -> color} chains become a single {@link CompiledPhongMaterial} whose color is a
+ *     constant,</li>
+ *     <li>other materials of this package are rebuilt with their compiled sub-material.</li>
+ * </ul>
+ * Materials of other types, including subclasses of the materials of this package, are left untouched.
+ * Compiled materials render exactly the same colors as the original ones.
+ */
+public final class MaterialCompiler {
+
+    private MaterialCompiler() {
+    }
+
+    /**
+     * Compiles the specified material and its sub-materials.
+     *
+     * @param material The material to compile, may be {@code null}.
+     *
+     * @return The compiled material, the specified one if it cannot be simplified.
+     */
+    public static Material compile(final Material material) {
+        if (material == null || material.getClass() == CompiledPhongMaterial.class) {
+            return material;
+        }
+
+        if (material.getClass() == PhongMaterial.class) {
+            final PhongMaterial phong = (PhongMaterial) material;
+            final Material subMaterial = compile(phong.getSubMaterial());
+            if (subMaterial != null && subMaterial.getClass() == ColorMaterial.class) {
+                return new CompiledPhongMaterial(phong, (ColorMaterial) subMaterial);
+            }
+            return subMaterial == phong.getSubMaterial()
+                    ? phong
+                    : new PhongMaterial(phong.getDiffuseFactor(), phong.getSpecularFactor(), subMaterial,
+                            phong.getAccuracy());
+        }
+
+        if (material.getClass() == ReflectiveMaterial.class) {
+            final ReflectiveMaterial reflective = (ReflectiveMaterial) material;
+            final Material subMaterial = compile(reflective.getSubMaterial());
+            return subMaterial == reflective.getSubMaterial()
+                    ? reflective : new ReflectiveMaterial(reflective.getReflectivity(), subMaterial);
+        }
+
+        if (material.getClass() == RefractiveMaterial.class) {
+            final RefractiveMaterial refractive = (RefractiveMaterial) material;
+            final Material subMaterial = compile(refractive.getSubMaterial());
+            return subMaterial == refractive.getSubMaterial()
+                    ? refractive : new RefractiveMaterial(refractive.getRefraction(), subMaterial);
+        }
+
+        if (material.getClass() == ColorMaterial.class) {
+            final ColorMaterial color = (ColorMaterial) material;
+            final Material subMaterial = compile(color.getSubMaterial());
+            return subMaterial == color.getSubMaterial()
+                    ? color : new ColorMaterial(color.getColor(), subMaterial);
+        }
+
+        return material;
+    }
+}
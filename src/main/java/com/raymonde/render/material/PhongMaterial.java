@@ -19,16 +19,21 @@
 package com.raymonde.render.material;
 
 import com.raymonde.core.Color;
+import com.raymonde.core.ColorAccumulator;
 import com.raymonde.core.Vector;
 import com.raymonde.render.IntersectionResult;
 import com.raymonde.render.Ray;
 import com.raymonde.render.Renderer;
 import com.raymonde.render.RenderingContext;
+import com.raymonde.render.ShadowCache;
 import com.raymonde.render.light.Light;
 import com.raymonde.scene.Scene;
 import lombok.Builder;
 import lombok.val;
 
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+
 /**
  */
 public class PhongMaterial extends AbstractMaterial implements Material {
@@ -43,6 +48,16 @@ public class PhongMaterial extends AbstractMaterial implements Material {
      */
     private final double specularFactor;
 
+    /**
+     * The trade-off between speed and accuracy of the specular term.
+     */
+    private final SpecularAccuracy accuracy;
+
+    /**
+     * Raises cosines to the specular factor, chosen according to the factor and the accuracy.
+     */
+    private final SpecularFunction specularFunction;
+
     /**
      * Constructs a {@code PhongMaterial} with the specified diffuse and
      * specular parameters.
@@ -50,11 +65,26 @@ public class PhongMaterial extends AbstractMaterial implements Material {
      * @param diffuse The diffuse factor.
      * @param specular The specular factor.
      */
-    @Builder
     public PhongMaterial(final double diffuse, final double specular, final Material subMaterial) {
+        this(diffuse, specular, subMaterial, null);
+    }
+
+    /**
+     * Constructs a {@code PhongMaterial} with the specified diffuse and
+     * specular parameters.
+     *
+     * @param diffuse The diffuse factor.
+     * @param specular The specular factor.
+     * @param accuracy The accuracy of the specular term, {@link SpecularAccuracy#EXACT} if {@code null}.
+     */
+    @Builder
+    public PhongMaterial(final double diffuse, final double specular, final Material subMaterial,
+            final SpecularAccuracy accuracy) {
         super(subMaterial);
         this.diffuseFactor = diffuse;
         this.specularFactor = specular;
+        this.accuracy = accuracy == null ? SpecularAccuracy.EXACT : accuracy;
+        this.specularFunction = this.accuracy.functionFor(specular);
     }
     
     @Override
@@ -63,59 +93,167 @@ public class PhongMaterial extends AbstractMaterial implements Material {
             final IntersectionResult intersection,
             final RenderingContext ctx) {
 
-        val ray = intersection.getIncomingRay();
+        return shade(renderer, scene, intersection, ctx, getSubMaterial().computeColor(renderer, scene, intersection, ctx));
+    }
 
-        val color = getSubMaterial().computeColor(renderer, scene, intersection, ctx);
-        val ambientColor = scene.getAmbientColor();
+    /**
+     * Computes the color of the surface lit by the lights of the scene, and by the indirect light of the
+     * irradiance cache of the scene, if any.
+     *
+     * @param renderer The renderer.
+     * @param scene The scene.
+     * @param intersection The intersection.
+     * @param ctx The rendering context.
+     * @param color The color of the surface, given by the sub-material.
+     *
+     * @return The lit color.
+     */
+    protected final Color shade(final Renderer renderer,
+            final Scene scene,
+            final IntersectionResult intersection,
+            final RenderingContext ctx,
+            final Color color) {
+        val ambientColor = ctx.isBouncing() ? Color.black() : scene.getAmbientColor();
         val intersectionPoint = intersection.getIntersectionPosition();
 
-        Color diffuseColor = Color.black();
-        Color specularColor = Color.black();
+        final ColorAccumulator diffuseColor = new ColorAccumulator();
+        final ColorAccumulator specularColor = new ColorAccumulator();
 
-        for (Light light : scene.getLights()) {
-           
-            val vectorToLight = Vector.joining(intersectionPoint, light.getPosition());
-            double distanceToLight = vectorToLight.length();
+        val sampler = scene.getLightSampler();
+        if (sampler == null) {
+            for (Light light : scene.lightsAt(intersectionPoint)) {
+                addLightContribution(scene, intersection, color, light, 1., diffuseColor, specularColor);
+            }
+        } else {
+            /*
+             * Each sampled light is weighted by the inverse of its probability, so that the expected
+             * value is the contribution of all the lights.
+             */
+            final DoubleSupplier random = ctx.getRandom();
+            final int samples = sampler.getSamples();
+            for (int i = 0; i < samples; i++) {
+                final double u = random != null ? random.getAsDouble() : ThreadLocalRandom.current().nextDouble();
+                final int sampled = sampler.sample(u);
+                final double weight = 1. / (samples * sampler.probability(sampled));
+                addLightContribution(scene, intersection, color, sampler.light(sampled), weight,
+                        diffuseColor, specularColor);
+            }
+        }
 
-            val rayToLight = new Ray(intersectionPoint, vectorToLight);
-            val directionToLight = rayToLight.direction();
+        val irradianceCache = scene.getIrradianceCache();
+        val photonMap = scene.getPhotonMap();
+        if ((irradianceCache != null || photonMap != null) && !ctx.isGathering()) {
+            Vector normal = intersection.normal();
+            if (normal.dot(intersection.getIncomingRay().direction()) > 0.) {
+                normal = normal.opposite();
+            }
+            if (irradianceCache != null) {
+                val indirect = irradianceCache.irradianceAt(renderer, scene, intersectionPoint, normal, ctx);
+                diffuseColor.add(indirect.multiply(color), diffuseFactor);
+            }
+            if (photonMap != null) {
+                val caustics = photonMap.irradianceAt(intersectionPoint, normal);
+                diffuseColor.add(caustics.multiply(color), diffuseFactor);
+            }
+        }
 
-            val occludingIntersection = scene.nearestIntersection(rayToLight);
+        return Color.black().add(ambientColor, diffuseColor.toColor(), specularColor.toColor());
+    }
 
-            /*
-             * A ray is not occluded unless there is a primitive between the ray
-             * origin and the light.
-             */
-            if (occludingIntersection == null || occludingIntersection.distance() > distanceToLight) {
+    /**
+     * The color of the surface, given by the sub-material, scaled by the diffuse factor.
+     */
+    @Override
+    public Color diffuseAlbedo(final Renderer renderer,
+            final Scene scene,
+            final IntersectionResult intersection,
+            final RenderingContext ctx) {
+        return getSubMaterial().computeColor(renderer, scene, intersection, ctx).multiply(diffuseFactor);
+    }
 
-                Vector normal = intersection.normal();
-                Color lightColor = light.colorAt(intersectionPoint);
+    /**
+     * @return the diffuse factor
+     */
+    public double getDiffuseFactor() {
+        return diffuseFactor;
+    }
 
-                // Diffuse
-                double diff = directionToLight.dot(normal) * diffuseFactor;
+    /**
+     * @return the specular factor
+     */
+    public double getSpecularFactor() {
+        return specularFactor;
+    }
 
-                if (diff > 0.) {
-                    Color currentDiffuseColor = lightColor.multiply(color).multiply(diff);
-                    diffuseColor = diffuseColor.add(currentDiffuseColor);
-                }
+    /**
+     * @return the accuracy of the specular term
+     */
+    public SpecularAccuracy getAccuracy() {
+        return accuracy;
+    }
 
-                // Specular
-                final Vector lightReflect = directionToLight
-                        .reflected(normal)
-                        .opposite()
-                        .normalized();
+    /**
+     * Adds the diffuse and specular contributions of the specified light, unless it is occluded.
+     *
+     * @param scene The scene.
+     * @param intersection The intersection.
+     * @param color The color of the surface.
+     * @param light The light.
+     * @param weight The weight of the contributions.
+     * @param diffuseColor Receives the diffuse contribution.
+     * @param specularColor Receives the specular contribution.
+     */
+    private void addLightContribution(final Scene scene,
+            final IntersectionResult intersection,
+            final Color color,
+            final Light light,
+            final double weight,
+            final ColorAccumulator diffuseColor,
+            final ColorAccumulator specularColor) {
 
-                double spec = lightReflect.dot(ray.direction());
+        val ray = intersection.getIncomingRay();
+        val intersectionPoint = intersection.getIntersectionPosition();
 
-                if (spec < 0.) {
-                    spec = Math.pow(Math.abs(spec), specularFactor);
+        val vectorToLight = Vector.joining(intersectionPoint, light.getPosition());
+        double distanceToLight = vectorToLight.length();
 
-                    Color currentSpecularColor = lightColor.multiply(spec);
-                    specularColor = specularColor.add(currentSpecularColor);
-                }
-            }
+        // No need to cast a shadow ray towards a light that cannot noticeably illuminate the point
+        if (distanceToLight > light.getInfluenceRadius()) {
+            return;
         }
 
-        return Color.black().add(ambientColor, diffuseColor, specularColor);
+        val rayToLight = new Ray(intersectionPoint, vectorToLight);
+        val directionToLight = rayToLight.direction();
+
+        /*
+         * A ray is not occluded unless there is a primitive between the ray
+         * origin and the light.
+         */
+        if (ShadowCache.current().isOccluded(scene, light, rayToLight, distanceToLight)) {
+            return;
+        }
+
+        Vector normal = intersection.normal();
+        Color lightColor = light.colorAt(intersectionPoint);
+
+        // Diffuse
+        double diff = directionToLight.dot(normal) * diffuseFactor;
+
+        if (diff > 0.) {
+            diffuseColor.add(lightColor.multiply(color), diff * weight);
+        }
+
+        // Specular
+        final Vector lightReflect = directionToLight
+                .reflected(normal)
+                .opposite()
+                .normalized();
+
+        double spec = lightReflect.dot(ray.direction());
+
+        if (spec < 0.) {
+            spec = specularFunction.apply(-spec);
+            specularColor.add(lightColor, spec * weight);
+        }
     }
 }
@@ -24,6 +24,7 @@ import com.raymonde.render.IntersectionResult;
 import com.raymonde.render.Ray;
 import com.raymonde.render.Renderer;
 import com.raymonde.render.RenderingContext;
+import com.raymonde.render.SecondaryRaySink;
 import com.raymonde.scene.Scene;
 import lombok.Builder;
 
@@ -57,23 +58,35 @@ public class ReflectiveMaterial extends AbstractMaterial implements Material {
             final Scene scene,
             final IntersectionResult inter,
             final RenderingContext ctx) {
-        Color reflectColor = Color.black();
-
         Color surfaceColor = getSubMaterial().computeColor(renderer, scene, inter, ctx);
-        
-        Ray reflected = inter.reflectedRay();
 
-        // TODO: deleted to avoid commiting not compiling code
-        /**
-        if (ctx.getDepth() < renderer.getMaxDepth()) {
-            reflectColor = renderer.computeColor(reflected,
-                    RenderingContext.incremented(ctx));
-        }
-         */
+        // The reflected color is added by the renderer, see emitSecondaryRays
+        return surfaceColor.multiply(1. - reflectivity);
+    }
+
+    @Override
+    public void emitSecondaryRays(final IntersectionResult inter,
+            final RenderingContext ctx,
+            final double weight,
+            final SecondaryRaySink sink) {
+        super.emitSecondaryRays(inter, ctx, weight * (1. - reflectivity), sink);
+
+        sink.emit(inter.reflectedRay(), weight * reflectivity, RenderingContext.incremented(ctx));
+    }
+
+    @Override
+    public Color diffuseAlbedo(final Renderer renderer,
+            final Scene scene,
+            final IntersectionResult inter,
+            final RenderingContext ctx) {
+        return super.diffuseAlbedo(renderer, scene, inter, ctx).multiply(1. - reflectivity);
+    }
 
-        double refl = reflectivity;
-        return surfaceColor.multiply(1. - refl)
-                .add(reflectColor.multiply(refl));
+    /**
+     * @return the reflectivity
+     */
+    public double getReflectivity() {
+        return reflectivity;
     }
 
     /**
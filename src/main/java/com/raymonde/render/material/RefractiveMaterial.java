@@ -24,6 +24,7 @@ import com.raymonde.render.IntersectionResult;
 import com.raymonde.render.Ray;
 import com.raymonde.render.Renderer;
 import com.raymonde.render.RenderingContext;
+import com.raymonde.render.SecondaryRaySink;
 import com.raymonde.render.primitive.Primitive;
 import com.raymonde.scene.Scene;
 import lombok.Builder;
@@ -35,7 +36,12 @@ import lombok.Builder;
 public class RefractiveMaterial extends AbstractMaterial implements Material {
 
     /**
-     * The reflectivity.
+     * The part of the color of the surface that comes from the refracted ray.
+     */
+    private static final double TRANSMISSION = 0.5;
+
+    /**
+     * The refraction index.
      */
     private final double refraction;
 
@@ -56,25 +62,39 @@ public class RefractiveMaterial extends AbstractMaterial implements Material {
             final Scene scene,
             final IntersectionResult inter,
             final RenderingContext ctx) {
-        Color refractColor = Color.black();
         Color surfaceColor =
                 getSubMaterial().computeColor(renderer, scene, inter, ctx);
-        
-        Ray refracted = refractedRay(inter.getIncomingRay(), inter, ctx);
 
+        // The refracted color is added by the renderer, see emitSecondaryRays
+        return surfaceColor.multiply(1. - TRANSMISSION);
+    }
 
-        // TODO: deleted to avoid commiting not compiling code
-        /*
-        if (ctx.getDepth() < renderer.getMaxDepth()) {
-            RenderingContext newCtx = new RenderingContext(
-                    ctx.getDepth()+1, getRefraction());
-            refractColor = renderer.computeColor(refracted,newCtx);
+    @Override
+    public void emitSecondaryRays(final IntersectionResult inter,
+            final RenderingContext ctx,
+            final double weight,
+            final SecondaryRaySink sink) {
+        super.emitSecondaryRays(inter, ctx, weight * (1. - TRANSMISSION), sink);
+
+        Ray refracted = refractedRay(inter.getIncomingRay(), inter, ctx);
+        if (refracted != null) {
+            sink.emit(refracted, weight * TRANSMISSION, new RenderingContext(ctx.getDepth() + 1, refraction));
         }
-        */
+    }
 
-        double refl = 0.5;
-        return surfaceColor.multiply(1. - refl)
-                .add(refractColor.multiply(refl));
+    @Override
+    public Color diffuseAlbedo(final Renderer renderer,
+            final Scene scene,
+            final IntersectionResult inter,
+            final RenderingContext ctx) {
+        return super.diffuseAlbedo(renderer, scene, inter, ctx).multiply(1. - TRANSMISSION);
+    }
+
+    /**
+     * @return the refraction index
+     */
+    public double getRefraction() {
+        return refraction;
     }
 
     /**
@@ -84,7 +104,7 @@ public class RefractiveMaterial extends AbstractMaterial implements Material {
      * @param inter The intersection.
      * @param ctx The current rendering context.
      *
-     * @return The refracted ray.
+     * @return The refracted ray, {@code null} in case of total internal reflection.
      */
     protected Ray refractedRay(final Ray ray, final IntersectionResult inter, final RenderingContext ctx) {
         double refract = ctx.getRefraction();
@@ -97,7 +117,11 @@ public class RefractiveMaterial extends AbstractMaterial implements Material {
             normal = normal.opposite();
         }
         double cosi = ray.direction().dot(normal);
-        double cosr = Math.sqrt(1 - n*n*(1 - cosi*cosi));
+        double cosr2 = 1 - n*n*(1 - cosi*cosi);
+        if (cosr2 < 0.) {
+            return null;
+        }
+        double cosr = Math.sqrt(cosr2);
 
         Vector term1 = ray.direction().multiply(n);
         Vector term2 = normal.multiply(cosr - n*cosi);
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render.material;
+
+/**
+ * The trade-off between speed and accuracy used to evaluate the specular term of {@link PhongMaterial}s.
+ */
+public enum SpecularAccuracy {
+
+    /**
+     * Uses repeated squaring for integer exponents, which is exact up to rounding errors, and
+     * {@link Math#pow(double, double)} otherwise. This is the default.
+     */
+    EXACT {
+        @Override
+        public SpecularFunction functionFor(final double exponent) {
+            if (isInteger(exponent)) {
+                final int n = (int) exponent;
+                return cosine -> integerPower(cosine, n);
+            }
+            return cosine -> Math.pow(cosine, exponent);
+        }
+    },
+
+    /**
+     * Uses repeated squaring for integer exponents, which is exact up to rounding errors, and a tabulated
+     * power otherwise.
+     */
+    FAST {
+        @Override
+        public SpecularFunction functionFor(final double exponent) {
+            if (isInteger(exponent)) {
+                final int n = (int) exponent;
+                return cosine -> integerPower(cosine, n);
+            }
+            return new TabulatedPower(exponent);
+        }
+    },
+
+    /**
+     * Uses Schlick's approximation {@code x / (n - n * x + x)} of {@code x^n}, which costs a single division
+     * but gives slightly wider highlights.
+     */
+    APPROXIMATE {
+        @Override
+        public SpecularFunction functionFor(final double exponent) {
+            return cosine -> cosine / (exponent - exponent * cosine + cosine);
+        }
+    };
+
+    /**
+     * Returns the function raising a cosine to the specified exponent.
+     *
+     * @param exponent The specular exponent.
+     *
+     * @return The specular function.
+     */
+    public abstract SpecularFunction functionFor(double exponent);
+
+    private static boolean isInteger(final double exponent) {
+        return exponent >= 0. && exponent <= Integer.MAX_VALUE && exponent == Math.rint(exponent);
+    }
+
+    /**
+     * Computes {@code x^n} by repeated squaring.
+     */
+    static double integerPower(final double x, final int n) {
+        double result = 1.;
+        double base = x;
+        for (int e = n; e > 0; e >>= 1) {
+            if ((e & 1) != 0) {
+                result *= base;
+            }
+            base *= base;
+        }
+        return result;
+    }
+
+    /**
+     * {@code x^n} tabulated over {@code [0, 1]} and linearly interpolated.
+     */
+    private static final class TabulatedPower implements SpecularFunction {
+
+        private static final int SIZE = 1024;
+
+        private final double[] table = new double[SIZE + 1];
+
+        private TabulatedPower(final double exponent) {
+            for (int i = 0; i <= SIZE; i++) {
+                table[i] = Math.pow((double) i / SIZE, exponent);
+            }
+        }
+
+        @Override
+        public double apply(final double cosine) {
+            final double position = Math.max(0., Math.min(1., cosine)) * SIZE;
+            final int i = Math.min((int) position, SIZE - 1);
+            final double t = position - i;
+            return table[i] + (table[i + 1] - table[i]) * t;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render.material;
+
+/**
+ * Raises the cosine between the reflected light and the view direction to the specular exponent of a
+ * {@link PhongMaterial}. Implementations are chosen once, when the material is built, see
+ * {@link SpecularAccuracy#functionFor(double)}.
+ */
+@FunctionalInterface
+public interface SpecularFunction {
+
+    /**
+     * @param cosine The cosine, between 0.0 and 1.0.
+     *
+     * @return the cosine raised to the specular exponent
+     */
+    double apply(double cosine);
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.render.primitive;
+
+import com.google.common.base.MoreObjects;
+import com.raymonde.core.Vector;
+import com.raymonde.render.Ray;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+
+/**
+ * {@code BoundingBox} is an axis-aligned box enclosing a {@link Primitive}. Boxes of unbounded primitives
+ * (e.g. {@link Plane}s) are infinite.
+ */
+@ThreadSafe
+@Immutable
+public final class BoundingBox {
+
+    private static final BoundingBox INFINITE = new BoundingBox(
+            Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+            Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+    private static final BoundingBox EMPTY = new BoundingBox(
+            Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
+
+    /**
+     * The relative margin covering the rounding errors of intersection computations.
+     */
+    private static final double ROUNDING_MARGIN = 1e-9;
+
+    private final double minX, minY, minZ;
+
+    private final double maxX, maxY, maxZ;
+
+    private BoundingBox(final double minX, final double minY, final double minZ,
+            final double maxX, final double maxY, final double maxZ) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+
+    /**
+     * @param min The corner of the box with the lowest coordinates.
+     * @param max The corner of the box with the highest coordinates.
+     */
+    public BoundingBox(final Vector min, final Vector max) {
+        this(min.x(), min.y(), min.z(), max.x(), max.y(), max.z());
+    }
+
+    /**
+     * @return the box enclosing the whole space
+     */
+    public static BoundingBox infinite() {
+        return INFINITE;
+    }
+
+    /**
+     * @return the box enclosing nothing, the neutral element of {@link #union(BoundingBox)}
+     */
+    public static BoundingBox empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns the smallest box enclosing the specified points.
+     *
+     * @param points The points.
+     *
+     * @return The resulting box.
+     */
+    public static BoundingBox of(final Vector... points) {
+        BoundingBox box = EMPTY;
+        for (Vector point : points) {
+            box = box.union(new BoundingBox(point, point));
+        }
+        return box;
+    }
+
+    /**
+     * Returns the smallest box enclosing the current box and the specified one.
+     *
+     * @param other The other box.
+     *
+     * @return The resulting box.
+     */
+    public BoundingBox union(final BoundingBox other) {
+        return new BoundingBox(
+                Math.min(minX, other.minX), Math.min(minY, other.minY), Math.min(minZ, other.minZ),
+                Math.max(maxX, other.maxX), Math.max(maxY, other.maxY), Math.max(maxZ, other.maxZ));
+    }
+
+    /**
+     * Returns the box slightly enlarged so that points computed with rounding errors on the surface of the
+     * enclosed primitive, e.g. intersections, still fall inside it.
+     *
+     * @return The enlarged box.
+     */
+    public BoundingBox withRoundingMargin() {
+        return new BoundingBox(lower(minX), lower(minY), lower(minZ), upper(maxX), upper(maxY), upper(maxZ));
+    }
+
+    /**
+     * @return {@code true} if the box extends to infinity along some axis
+     */
+    public boolean isInfinite() {
+        return Double.isInfinite(maxX - minX) || Double.isInfinite(maxY - minY) || Double.isInfinite(maxZ - minZ);
+    }
+
+    /**
+     * @return {@code true} if the box encloses nothing
+     */
+    public boolean isEmpty() {
+        return minX > maxX || minY > maxY || minZ > maxZ;
+    }
+
+    /**
+     * @return the half of the surface area of the box, infinite for infinite boxes and zero for empty ones
+     */
+    public double halfArea() {
+        if (isEmpty()) {
+            return 0.;
+        }
+        final double dx = maxX - minX;
+        final double dy = maxY - minY;
+        final double dz = maxZ - minZ;
+        return dx * dy + dy * dz + dz * dx;
+    }
+
+    /**
+     * Returns the center of the box along the specified axis.
+     *
+     * @param axis {@code 0}, {@code 1} or {@code 2} for the x, y and z axes.
+     *
+     * @return The coordinate of the center.
+     */
+    public double center(final int axis) {
+        return axis == 0 ? (minX + maxX) / 2. : axis == 1 ? (minY + maxY) / 2. : (minZ + maxZ) / 2.;
+    }
+
+    /**
+     * Returns the extent of the box along the specified axis.
+     *
+     * @param axis {@code 0}, {@code 1} or {@code 2} for the x, y and z axes.
+     *
+     * @return The extent, negative for empty boxes.
+     */
+    public double extent(final int axis) {
+        return axis == 0 ? maxX - minX : axis == 1 ? maxY - minY : maxZ - minZ;
+    }
+
+    /**
+     * @return the eight corners of the box
+     */
+    public Vector[] corners() {
+        final Vector[] corners = new Vector[8];
+        for (int i = 0; i < corners.length; i++) {
+            corners[i] = new Vector((i & 1) == 0 ? minX : maxX, (i & 2) == 0 ? minY : maxY,
+                    (i & 4) == 0 ? minZ : maxZ);
+        }
+        return corners;
+    }
+
+    /**
+     * Returns the distance along the specified ray at which it enters the box, provided it does so before
+     * the specified distance.
+     *
+     * @param ray The ray.
+     * @param maxDistance The distance beyond which the box is ignored.
+     *
+     * @return The entry distance, {@code 0} if the ray starts inside the box, {@link Double#POSITIVE_INFINITY}
+     * if the ray misses the box.
+     */
+    public double entryDistance(final Ray ray, final double maxDistance) {
+        final Vector origin = ray.origin();
+        final Vector direction = ray.direction();
+        double near = 0.;
+        double far = maxDistance;
+        for (int axis = 0; axis < 3; axis++) {
+            final double o = axis == 0 ? origin.x() : axis == 1 ? origin.y() : origin.z();
+            final double d = axis == 0 ? direction.x() : axis == 1 ? direction.y() : direction.z();
+            final double min = axis == 0 ? minX : axis == 1 ? minY : minZ;
+            final double max = axis == 0 ? maxX : axis == 1 ? maxY : maxZ;
+            if (d == 0.) {
+                if (o < min || o > max) {
+                    return Double.POSITIVE_INFINITY;
+                }
+                continue;
+            }
+            double t0 = (min - o) / d;
+            double t1 = (max - o) / d;
+            if (t0 > t1) {
+                final double t = t0;
+                t0 = t1;
+                t1 = t;
+            }
+            near = Math.max(near, t0);
+            far = Math.min(far, t1);
+            if (near > far) {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        return near;
+    }
+
+    private static double lower(final double bound) {
+        return bound - ROUNDING_MARGIN * Math.max(1., Math.abs(bound));
+    }
+
+    private static double upper(final double bound) {
+        return bound + ROUNDING_MARGIN * Math.max(1., Math.abs(bound));
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (!(other instanceof BoundingBox)) {
+            return false;
+        }
+        final BoundingBox box = (BoundingBox) other;
+        return minX == box.minX && minY == box.minY && minZ == box.minZ
+                && maxX == box.maxX && maxY == box.maxY && maxZ == box.maxZ;
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(new double[] {minX, minY, minZ, maxX, maxY, maxZ});
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("min", new Vector(minX, minY, minZ))
+                .add("max", new Vector(maxX, maxY, maxZ))
+                .toString();
+    }
+}
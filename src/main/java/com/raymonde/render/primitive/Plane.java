@@ -60,6 +60,17 @@ public class Plane extends AbstractPrimitive {
         return normal.normalized();
     }
 
+    @Override
+    public Primitive withMaterial(final Material material) {
+        return new Plane(normal, distance, material);
+    }
+
+    @Override
+    public Primitive translated(final Vector offset) {
+        // The points p of the plane verify normal.p + distance = 0
+        return new Plane(normal, distance - normal.dot(offset), getMaterial());
+    }
+
     @Override
     public IntersectionResult intersect(final Ray ray) {
         double dot = normal.dot(ray.direction());
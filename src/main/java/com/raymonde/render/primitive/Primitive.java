@@ -49,6 +49,42 @@ public interface Primitive {
      */
     IntersectionResult intersect(Ray ray);
 
+    /**
+     * Returns an axis-aligned box enclosing the primitive, used to skip it quickly when rays pass far from
+     * it. Unbounded primitives do not need to override this method.
+     *
+     * @return The bounding box, infinite by default.
+     */
+    default BoundingBox bounds() {
+        return BoundingBox.infinite();
+    }
+
     Material getMaterial();
+
+    /**
+     * Returns a copy of the primitive with the specified material, e.g. once it has been compiled. Primitives
+     * that cannot be copied return themselves, keeping their material.
+     *
+     * @param material The material of the copy.
+     *
+     * @return The copy, or the primitive itself.
+     */
+    default Primitive withMaterial(final Material material) {
+        return this;
+    }
+
+    /**
+     * Returns a copy of the primitive moved by the specified offset, e.g. to its position at a frame of an
+     * animation.
+     *
+     * @param offset The translation.
+     *
+     * @return The moved copy.
+     *
+     * @throws UnsupportedOperationException if the primitive cannot be moved.
+     */
+    default Primitive translated(final Vector offset) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " primitives cannot be moved");
+    }
 }
 
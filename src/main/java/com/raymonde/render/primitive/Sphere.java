@@ -110,6 +110,22 @@ public class Sphere extends AbstractPrimitive {
                 .build();
     }
 
+    @Override
+    public Primitive withMaterial(final Material material) {
+        return new Sphere(origin, radius, material);
+    }
+
+    @Override
+    public Primitive translated(final Vector offset) {
+        return new Sphere(origin.add(offset), radius, getMaterial());
+    }
+
+    @Override
+    public BoundingBox bounds() {
+        final Vector extent = new Vector(radius, radius, radius);
+        return new BoundingBox(origin.subtract(extent), origin.add(extent)).withRoundingMargin();
+    }
+
     @Override
     public Vector normalAt(final Vector point) {
         return Vector.joining(origin, point)
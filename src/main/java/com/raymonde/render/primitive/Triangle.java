@@ -58,6 +58,22 @@ public class Triangle extends AbstractPrimitive {
         return edge1.cross(edge2);
     }
 
+    @Override
+    public Primitive withMaterial(final Material material) {
+        return new Triangle(vertices[FIRST], vertices[SECOND], vertices[THIRD], material);
+    }
+
+    @Override
+    public Primitive translated(final Vector offset) {
+        return new Triangle(vertices[FIRST].add(offset), vertices[SECOND].add(offset), vertices[THIRD].add(offset),
+                getMaterial());
+    }
+
+    @Override
+    public BoundingBox bounds() {
+        return BoundingBox.of(vertices).withRoundingMargin();
+    }
+
     @Override
     public IntersectionResult intersect(final Ray ray) {
 
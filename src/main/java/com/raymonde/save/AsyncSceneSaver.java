@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.save;
+
+import com.raymonde.render.RenderingSurface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@code AsyncSceneSaver} saves rendered surfaces with a pool of encoding threads, so that the rendering
+ * threads can go on with the next image as soon as they are done with one.
+ *
+ * At most {@code capacity} surfaces wait for an encoding thread. Beyond that, {@link #save(RenderingSurface,
+ * String)} blocks until an encoding thread catches up: rendered surfaces never pile up in memory when
+ * encoding is slower than rendering.
+ *
+ * Once a surface cannot be saved, the following ones are not either, and the failure is thrown by the next
+ * call to {@link #save(RenderingSurface, String)} or by {@link #close()}.
+ */
+@ThreadSafe
+public class AsyncSceneSaver implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncSceneSaver.class);
+
+    private final SceneSaver saver;
+
+    private final ExecutorService encoders;
+
+    /**
+     * A permit for each surface that can be waiting or being encoded.
+     */
+    private final Semaphore pending;
+
+    /**
+     * The first failure, {@code null} as long as every surface was saved.
+     */
+    private final AtomicReference<SaveException> failure = new AtomicReference<>();
+
+    /**
+     * @param saver Saves each surface.
+     * @param threads The number of encoding threads.
+     * @param capacity The number of surfaces that can wait for an encoding thread.
+     */
+    public AsyncSceneSaver(final SceneSaver saver, final int threads, final int capacity) {
+        checkArgument(threads > 0, "at least one encoding thread is required");
+        checkArgument(capacity >= 0, "the capacity must be positive");
+        this.saver = saver;
+        this.encoders = Executors.newFixedThreadPool(threads);
+        this.pending = new Semaphore(threads + capacity);
+    }
+
+    /**
+     * Hands the specified surface over to the encoding threads, waiting for room in the queue if needed.
+     * The surface must not be modified anymore.
+     *
+     * @param surface The rendered surface.
+     * @param outputFilename The file to save the surface to.
+     *
+     * @throws SaveException if a previous surface could not be saved.
+     * @throws InterruptedException if the thread is interrupted while waiting for room in the queue.
+     */
+    public void save(final RenderingSurface surface, final String outputFilename)
+            throws SaveException, InterruptedException {
+        throwFailure();
+        pending.acquire();
+        try {
+            encoders.execute(() -> {
+                try {
+                    if (failure.get() == null) {
+                        saver.save(surface, outputFilename);
+                        logger.info("image saved to {}", outputFilename);
+                    }
+                } catch (SaveException | RuntimeException e) {
+                    failure.compareAndSet(null, e instanceof SaveException
+                            ? (SaveException) e
+                            : new SaveException("image couldn't be saved", e));
+                } finally {
+                    pending.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            pending.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for every handed over surface to be saved, then stops the encoding threads.
+     *
+     * @throws SaveException if a surface could not be saved, or if the thread is interrupted while waiting.
+     */
+    @Override
+    public void close() throws SaveException {
+        encoders.shutdown();
+        try {
+            while (!encoders.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.debug("waiting for the images to be saved");
+            }
+        } catch (InterruptedException e) {
+            encoders.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new SaveException("interrupted while saving images", e);
+        }
+        throwFailure();
+    }
+
+    private void throwFailure() throws SaveException {
+        final SaveException first = failure.get();
+        if (first != null) {
+            throw first;
+        }
+    }
+}
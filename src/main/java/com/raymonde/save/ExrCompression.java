@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.save;
+
+/**
+ * The compressions of OpenEXR images supported by the {@link ExrWriter}. Both are lossless.
+ */
+public enum ExrCompression {
+
+    /**
+     * The pixels are stored as is.
+     */
+    NONE(0),
+
+    /**
+     * The bytes of each scanline are delta encoded, then run-length encoded. Fast, and efficient on flat
+     * areas such as the background or the auxiliary channels.
+     */
+    RLE(1);
+
+    /**
+     * The identifier of the compression in the header of the file.
+     */
+    private final int id;
+
+    ExrCompression(final int id) {
+        this.id = id;
+    }
+
+    /**
+     * @return the identifier of the compression in the header of the file
+     */
+    int id() {
+        return id;
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.save;
+
+import com.raymonde.render.AuxiliaryBuffers;
+import com.raymonde.render.FrameBuffer;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * {@code ExrWriter} saves a {@link FrameBuffer} as a single-part, scanline OpenEXR image. Colors are linear
+ * half floats, neither clamped nor rounded to 8 bits, so that the exposure can be changed afterwards.
+ *
+ * Along with the {@code R}, {@code G} and {@code B} channels, the features of the {@link AuxiliaryBuffers}
+ * may be saved: the depth in the {@code Z} channel, as single precision floats, then the {@code albedo.*}
+ * and {@code normal.*} channels, and the identifiers of the primitive and material seen through each pixel
+ * in the {@code primitiveId} and {@code materialId} channels, as unsigned integers. Each scanline is written
+ * straight from the buffers, and the table of the scanline offsets is filled in once they are all written.
+ */
+@Immutable
+public final class ExrWriter {
+
+    private static final int MAGIC_NUMBER = 20000630;
+
+    /**
+     * Version 2 of the file format, single-part scanline image.
+     */
+    private static final int VERSION = 2;
+
+    private static final int UINT = 0;
+
+    private static final int HALF = 1;
+
+    private static final int FLOAT = 2;
+
+    private static final int MIN_RUN_LENGTH = 3;
+
+    private static final int MAX_RUN_LENGTH = 127;
+
+    private final ExrCompression compression;
+
+    private final boolean auxiliaryChannels;
+
+    /**
+     * @param compression The compression of the scanlines.
+     * @param auxiliaryChannels Whether the depth, albedo, normal and identifiers of the pixels are saved
+     *                          along their colors.
+     */
+    public ExrWriter(final ExrCompression compression, final boolean auxiliaryChannels) {
+        this.compression = compression;
+        this.auxiliaryChannels = auxiliaryChannels;
+    }
+
+    /**
+     * Writes the averaged samples of the specified buffer, from the current position of the channel. The
+     * offsets of the scanlines are relative to that position.
+     *
+     * @param buffer The rendered image.
+     * @param channel The destination, which is left open.
+     *
+     * @throws IOException if the image cannot be written.
+     */
+    public void write(final FrameBuffer buffer, final FileChannel channel) throws IOException {
+        final int width = buffer.getWidth();
+        final int height = buffer.getHeight();
+        final List<Channel> channels = channelsOf(buffer);
+
+        final long start = channel.position();
+        writeFully(channel, header(width, height, channels));
+
+        // The offset table is written last, once the size of each scanline is known
+        final long offsetTable = channel.position();
+        final ByteBuffer offsets = ByteBuffer.allocate(8 * height).order(ByteOrder.LITTLE_ENDIAN);
+        channel.position(offsetTable + offsets.capacity());
+
+        int lineBytes = 0;
+        for (Channel c : channels) {
+            lineBytes += width * c.bytes();
+        }
+        final ByteBuffer line = ByteBuffer.allocate(lineBytes).order(ByteOrder.LITTLE_ENDIAN);
+        final byte[] predicted = new byte[lineBytes];
+        // Run-length encoding may expand the data before it is stored uncompressed instead
+        final ByteBuffer chunk = ByteBuffer.allocate(8 + 2 * lineBytes + 2).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (int y = 0; y < height; y++) {
+            line.clear();
+            for (Channel c : channels) {
+                c.put(line, y * width, width);
+            }
+
+            final int packedBytes = pack(line.array(), predicted, chunk.array(), 8);
+            chunk.clear();
+            chunk.putInt(y).putInt(packedBytes);
+            chunk.position(0).limit(8 + packedBytes);
+
+            offsets.putLong(channel.position() - start);
+            writeFully(channel, chunk);
+        }
+
+        final long end = channel.position();
+        offsets.flip();
+        long position = offsetTable;
+        while (offsets.hasRemaining()) {
+            position += channel.write(offsets, position);
+        }
+        channel.position(end);
+    }
+
+    /**
+     * Lists the channels to save, sorted by name as required by the format.
+     */
+    private List<Channel> channelsOf(final FrameBuffer buffer) {
+        final List<Channel> channels = new ArrayList<>();
+        channels.add(new Channel("R", HALF, buffer::red));
+        channels.add(new Channel("G", HALF, buffer::green));
+        channels.add(new Channel("B", HALF, buffer::blue));
+        if (auxiliaryChannels) {
+            final AuxiliaryBuffers aux = buffer.getAuxiliaryBuffers();
+            channels.add(new Channel("Z", FLOAT, aux::depth));
+            channels.add(new Channel("albedo.R", HALF, i -> aux.albedo(i, 0)));
+            channels.add(new Channel("albedo.G", HALF, i -> aux.albedo(i, 1)));
+            channels.add(new Channel("albedo.B", HALF, i -> aux.albedo(i, 2)));
+            channels.add(new Channel("normal.X", HALF, i -> aux.normal(i, 0)));
+            channels.add(new Channel("normal.Y", HALF, i -> aux.normal(i, 1)));
+            channels.add(new Channel("normal.Z", HALF, i -> aux.normal(i, 2)));
+            channels.add(new Channel("primitiveId", UINT, aux::primitiveId));
+            channels.add(new Channel("materialId", UINT, aux::materialId));
+        }
+        channels.sort(Comparator.comparing(c -> c.name));
+        return channels;
+    }
+
+    private ByteBuffer header(final int width, final int height, final List<Channel> channels) {
+        int channelListBytes = 1;
+        for (Channel c : channels) {
+            channelListBytes += c.name.length() + 1 + 16;
+        }
+
+        final ByteBuffer header = ByteBuffer.allocate(512 + channelListBytes).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC_NUMBER).putInt(VERSION);
+
+        attribute(header, "channels", "chlist", channelListBytes);
+        for (Channel c : channels) {
+            putString(header, c.name);
+            // Pixel type, linear flag and three reserved bytes, then the sampling rates along x and y
+            header.putInt(c.pixelType).putInt(0).putInt(1).putInt(1);
+        }
+        header.put((byte) 0);
+
+        attribute(header, "compression", "compression", 1);
+        header.put((byte) compression.id());
+        attribute(header, "dataWindow", "box2i", 16);
+        header.putInt(0).putInt(0).putInt(width - 1).putInt(height - 1);
+        attribute(header, "displayWindow", "box2i", 16);
+        header.putInt(0).putInt(0).putInt(width - 1).putInt(height - 1);
+        attribute(header, "lineOrder", "lineOrder", 1);
+        header.put((byte) 0);
+        attribute(header, "pixelAspectRatio", "float", 4);
+        header.putFloat(1f);
+        attribute(header, "screenWindowCenter", "v2f", 8);
+        header.putFloat(0f).putFloat(0f);
+        attribute(header, "screenWindowWidth", "float", 4);
+        header.putFloat(1f);
+        header.put((byte) 0);
+
+        header.flip();
+        return header;
+    }
+
+    private static void attribute(final ByteBuffer header, final String name, final String type, final int size) {
+        putString(header, name);
+        putString(header, type);
+        header.putInt(size);
+    }
+
+    private static void putString(final ByteBuffer header, final String value) {
+        header.put(value.getBytes(StandardCharsets.US_ASCII)).put((byte) 0);
+    }
+
+    /**
+     * Compresses a scanline.
+     *
+     * @param line The uncompressed scanline.
+     * @param predicted Receives the delta encoded scanline, as long as the scanline.
+     * @param out Receives the compressed scanline.
+     * @param offset The position of the compressed scanline in {@code out}.
+     *
+     * @return The number of bytes of the compressed scanline.
+     */
+    private int pack(final byte[] line, final byte[] predicted, final byte[] out, final int offset) {
+        if (compression == ExrCompression.RLE) {
+            predict(line, predicted);
+            final int packed = runLengthEncode(predicted, out, offset);
+            // Readers take scanlines that are not smaller than the uncompressed data for uncompressed ones
+            if (packed < line.length) {
+                return packed;
+            }
+        }
+        System.arraycopy(line, 0, out, offset, line.length);
+        return line.length;
+    }
+
+    /**
+     * Splits the even and odd bytes of the scanline, i.e. the low and high bytes of half floats, then replaces
+     * each byte by its difference with the previous one.
+     */
+    static void predict(final byte[] line, final byte[] predicted) {
+        final int half = (line.length + 1) / 2;
+        for (int i = 0; i < line.length; i++) {
+            predicted[(i & 1) == 0 ? i / 2 : half + i / 2] = line[i];
+        }
+        int previous = predicted[0] & 0xff;
+        for (int i = 1; i < predicted.length; i++) {
+            final int current = predicted[i] & 0xff;
+            predicted[i] = (byte) (current - previous + 128);
+            previous = current;
+        }
+    }
+
+    /**
+     * Encodes runs of at least {@value #MIN_RUN_LENGTH} identical bytes as a count and a byte, and other bytes
+     * as a negative count followed by the bytes themselves.
+     *
+     * @return The number of encoded bytes.
+     */
+    static int runLengthEncode(final byte[] in, final byte[] out, final int offset) {
+        int written = offset;
+        int runStart = 0;
+        int runEnd = 1;
+        while (runStart < in.length) {
+            while (runEnd < in.length && in[runStart] == in[runEnd] && runEnd - runStart - 1 < MAX_RUN_LENGTH) {
+                runEnd++;
+            }
+            if (runEnd - runStart >= MIN_RUN_LENGTH) {
+                out[written++] = (byte) (runEnd - runStart - 1);
+                out[written++] = in[runStart];
+                runStart = runEnd;
+            } else {
+                while (runEnd < in.length
+                        && (runEnd + 2 >= in.length || in[runEnd] != in[runEnd + 1] || in[runEnd + 1] != in[runEnd + 2])
+                        && runEnd - runStart < MAX_RUN_LENGTH) {
+                    runEnd++;
+                }
+                out[written++] = (byte) (runStart - runEnd);
+                while (runStart < runEnd) {
+                    out[written++] = in[runStart++];
+                }
+            }
+            runEnd++;
+        }
+        return written - offset;
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    /**
+     * A channel of the image, whose values are read from the buffers pixel by pixel.
+     */
+    private static final class Channel {
+
+        private final String name;
+
+        private final int pixelType;
+
+        private final IntToDoubleFunction values;
+
+        private Channel(final String name, final int pixelType, final IntToDoubleFunction values) {
+            this.name = name;
+            this.pixelType = pixelType;
+            this.values = values;
+        }
+
+        private int bytes() {
+            return pixelType == HALF ? 2 : 4;
+        }
+
+        /**
+         * Puts the values of the specified consecutive pixels.
+         */
+        private void put(final ByteBuffer line, final int firstIndex, final int count) {
+            for (int index = firstIndex; index < firstIndex + count; index++) {
+                if (pixelType == HALF) {
+                    line.putShort(HalfFloat.fromFloat((float) values.applyAsDouble(index)));
+                } else if (pixelType == UINT) {
+                    line.putInt((int) values.applyAsDouble(index));
+                } else {
+                    line.putFloat((float) values.applyAsDouble(index));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.save;
+
+/**
+ * Conversions between single precision floats and IEEE 754 half precision floats, the 16-bit floats of
+ * OpenEXR images. Half floats keep 11 significant bits and range up to 65504, which is enough for linear
+ * colors and is half the size of single precision floats.
+ */
+public final class HalfFloat {
+
+    private HalfFloat() {
+    }
+
+    /**
+     * Converts a float to the nearest half float, ties being rounded to even. Floats beyond the range of half
+     * floats become infinite.
+     *
+     * @param value The float.
+     *
+     * @return The bits of the half float.
+     */
+    public static short fromFloat(final float value) {
+        final int bits = Float.floatToRawIntBits(value);
+        final int sign = (bits >>> 16) & 0x8000;
+        final int exponent = (bits >>> 23) & 0xff;
+        final int mantissa = bits & 0x7fffff;
+
+        if (exponent == 0xff) {
+            // Infinite, or NaN whose payload must not vanish
+            return (short) (sign | 0x7c00 | (mantissa != 0 ? 0x200 | (mantissa >>> 13) : 0));
+        }
+
+        final int halfExponent = exponent - 127 + 15;
+        if (halfExponent >= 0x1f) {
+            return (short) (sign | 0x7c00);
+        }
+        if (halfExponent <= 0) {
+            // Subnormal half float, i.e. a multiple of 2^-24
+            if (halfExponent < -10) {
+                return (short) sign;
+            }
+            final int shift = 14 - halfExponent;
+            return (short) (sign | roundToEven(mantissa | 0x800000, shift));
+        }
+        // Rounding may carry into the exponent, up to infinity, as expected
+        return (short) (sign | roundToEven((halfExponent << 23) | mantissa, 13));
+    }
+
+    /**
+     * Converts a half float to a float, exactly.
+     *
+     * @param half The bits of the half float.
+     *
+     * @return The float.
+     */
+    public static float toFloat(final short half) {
+        final int sign = (half & 0x8000) << 16;
+        final int exponent = (half >>> 10) & 0x1f;
+        final int mantissa = half & 0x3ff;
+
+        if (exponent == 0) {
+            final float subnormal = Math.scalb((float) mantissa, -24);
+            return sign != 0 ? -subnormal : subnormal;
+        }
+        if (exponent == 0x1f) {
+            return Float.intBitsToFloat(sign | 0x7f800000 | (mantissa << 13));
+        }
+        return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
+    }
+
+    /**
+     * Shifts the specified bits to the right, rounding to the nearest value, ties to even.
+     */
+    private static int roundToEven(final int bits, final int shift) {
+        final int shifted = bits >>> shift;
+        final int remainder = bits & ((1 << shift) - 1);
+        final int halfway = 1 << (shift - 1);
+        if (remainder > halfway || (remainder == halfway && (shifted & 1) != 0)) {
+            return shifted + 1;
+        }
+        return shifted;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.save;
+
+import com.raymonde.render.FrameBuffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@code PfmWriter} saves the colors of a {@link FrameBuffer} as a Portable Float Map: a short text header
+ * followed by the linear RGB values of the pixels, as little-endian floats, from the bottom row to the top
+ * one. Colors are neither clamped nor rounded.
+ */
+public final class PfmWriter {
+
+    private PfmWriter() {
+    }
+
+    /**
+     * Writes the averaged samples of the specified buffer, from the current position of the channel.
+     *
+     * @param buffer The rendered image.
+     * @param channel The destination, which is left open.
+     *
+     * @throws IOException if the image cannot be written.
+     */
+    public static void write(final FrameBuffer buffer, final FileChannel channel) throws IOException {
+        final int width = buffer.getWidth();
+        final int height = buffer.getHeight();
+
+        // A negative scale stands for little-endian values
+        final String header = "PF\n" + width + " " + height + "\n-1.0\n";
+        writeFully(channel, ByteBuffer.wrap(header.getBytes(StandardCharsets.US_ASCII)));
+
+        final ByteBuffer row = ByteBuffer.allocateDirect(3 * 4 * width).order(ByteOrder.LITTLE_ENDIAN);
+        for (int y = height - 1; y >= 0; y--) {
+            row.clear();
+            for (int index = y * width; index < (y + 1) * width; index++) {
+                row.putFloat((float) buffer.red(index));
+                row.putFloat((float) buffer.green(index));
+                row.putFloat((float) buffer.blue(index));
+            }
+            row.flip();
+            writeFully(channel, row);
+        }
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.save;
+
+import java.util.zip.Deflater;
+
+/**
+ * The trade-offs between the size of PNG files and the time spent compressing them.
+ */
+public enum PngCompression {
+
+    /**
+     * The fastest deflate level, each row being filtered with the cheap "sub" filter.
+     */
+    FASTEST(Deflater.BEST_SPEED, false, 0x01),
+
+    /**
+     * The default deflate level, each row being filtered with the most suitable filter.
+     */
+    BALANCED(Deflater.DEFAULT_COMPRESSION, true, 0x9C),
+
+    /**
+     * The best deflate level, each row being filtered with the most suitable filter.
+     */
+    SMALLEST(Deflater.BEST_COMPRESSION, true, 0xDA);
+
+    private final int level;
+
+    private final boolean adaptiveFiltering;
+
+    /**
+     * The second byte of the zlib header, which carries the compression level.
+     */
+    private final int zlibFlags;
+
+    PngCompression(final int level, final boolean adaptiveFiltering, final int zlibFlags) {
+        this.level = level;
+        this.adaptiveFiltering = adaptiveFiltering;
+        this.zlibFlags = zlibFlags;
+    }
+
+    /**
+     * @return the level of the {@link Deflater}
+     */
+    int level() {
+        return level;
+    }
+
+    /**
+     * @return whether each row is filtered with the most suitable filter, instead of the "sub" filter
+     */
+    boolean isAdaptiveFiltering() {
+        return adaptiveFiltering;
+    }
+
+    /**
+     * @return the second byte of the zlib header
+     */
+    int zlibFlags() {
+        return zlibFlags;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.save;
+
+/**
+ * The PNG row filters. Adaptive filtering picks, for each row, the filter that minimizes the sum of the
+ * absolute values of its filtered bytes, the heuristic recommended by the PNG specification.
+ */
+final class PngFilter {
+
+    private static final int NONE = 0;
+
+    private static final int SUB = 1;
+
+    private static final int UP = 2;
+
+    private static final int AVERAGE = 3;
+
+    private static final int PAETH = 4;
+
+    /**
+     * The number of bytes of a pixel.
+     */
+    private static final int PIXEL_BYTES = 3;
+
+    private PngFilter() {
+    }
+
+    /**
+     * Filters a row with the "sub" filter, i.e. the difference with the pixel on the left, which suits the
+     * smooth gradients of rendered images well.
+     *
+     * @param row The bytes of the row.
+     * @param target Receives the filter type followed by the filtered bytes.
+     * @param offset The offset of the filtered row in {@code target}.
+     */
+    static void filterSub(final byte[] row, final byte[] target, final int offset) {
+        target[offset] = SUB;
+        for (int i = 0; i < row.length; i++) {
+            target[offset + 1 + i] = (byte) (row[i] - (i >= PIXEL_BYTES ? row[i - PIXEL_BYTES] : 0));
+        }
+    }
+
+    /**
+     * Filters a row with the most suitable filter.
+     *
+     * @param row The bytes of the row.
+     * @param previous The bytes of the previous row, zeros for the first row of the image.
+     * @param target Receives the filter type followed by the filtered bytes.
+     * @param offset The offset of the filtered row in {@code target}.
+     */
+    static void filter(final byte[] row, final byte[] previous, final byte[] target, final int offset) {
+        int best = NONE;
+        long bestSum = Long.MAX_VALUE;
+        for (int type = NONE; type <= PAETH; type++) {
+            long sum = 0;
+            for (int i = 0; i < row.length && sum < bestSum; i++) {
+                sum += Math.abs(filtered(type, row, previous, i));
+            }
+            if (sum < bestSum) {
+                bestSum = sum;
+                best = type;
+            }
+        }
+
+        target[offset] = (byte) best;
+        for (int i = 0; i < row.length; i++) {
+            target[offset + 1 + i] = filtered(best, row, previous, i);
+        }
+    }
+
+    private static byte filtered(final int type, final byte[] row, final byte[] previous, final int i) {
+        final int current = row[i] & 0xff;
+        final int left = i >= PIXEL_BYTES ? row[i - PIXEL_BYTES] & 0xff : 0;
+        final int up = previous[i] & 0xff;
+        final int upLeft = i >= PIXEL_BYTES ? previous[i - PIXEL_BYTES] & 0xff : 0;
+
+        switch (type) {
+            case SUB:
+                return (byte) (current - left);
+            case UP:
+                return (byte) (current - up);
+            case AVERAGE:
+                return (byte) (current - ((left + up) >> 1));
+            case PAETH:
+                return (byte) (current - paeth(left, up, upLeft));
+            default:
+                return (byte) current;
+        }
+    }
+
+    private static int paeth(final int left, final int up, final int upLeft) {
+        final int estimate = left + up - upLeft;
+        final int toLeft = Math.abs(estimate - left);
+        final int toUp = Math.abs(estimate - up);
+        final int toUpLeft = Math.abs(estimate - upLeft);
+        if (toLeft <= toUp && toLeft <= toUpLeft) {
+            return left;
+        }
+        return toUp <= toUpLeft ? up : upLeft;
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.save;
+
+import com.raymonde.render.RenderingSurface;
+import com.raymonde.render.RowListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@code PngWriter} encodes a {@link RenderingSurface} into a PNG stream while it is being rendered.
+ *
+ * The image is split into strips of consecutive rows. As soon as all the rows of a strip are completed (see
+ * {@link RowListener}), the strip is filtered and deflated by a task of its own, with its own {@link Deflater}:
+ * strips are compressed in parallel. Compressed strips are written in order, each in its own {@code IDAT}
+ * chunk. They form a single zlib stream: each strip but the last ends with a sync flush, which aligns it on a
+ * byte boundary, and the checksum of the whole stream is combined from the checksums of the strips.
+ *
+ * Only the strips in flight are held in memory, on top of the surface itself. The {@link PngCompression}
+ * trades the size of the file for the time spent compressing it.
+ */
+@ThreadSafe
+public class PngWriter implements RowListener, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PngWriter.class);
+
+    private static final byte[] SIGNATURE = {(byte) 137, 'P', 'N', 'G', '\r', '\n', 26, '\n'};
+
+    /**
+     * The approximate number of uncompressed bytes of a strip.
+     */
+    private static final int STRIP_BYTES = 1 << 18;
+
+    /**
+     * The modulus of the Adler-32 checksum.
+     */
+    private static final int ADLER_BASE = 65521;
+
+    private final OutputStream out;
+
+    private final int width;
+
+    private final int height;
+
+    private final int stripRows;
+
+    private final PngCompression compression;
+
+    private final Executor executor;
+
+    /**
+     * The number of completed rows of each strip.
+     */
+    @GuardedBy("this")
+    private final int[] completedRows;
+
+    /**
+     * The compressed strips waiting for the previous ones to be written, indexed by strip.
+     */
+    @GuardedBy("this")
+    private final Strip[] compressed;
+
+    /**
+     * The index of the next strip to write.
+     */
+    @GuardedBy("this")
+    private int nextStrip;
+
+    /**
+     * The checksum of the uncompressed data written so far.
+     */
+    @GuardedBy("this")
+    private long adler = 1L;
+
+    /**
+     * The first error met while compressing or writing, reported by {@link #close()}.
+     */
+    @GuardedBy("this")
+    private IOException failure;
+
+    /**
+     * Writes the PNG signature and header to the specified stream.
+     *
+     * @param out The destination stream, closed by {@link #close()}.
+     * @param width The width in pixels of the image.
+     * @param height The height in pixels of the image.
+     * @param compression The trade-off between size and speed.
+     *
+     * @throws IOException if the header cannot be written.
+     */
+    public PngWriter(final OutputStream out, final int width, final int height, final PngCompression compression)
+            throws IOException {
+        this(out, width, height, compression, Math.max(1, STRIP_BYTES / (3 * width + 1)), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param out The destination stream, closed by {@link #close()}.
+     * @param width The width in pixels of the image.
+     * @param height The height in pixels of the image.
+     * @param compression The trade-off between size and speed.
+     * @param stripRows The number of rows of each strip.
+     * @param executor Runs the compression of the strips.
+     *
+     * @throws IOException if the header cannot be written.
+     */
+    PngWriter(final OutputStream out, final int width, final int height, final PngCompression compression,
+            final int stripRows, final Executor executor) throws IOException {
+        checkArgument(width > 0 && height > 0, "the dimensions must be strictly positive");
+        checkArgument(stripRows > 0, "the number of rows of a strip must be strictly positive");
+
+        this.out = out;
+        this.width = width;
+        this.height = height;
+        this.compression = compression;
+        this.stripRows = stripRows;
+        this.executor = executor;
+
+        final int strips = (height + stripRows - 1) / stripRows;
+        this.completedRows = new int[strips];
+        this.compressed = new Strip[strips];
+
+        final ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        final DataOutputStream data = new DataOutputStream(header);
+        data.writeInt(width);
+        data.writeInt(height);
+        data.writeByte(8);  // bits per component
+        data.writeByte(2);  // RGB
+        data.writeByte(0);  // deflate
+        data.writeByte(0);  // adaptive filtering
+        data.writeByte(0);  // no interlace
+
+        out.write(SIGNATURE);
+        writeChunk("IHDR", header.toByteArray());
+    }
+
+    /**
+     * Saves the specified surface, which must be fully rendered, into the specified stream.
+     *
+     * @param surface The surface.
+     * @param out The destination stream, closed once the image is written.
+     * @param compression The trade-off between size and speed.
+     *
+     * @throws IOException if the image cannot be written.
+     */
+    public static void write(final RenderingSurface surface, final OutputStream out,
+            final PngCompression compression) throws IOException {
+        try (PngWriter writer = new PngWriter(out, surface.getPixelWidth(), surface.getPixelHeight(), compression)) {
+            for (int y = 0; y < surface.getPixelHeight(); y++) {
+                writer.rowCompleted(surface, y);
+            }
+        }
+    }
+
+    @Override
+    public void rowCompleted(final RenderingSurface surface, final int y) {
+        final int strip = y / stripRows;
+        synchronized (this) {
+            if (++completedRows[strip] < rowsOf(strip)) {
+                return;
+            }
+        }
+        CompletableFuture
+                .supplyAsync(() -> compress(surface, strip), executor)
+                .whenComplete((compressedStrip, error) -> {
+                    if (error != null) {
+                        fail(new IOException("strip " + strip + " could not be compressed", error));
+                    } else {
+                        written(strip, compressedStrip);
+                    }
+                });
+    }
+
+    /**
+     * Waits for every strip to be written, then ends the image and closes the stream.
+     *
+     * @throws IOException if a strip could not be compressed or written, or if some rows were never completed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            synchronized (this) {
+                while (nextStrip < compressed.length && failure == null) {
+                    if (completedRows[nextStrip] < rowsOf(nextStrip)) {
+                        throw new IOException("row " + (nextStrip * stripRows + completedRows[nextStrip])
+                                + " of the image was never completed");
+                    }
+                    wait();
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+            writeChunk("IEND", new byte[0]);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for the image to be written", e);
+        } finally {
+            out.close();
+        }
+    }
+
+    private int rowsOf(final int strip) {
+        return Math.min(stripRows, height - strip * stripRows);
+    }
+
+    /**
+     * Filters and deflates the rows of a strip.
+     */
+    private Strip compress(final RenderingSurface surface, final int strip) {
+        final int first = strip * stripRows;
+        final int rows = rowsOf(strip);
+        final int rowBytes = 3 * width;
+        final byte[] raw = new byte[rows * (rowBytes + 1)];
+
+        final int[] rgb = new int[width];
+        byte[] previous = new byte[rowBytes];
+        byte[] current = new byte[rowBytes];
+        if (first > 0) {
+            surface.copyRow(first - 1, rgb);
+            toBytes(rgb, previous);
+        }
+        for (int r = 0; r < rows; r++) {
+            surface.copyRow(first + r, rgb);
+            toBytes(rgb, current);
+            if (compression.isAdaptiveFiltering()) {
+                PngFilter.filter(current, previous, raw, r * (rowBytes + 1));
+            } else {
+                PngFilter.filterSub(current, raw, r * (rowBytes + 1));
+            }
+
+            final byte[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        final Adler32 checksum = new Adler32();
+        checksum.update(raw, 0, raw.length);
+
+        final boolean last = strip == compressed.length - 1;
+        final Deflater deflater = new Deflater(compression.level(), true);
+        try {
+            deflater.setInput(raw);
+            if (last) {
+                deflater.finish();
+            }
+            final ByteArrayOutputStream deflated = new ByteArrayOutputStream(raw.length / 4 + 64);
+            final byte[] buffer = new byte[1 << 16];
+            while (true) {
+                final int length = deflater.deflate(buffer, 0, buffer.length,
+                        last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                deflated.write(buffer, 0, length);
+                if (last ? deflater.finished() : length < buffer.length) {
+                    break;
+                }
+            }
+            return new Strip(deflated.toByteArray(), checksum.getValue(), raw.length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void toBytes(final int[] rgb, final byte[] bytes) {
+        for (int x = 0; x < rgb.length; x++) {
+            bytes[3 * x] = (byte) (rgb[x] >> 16);
+            bytes[3 * x + 1] = (byte) (rgb[x] >> 8);
+            bytes[3 * x + 2] = (byte) rgb[x];
+        }
+    }
+
+    /**
+     * Records a compressed strip and writes it, along with the following ones, if the previous ones are written.
+     */
+    private synchronized void written(final int strip, final Strip compressedStrip) {
+        compressed[strip] = compressedStrip;
+        try {
+            while (nextStrip < compressed.length && compressed[nextStrip] != null && failure == null) {
+                writeStrip(nextStrip, compressed[nextStrip]);
+                compressed[nextStrip] = null;
+                nextStrip++;
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+        notifyAll();
+    }
+
+    private synchronized void fail(final IOException error) {
+        logger.error("an error occurred while encoding the image", error);
+        if (failure == null) {
+            failure = error;
+        }
+        notifyAll();
+    }
+
+    @GuardedBy("this")
+    private void writeStrip(final int index, final Strip strip) throws IOException {
+        adler = combine(adler, strip.adler, strip.length);
+
+        final boolean first = index == 0;
+        final boolean last = index == compressed.length - 1;
+        final byte[] data = new byte[(first ? 2 : 0) + strip.data.length + (last ? 4 : 0)];
+        int offset = 0;
+        if (first) {
+            // zlib header: deflate with a 32K window
+            data[offset++] = 0x78;
+            data[offset++] = (byte) compression.zlibFlags();
+        }
+        System.arraycopy(strip.data, 0, data, offset, strip.data.length);
+        offset += strip.data.length;
+        if (last) {
+            data[offset++] = (byte) (adler >>> 24);
+            data[offset++] = (byte) (adler >>> 16);
+            data[offset++] = (byte) (adler >>> 8);
+            data[offset] = (byte) adler;
+        }
+        writeChunk("IDAT", data);
+    }
+
+    private void writeChunk(final String type, final byte[] data) throws IOException {
+        final byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        final CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+
+        final DataOutputStream chunk = new DataOutputStream(out);
+        chunk.writeInt(data.length);
+        chunk.write(typeBytes);
+        chunk.write(data);
+        chunk.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Combines the Adler-32 checksums of two consecutive blocks of data, as zlib's {@code adler32_combine}.
+     *
+     * @param adler1 The checksum of the first block.
+     * @param adler2 The checksum of the second block.
+     * @param length2 The length of the second block.
+     *
+     * @return The checksum of the concatenation of both blocks.
+     */
+    static long combine(final long adler1, final long adler2, final long length2) {
+        final long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = (remainder * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xffff) + ADLER_BASE - 1;
+        sum2 += ((adler1 >>> 16) & 0xffff) + ((adler2 >>> 16) & 0xffff) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum2 >= 2 * ADLER_BASE) {
+            sum2 -= 2 * ADLER_BASE;
+        }
+        if (sum2 >= ADLER_BASE) {
+            sum2 -= ADLER_BASE;
+        }
+        return sum1 | (sum2 << 16);
+    }
+
+    /**
+     * A compressed strip.
+     */
+    private static final class Strip {
+
+        private final byte[] data;
+
+        /**
+         * The checksum of the uncompressed data.
+         */
+        private final long adler;
+
+        /**
+         * The length of the uncompressed data.
+         */
+        private final int length;
+
+        private Strip(final byte[] data, final long adler, final int length) {
+            this.data = data;
+            this.adler = adler;
+            this.length = length;
+        }
+    }
+}
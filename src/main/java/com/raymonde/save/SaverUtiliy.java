@@ -21,11 +21,19 @@ package com.raymonde.save;
 import com.google.common.base.MoreObjects;
 import com.raymonde.core.Color;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 /**
  *
  */
 public class SaverUtiliy {
 
+    /**
+     * An integer format specifier, e.g. {@code %d} or {@code %03d}.
+     */
+    private static final Pattern FRAME_NUMBER_SPECIFIER = Pattern.compile("%(\\d+\\$)?[-#+ 0,(]*\\d*[dxXo]");
+
     /**
      * Default constructor.
      */
@@ -50,4 +58,60 @@ public class SaverUtiliy {
 
         return arr;
     }
+
+    /**
+     * Returns the name of the file a frame of an animation should be saved to.
+     * If {@code filename} contains an integer format specifier (e.g. {@code "frame_%03d.png"}) it is replaced
+     * by the formatted frame number, any other {@code %} being kept as is; otherwise the zero-padded frame
+     * number is appended before the extension (e.g. {@code "out.png"} becomes {@code "out_0012.png"}).
+     *
+     * @param filename The output filename given by the user.
+     * @param frame The frame number.
+     *
+     * @return The name of the file to save the frame to.
+     */
+    public static String frameFilename(final String filename, final int frame) {
+        final Matcher specifier = FRAME_NUMBER_SPECIFIER.matcher(filename);
+        if (!specifier.find()) {
+            return withSuffix(filename, String.format("_%04d", frame));
+        }
+        final StringBuffer formatted = new StringBuffer();
+        do {
+            specifier.appendReplacement(formatted, Matcher.quoteReplacement(String.format(specifier.group(), frame)));
+        } while (specifier.find());
+        return specifier.appendTail(formatted).toString();
+    }
+
+    /**
+     * Returns the name of the file the image rendered through the specified camera should be saved to.
+     * The camera name is appended before the extension (e.g. {@code "out.png"} becomes
+     * {@code "out_front.png"} for the camera {@code front}).
+     *
+     * @param filename The output filename given by the user.
+     * @param cameraName The name of the camera.
+     *
+     * @return The name of the file to save the image to.
+     */
+    public static String cameraFilename(final String filename, final String cameraName) {
+        return withSuffix(filename, "_" + cameraName);
+    }
+
+    /**
+     * Inserts the specified suffix before the extension of the specified filename, or appends it if the
+     * file has no extension.
+     *
+     * @param filename The filename.
+     * @param suffix The suffix to insert.
+     *
+     * @return The resulting filename.
+     */
+    public static String withSuffix(final String filename, final String suffix) {
+        final int lastSeparator = Math.max(filename.lastIndexOf('/'), filename.lastIndexOf('\\'));
+        final int extension = filename.lastIndexOf('.');
+
+        if (extension <= lastSeparator + 1) {
+            return filename + suffix;
+        }
+        return filename.substring(0, extension) + suffix + filename.substring(extension);
+    }
 }
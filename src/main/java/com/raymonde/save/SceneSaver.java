@@ -18,15 +18,24 @@
 
 package com.raymonde.save;
 
+import com.raymonde.render.FrameBuffer;
 import com.raymonde.render.RenderingSurface;
 import com.raymonde.scene.Scene;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
 
 /**
  * {@code SceneSaver} allows saving a rendered scene in image files.
@@ -37,6 +46,25 @@ public class SceneSaver {
      * The available logger for this class.
      */
     private final static Logger logger = LoggerFactory.getLogger(SceneSaver.class);
+
+    /**
+     * The trade-off between the size of the files and the time spent compressing them.
+     */
+    private final PngCompression compression;
+
+    /**
+     * Constructs a {@code SceneSaver} that balances the size of the files and the compression time.
+     */
+    public SceneSaver() {
+        this(PngCompression.BALANCED);
+    }
+
+    /**
+     * @param compression The trade-off between the size of the files and the time spent compressing them.
+     */
+    public SceneSaver(final PngCompression compression) {
+        this.compression = compression;
+    }
     
     /**
      * 
@@ -51,26 +79,100 @@ public class SceneSaver {
     }
 
     /**
-     * Saves the given scene to the given file.
+     * Saves the given scene to the given file. Files whose extension is {@code .pfm} or {@code .exr} are saved
+     * as with {@link #save(FrameBuffer, String)}, other files as PNG.
      *
      * @param outputFilename The filename where to save the scene.
      * @throws SaveException
      */
     public void save(final RenderingSurface renderingSurface, final File outputFilename)
             throws SaveException {
-        int width = renderingSurface.getPixelWidth();
-        int height = renderingSurface.getPixelHeight();
+        if (isHighDynamicRange(outputFilename.getPath())) {
+            save(FrameBuffer.of(renderingSurface), outputFilename.getPath());
+            return;
+        }
 
-        BufferedImage bi = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        int [] rgbColors = SaverUtiliy.colorArrayToIntegerArray(renderingSurface.getColors());
+        // The stream is closed by the writer, and by this block if the writer cannot be created
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFilename))) {
+            PngWriter.write(renderingSurface, out, compression);
+        } catch (IOException ex) {
+            logger.error("an error occurred while trying to save rendered scene to {}", outputFilename.getAbsolutePath(), ex);
+            throw new SaveException("image couldn't be saved", ex);
+        }
+    }
 
-        bi.setRGB(0, 0, width, height, rgbColors, 0, width);
+    /**
+     * Saves the given rendered image to the given file. Files whose extension is {@code .pfm} or {@code .exr}
+     * keep the linear colors of the image, OpenEXR files along with the depth, albedo and normal of the pixels.
+     * Other files are saved as PNG, the colors being clamped.
+     *
+     * @param buffer The rendered image.
+     * @param outputFilename The filename where to save the scene.
+     *
+     * @throws SaveException if the image cannot be saved.
+     */
+    public void save(final FrameBuffer buffer, final String outputFilename) throws SaveException {
+        if (!isHighDynamicRange(outputFilename)) {
+            save(buffer.toRenderingSurface(), outputFilename);
+            return;
+        }
 
+        try (FileChannel channel = FileChannel.open(Paths.get(outputFilename), WRITE, CREATE, TRUNCATE_EXISTING)) {
+            if (outputFilename.toLowerCase(Locale.ROOT).endsWith(".pfm")) {
+                PfmWriter.write(buffer, channel);
+            } else {
+                new ExrWriter(ExrCompression.RLE, true).write(buffer, channel);
+            }
+        } catch (IOException ex) {
+            logger.error("an error occurred while trying to save rendered scene to {}", outputFilename, ex);
+            throw new SaveException("image couldn't be saved", ex);
+        }
+    }
+
+    /**
+     * @param outputFilename The filename where to save a scene.
+     *
+     * @return {@code true} if the file keeps linear, unclamped colors
+     */
+    public static boolean isHighDynamicRange(final String outputFilename) {
+        final String lowerCaseFilename = outputFilename.toLowerCase(Locale.ROOT);
+        return lowerCaseFilename.endsWith(".pfm") || lowerCaseFilename.endsWith(".exr");
+    }
+
+    /**
+     * Opens a {@link PngWriter} onto the given file, which saves the rows of a surface as soon as they are
+     * rendered. See {@link com.raymonde.render.Renderer#renderSceneThroughCamera(Scene,
+     * com.raymonde.render.Camera, com.raymonde.render.RowListener)}.
+     *
+     * @param outputFilename The filename where to save the scene.
+     * @param width The width in pixels of the rendered surface.
+     * @param height The height in pixels of the rendered surface.
+     *
+     * @return The writer, which must be closed once the surface is rendered.
+     *
+     * @throws SaveException if the file cannot be opened.
+     */
+    public PngWriter streamTo(final String outputFilename, final int width, final int height)
+            throws SaveException {
         try {
-            ImageIO.write(bi, "png", outputFilename);
+            final OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFilename));
+            try {
+                return new PngWriter(out, width, height, compression);
+            } catch (IOException | RuntimeException ex) {
+                closeQuietly(out, ex);
+                throw ex;
+            }
         } catch (IOException ex) {
-            logger.error("an error occurred while trying to save rendered scene to {}", outputFilename.getAbsolutePath(), ex);
+            logger.error("an error occurred while trying to open {}", outputFilename, ex);
             throw new SaveException("image couldn't be saved", ex);
         }
     }
+
+    private static void closeQuietly(final OutputStream out, final Exception cause) {
+        try {
+            out.close();
+        } catch (IOException ex) {
+            cause.addSuppressed(ex);
+        }
+    }
 }
@@ -17,15 +17,22 @@
  */
 package com.raymonde.scene;
 
+import com.raymonde.render.primitive.Primitive;
+
+import java.util.Collection;
 
 /**
- *
+ * Builds trees whose leaves hold up to {@value #MAX_PRIMITIVES_PER_LEAF} primitives.
  */
 public class DefaultSpatialPartitionFactory implements SpatialPartitionFactory {
-    
-    // TODO: Implement, change threshold parameter type.
+
+    /**
+     * Testing a few primitives costs about as much as going down one more level of the tree.
+     */
+    public static final int MAX_PRIMITIVES_PER_LEAF = 4;
+
     @Override
-    public Tree createTree(final Scene scene, final Object minThresold, final Object maxThreshold) {
-        throw new UnsupportedOperationException("Not yet implemented.");
+    public Tree createTree(final Collection<Primitive> primitives) {
+        return new Tree(primitives, MAX_PRIMITIVES_PER_LEAF);
     }
 }
@@ -17,9 +17,100 @@
  */
 package com.raymonde.scene;
 
+import com.raymonde.render.primitive.BoundingBox;
+import com.raymonde.render.primitive.Primitive;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+import java.util.Map;
+
 /**
- *
+ * A leaf of a {@link Tree}, holding a few primitives along with their boxes and their ranks in the scene.
  */
-public class Leaf {
-    
+@NotThreadSafe
+class Leaf extends Node {
+
+    Primitive[] primitives = new Primitive[4];
+
+    BoundingBox[] boxes = new BoundingBox[4];
+
+    /**
+     * The order in which the primitives were added to the scene, which breaks ties between intersections.
+     */
+    int[] ranks = new int[4];
+
+    int size;
+
+    @Override
+    boolean isLeaf() {
+        return true;
+    }
+
+    @Override
+    void refit() {
+        BoundingBox box = BoundingBox.empty();
+        for (int i = 0; i < size; i++) {
+            box = box.union(boxes[i]);
+        }
+        bounds = box;
+    }
+
+    @Override
+    Leaf copy(final Map<Primitive, Leaf> leaves) {
+        final Leaf copy = new Leaf();
+        copy.bounds = bounds;
+        copy.primitives = Arrays.copyOf(primitives, primitives.length);
+        copy.boxes = Arrays.copyOf(boxes, boxes.length);
+        copy.ranks = Arrays.copyOf(ranks, ranks.length);
+        copy.size = size;
+        for (int i = 0; i < size; i++) {
+            leaves.put(primitives[i], copy);
+        }
+        return copy;
+    }
+
+    void add(final Primitive primitive, final BoundingBox box, final int rank) {
+        if (size == primitives.length) {
+            primitives = Arrays.copyOf(primitives, 2 * size);
+            boxes = Arrays.copyOf(boxes, 2 * size);
+            ranks = Arrays.copyOf(ranks, 2 * size);
+        }
+        primitives[size] = primitive;
+        boxes[size] = box;
+        ranks[size] = rank;
+        size++;
+    }
+
+    /**
+     * Removes the specified primitive, by identity, and returns its rank.
+     */
+    int remove(final Primitive primitive) {
+        final int i = indexOf(primitive);
+        final int rank = ranks[i];
+        size--;
+        primitives[i] = primitives[size];
+        boxes[i] = boxes[size];
+        ranks[i] = ranks[size];
+        primitives[size] = null;
+        boxes[size] = null;
+        return rank;
+    }
+
+    /**
+     * Replaces the specified primitive, by identity, keeping its rank.
+     */
+    void replace(final Primitive primitive, final Primitive replacement, final BoundingBox box) {
+        final int i = indexOf(primitive);
+        primitives[i] = replacement;
+        boxes[i] = box;
+    }
+
+    private int indexOf(final Primitive primitive) {
+        for (int i = 0; i < size; i++) {
+            if (primitives[i] == primitive) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("the primitive does not belong to the leaf");
+    }
 }
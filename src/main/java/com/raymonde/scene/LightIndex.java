@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.scene;
+
+import com.google.common.collect.ImmutableList;
+import com.raymonde.core.Vector;
+import com.raymonde.render.light.Light;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@code LightIndex} is a uniform grid telling which lights may illuminate a point of the scene.
+ *
+ * Each light with a finite {@link Light#getInfluenceRadius() influence radius} is registered in the cells
+ * overlapped by its sphere of influence. Lights with an infinite radius illuminate every point and are
+ * returned everywhere.
+ */
+@ThreadSafe
+@Immutable
+public final class LightIndex {
+
+    /**
+     * Bounds the memory used by the grid.
+     */
+    private static final int MAX_CELLS_PER_AXIS = 64;
+
+    /**
+     * The lights whose influence is not bounded.
+     */
+    private final List<Light> unboundedLights;
+
+    /**
+     * The lights of each cell, unbounded lights included, indexed by {@code (z * ny + y) * nx + x}.
+     */
+    private final List<List<Light>> cells;
+
+    private final double minX, minY, minZ;
+
+    private final double cellSize;
+
+    private final int nx, ny, nz;
+
+    /**
+     * Builds the index of the specified lights.
+     *
+     * @param lights The lights to index.
+     */
+    public LightIndex(final Collection<Light> lights) {
+        final List<Light> unbounded = new ArrayList<>();
+        final List<Light> bounded = new ArrayList<>();
+        for (Light light : lights) {
+            if (Double.isInfinite(light.getInfluenceRadius())) {
+                unbounded.add(light);
+            } else {
+                bounded.add(light);
+            }
+        }
+        this.unboundedLights = ImmutableList.copyOf(unbounded);
+
+        if (bounded.isEmpty()) {
+            minX = minY = minZ = 0.;
+            cellSize = 1.;
+            nx = ny = nz = 0;
+            cells = ImmutableList.of();
+            return;
+        }
+
+        double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY, z0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY, z1 = Double.NEGATIVE_INFINITY;
+        double radiusSum = 0.;
+        for (Light light : bounded) {
+            final Vector p = light.getPosition();
+            final double r = light.getInfluenceRadius();
+            x0 = Math.min(x0, p.x() - r);
+            y0 = Math.min(y0, p.y() - r);
+            z0 = Math.min(z0, p.z() - r);
+            x1 = Math.max(x1, p.x() + r);
+            y1 = Math.max(y1, p.y() + r);
+            z1 = Math.max(z1, p.z() + r);
+            radiusSum += r;
+        }
+
+        // Cells about the size of an average sphere of influence, as long as the grid stays reasonably small
+        final double extent = Math.max(x1 - x0, Math.max(y1 - y0, z1 - z0));
+        this.cellSize = Math.max(radiusSum / bounded.size(), extent / MAX_CELLS_PER_AXIS);
+        this.minX = x0;
+        this.minY = y0;
+        this.minZ = z0;
+        this.nx = cellCount(x1 - x0);
+        this.ny = cellCount(y1 - y0);
+        this.nz = cellCount(z1 - z0);
+
+        final List<List<Light>> lightsOfCells = new ArrayList<>(nx * ny * nz);
+        for (int i = 0; i < nx * ny * nz; i++) {
+            lightsOfCells.add(new ArrayList<>(unboundedLights));
+        }
+        for (Light light : bounded) {
+            final Vector p = light.getPosition();
+            final double r = light.getInfluenceRadius();
+            for (int z = cell(p.z() - r, minZ, nz); z <= cell(p.z() + r, minZ, nz); z++) {
+                for (int y = cell(p.y() - r, minY, ny); y <= cell(p.y() + r, minY, ny); y++) {
+                    for (int x = cell(p.x() - r, minX, nx); x <= cell(p.x() + r, minX, nx); x++) {
+                        lightsOfCells.get((z * ny + y) * nx + x).add(light);
+                    }
+                }
+            }
+        }
+
+        final ImmutableList.Builder<List<Light>> builder = ImmutableList.builder();
+        for (List<Light> lightsOfCell : lightsOfCells) {
+            // Cells without any bounded light share the same list
+            builder.add(lightsOfCell.size() == unboundedLights.size()
+                    ? unboundedLights : ImmutableList.copyOf(lightsOfCell));
+        }
+        this.cells = builder.build();
+    }
+
+    /**
+     * Returns the lights that may illuminate the specified point: the lights whose sphere of influence
+     * overlaps the cell of the point, and the unbounded ones. Callers still have to check the distance
+     * to each returned light.
+     *
+     * @param point The point.
+     *
+     * @return The candidate lights.
+     */
+    public List<Light> lightsAt(final Vector point) {
+        final int x = (int) Math.floor((point.x() - minX) / cellSize);
+        final int y = (int) Math.floor((point.y() - minY) / cellSize);
+        final int z = (int) Math.floor((point.z() - minZ) / cellSize);
+
+        if (x < 0 || x >= nx || y < 0 || y >= ny || z < 0 || z >= nz) {
+            return unboundedLights;
+        }
+        return cells.get((z * ny + y) * nx + x);
+    }
+
+    private int cellCount(final double length) {
+        return Math.max(1, Math.min(MAX_CELLS_PER_AXIS, (int) Math.ceil(length / cellSize)));
+    }
+
+    private int cell(final double value, final double min, final int count) {
+        return Math.max(0, Math.min(count - 1, (int) Math.floor((value - min) / cellSize)));
+    }
+}
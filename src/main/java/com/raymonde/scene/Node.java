@@ -17,9 +17,80 @@
  */
 package com.raymonde.scene;
 
+import com.raymonde.render.primitive.BoundingBox;
+import com.raymonde.render.primitive.Primitive;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Map;
+
 /**
- *
+ * An inner node of a {@link Tree}: its box encloses those of its two children.
  */
-public class Node {
-    
+@NotThreadSafe
+class Node {
+
+    /**
+     * Encloses every primitive below the node.
+     */
+    BoundingBox bounds = BoundingBox.empty();
+
+    /**
+     * The parent node, {@code null} for the root.
+     */
+    Node parent;
+
+    /**
+     * The children, {@code null} for leaves.
+     */
+    Node left, right;
+
+    /**
+     * @return {@code true} if the node holds primitives rather than children
+     */
+    boolean isLeaf() {
+        return false;
+    }
+
+    /**
+     * Updates the box of the node from those of its children, which must be up to date.
+     */
+    void refit() {
+        bounds = left.bounds.union(right.bounds);
+    }
+
+    /**
+     * Copies the subtree rooted at the node, registering the leaf of each primitive of the copy.
+     *
+     * @param leaves Receives the copied leaves, indexed by primitive.
+     *
+     * @return the copy, without parent
+     */
+    Node copy(final Map<Primitive, Leaf> leaves) {
+        final Node copy = new Node();
+        copy.bounds = bounds;
+        copy.left = left.copy(leaves);
+        copy.right = right.copy(leaves);
+        copy.left.parent = copy;
+        copy.right.parent = copy;
+        return copy;
+    }
+
+    /**
+     * Replaces the specified child by another node.
+     */
+    void replaceChild(final Node child, final Node node) {
+        if (left == child) {
+            left = node;
+        } else {
+            right = node;
+        }
+        node.parent = this;
+    }
+
+    /**
+     * @return the other child of the parent of the node
+     */
+    Node sibling() {
+        return parent.left == this ? parent.right : parent.left;
+    }
 }
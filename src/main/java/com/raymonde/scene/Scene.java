@@ -17,21 +17,36 @@
  */
 package com.raymonde.scene;
 
+import com.raymonde.animation.Animation;
 import com.raymonde.core.Color;
+import com.raymonde.core.Vector;
 import com.raymonde.render.Camera;
 import com.raymonde.render.IntersectionResult;
+import com.raymonde.render.IrradianceCache;
+import com.raymonde.render.PhotonMap;
+import com.raymonde.render.PathTracingSettings;
+import com.raymonde.render.PhotonTracer;
 import com.raymonde.render.Ray;
 import com.raymonde.render.RenderingSurface;
 import com.raymonde.render.light.Light;
+import com.raymonde.render.light.LightSampler;
+import com.raymonde.render.material.Material;
+import com.raymonde.render.material.MaterialCompiler;
 import com.raymonde.render.primitive.Primitive;
 import lombok.val;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
  * {@code Scene} object are responsible of representing the description
  * of what would be rendered.
@@ -71,6 +86,68 @@ public class Scene {
      */
     private Color ambientColor;
 
+    /**
+     * The animation of the scene, {@code null} if the scene is still.
+     */
+    private Animation animation;
+
+    /**
+     * The index of the lights, built on first use and dropped whenever a light is added.
+     */
+    private volatile LightIndex lightIndex;
+
+    /**
+     * The number of lights sampled for each shaded point, {@code 0} to consider every light.
+     */
+    private int lightSamples;
+
+    /**
+     * The sampler of the lights, built on first use and dropped whenever a light is added.
+     */
+    private volatile LightSampler lightSampler;
+
+    /**
+     * The cache of the diffuse indirect lighting, {@code null} if indirect lighting is not rendered.
+     */
+    private IrradianceCache irradianceCache;
+
+    /**
+     * Traces the photons of the caustics, {@code null} if caustics are not rendered.
+     */
+    private PhotonTracer photonTracer;
+
+    /**
+     * The photon map of the caustics, built by {@link #prepare()}.
+     */
+    private volatile PhotonMap photonMap;
+
+    /**
+     * The settings of the path tracing renderer, {@code null} for the defaults.
+     */
+    private PathTracingSettings pathTracingSettings;
+
+    /**
+     * Identifies the primitives and the materials, built lazily.
+     */
+    private volatile Identifiers identifiers;
+
+    /**
+     * The bounding volume hierarchy of the primitives, built on first use and updated, rather than rebuilt,
+     * whenever primitives are added, replaced or removed.
+     */
+    private volatile Tree tree;
+
+    /**
+     * Whether the primitives and the tree are shared with copies of the scene, in which case they are copied
+     * before being modified.
+     */
+    private boolean sharesPrimitives;
+
+    /**
+     * The changes made to the scene since they were last taken, {@code null} if they are not tracked.
+     */
+    private List<SceneChange> changes;
+
     /**
      *
      */
@@ -101,45 +178,56 @@ public class Scene {
      * intersection. Returns {@code null} if no intersection occurs.
      */
     public IntersectionResult nearestIntersection(final Ray ray) {
-
-        IntersectionResult minInter = null;
-        // Nearest collided primitive, distances
-        Primitive minPrimitive = null;
-        String minPrimitiveName = null;
-        double minDistance = Double.POSITIVE_INFINITY;
-        
-        double distance;
-
-        double delta = Scene.DELTA_COLLISION_DETECTION;
-        for (Map.Entry<String, Primitive> primitive : primitives.entrySet()) {
-            val p = primitive.getValue();
-
-            val res = p.intersect(ray);
-
-            if (res.intersect()) {
-                distance = res.distance();
-
-                /*
-                 * - Avoid intersection detection with previous one
-                 * - Avoid intersection with an other very close other primitive.
-                 */
-                if (distance < minDistance
-                        && distance > delta
-                        && minDistance - distance > delta) {
-                    minDistance = distance;
-                    minPrimitiveName = primitive.getKey();
-                    minInter = res;
-                }
-            }
-        }
+        final IntersectionResult minInter = tree().nearestIntersection(ray, DELTA_COLLISION_DETECTION);
 
         if (minInter != null) {
-            logger.debug("intersection detected with primitive {} for ray {}", minPrimitiveName, ray);
+            logger.debug("intersection detected with primitive {} for ray {}", minInter.primitive(), ray);
         }
 
         return minInter;
     }
 
+    /**
+     * Returns a primitive intersected by the specified ray closer than the specified distance, {@code null}
+     * if there is none. Unlike {@link #nearestIntersection(Ray)}, the search stops at the first primitive
+     * found, which is all shadow rays need.
+     *
+     * @param ray The ray.
+     * @param maxDistance The distance beyond which intersections are ignored.
+     *
+     * @return An occluding primitive or {@code null}.
+     */
+    public Primitive firstOccluder(final Ray ray, final double maxDistance) {
+        return tree().firstOccluder(ray, maxDistance, DELTA_COLLISION_DETECTION);
+    }
+
+    private Tree tree() {
+        Tree current = tree;
+        if (current == null) {
+            // Building the tree twice concurrently is harmless, both are identical
+            current = spatialPartitionFactory.createTree(primitives.values());
+            tree = current;
+        }
+        return current;
+    }
+
+    /**
+     * Tells whether the specified primitive is intersected by the specified ray closer than the
+     * specified distance.
+     *
+     * @param primitive The primitive.
+     * @param ray The ray.
+     * @param maxDistance The distance beyond which intersections are ignored.
+     *
+     * @return {@code true} if the primitive occludes the ray.
+     */
+    public boolean occludes(final Primitive primitive, final Ray ray, final double maxDistance) {
+        val res = primitive.intersect(ray);
+        return res.intersect()
+                && res.distance() > DELTA_COLLISION_DETECTION
+                && res.distance() <= maxDistance;
+    }
+
     /**
      *
      * @return The collection of the primitives contained in the scene.
@@ -156,7 +244,205 @@ public class Scene {
         return lights.values();
     }
 
-       
+    /**
+     * Returns the lights that may illuminate the specified point, i.e. those whose sphere of influence
+     * may contain the point.
+     *
+     * @param point The point.
+     *
+     * @return The candidate lights.
+     *
+     * @see LightIndex
+     */
+    public Collection<Light> lightsAt(final Vector point) {
+        LightIndex index = lightIndex;
+        if (index == null) {
+            // Building the index twice concurrently is harmless, both are identical
+            index = new LightIndex(lights.values());
+            lightIndex = index;
+        }
+        return index.lightsAt(point);
+    }
+
+    /**
+     * Returns the sampler of the lights when shading should only consider a few lights picked at random,
+     * {@code null} when shading should consider every light.
+     *
+     * @return The sampler of the lights or {@code null}.
+     *
+     * @see #setLightSamples(int)
+     */
+    public LightSampler getLightSampler() {
+        if (lightSamples == 0 || lights.isEmpty()) {
+            return null;
+        }
+        LightSampler sampler = lightSampler;
+        if (sampler == null) {
+            sampler = new LightSampler(lights.values(), lightSamples);
+            lightSampler = sampler;
+        }
+        return sampler;
+    }
+
+    /**
+     * @return the number of lights sampled for each shaded point, {@code 0} if every light is considered
+     */
+    public int getLightSamples() {
+        return lightSamples;
+    }
+
+    /**
+     * Sets the number of lights sampled for each shaded point. With many lights, sampling a few of them
+     * keeps the cost of shading constant, at the price of noise.
+     *
+     * @param lightSamples The number of sampled lights, {@code 0} to consider every light.
+     */
+    public void setLightSamples(final int lightSamples) {
+        checkArgument(lightSamples >= 0, "the number of light samples must be positive");
+        this.lightSamples = lightSamples;
+        this.lightSampler = null;
+    }
+
+    /**
+     * Returns the cache of the diffuse indirect lighting, {@code null} if indirect lighting is not rendered.
+     *
+     * @return The irradiance cache or {@code null}.
+     */
+    public IrradianceCache getIrradianceCache() {
+        return irradianceCache;
+    }
+
+    /**
+     * Enables the rendering of diffuse indirect lighting, through the specified cache.
+     *
+     * @param irradianceCache The irradiance cache, {@code null} to disable indirect lighting.
+     */
+    public void setIrradianceCache(final IrradianceCache irradianceCache) {
+        this.irradianceCache = irradianceCache;
+    }
+
+    /**
+     * Returns the settings of the {@link com.raymonde.render.PathTracingRenderer}, {@code null} for the defaults.
+     *
+     * @return The path tracing settings or {@code null}.
+     */
+    public PathTracingSettings getPathTracingSettings() {
+        return pathTracingSettings;
+    }
+
+    /**
+     * @param pathTracingSettings The settings of the path tracing renderer, {@code null} for the defaults.
+     */
+    public void setPathTracingSettings(final PathTracingSettings pathTracingSettings) {
+        this.pathTracingSettings = pathTracingSettings;
+    }
+
+    /**
+     * Returns the photon tracer of the caustics, {@code null} if caustics are not rendered.
+     *
+     * @return The photon tracer or {@code null}.
+     */
+    public PhotonTracer getPhotonTracer() {
+        return photonTracer;
+    }
+
+    /**
+     * Enables the rendering of caustics, whose photon map is built by the specified tracer.
+     *
+     * @param photonTracer The photon tracer, {@code null} to disable caustics.
+     */
+    public void setPhotonTracer(final PhotonTracer photonTracer) {
+        this.photonTracer = photonTracer;
+        this.photonMap = null;
+    }
+
+    /**
+     * Returns the photon map of the caustics, {@code null} if caustics are not rendered. The map is built on
+     * first call unless the scene has been {@link #prepare() prepared}.
+     *
+     * @return The photon map or {@code null}.
+     */
+    public PhotonMap getPhotonMap() {
+        if (photonTracer == null) {
+            return null;
+        }
+        PhotonMap map = photonMap;
+        if (map == null) {
+            synchronized (this) {
+                map = photonMap;
+                if (map == null) {
+                    map = photonTracer.trace(this);
+                    photonMap = map;
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Compiles the materials of the primitives (see {@link MaterialCompiler}) and builds the structures
+     * rendering relies on (tree of the primitives, light index, photon map...), which would otherwise be
+     * built lazily by the first rendering thread that needs them. Copies made afterwards by
+     * {@link #withLights(Map)} share the tree instead of building their own.
+     */
+    public void prepare() {
+        compileMaterials();
+        tree();
+        lightsAt(Vector.zero());
+        getPhotonMap();
+    }
+
+    /**
+     * Replaces the primitives whose material can be compiled by copies of them with the compiled material.
+     * Compiled materials render the same colors, the replacements are not recorded as changes.
+     */
+    private void compileMaterials() {
+        final Map<Material, Material> compiledMaterials = new IdentityHashMap<>();
+        final Map<Primitive, Primitive> compiledPrimitives = new IdentityHashMap<>();
+        final List<SceneChange> compiled = new ArrayList<>();
+        for (Map.Entry<String, Primitive> entry : primitives.entrySet()) {
+            final Primitive primitive = entry.getValue();
+            final Material material = primitive.getMaterial();
+            // Shared materials and primitives stay shared once compiled
+            final Material compiledMaterial = compiledMaterials.computeIfAbsent(material, MaterialCompiler::compile);
+            if (compiledMaterial != material) {
+                final Primitive replacement =
+                        compiledPrimitives.computeIfAbsent(primitive, p -> p.withMaterial(compiledMaterial));
+                compiled.add(SceneChange.ofPrimitive(primitive, replacement));
+            }
+        }
+        if (compiled.isEmpty()) {
+            return;
+        }
+        ownPrimitives();
+        for (Map.Entry<String, Primitive> entry : primitives.entrySet()) {
+            entry.setValue(compiledPrimitives.getOrDefault(entry.getValue(), entry.getValue()));
+        }
+        updatePrimitives(compiled);
+    }
+
+    /**
+     * Returns the light registered under the specified name, {@code null} if there is none.
+     *
+     * @param name The name of the light.
+     *
+     * @return The light or {@code null}.
+     */
+    public Light getLight(final String name) {
+        return lights.get(name);
+    }
+
+    /**
+     * Returns the primitive registered under the specified name, {@code null} if there is none.
+     *
+     * @param name The name of the primitive.
+     *
+     * @return The primitive or {@code null}.
+     */
+    public Primitive getPrimitive(final String name) {
+        return primitives.get(name);
+    }
+
     /**
      * Adds the specified primitive to the scene.
      *
@@ -164,7 +450,178 @@ public class Scene {
      * @param primitive The primitive to add to the scene.
      */
     public void addPrimitive(final String name, final Primitive primitive) {
-        primitives.put(name, primitive);
+        ownPrimitives();
+        final Primitive replaced = primitives.put(name, primitive);
+        primitiveChanged(replaced, primitive);
+    }
+
+    /**
+     * Removes the primitive registered under the specified name, if any.
+     *
+     * @param name The name of the primitive.
+     *
+     * @return The removed primitive, {@code null} if there was none.
+     */
+    public Primitive removePrimitive(final String name) {
+        if (!primitives.containsKey(name)) {
+            return null;
+        }
+        ownPrimitives();
+        final Primitive removed = primitives.remove(name);
+        if (removed != null) {
+            primitiveChanged(removed, null);
+        }
+        return removed;
+    }
+
+    /**
+     * Replaces at once the primitives registered under the specified names, or adds them if there are none,
+     * e.g. to move some of the primitives of an animated scene to their positions at a frame (see
+     * {@link Animation#sceneAt(Scene, int)}). The tree of the scene is refit once rather than after each
+     * primitive.
+     *
+     * @param replacedPrimitives The primitives to replace, indexed by name.
+     */
+    public void replacePrimitives(final Map<String, Primitive> replacedPrimitives) {
+        ownPrimitives();
+        final List<SceneChange> primitiveChanges = new ArrayList<>(replacedPrimitives.size());
+        for (Map.Entry<String, Primitive> entry : replacedPrimitives.entrySet()) {
+            final Primitive replaced = primitives.put(entry.getKey(), entry.getValue());
+            primitiveChanges.add(SceneChange.ofPrimitive(replaced, entry.getValue()));
+        }
+        primitivesChanged(primitiveChanges);
+    }
+
+    /**
+     * Copies the primitives if they are shared with copies of the scene, so that modifying them leaves the
+     * copies untouched. The shared tree is copied as well, so that it is updated rather than rebuilt.
+     */
+    private void ownPrimitives() {
+        if (sharesPrimitives) {
+            primitives = new LinkedHashMap<>(primitives);
+            final Tree current = tree;
+            tree = current == null ? null : current.copy();
+            sharesPrimitives = false;
+        }
+    }
+
+    /**
+     * Updates the tree and the caches depending on the primitives, and records the change.
+     */
+    private void primitiveChanged(final Primitive before, final Primitive after) {
+        primitivesChanged(Collections.singletonList(SceneChange.ofPrimitive(before, after)));
+    }
+
+    /**
+     * Updates the tree and the caches depending on the primitives, and records the changes.
+     */
+    private void primitivesChanged(final List<SceneChange> primitiveChanges) {
+        updatePrimitives(primitiveChanges);
+        primitiveChanges.forEach(this::record);
+    }
+
+    /**
+     * Updates the tree and the caches depending on the primitives.
+     */
+    private void updatePrimitives(final List<SceneChange> primitiveChanges) {
+        photonMap = null;
+        identifiers = null;
+        resetIrradianceCache();
+        final Tree current = tree;
+        if (current != null) {
+            if (isUpdatable(current, primitiveChanges)) {
+                update(current, primitiveChanges);
+            } else {
+                // A primitive is registered under several names, the tree is rebuilt on next use
+                tree = null;
+            }
+        }
+    }
+
+    private static void update(final Tree current, final List<SceneChange> primitiveChanges) {
+        final Map<Primitive, Primitive> replacements = new IdentityHashMap<>();
+        for (SceneChange change : primitiveChanges) {
+            final Primitive before = change.getPrimitiveBefore();
+            final Primitive after = change.getPrimitiveAfter();
+            if (before == null) {
+                current.insert(after);
+            } else if (after == null) {
+                current.remove(before);
+            } else if (before != after) {
+                replacements.put(before, after);
+            }
+        }
+        if (replacements.size() == 1) {
+            // Refitting the ancestors of a single leaf is cheaper than refitting the whole tree
+            val replacement = replacements.entrySet().iterator().next();
+            current.replace(replacement.getKey(), replacement.getValue());
+        } else if (!replacements.isEmpty()) {
+            current.replaceAll(replacements);
+        }
+    }
+
+    /**
+     * Tells whether the tree can be updated in place: the removed or replaced primitives must have left the
+     * scene, and the added ones must not be in the tree already.
+     */
+    private boolean isUpdatable(final Tree current, final List<SceneChange> primitiveChanges) {
+        final Map<Primitive, Boolean> removed = new IdentityHashMap<>();
+        final Map<Primitive, Boolean> added = new IdentityHashMap<>();
+        for (SceneChange change : primitiveChanges) {
+            final Primitive before = change.getPrimitiveBefore();
+            final Primitive after = change.getPrimitiveAfter();
+            if (before == after) {
+                continue;
+            }
+            if (before != null && removed.put(before, true) != null) {
+                return false;
+            }
+            if (after != null && (current.contains(after) || added.put(after, true) != null)) {
+                return false;
+            }
+        }
+        if (removed.isEmpty()) {
+            return true;
+        }
+        for (Primitive primitive : primitives.values()) {
+            if (removed.containsKey(primitive)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the identifier of the specified primitive: its rank, starting at {@code 1}, in the order the
+     * primitives were added to the scene.
+     *
+     * @param primitive A primitive of the scene.
+     *
+     * @return The identifier, {@code 0} if the primitive does not belong to the scene.
+     */
+    public int primitiveId(final Primitive primitive) {
+        return identifiers().primitiveIds.getOrDefault(primitive, 0);
+    }
+
+    /**
+     * Returns the identifier of the specified material: its rank, starting at {@code 1}, among the distinct
+     * materials of the primitives, in the order the primitives were added to the scene.
+     *
+     * @param material The material of a primitive of the scene.
+     *
+     * @return The identifier, {@code 0} if no primitive of the scene has the material.
+     */
+    public int materialId(final Material material) {
+        return identifiers().materialIds.getOrDefault(material, 0);
+    }
+
+    private Identifiers identifiers() {
+        Identifiers ids = identifiers;
+        if (ids == null) {
+            ids = new Identifiers(primitives.values());
+            identifiers = ids;
+        }
+        return ids;
     }
 
     /**
@@ -174,7 +631,71 @@ public class Scene {
      * @param light The light to add.
      */
     public void addLight(final String name, final Light light) {
-        lights.put(name, light);
+        final Light replaced = lights.put(name, light);
+        lightChanged(replaced, light);
+    }
+
+    /**
+     * Removes the light registered under the specified name, if any.
+     *
+     * @param name The name of the light.
+     *
+     * @return The removed light, {@code null} if there was none.
+     */
+    public Light removeLight(final String name) {
+        final Light removed = lights.remove(name);
+        if (removed != null) {
+            lightChanged(removed, null);
+        }
+        return removed;
+    }
+
+    private void lightChanged(final Light before, final Light after) {
+        lightIndex = null;
+        lightSampler = null;
+        photonMap = null;
+        resetIrradianceCache();
+        record(SceneChange.ofLight(before, after));
+    }
+
+    /**
+     * Drops the cached indirect lighting, which was gathered from the previous primitives, lights and
+     * ambient color.
+     */
+    private void resetIrradianceCache() {
+        if (irradianceCache != null) {
+            irradianceCache = irradianceCache.emptyCopy();
+        }
+    }
+
+    /**
+     * Starts recording the changes made to the primitives, the lights and the ambient color of the scene,
+     * e.g. to render again only the pixels they affect. Changes are recorded until they are taken.
+     */
+    public void trackChanges() {
+        if (changes == null) {
+            changes = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Returns the changes recorded since they were last taken, and forgets them.
+     *
+     * @return The changes, in the order they were made, empty if changes are not tracked.
+     */
+    public List<SceneChange> takeChanges() {
+        if (changes == null) {
+            return Collections.emptyList();
+        }
+        final List<SceneChange> taken = changes;
+        changes = new ArrayList<>();
+        return taken;
+    }
+
+    private void record(final SceneChange change) {
+        if (changes != null) {
+            changes.add(change);
+        }
     }
 
     /**
@@ -193,6 +714,26 @@ public class Scene {
         return renderingSurface;
     }
 
+    /**
+     * Returns the cameras of the scene indexed by name, in the order they were added.
+     *
+     * @return The cameras of the scene.
+     */
+    public Map<String, Camera> getCameras() {
+        return Collections.unmodifiableMap(cameras);
+    }
+
+    /**
+     * Returns the camera registered under the specified name, {@code null} if there is none.
+     *
+     * @param name The name of the camera.
+     *
+     * @return The camera or {@code null}.
+     */
+    public Camera getCamera(final String name) {
+        return cameras.get(name);
+    }
+
     /**
      * Returns the default camera.
      * 
@@ -236,5 +777,90 @@ public class Scene {
      */
     public void setAmbientColor(final Color ambientColor) {
         this.ambientColor = ambientColor;
+        resetIrradianceCache();
+        record(SceneChange.ofAmbientColor());
+    }
+
+    /**
+     * Returns the animation of the scene, {@code null} if the scene is still.
+     *
+     * @return The animation of the scene.
+     */
+    public Animation getAnimation() {
+        return animation;
+    }
+
+    /**
+     * Sets the animation of the scene.
+     *
+     * @param animation The animation of the scene.
+     */
+    public void setAnimation(final Animation animation) {
+        this.animation = animation;
+    }
+
+    /**
+     * Returns a copy of the current scene where the lights registered under the specified names are
+     * replaced by the specified ones.
+     * Primitives, their tree and cameras are shared with the current scene, not copied, which makes this
+     * method cheap enough to be called for every frame of an animation. Primitives are only copied when
+     * either scene modifies them, the other scene is left untouched.
+     *
+     * @param replacedLights The lights to replace, indexed by name.
+     *
+     * @return The resulting scene.
+     */
+    public Scene withLights(final Map<String, Light> replacedLights) {
+        val scene = new Scene();
+        scene.renderingSurface = renderingSurface;
+        scene.primitives = primitives;
+        scene.tree = tree;
+        scene.sharesPrimitives = true;
+        sharesPrimitives = true;
+        scene.cameras = cameras;
+        scene.lights = new LinkedHashMap<>(lights);
+        scene.lights.putAll(replacedLights);
+        scene.ambientColor = ambientColor;
+        scene.animation = animation;
+        scene.lightSamples = lightSamples;
+        scene.photonTracer = photonTracer;
+        scene.pathTracingSettings = pathTracingSettings;
+        // Cached indirect lighting is only valid for the lights it was computed with
+        scene.irradianceCache = irradianceCache == null || replacedLights.isEmpty()
+                ? irradianceCache : irradianceCache.emptyCopy();
+        return scene;
+    }
+
+    /**
+     * Returns a copy of the current scene lit by the lights and the ambient color of the specified scene
+     * instead of its own. As with {@link #withLights(Map)}, primitives and cameras are shared.
+     *
+     * @param lighting The scene whose lights and ambient color are used.
+     *
+     * @return The resulting scene.
+     */
+    public Scene withLighting(final Scene lighting) {
+        val scene = withLights(Collections.emptyMap());
+        scene.lights = new LinkedHashMap<>(lighting.lights);
+        scene.ambientColor = lighting.ambientColor;
+        scene.irradianceCache = irradianceCache == null ? null : irradianceCache.emptyCopy();
+        return scene;
+    }
+
+    /**
+     * The identifiers of the primitives and of the materials of a scene, by identity.
+     */
+    private static final class Identifiers {
+
+        private final Map<Primitive, Integer> primitiveIds = new IdentityHashMap<>();
+
+        private final Map<Material, Integer> materialIds = new IdentityHashMap<>();
+
+        private Identifiers(final Collection<Primitive> primitives) {
+            for (Primitive primitive : primitives) {
+                primitiveIds.putIfAbsent(primitive, primitiveIds.size() + 1);
+                materialIds.putIfAbsent(primitive.getMaterial(), materialIds.size() + 1);
+            }
+        }
     }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2013 Manoury Aurélien
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package com.raymonde.scene;
+
+import com.raymonde.render.light.Light;
+import com.raymonde.render.primitive.Primitive;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * {@code SceneChange} records an edit of a {@link Scene}: a primitive or a light added, moved (i.e.
+ * replaced) or removed, or the ambient color changed. See {@link Scene#trackChanges()}.
+ */
+@ThreadSafe
+@Immutable
+public final class SceneChange {
+
+    private final Primitive primitiveBefore;
+
+    private final Primitive primitiveAfter;
+
+    private final Light lightBefore;
+
+    private final Light lightAfter;
+
+    private final boolean ambient;
+
+    private SceneChange(final Primitive primitiveBefore, final Primitive primitiveAfter,
+            final Light lightBefore, final Light lightAfter, final boolean ambient) {
+        this.primitiveBefore = primitiveBefore;
+        this.primitiveAfter = primitiveAfter;
+        this.lightBefore = lightBefore;
+        this.lightAfter = lightAfter;
+        this.ambient = ambient;
+    }
+
+    /**
+     * @param before The primitive before the change, {@code null} if it was added.
+     * @param after The primitive after the change, {@code null} if it was removed.
+     *
+     * @return the change of a primitive
+     */
+    public static SceneChange ofPrimitive(final Primitive before, final Primitive after) {
+        return new SceneChange(before, after, null, null, false);
+    }
+
+    /**
+     * @param before The light before the change, {@code null} if it was added.
+     * @param after The light after the change, {@code null} if it was removed.
+     *
+     * @return the change of a light
+     */
+    public static SceneChange ofLight(final Light before, final Light after) {
+        return new SceneChange(null, null, before, after, false);
+    }
+
+    /**
+     * @return the change of the ambient color
+     */
+    public static SceneChange ofAmbientColor() {
+        return new SceneChange(null, null, null, null, true);
+    }
+
+    /**
+     * @return the primitive before the change, {@code null} if it was added or if no primitive changed
+     */
+    public Primitive getPrimitiveBefore() {
+        return primitiveBefore;
+    }
+
+    /**
+     * @return the primitive after the change, {@code null} if it was removed or if no primitive changed
+     */
+    public Primitive getPrimitiveAfter() {
+        return primitiveAfter;
+    }
+
+    /**
+     * @return the light before the change, {@code null} if it was added or if no light changed
+     */
+    public Light getLightBefore() {
+        return lightBefore;
+    }
+
+    /**
+     * @return the light after the change, {@code null} if it was removed or if no light changed
+     */
+    public Light getLightAfter() {
+        return lightAfter;
+    }
+
+    /**
+     * @return {@code true} if the ambient color changed
+     */
+    public boolean isAmbientColorChange() {
+        return ambient;
+    }
+}
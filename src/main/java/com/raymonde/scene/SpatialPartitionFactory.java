@@ -17,9 +17,21 @@
  */
 package com.raymonde.scene;
 
+import com.raymonde.render.primitive.Primitive;
+
+import java.util.Collection;
+
 /**
+ * Builds the {@link Tree} rays are cast through.
  */
 public interface SpatialPartitionFactory {
-    
-    Tree createTree(final Scene scene, final Object minThresold, final Object maxThreshold);
+
+    /**
+     * Builds the tree of the specified primitives.
+     *
+     * @param primitives The primitives, in the order they were added to the scene.
+     *
+     * @return The tree.
+     */
+    Tree createTree(final Collection<Primitive> primitives);
 }
@@ -17,10 +17,654 @@
  */
 package com.raymonde.scene;
 
+import com.raymonde.core.Vector;
+import com.raymonde.render.IntersectionResult;
+import com.raymonde.render.Ray;
+import com.raymonde.render.primitive.BoundingBox;
+import com.raymonde.render.primitive.Primitive;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
- * Spatial partionning.
- * Should be computed once the scene is build.
+ * {@code Tree} is a bounding volume hierarchy over the primitives of a scene: a binary tree whose nodes
+ * enclose the boxes of the primitives below them, so that rays only test the primitives of the few nodes
+ * they pass through. Unbounded primitives (e.g. planes) are kept aside and tested by every ray.
+ *
+ * Adding, replacing or removing a primitive updates the tree in place: the leaf of the primitive is changed
+ * and the boxes of its ancestors are refit, the tree is not rebuilt. Moving many primitives at once, e.g. for
+ * each frame of an animation, is cheaper with {@link #replaceAll(Map)}: all the boxes are refit in a single
+ * bottom-up pass. Refitting keeps the structure of the tree, whose quality degrades as primitives move away
+ * from the ones they were grouped with: the tree is rebuilt once its surface area heuristic cost (see
+ * {@link #cost()}) exceeds the cost it had when it was built by a given ratio.
+ *
+ * Rays can be cast concurrently, but not while the tree is updated.
  */
-public class Tree {
-    
+@NotThreadSafe
+public final class Tree {
+
+    private static final Logger logger = LoggerFactory.getLogger(Tree.class);
+
+    /**
+     * The traversal state of each thread, so that casting a ray does not allocate.
+     */
+    private static final ThreadLocal<Traversal> TRAVERSALS = ThreadLocal.withInitial(Traversal::new);
+
+    /**
+     * Refitting is much cheaper than rebuilding, a tree is rebuilt when rays cost half as much again.
+     */
+    public static final double DEFAULT_REBUILD_COST_RATIO = 1.5;
+
+    private final int maxPrimitivesPerLeaf;
+
+    /**
+     * The ratio between the current cost of the tree and its cost when it was built above which it is rebuilt.
+     */
+    private final double rebuildCostRatio;
+
+    /**
+     * The cost of the tree when it was last built.
+     */
+    private double builtCost;
+
+    /**
+     * The primitives without bounds, tested by every ray.
+     */
+    private final Leaf unbounded = new Leaf();
+
+    /**
+     * The root of the hierarchy of the bounded primitives, {@code null} if there is none.
+     */
+    private Node root;
+
+    /**
+     * The leaf of each primitive, by identity.
+     */
+    private final Map<Primitive, Leaf> leaves = new IdentityHashMap<>();
+
+    /**
+     * The rank given to the next added primitive.
+     */
+    private int nextRank;
+
+    /**
+     * Builds the tree of the specified primitives, rebuilt after refits with the
+     * {@link #DEFAULT_REBUILD_COST_RATIO default ratio}.
+     *
+     * @param primitives The primitives, in the order they were added to the scene.
+     * @param maxPrimitivesPerLeaf The number of primitives below which nodes are not split.
+     */
+    public Tree(final Collection<Primitive> primitives, final int maxPrimitivesPerLeaf) {
+        this(primitives, maxPrimitivesPerLeaf, DEFAULT_REBUILD_COST_RATIO);
+    }
+
+    /**
+     * Builds the tree of the specified primitives.
+     *
+     * @param primitives The primitives, in the order they were added to the scene.
+     * @param maxPrimitivesPerLeaf The number of primitives below which nodes are not split.
+     * @param rebuildCostRatio The ratio between the cost of the tree after a refit and its cost when it was
+     *                         built above which it is rebuilt, {@link Double#POSITIVE_INFINITY} to never
+     *                         rebuild it.
+     */
+    public Tree(final Collection<Primitive> primitives, final int maxPrimitivesPerLeaf,
+            final double rebuildCostRatio) {
+        checkArgument(maxPrimitivesPerLeaf > 0, "leaves must hold at least one primitive");
+        checkArgument(rebuildCostRatio >= 1., "the rebuild cost ratio must be at least 1: %s", rebuildCostRatio);
+        this.maxPrimitivesPerLeaf = maxPrimitivesPerLeaf;
+        this.rebuildCostRatio = rebuildCostRatio;
+
+        final List<Entry> bounded = new ArrayList<>(primitives.size());
+        for (Primitive primitive : primitives) {
+            // A primitive registered under several names is tested once
+            if (leaves.containsKey(primitive)) {
+                continue;
+            }
+            final Entry entry = new Entry(primitive, primitive.bounds(), nextRank++);
+            if (entry.box.isInfinite()) {
+                unbounded.add(entry.primitive, entry.box, entry.rank);
+            } else {
+                bounded.add(entry);
+            }
+            // The leaves of bounded primitives are set once the tree is built
+            leaves.put(primitive, unbounded);
+        }
+        root = bounded.isEmpty() ? null : build(bounded, 0, bounded.size());
+        builtCost = cost();
+    }
+
+    /**
+     * Copies the specified tree.
+     */
+    private Tree(final Tree tree) {
+        this.maxPrimitivesPerLeaf = tree.maxPrimitivesPerLeaf;
+        this.rebuildCostRatio = tree.rebuildCostRatio;
+        this.builtCost = tree.builtCost;
+        this.nextRank = tree.nextRank;
+        for (int i = 0; i < tree.unbounded.size; i++) {
+            unbounded.add(tree.unbounded.primitives[i], tree.unbounded.boxes[i], tree.unbounded.ranks[i]);
+            leaves.put(tree.unbounded.primitives[i], unbounded);
+        }
+        this.root = tree.root == null ? null : tree.root.copy(leaves);
+    }
+
+    /**
+     * Returns a copy of the tree, sharing the primitives but not the nodes: updating the copy, e.g. refitting
+     * it after primitives have moved, leaves the current tree untouched. Copying takes linear time, which is
+     * cheaper than building a new tree.
+     *
+     * @return The copy.
+     */
+    public Tree copy() {
+        return new Tree(this);
+    }
+
+    /**
+     * Returns the nearest intersection of the specified ray with the primitives farther than the specified
+     * distance. Intersections closer to each other than that distance are considered the same, the one of
+     * the primitive added first to the scene is returned.
+     *
+     * @param ray The ray.
+     * @param delta The minimum distance of intersections.
+     *
+     * @return The nearest intersection, {@code null} if there is none.
+     */
+    public IntersectionResult nearestIntersection(final Ray ray, final double delta) {
+        final Traversal traversal = TRAVERSALS.get();
+        final Nearest nearest = traversal.nearest.reset(delta);
+        nearest.test(unbounded, ray);
+        if (root == null) {
+            return nearest.take();
+        }
+
+        Node[] nodes = traversal.nodes;
+        double[] entries = traversal.entries;
+        int size = 0;
+        final double rootEntry = root.bounds.entryDistance(ray, Double.POSITIVE_INFINITY);
+        if (rootEntry != Double.POSITIVE_INFINITY) {
+            nodes[size] = root;
+            entries[size++] = rootEntry;
+        }
+        while (size > 0) {
+            final Node node = nodes[--size];
+            // Popped nodes are not kept reachable from the thread once the tree is dropped
+            nodes[size] = null;
+            if (entries[size] > nearest.distance + delta) {
+                continue;
+            }
+            if (node.isLeaf()) {
+                nearest.test((Leaf) node, ray);
+                continue;
+            }
+            final double maxDistance = nearest.distance + delta;
+            final double leftEntry = node.left.bounds.entryDistance(ray, maxDistance);
+            final double rightEntry = node.right.bounds.entryDistance(ray, maxDistance);
+            if (size + 2 > nodes.length) {
+                traversal.grow();
+                nodes = traversal.nodes;
+                entries = traversal.entries;
+            }
+            // The nearest child is popped first
+            final boolean leftFirst = leftEntry <= rightEntry;
+            size = push(nodes, entries, size, leftFirst ? node.right : node.left,
+                    leftFirst ? rightEntry : leftEntry);
+            size = push(nodes, entries, size, leftFirst ? node.left : node.right,
+                    leftFirst ? leftEntry : rightEntry);
+        }
+        return nearest.take();
+    }
+
+    /**
+     * Returns a primitive intersected by the specified ray farther than {@code delta} and not farther than
+     * {@code maxDistance}, {@code null} if there is none.
+     *
+     * @param ray The ray.
+     * @param maxDistance The distance beyond which intersections are ignored.
+     * @param delta The minimum distance of intersections.
+     *
+     * @return An occluding primitive or {@code null}.
+     */
+    public Primitive firstOccluder(final Ray ray, final double maxDistance, final double delta) {
+        final Primitive occluder = firstOccluder(unbounded, ray, maxDistance, delta);
+        if (occluder != null || root == null) {
+            return occluder;
+        }
+
+        final Traversal traversal = TRAVERSALS.get();
+        Node[] nodes = traversal.nodes;
+        int size = 0;
+        nodes[size++] = root;
+        while (size > 0) {
+            final Node node = nodes[--size];
+            nodes[size] = null;
+            if (node.bounds.entryDistance(ray, maxDistance) == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+            if (node.isLeaf()) {
+                final Primitive found = firstOccluder((Leaf) node, ray, maxDistance, delta);
+                if (found != null) {
+                    Arrays.fill(nodes, 0, size, null);
+                    return found;
+                }
+                continue;
+            }
+            if (size + 2 > nodes.length) {
+                traversal.grow();
+                nodes = traversal.nodes;
+            }
+            nodes[size++] = node.right;
+            nodes[size++] = node.left;
+        }
+        return null;
+    }
+
+    /**
+     * @param primitive A primitive.
+     *
+     * @return {@code true} if the primitive belongs to the tree
+     */
+    public boolean contains(final Primitive primitive) {
+        return leaves.containsKey(primitive);
+    }
+
+    /**
+     * Adds the specified primitive to the leaf whose box grows the least, and refits its ancestors.
+     *
+     * @param primitive The primitive, which must not belong to the tree.
+     */
+    public void insert(final Primitive primitive) {
+        checkArgument(!contains(primitive), "the primitive %s is added twice", primitive);
+        insert(new Entry(primitive, primitive.bounds(), nextRank++));
+    }
+
+    /**
+     * Removes the specified primitive, and refits the ancestors of its leaf.
+     *
+     * @param primitive The primitive, which must belong to the tree.
+     */
+    public void remove(final Primitive primitive) {
+        final Leaf leaf = leaves.remove(primitive);
+        checkArgument(leaf != null, "the primitive %s does not belong to the tree", primitive);
+        leaf.remove(primitive);
+        if (leaf == unbounded) {
+            return;
+        }
+        if (leaf.size > 0) {
+            refitFrom(leaf);
+        } else if (leaf == root) {
+            root = null;
+        } else {
+            // The sibling of the empty leaf takes the place of their parent
+            final Node sibling = leaf.sibling();
+            final Node parent = leaf.parent;
+            if (parent == root) {
+                root = sibling;
+                sibling.parent = null;
+            } else {
+                parent.parent.replaceChild(parent, sibling);
+                refitFrom(sibling.parent);
+            }
+        }
+    }
+
+    /**
+     * Replaces the specified primitive, e.g. by a moved copy of it, keeping its rank. When both are bounded,
+     * the replacement takes the place of the primitive in its leaf, and the ancestors of the leaf are refit.
+     *
+     * @param primitive The primitive, which must belong to the tree.
+     * @param replacement The replacing primitive, which must not belong to the tree.
+     */
+    public void replace(final Primitive primitive, final Primitive replacement) {
+        checkArgument(primitive == replacement || !contains(replacement), "the primitive %s is added twice",
+                replacement);
+        final Leaf leaf = leaves.get(primitive);
+        checkArgument(leaf != null, "the primitive %s does not belong to the tree", primitive);
+        final BoundingBox box = replacement.bounds();
+        if ((leaf == unbounded) == box.isInfinite()) {
+            leaf.replace(primitive, replacement, box);
+            leaves.remove(primitive);
+            leaves.put(replacement, leaf);
+            if (leaf != unbounded) {
+                refitFrom(leaf);
+            }
+            return;
+        }
+        final int rank = rankOf(leaf, primitive);
+        remove(primitive);
+        insert(new Entry(replacement, box, rank));
+    }
+
+    /**
+     * @return the box enclosing the bounded primitives, empty if there is none
+     */
+    public BoundingBox bounds() {
+        return root == null ? BoundingBox.empty() : root.bounds;
+    }
+
+    /**
+     * Replaces the specified primitives at once, e.g. by moved copies of them, keeping their ranks. Unlike
+     * {@link #replace(Primitive, Primitive)}, the ancestors of each leaf are not refit one after the other:
+     * the whole tree is {@link #refit() refit} once all the primitives have been replaced.
+     *
+     * @param replacements The replacing primitives, indexed by the primitives of the tree they replace.
+     */
+    public void replaceAll(final Map<Primitive, Primitive> replacements) {
+        for (Map.Entry<Primitive, Primitive> replacement : replacements.entrySet()) {
+            final Primitive primitive = replacement.getKey();
+            final Primitive replacing = replacement.getValue();
+            checkArgument(primitive == replacing || !contains(replacing), "the primitive %s is added twice",
+                    replacing);
+            final Leaf leaf = leaves.get(primitive);
+            checkArgument(leaf != null, "the primitive %s does not belong to the tree", primitive);
+            final BoundingBox box = replacing.bounds();
+            if ((leaf == unbounded) == box.isInfinite()) {
+                leaf.replace(primitive, replacing, box);
+                leaves.remove(primitive);
+                leaves.put(replacing, leaf);
+            } else {
+                replace(primitive, replacing);
+            }
+        }
+        refit();
+    }
+
+    /**
+     * Updates the boxes of every node from those of the primitives of the leaves, bottom-up, without changing
+     * the structure of the tree. The tree is rebuilt if its cost then exceeds the cost it had when it was
+     * built by more than the rebuild cost ratio.
+     */
+    public void refit() {
+        if (root == null) {
+            return;
+        }
+        final List<Node> nodes = nodes();
+        // Children come after their parent, they are refit first
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            nodes.get(i).refit();
+        }
+        final double cost = cost(nodes);
+        if (cost > rebuildCostRatio * builtCost) {
+            logger.debug("rebuilding tree: its cost {} exceeds {} times its cost when built {}",
+                    cost, rebuildCostRatio, builtCost);
+            rebuild(nodes);
+        }
+    }
+
+    /**
+     * Returns the surface area heuristic cost of the tree: the expected number of boxes and primitives a ray
+     * crossing the bounded primitives tests, the probability that a ray crossing the root also crosses a node
+     * being the ratio of their surface areas. Unbounded primitives are not counted.
+     *
+     * @return The cost of the tree, {@code 0} if it has no bounded primitive.
+     */
+    public double cost() {
+        return root == null ? 0. : cost(nodes());
+    }
+
+    /**
+     * Builds the tree again from the primitives of its leaves.
+     */
+    private void rebuild(final List<Node> nodes) {
+        final List<Entry> entries = new ArrayList<>(leaves.size());
+        for (Node node : nodes) {
+            if (node.isLeaf()) {
+                final Leaf leaf = (Leaf) node;
+                for (int i = 0; i < leaf.size; i++) {
+                    entries.add(new Entry(leaf.primitives[i], leaf.boxes[i], leaf.ranks[i]));
+                }
+            }
+        }
+        root = build(entries, 0, entries.size());
+        root.parent = null;
+        builtCost = cost();
+    }
+
+    /**
+     * @return the nodes of the hierarchy, each one before its children
+     */
+    private List<Node> nodes() {
+        final List<Node> nodes = new ArrayList<>();
+        if (root != null) {
+            nodes.add(root);
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            final Node node = nodes.get(i);
+            if (!node.isLeaf()) {
+                nodes.add(node.left);
+                nodes.add(node.right);
+            }
+        }
+        return nodes;
+    }
+
+    private double cost(final List<Node> nodes) {
+        final double rootArea = root.bounds.halfArea();
+        if (!(rootArea > 0.)) {
+            return 0.;
+        }
+        double cost = 0.;
+        for (Node node : nodes) {
+            // Crossing a node costs testing its box, or those of its primitives for leaves
+            final int tests = node.isLeaf() ? ((Leaf) node).size : 2;
+            cost += tests * node.bounds.halfArea();
+        }
+        return cost / rootArea;
+    }
+
+    private void insert(final Entry entry) {
+        if (entry.box.isInfinite()) {
+            unbounded.add(entry.primitive, entry.box, entry.rank);
+            leaves.put(entry.primitive, unbounded);
+            return;
+        }
+        if (root == null) {
+            final Leaf leaf = new Leaf();
+            leaf.add(entry.primitive, entry.box, entry.rank);
+            leaf.refit();
+            leaves.put(entry.primitive, leaf);
+            root = leaf;
+            return;
+        }
+
+        Node node = root;
+        while (!node.isLeaf()) {
+            final double leftGrowth = node.left.bounds.union(entry.box).halfArea() - node.left.bounds.halfArea();
+            final double rightGrowth = node.right.bounds.union(entry.box).halfArea() - node.right.bounds.halfArea();
+            node = leftGrowth <= rightGrowth ? node.left : node.right;
+        }
+        final Leaf leaf = (Leaf) node;
+        leaf.add(entry.primitive, entry.box, entry.rank);
+        leaves.put(entry.primitive, leaf);
+        if (leaf.size <= 2 * maxPrimitivesPerLeaf) {
+            refitFrom(leaf);
+            return;
+        }
+
+        // The overflowing leaf is split into a subtree
+        final List<Entry> entries = new ArrayList<>(leaf.size);
+        for (int i = 0; i < leaf.size; i++) {
+            entries.add(new Entry(leaf.primitives[i], leaf.boxes[i], leaf.ranks[i]));
+        }
+        final Node subtree = build(entries, 0, entries.size());
+        if (leaf == root) {
+            root = subtree;
+        } else {
+            leaf.parent.replaceChild(leaf, subtree);
+            refitFrom(subtree.parent);
+        }
+    }
+
+    /**
+     * Builds the subtree of the specified entries, splitting nodes at the median of the centers of their
+     * boxes along their longest axis.
+     */
+    private Node build(final List<Entry> entries, final int from, final int to) {
+        BoundingBox centers = BoundingBox.empty();
+        for (int i = from; i < to; i++) {
+            centers = centers.union(entries.get(i).centerBox());
+        }
+        int axis = 0;
+        for (int a = 1; a < 3; a++) {
+            if (centers.extent(a) > centers.extent(axis)) {
+                axis = a;
+            }
+        }
+
+        if (to - from <= maxPrimitivesPerLeaf || !(centers.extent(axis) > 0.)) {
+            final Leaf leaf = new Leaf();
+            for (int i = from; i < to; i++) {
+                final Entry entry = entries.get(i);
+                leaf.add(entry.primitive, entry.box, entry.rank);
+                leaves.put(entry.primitive, leaf);
+            }
+            leaf.refit();
+            return leaf;
+        }
+
+        final int splitAxis = axis;
+        entries.subList(from, to).sort(Comparator.comparingDouble(entry -> entry.box.center(splitAxis)));
+        final int middle = (from + to) >>> 1;
+        final Node node = new Node();
+        node.left = build(entries, from, middle);
+        node.right = build(entries, middle, to);
+        node.left.parent = node;
+        node.right.parent = node;
+        node.refit();
+        return node;
+    }
+
+    private static void refitFrom(final Node node) {
+        for (Node current = node; current != null; current = current.parent) {
+            current.refit();
+        }
+    }
+
+    private static int rankOf(final Leaf leaf, final Primitive primitive) {
+        for (int i = 0; i < leaf.size; i++) {
+            if (leaf.primitives[i] == primitive) {
+                return leaf.ranks[i];
+            }
+        }
+        throw new IllegalArgumentException("the primitive does not belong to the leaf");
+    }
+
+    private static int push(final Node[] nodes, final double[] entries, final int size, final Node node,
+            final double entry) {
+        if (entry == Double.POSITIVE_INFINITY) {
+            return size;
+        }
+        nodes[size] = node;
+        entries[size] = entry;
+        return size + 1;
+    }
+
+    private static Primitive firstOccluder(final Leaf leaf, final Ray ray, final double maxDistance,
+            final double delta) {
+        for (int i = 0; i < leaf.size; i++) {
+            final IntersectionResult res = leaf.primitives[i].intersect(ray);
+            if (res.intersect() && res.distance() > delta && res.distance() <= maxDistance) {
+                return leaf.primitives[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A primitive, its box and its rank, while the tree is built.
+     */
+    private static final class Entry {
+
+        private final Primitive primitive;
+
+        private final BoundingBox box;
+
+        private final int rank;
+
+        private Entry(final Primitive primitive, final BoundingBox box, final int rank) {
+            this.primitive = primitive;
+            this.box = box;
+            this.rank = rank;
+        }
+
+        private BoundingBox centerBox() {
+            final Vector center = new Vector(box.center(0), box.center(1), box.center(2));
+            return new BoundingBox(center, center);
+        }
+    }
+
+    /**
+     * The stack of the nodes a ray still has to visit, and the nearest intersection it found, reused by all
+     * the rays cast from a thread.
+     */
+    private static final class Traversal {
+
+        private Node[] nodes = new Node[32];
+
+        private double[] entries = new double[32];
+
+        private final Nearest nearest = new Nearest();
+
+        private void grow() {
+            nodes = Arrays.copyOf(nodes, 2 * nodes.length);
+            entries = Arrays.copyOf(entries, 2 * entries.length);
+        }
+    }
+
+    /**
+     * The nearest intersection found so far by a ray.
+     */
+    private static final class Nearest {
+
+        private double delta;
+
+        private IntersectionResult result;
+
+        private double distance;
+
+        private int rank;
+
+        private Nearest reset(final double delta) {
+            this.delta = delta;
+            result = null;
+            distance = Double.POSITIVE_INFINITY;
+            rank = Integer.MAX_VALUE;
+            return this;
+        }
+
+        /**
+         * Returns the nearest intersection, and forgets it.
+         */
+        private IntersectionResult take() {
+            final IntersectionResult nearest = result;
+            result = null;
+            return nearest;
+        }
+
+        private void test(final Leaf leaf, final Ray ray) {
+            for (int i = 0; i < leaf.size; i++) {
+                final IntersectionResult res = leaf.primitives[i].intersect(ray);
+                if (!res.intersect() || !(res.distance() > delta)) {
+                    continue;
+                }
+                final double d = res.distance();
+                // Same choice as testing the primitives one after the other, in the order of their ranks
+                if (d < distance - delta || (Math.abs(d - distance) <= delta && leaf.ranks[i] < rank)) {
+                    result = res;
+                    distance = d;
+                    rank = leaf.ranks[i];
+                }
+            }
+        }
+    }
 }
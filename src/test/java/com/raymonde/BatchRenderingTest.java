@@ -0,0 +1,143 @@
+package com.raymonde;
+
+import com.raymonde.animation.Animation;
+import com.raymonde.animation.FrameRange;
+import com.raymonde.animation.VectorTrack;
+import com.raymonde.core.Color;
+import com.raymonde.core.Vector;
+import com.raymonde.render.Camera;
+import com.raymonde.render.DefaultRenderer;
+import com.raymonde.render.RenderingSurface;
+import com.raymonde.render.light.OmnidirectionalLight;
+import com.raymonde.render.material.ColorMaterial;
+import com.raymonde.render.material.PhongMaterial;
+import com.raymonde.render.primitive.Plane;
+import com.raymonde.render.primitive.Sphere;
+import com.raymonde.save.SceneSaver;
+import com.raymonde.scene.Scene;
+import lombok.val;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchRenderingTest {
+
+    private final Map<String, Color[]> saved = new ConcurrentHashMap<>();
+
+    private Scene scene;
+
+    @Before
+    public void setUp() {
+        scene = new Scene();
+        scene.setAmbientColor(new Color(0.1, 0.1, 0.1));
+        scene.addCamera("front", camera(new Vector(0., 0., 0.), new Vector(0., 0., -1.)));
+        scene.addCamera("side", camera(new Vector(10., 0., -12.), new Vector(-1., 0., 0.)));
+        scene.addLight("light", OmnidirectionalLight.builder()
+                .position(new Vector(0., 5., 0.))
+                .color(new Color(1., 1., 1.))
+                .attenuation(new Vector(0.01, 0., 0.))
+                .build());
+        scene.addPrimitive("back", Plane.builder()
+                .normal(new Vector(0., 0., 1.))
+                .distance(20.)
+                .material(phong(new Color(0.2, 0.8, 0.2)))
+                .build());
+        scene.addPrimitive("sphere", Sphere.builder()
+                .origin(new Vector(0., 0., -12.))
+                .radius(2.)
+                .material(phong(new Color(0.9, 0.1, 0.1)))
+                .build());
+        scene.prepare();
+    }
+
+    @Test
+    public void shouldRenderAndSaveEachFrame() throws Exception {
+        // Given
+        val animation = Animation.builder()
+                .frames(new FrameRange(0, 1))
+                .lightPositions(Collections.singletonMap("light", new VectorTrack()
+                        .addKeyframe(0, new Vector(-5., 5., 0.))
+                        .addKeyframe(1, new Vector(5., -5., 0.))))
+                .build();
+        val rendering = new FrameSequenceRendering("default", "out_%02d.png", 2);
+        rendering.setSceneSaver(recordingSaver());
+
+        // When
+        rendering.render(scene, animation, new FrameRange(0, 1));
+
+        // Then
+        assertThat(saved).containsOnlyKeys("out_00.png", "out_01.png");
+        assertThat(saved.get("out_00.png")).containsExactly(render(animation.sceneAt(scene, 0), "front"));
+        assertThat(saved.get("out_01.png")).containsExactly(render(animation.sceneAt(scene, 1), "front"));
+        assertThat(saved.get("out_00.png")).isNotEqualTo(saved.get("out_01.png"));
+    }
+
+    @Test
+    public void shouldRenderAndSaveEachCamera() throws Exception {
+        // Given
+        val rendering = new MultiCameraRendering("default", "out.png", 2);
+        rendering.setSceneSaver(recordingSaver());
+
+        // When
+        rendering.render(scene, MultiCameraRendering.selectCameras(scene, MultiCameraRendering.ALL_CAMERAS));
+
+        // Then
+        assertThat(saved).containsOnlyKeys("out_front.png", "out_side.png");
+        assertThat(saved.get("out_front.png")).containsExactly(render(scene, "front"));
+        assertThat(saved.get("out_side.png")).containsExactly(render(scene, "side"));
+    }
+
+    @Test
+    public void shouldSelectTheNamedCameras() {
+        // Expect
+        assertThat(MultiCameraRendering.selectCameras(scene, " all ")).containsExactly("front", "side");
+        assertThat(MultiCameraRendering.selectCameras(scene, "side, ,front")).containsExactly("side", "front");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownCameras() throws Exception {
+        new MultiCameraRendering("default", "out.png", 1).render(scene, Collections.singletonList("top"));
+    }
+
+    private Color[] render(final Scene scene, final String cameraName) {
+        return new DefaultRenderer().renderSceneThroughCamera(scene, scene.getCamera(cameraName)).getColors();
+    }
+
+    /**
+     * A saver that records the colors of the saved surfaces, indexed by filename.
+     */
+    private SceneSaver recordingSaver() {
+        return new SceneSaver() {
+            @Override
+            public void save(final RenderingSurface renderingSurface, final String outputFilename) {
+                saved.put(outputFilename, renderingSurface.getColors().clone());
+            }
+        };
+    }
+
+    private static Camera camera(final Vector position, final Vector direction) {
+        return Camera.builder()
+                .position(position)
+                .direction(direction)
+                .up(new Vector(0., 1., 0.))
+                .distance(1.)
+                .width(1.)
+                .height(1.)
+                .pixelWidth(24)
+                .pixelHeight(24)
+                .build();
+    }
+
+    private static PhongMaterial phong(final Color color) {
+        return PhongMaterial.builder()
+                .diffuse(0.8)
+                .specular(20.)
+                .subMaterial(ColorMaterial.builder().color(color).build())
+                .build();
+    }
+}
@@ -0,0 +1,49 @@
+package com.raymonde;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class OptionParsingTest {
+
+    @Test
+    public void shouldAcceptTheOptionsOfASingleMode() {
+        // Expect
+        options("--frames", "0-3", "--frame-threads", "2").checkModes();
+        options("--cameras", "all").checkModes();
+        options("--checkpoint", "scene.ckpt", "--progressive").checkModes();
+        options("--relight", "night.yaml").checkModes();
+    }
+
+    @Test
+    public void shouldRejectSingleImageOptionsInBatchModes() {
+        // Expect
+        assertThatThrownBy(() -> options("--frames", "0-3", "--checkpoint", "scene.ckpt").checkModes())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("--frames and --checkpoint cannot be combined");
+        assertThatThrownBy(() -> options("--cameras", "all", "--surface-file", "surface.bin").checkModes())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("--cameras and --surface-file cannot be combined");
+        assertThatThrownBy(() -> options("--relight", "night.yaml", "--progressive").checkModes())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("--relight and --progressive cannot be combined");
+    }
+
+    @Test
+    public void shouldRejectSeveralModes() {
+        // Expect
+        assertThatThrownBy(() -> options("--frames", "0-3", "--cameras", "all").checkModes())
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> options("--cameras", "all", "--relight", "night.yaml").checkModes())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static OptionParsing options(final String... options) {
+        final String[] args = new String[options.length + 3];
+        args[0] = "scene.yaml";
+        args[1] = "-o";
+        args[2] = "scene.png";
+        System.arraycopy(options, 0, args, 3, options.length);
+        return new OptionParsing(args);
+    }
+}
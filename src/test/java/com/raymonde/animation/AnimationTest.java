@@ -0,0 +1,106 @@
+package com.raymonde.animation;
+
+import com.raymonde.core.Color;
+import com.raymonde.core.Vector;
+import com.raymonde.render.Camera;
+import com.raymonde.render.DefaultRenderer;
+import com.raymonde.render.light.OmnidirectionalLight;
+import com.raymonde.render.material.ColorMaterial;
+import com.raymonde.render.material.PhongMaterial;
+import com.raymonde.render.primitive.Plane;
+import com.raymonde.render.primitive.Sphere;
+import com.raymonde.render.primitive.Triangle;
+import com.raymonde.scene.Scene;
+import lombok.val;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AnimationTest {
+
+    private final Camera camera = Camera.builder()
+            .position(new Vector(0., 0., 0.))
+            .direction(new Vector(0., 0., -1.))
+            .up(new Vector(0., 1., 0.))
+            .distance(1.)
+            .width(1.)
+            .height(1.)
+            .pixelWidth(32)
+            .pixelHeight(32)
+            .build();
+
+    @Test
+    public void shouldRenderTheFramesWithThePrimitivesAtTheirAnimatedPositions() {
+        // Given
+        val scene = scene(Vector.zero());
+        scene.prepare();
+        val original = render(scene);
+        val animation = Animation.builder()
+                .frames(new FrameRange(0, 1))
+                .primitiveTranslations(Collections.singletonMap("moving", new VectorTrack()
+                        .addKeyframe(0, new Vector(-2., 0., 0.))
+                        .addKeyframe(1, new Vector(2., 1., 0.))))
+                .build();
+
+        // When
+        val first = render(animation.sceneAt(scene, 0));
+        val second = render(animation.sceneAt(scene, 1));
+
+        // Then
+        assertThat(first).containsExactly(render(scene(new Vector(-2., 0., 0.))));
+        assertThat(second).containsExactly(render(scene(new Vector(2., 1., 0.))));
+        assertThat(first).isNotEqualTo(second);
+        assertThat(render(scene)).containsExactly(original);
+    }
+
+    private Color[] render(final Scene scene) {
+        return new DefaultRenderer().renderSceneThroughCamera(scene, camera).getColors();
+    }
+
+    /**
+     * A scene whose sphere named "moving" is translated by the specified offset.
+     */
+    private static Scene scene(final Vector offset) {
+        val scene = new Scene();
+        scene.setAmbientColor(new Color(0.1, 0.1, 0.1));
+        scene.addLight("light", OmnidirectionalLight.builder()
+                .position(new Vector(0., 5., 0.))
+                .color(new Color(1., 1., 1.))
+                .attenuation(new Vector(0.01, 0., 0.))
+                .build());
+        scene.addPrimitive("back", Plane.builder()
+                .normal(new Vector(0., 0., 1.))
+                .distance(20.)
+                .material(phong(new Color(0.2, 0.8, 0.2)))
+                .build());
+        for (int i = 0; i < 8; i++) {
+            scene.addPrimitive("still" + i, Sphere.builder()
+                    .origin(new Vector(-6. + 1.5 * i, -3., -14.))
+                    .radius(0.6)
+                    .material(phong(new Color(0.1, 0.1, 0.9)))
+                    .build());
+        }
+        scene.addPrimitive("triangle", Triangle.builder()
+                .first(new Vector(-4., 2., -15.))
+                .second(new Vector(-2., 4., -15.))
+                .third(new Vector(-1., 2., -15.))
+                .material(phong(new Color(0.9, 0.9, 0.1)))
+                .build());
+        scene.addPrimitive("moving", Sphere.builder()
+                .origin(new Vector(0., 0., -12.).add(offset))
+                .radius(2.)
+                .material(phong(new Color(0.9, 0.1, 0.1)))
+                .build());
+        return scene;
+    }
+
+    private static PhongMaterial phong(final Color color) {
+        return PhongMaterial.builder()
+                .diffuse(0.8)
+                .specular(20.)
+                .subMaterial(ColorMaterial.builder().color(color).build())
+                .build();
+    }
+}
@@ -0,0 +1,26 @@
+package com.raymonde.animation;
+
+import lombok.val;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FrameRangeTest {
+
+    @Test
+    public void shouldParseFrameRanges() {
+        // Given
+        val range = FrameRange.parse("3-7");
+        val single = FrameRange.parse("12");
+
+        // Expect
+        assertThat(range).containsExactly(3, 4, 5, 6, 7);
+        assertThat(range.size()).isEqualTo(5);
+        assertThat(single).containsExactly(12);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidFrameRange() {
+        FrameRange.parse("7-3");
+    }
+}
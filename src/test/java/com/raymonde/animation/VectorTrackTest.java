@@ -0,0 +1,47 @@
+package com.raymonde.animation;
+
+import com.raymonde.core.Vector;
+import lombok.val;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VectorTrackTest {
+
+    @Test
+    public void emptyTrackShouldHaveNoValue() {
+        // Given
+        val track = new VectorTrack();
+
+        // Expect
+        assertThat(track.isEmpty()).isTrue();
+        assertThat(track.valueAt(3)).isNull();
+    }
+
+    @Test
+    public void shouldInterpolateBetweenKeyframes() {
+        // Given
+        val track = new VectorTrack()
+                .addKeyframe(0, new Vector(0., 0., 0.))
+                .addKeyframe(10, new Vector(10., -20., 5.));
+
+        // When
+        val value = track.valueAt(5);
+
+        // Then
+        assertThat(value).isEqualTo(new Vector(5., -10., 2.5));
+    }
+
+    @Test
+    public void shouldHoldFirstAndLastKeyframesOutsideOfTheTrack() {
+        // Given
+        val track = new VectorTrack()
+                .addKeyframe(2, new Vector(1., 1., 1.))
+                .addKeyframe(4, new Vector(3., 3., 3.));
+
+        // Expect
+        assertThat(track.valueAt(0)).isEqualTo(new Vector(1., 1., 1.));
+        assertThat(track.valueAt(4)).isEqualTo(new Vector(3., 3., 3.));
+        assertThat(track.valueAt(12)).isEqualTo(new Vector(3., 3., 3.));
+    }
+}
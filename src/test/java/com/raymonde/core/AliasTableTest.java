@@ -0,0 +1,56 @@
+package com.raymonde.core;
+
+import lombok.val;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Offset.offset;
+
+public class AliasTableTest {
+
+    private static final int SAMPLES = 100_000;
+
+    @Test
+    public void shouldSampleIndexesProportionallyToTheirWeights() {
+        // Given
+        val table = new AliasTable(new double[]{1., 0., 3., 4.});
+
+        // When
+        val counts = new int[table.size()];
+        for (int i = 0; i < SAMPLES; i++) {
+            counts[table.sample((i + 0.5) / SAMPLES)]++;
+        }
+
+        // Then
+        assertThat(counts[0] / (double) SAMPLES).isCloseTo(0.125, offset(0.001));
+        assertThat(counts[1]).isZero();
+        assertThat(counts[2] / (double) SAMPLES).isCloseTo(0.375, offset(0.001));
+        assertThat(counts[3] / (double) SAMPLES).isCloseTo(0.5, offset(0.001));
+    }
+
+    @Test
+    public void shouldReturnTheNormalizedProbabilities() {
+        // Given
+        val table = new AliasTable(new double[]{1., 3.});
+
+        // Expect
+        assertThat(table.probability(0)).isCloseTo(0.25, offset(1e-12));
+        assertThat(table.probability(1)).isCloseTo(0.75, offset(1e-12));
+    }
+
+    @Test
+    public void shouldSampleUniformlyWhenEveryWeightIsZero() {
+        // Given
+        val table = new AliasTable(new double[]{0., 0.});
+
+        // Expect
+        assertThat(table.probability(0)).isEqualTo(0.5);
+        assertThat(table.sample(0.25)).isEqualTo(0);
+        assertThat(table.sample(0.75)).isEqualTo(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNegativeWeights() {
+        new AliasTable(new double[]{1., -1.});
+    }
+}
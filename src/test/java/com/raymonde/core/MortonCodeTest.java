@@ -0,0 +1,39 @@
+package com.raymonde.core;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MortonCodeTest {
+
+    @Test
+    public void shouldInterleaveTheBitsOfEachAxis() {
+        // Expect
+        assertThat(MortonCode.encode(1, 0, 0)).isEqualTo(0b001);
+        assertThat(MortonCode.encode(0, 1, 0)).isEqualTo(0b010);
+        assertThat(MortonCode.encode(0, 0, 1)).isEqualTo(0b100);
+        assertThat(MortonCode.encode(3, 0, 2)).isEqualTo(0b101_001);
+    }
+
+    @Test
+    public void shouldUseThirtyBitsForTheLastCell() {
+        // Expect
+        assertThat(MortonCode.encode(1023, 1023, 1023)).isEqualTo((1 << 30) - 1);
+    }
+
+    @Test
+    public void shouldClampPointsOutsideTheBounds() {
+        // Given
+        final Vector min = new Vector(0., 0., 0.);
+        final Vector max = new Vector(1., 1., 1.);
+
+        // Expect
+        assertThat(MortonCode.encode(new Vector(-5., 0., 0.), min, max)).isEqualTo(0);
+        assertThat(MortonCode.encode(new Vector(5., 5., 5.), min, max)).isEqualTo((1 << 30) - 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectOutOfRangeCoordinates() {
+        MortonCode.encode(1024, 0, 0);
+    }
+}
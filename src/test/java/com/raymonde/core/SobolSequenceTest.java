@@ -0,0 +1,40 @@
+package com.raymonde.core;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SobolSequenceTest {
+
+    @Test
+    public void shouldGenerateTheFirstPointsOfTheSequence() {
+        // Given
+        final double[] point = new double[2];
+
+        // Expect
+        SobolSequence.sample(0, 0L, point);
+        assertThat(point).containsExactly(0., 0.);
+        SobolSequence.sample(1, 0L, point);
+        assertThat(point).containsExactly(0.5, 0.5);
+        SobolSequence.sample(2, 0L, point);
+        assertThat(point).containsExactly(0.25, 0.75);
+        SobolSequence.sample(3, 0L, point);
+        assertThat(point).containsExactly(0.75, 0.25);
+    }
+
+    @Test
+    public void shouldStratifyScrambledPoints() {
+        // Given
+        final double[] point = new double[2];
+        final boolean[] occupied = new boolean[16];
+
+        // When
+        for (int i = 0; i < 16; i++) {
+            SobolSequence.sample(i, 0x9E3779B97F4A7C15L, point);
+            occupied[(int) (point[1] * 4) * 4 + (int) (point[0] * 4)] = true;
+        }
+
+        // Then
+        assertThat(occupied).doesNotContain(false);
+    }
+}
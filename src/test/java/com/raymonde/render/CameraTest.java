@@ -0,0 +1,42 @@
+package com.raymonde.render;
+
+import com.raymonde.core.Vector;
+import lombok.val;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Offset.offset;
+
+public class CameraTest {
+
+    private final Camera camera = Camera.builder()
+            .position(new Vector(1., 2., 3.))
+            .direction(new Vector(0.2, -0.1, -1.))
+            .up(new Vector(0., 1., 0.))
+            .distance(1.5)
+            .width(2.)
+            .height(1.)
+            .pixelWidth(64)
+            .pixelHeight(32)
+            .build();
+
+    @Test
+    public void shouldProjectPointsOntoThePixelsTheirRaysPassThrough() {
+        // Given
+        val ray = camera.rayThroughPixel(new Pixel(10, 20), 0.25, -0.3);
+        val point = ray.origin().add(ray.direction().multiply(42.));
+
+        // When
+        val projected = camera.project(point);
+
+        // Then
+        assertThat(projected.x()).isCloseTo(10.25, offset(1e-9));
+        assertThat(projected.y()).isCloseTo(19.7, offset(1e-9));
+    }
+
+    @Test
+    public void shouldNotProjectPointsBehindTheCamera() {
+        // Expect
+        assertThat(camera.project(new Vector(1., 2., 10.))).isNull();
+    }
+}
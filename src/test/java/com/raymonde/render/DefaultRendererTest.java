@@ -0,0 +1,115 @@
+package com.raymonde.render;
+
+import com.raymonde.core.Color;
+import com.raymonde.core.Vector;
+import com.raymonde.render.light.OmnidirectionalLight;
+import com.raymonde.render.material.ColorMaterial;
+import com.raymonde.render.material.PhongMaterial;
+import com.raymonde.render.material.ReflectiveMaterial;
+import com.raymonde.render.primitive.Plane;
+import com.raymonde.render.primitive.Sphere;
+import com.raymonde.scene.Scene;
+import lombok.val;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DefaultRendererTest {
+
+    private final Camera camera = Camera.builder()
+            .position(new Vector(0., 0., 0.))
+            .direction(new Vector(0., 0., -1.))
+            .up(new Vector(0., 1., 0.))
+            .distance(1.)
+            .width(1.)
+            .height(1.)
+            .pixelWidth(31)
+            .pixelHeight(17)
+            .build();
+
+    @Test
+    public void shouldRelightTheSceneAsARenderingWithTheNewLighting() {
+        // Given
+        val scene = scene(new Vector(0., 5., 0.), new Color(1., 1., 1.), new Color(0.1, 0.1, 0.1));
+        val lighting = scene(new Vector(3., -2., 1.), new Color(1., 0.5, 0.2), new Color(0., 0.05, 0.1));
+        val renderer = new DefaultRenderer();
+        val gBuffer = new GBuffer(camera);
+        renderer.renderSceneOnto(scene, camera, camera.createRenderingSurface(), gBuffer);
+
+        // When
+        val relit = renderer.relight(scene.withLighting(lighting), gBuffer, camera.createRenderingSurface());
+
+        // Then
+        val expected = new DefaultRenderer().renderSceneThroughCamera(lighting, camera);
+        assertThat(relit.getColors()).containsExactly(expected.getColors());
+    }
+
+    @Test
+    public void shouldCacheThePrimaryIntersections() {
+        // Given
+        val scene = scene(new Vector(0., 5., 0.), new Color(1., 1., 1.), new Color(0.1, 0.1, 0.1));
+        val gBuffer = new GBuffer(camera);
+
+        // When
+        new DefaultRenderer().renderSceneOnto(scene, camera, camera.createRenderingSurface(), gBuffer);
+
+        // Then
+        val center = new Pixel(15, 8);
+        val expected = scene.nearestIntersection(camera.rayThroughPixel(center));
+        val hit = gBuffer.hit(center);
+        assertThat(hit.primitive()).isSameAs(expected.primitive());
+        assertThat(hit.distance()).isEqualTo(expected.distance());
+        assertThat(hit.getIntersectionPosition()).isEqualTo(expected.getIntersectionPosition());
+        assertThat(hit.normal()).isEqualTo(expected.normal());
+        assertThat(hit.getIncomingRay().direction()).isEqualTo(expected.getIncomingRay().direction());
+    }
+
+    @Test
+    public void shouldCacheMissedPrimaryRays() {
+        // Given
+        val scene = new Scene();
+        scene.setAmbientColor(Color.black());
+        val gBuffer = new GBuffer(camera);
+
+        // When
+        new DefaultRenderer().renderSceneOnto(scene, camera, camera.createRenderingSurface(), gBuffer);
+
+        // Then
+        assertThat(gBuffer.hit(new Pixel(3, 4))).isNull();
+    }
+
+    /**
+     * The same primitives, built anew, lit by a single light.
+     */
+    private static Scene scene(final Vector lightPosition, final Color lightColor, final Color ambientColor) {
+        val scene = new Scene();
+        scene.setAmbientColor(ambientColor);
+        scene.addLight("light", OmnidirectionalLight.builder()
+                .position(lightPosition)
+                .color(lightColor)
+                .attenuation(new Vector(0.01, 0., 0.))
+                .build());
+        scene.addPrimitive("back", Plane.builder()
+                .normal(new Vector(0., 0., 1.))
+                .distance(20.)
+                .material(ReflectiveMaterial.builder()
+                        .reflectivity(0.3)
+                        .subMaterial(PhongMaterial.builder()
+                                .diffuse(0.6)
+                                .specular(10.)
+                                .subMaterial(ColorMaterial.builder().color(new Color(0.2, 0.8, 0.2)).build())
+                                .build())
+                        .build())
+                .build());
+        scene.addPrimitive("sphere", Sphere.builder()
+                .origin(new Vector(0., 0., -8.))
+                .radius(2.)
+                .material(PhongMaterial.builder()
+                        .diffuse(0.8)
+                        .specular(20.)
+                        .subMaterial(ColorMaterial.builder().color(new Color(0.9, 0.1, 0.1)).build())
+                        .build())
+                .build());
+        return scene;
+    }
+}
@@ -0,0 +1,92 @@
+package com.raymonde.render;
+
+import com.raymonde.core.Color;
+import com.raymonde.core.Vector;
+import lombok.val;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.IntToDoubleFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Offset.offset;
+
+public class DenoiserTest {
+
+    private static final int WIDTH = 64;
+
+    private static final int HEIGHT = 48;
+
+    @Test
+    public void shouldSmoothTheNoiseOfAFlatSurface() {
+        // Given
+        val buffer = noisyBuffer(x -> 0.5, x -> new Vector(0., 0., 1.));
+
+        // When
+        val denoised = Denoiser.builder().build().denoise(buffer);
+
+        // Then
+        assertThat(standardDeviation(denoised)).isLessThan(standardDeviation(buffer) / 5.);
+        assertThat(mean(denoised)).isCloseTo(0.5, offset(0.02));
+    }
+
+    @Test
+    public void shouldKeepEdgesBetweenSurfacesSharp() {
+        // Given
+        val buffer = noisyBuffer(
+                x -> x < WIDTH / 2 ? 0.2 : 0.8,
+                x -> x < WIDTH / 2 ? new Vector(0., 0., 1.) : new Vector(1., 0., 0.));
+
+        // When
+        val denoised = Denoiser.builder().build().denoise(buffer);
+
+        // Then
+        assertThat(columnMean(denoised, WIDTH / 2 - 1)).isCloseTo(0.2, offset(0.03));
+        assertThat(columnMean(denoised, WIDTH / 2)).isCloseTo(0.8, offset(0.03));
+    }
+
+    /**
+     * A buffer whose pixels hold a single noisy sample, the expected value and the normal depending on
+     * the abscissa.
+     */
+    private static FrameBuffer noisyBuffer(final IntToDoubleFunction value,
+            final IntFunction<Vector> normal) {
+        val random = new Random(1L);
+        val buffer = new FrameBuffer(WIDTH, HEIGHT);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                final int index = y * WIDTH + x;
+                final double noisy = value.applyAsDouble(x) * 2. * random.nextDouble();
+                buffer.accumulate(index, noisy, noisy, noisy, 1);
+                buffer.getAuxiliaryBuffers().accumulate(index, normal.apply(x), 10., new Color(0.5, 0.5, 0.5));
+            }
+        }
+        return buffer;
+    }
+
+    private static double mean(final FrameBuffer buffer) {
+        double sum = 0.;
+        for (int i = 0; i < WIDTH * HEIGHT; i++) {
+            sum += buffer.red(i);
+        }
+        return sum / (WIDTH * HEIGHT);
+    }
+
+    private static double columnMean(final FrameBuffer buffer, final int x) {
+        double sum = 0.;
+        for (int y = 0; y < HEIGHT; y++) {
+            sum += buffer.red(y * WIDTH + x);
+        }
+        return sum / HEIGHT;
+    }
+
+    private static double standardDeviation(final FrameBuffer buffer) {
+        final double mean = mean(buffer);
+        double sum = 0.;
+        for (int i = 0; i < WIDTH * HEIGHT; i++) {
+            sum += (buffer.red(i) - mean) * (buffer.red(i) - mean);
+        }
+        return Math.sqrt(sum / (WIDTH * HEIGHT));
+    }
+}
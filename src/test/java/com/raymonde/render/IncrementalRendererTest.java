@@ -0,0 +1,163 @@
+package com.raymonde.render;
+
+import com.raymonde.core.Color;
+import com.raymonde.core.Vector;
+import com.raymonde.render.light.OmnidirectionalLight;
+import com.raymonde.render.material.ColorMaterial;
+import com.raymonde.render.material.PhongMaterial;
+import com.raymonde.render.primitive.Plane;
+import com.raymonde.render.primitive.Primitive;
+import com.raymonde.render.primitive.Sphere;
+import com.raymonde.scene.Scene;
+import lombok.val;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IncrementalRendererTest {
+
+    private final Camera camera = Camera.builder()
+            .position(new Vector(0., 0., 0.))
+            .direction(new Vector(0., 0., -1.))
+            .up(new Vector(0., 1., 0.))
+            .distance(1.)
+            .width(1.)
+            .height(1.)
+            .pixelWidth(48)
+            .pixelHeight(48)
+            .build();
+
+    private Scene scene;
+
+    private IncrementalRenderer renderer;
+
+    @Before
+    public void setUp() {
+        scene = new Scene();
+        scene.setAmbientColor(new Color(0.1, 0.1, 0.1));
+        scene.addLight("light", light(new Vector(0., 5., 0.)));
+        scene.addPrimitive("back", Plane.builder()
+                .normal(new Vector(0., 0., 1.))
+                .distance(20.)
+                .material(phong(new Color(0.2, 0.8, 0.2)))
+                .build());
+        scene.addPrimitive("sphere", sphere(new Vector(0., 0., -12.)));
+        renderer = new IncrementalRenderer(scene, camera);
+        renderer.render();
+    }
+
+    @Test
+    public void shouldOnlyRenderThePixelsAffectedByAMovedPrimitive() {
+        // Given
+        scene.addPrimitive("sphere", sphere(new Vector(1.5, 0.5, -12.)));
+
+        // When
+        val surface = renderer.render();
+
+        // Then
+        assertThat(surface.getColors()).containsExactly(fullRendering());
+        assertThat(renderer.getRenderedPixels()).isGreaterThan(0).isLessThan(48 * 48);
+    }
+
+    @Test
+    public void shouldRenderAgainThePixelsLitByAMovedLight() {
+        // Given
+        scene.addLight("light", light(new Vector(3., -2., 4.)));
+
+        // When
+        val surface = renderer.render();
+
+        // Then
+        assertThat(surface.getColors()).containsExactly(fullRendering());
+    }
+
+    @Test
+    public void shouldRenderAgainThePixelsOfRemovedAndAddedPrimitives() {
+        // Given
+        scene.removePrimitive("sphere");
+        scene.addPrimitive("small", Sphere.builder()
+                .origin(new Vector(-1., -1., -8.))
+                .radius(0.5)
+                .material(phong(new Color(0.1, 0.1, 0.9)))
+                .build());
+
+        // When
+        val surface = renderer.render();
+
+        // Then
+        assertThat(surface.getColors()).containsExactly(fullRendering());
+    }
+
+    @Test
+    public void shouldRenderAgainThePixelsOfPrimitivesMovedAtOnce() {
+        // Given
+        val moved = new LinkedHashMap<String, Primitive>();
+        moved.put("sphere", sphere(new Vector(-1., -0.5, -11.)));
+        moved.put("other", sphere(new Vector(2., 1., -14.)));
+
+        // When
+        scene.replacePrimitives(moved);
+        val surface = renderer.render();
+
+        // Then
+        assertThat(surface.getColors()).containsExactly(fullRendering());
+    }
+
+    @Test
+    public void shouldGatherTheIndirectLightAgainWhenALightMoves() {
+        // Given
+        scene.setIrradianceCache(IrradianceCache.builder().samples(16).accuracy(0.3).minSpacing(1.).maxSpacing(100.)
+                .build());
+        scene.setAmbientColor(Color.black());
+        renderer = new IncrementalRenderer(scene, camera);
+        renderer.render();
+        assertThat(scene.getIrradianceCache().size()).isPositive();
+
+        // When
+        scene.addLight("light", light(new Vector(0., 1000., 0.)));
+        val surface = renderer.render();
+
+        // Then
+        assertThat(surface.getColors()).containsOnly(Color.black());
+    }
+
+    @Test
+    public void shouldNotRenderAnythingWithoutChanges() {
+        // When
+        renderer.render();
+
+        // Then
+        assertThat(renderer.getRenderedPixels()).isZero();
+    }
+
+    private Color[] fullRendering() {
+        return new DefaultRenderer().renderSceneThroughCamera(scene, camera).getColors();
+    }
+
+    private static OmnidirectionalLight light(final Vector position) {
+        return OmnidirectionalLight.builder()
+                .position(position)
+                .color(new Color(1., 1., 1.))
+                .attenuation(new Vector(0.01, 0., 0.))
+                .build();
+    }
+
+    private static Sphere sphere(final Vector origin) {
+        return Sphere.builder()
+                .origin(origin)
+                .radius(2.)
+                .material(phong(new Color(0.9, 0.1, 0.1)))
+                .build();
+    }
+
+    private static PhongMaterial phong(final Color color) {
+        return PhongMaterial.builder()
+                .diffuse(0.8)
+                .specular(20.)
+                .subMaterial(ColorMaterial.builder().color(color).build())
+                .build();
+    }
+}
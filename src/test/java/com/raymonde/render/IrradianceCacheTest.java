@@ -0,0 +1,114 @@
+package com.raymonde.render;
+
+import com.raymonde.core.Color;
+import com.raymonde.core.Vector;
+import com.raymonde.render.material.ColorMaterial;
+import com.raymonde.render.material.PhongMaterial;
+import com.raymonde.render.primitive.Plane;
+import com.raymonde.scene.Scene;
+import lombok.val;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Offset.offset;
+
+public class IrradianceCacheTest {
+
+    private static final double DELTA = 0.01;
+
+    private final Vector up = new Vector(0., 1., 0.);
+
+    private Scene scene;
+
+    private IrradianceCache cache;
+
+    @Before
+    public void setUp() {
+        scene = new Scene();
+        // A grey ceiling covering the whole upper hemisphere
+        scene.addPrimitive("ceiling", Plane.builder()
+                .normal(new Vector(0., -1., 0.))
+                .distance(10.)
+                .material(ColorMaterial.builder().color(new Color(0.5, 0.5, 0.5)).build())
+                .build());
+        cache = IrradianceCache.builder().samples(16).accuracy(0.3).minSpacing(1.).maxSpacing(100.).build();
+    }
+
+    @Test
+    public void shouldGatherTheColorSeenInTheHemisphere() {
+        // When
+        val irradiance = cache.irradianceAt(new DefaultRenderer(), scene, Vector.zero(), up, new RenderingContext(0, 1.));
+
+        // Then
+        assertThat(irradiance.r()).isCloseTo(0.5, offset(DELTA));
+        assertThat(irradiance.g()).isCloseTo(0.5, offset(DELTA));
+        assertThat(irradiance.b()).isCloseTo(0.5, offset(DELTA));
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotGatherTheAmbientTerm() {
+        // Given
+        val ambientOnly = new Scene();
+        ambientOnly.setAmbientColor(new Color(0.3, 0.3, 0.3));
+        ambientOnly.addPrimitive("ceiling", Plane.builder()
+                .normal(new Vector(0., -1., 0.))
+                .distance(10.)
+                .material(PhongMaterial.builder()
+                        .diffuse(0.8)
+                        .specular(20.)
+                        .subMaterial(ColorMaterial.builder().color(new Color(0.5, 0.5, 0.5)).build())
+                        .build())
+                .build());
+
+        // When
+        val irradiance = cache.irradianceAt(new DefaultRenderer(), ambientOnly, Vector.zero(), up,
+                new RenderingContext(0, 1.));
+
+        // Then
+        assertThat(irradiance).isEqualTo(Color.black());
+    }
+
+    @Test
+    public void shouldInterpolateNearbyPoints() {
+        // Given
+        cache.irradianceAt(new DefaultRenderer(), scene, Vector.zero(), up, new RenderingContext(0, 1.));
+
+        // When
+        val irradiance = cache.irradianceAt(new DefaultRenderer(), scene, new Vector(0.5, 0., 0.), up,
+                new RenderingContext(0, 1.));
+
+        // Then
+        assertThat(irradiance.r()).isCloseTo(0.5, offset(DELTA));
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldComputeNewRecordsFarAway() {
+        // Given
+        cache.irradianceAt(new DefaultRenderer(), scene, Vector.zero(), up, new RenderingContext(0, 1.));
+
+        // When
+        cache.irradianceAt(new DefaultRenderer(), scene, new Vector(500., 0., -300.), up, new RenderingContext(0, 1.));
+        cache.irradianceAt(new DefaultRenderer(), scene, new Vector(-200., 0., 100.), up, new RenderingContext(0, 1.));
+
+        // Then
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(cache.emptyCopy().size()).isZero();
+    }
+
+    @Test
+    public void shouldNotUseRecordsOfOpposedNormals() {
+        // Given
+        cache.irradianceAt(new DefaultRenderer(), scene, Vector.zero(), up, new RenderingContext(0, 1.));
+
+        // When
+        val irradiance = cache.irradianceAt(new DefaultRenderer(), scene, Vector.zero(), up.opposite(),
+                new RenderingContext(0, 1.));
+
+        // Then
+        assertThat(irradiance.r()).isCloseTo(0., offset(DELTA));
+        assertThat(cache.size()).isEqualTo(2);
+    }
+}
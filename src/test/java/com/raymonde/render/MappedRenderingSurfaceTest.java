@@ -0,0 +1,92 @@
+package com.raymonde.render;
+
+import com.raymonde.core.Color;
+import com.raymonde.core.Vector;
+import com.raymonde.render.material.ColorMaterial;
+import com.raymonde.render.primitive.Sphere;
+import com.raymonde.scene.Scene;
+import lombok.val;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedRenderingSurfaceTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldStoreTheColorsInTheFile() throws IOException {
+        // Given
+        val file = folder.newFile().toPath();
+        val color = new Color(0.2, 0.4, 0.6);
+
+        // When
+        try (MappedRenderingSurface surface = new MappedRenderingSurface(file, 3, 2)) {
+            surface.setPixelColor(new Pixel(1, 1), color);
+
+            // Then
+            assertThat(surface.getPixelColor(new Pixel(1, 1))).isEqualTo(color);
+            assertThat(surface.getPixelColor(new Pixel(0, 0))).isNull();
+            val row = new int[3];
+            surface.copyRow(1, row);
+            assertThat(row).containsExactly(Color.black().rgb(), color.rgb(), Color.black().rgb());
+        }
+        assertThat(Files.size(file)).isEqualTo(4 * 3 * 2);
+    }
+
+    @Test
+    public void shouldNotifyCompletedRows() throws IOException {
+        try (MappedRenderingSurface surface = new MappedRenderingSurface(folder.newFile().toPath(), 2, 2)) {
+            // Given
+            val rows = new ArrayList<Integer>();
+            surface.setRowListener((s, y) -> rows.add(y));
+
+            // When
+            surface.setPixelColor(new Pixel(0, 1), Color.black());
+            surface.setPixelColor(new Pixel(0, 1), Color.black());
+            surface.setPixelColor(new Pixel(1, 1), Color.black());
+            surface.setPixelColor(new Pixel(0, 0), Color.black());
+
+            // Then
+            assertThat(rows).containsExactly(1);
+        }
+    }
+
+    @Test
+    public void shouldBeRenderedOnto() throws IOException {
+        // Given
+        val scene = new Scene();
+        scene.setAmbientColor(Color.black());
+        scene.addPrimitive("sphere", Sphere.builder()
+                .origin(new Vector(0., 0., -5.))
+                .radius(2.)
+                .material(ColorMaterial.builder().color(new Color(0.9, 0.3, 0.1)).build())
+                .build());
+        val camera = Camera.builder()
+                .position(new Vector(0., 0., 0.))
+                .direction(new Vector(0., 0., -1.))
+                .up(new Vector(0., 1., 0.))
+                .distance(1.)
+                .width(1.)
+                .height(1.)
+                .pixelWidth(23)
+                .pixelHeight(17)
+                .build();
+        val renderer = new WavefrontRenderer(8, 8, new RussianRoulette(RussianRoulette.DEFAULT_THRESHOLD));
+
+        try (MappedRenderingSurface surface = new MappedRenderingSurface(folder.newFile().toPath(), 23, 17)) {
+            // When
+            renderer.renderSceneOnto(scene, camera, surface);
+
+            // Then
+            assertThat(surface.getColors()).containsExactly(renderer.renderSceneThroughCamera(scene, camera).getColors());
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.raymonde.render;
+
+import com.raymonde.core.Color;
+import com.raymonde.core.Vector;
+import com.raymonde.render.light.OmnidirectionalLight;
+import com.raymonde.render.material.ColorMaterial;
+import com.raymonde.render.material.PhongMaterial;
+import com.raymonde.render.primitive.Plane;
+import com.raymonde.scene.Scene;
+import lombok.val;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.data.Offset.offset;
+
+public class PathTracingRendererTest {
+
+    private static final byte[] SOURCE = "scene".getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final Camera camera = Camera.builder()
+            .position(new Vector(0., 0., 0.))
+            .direction(new Vector(0., 0., -1.))
+            .up(new Vector(0., 1., 0.))
+            .distance(1.)
+            .width(1.)
+            .height(1.)
+            .pixelWidth(21)
+            .pixelHeight(13)
+            .build();
+
+    @Test
+    public void shouldRenderTheSameImageWithTheSameSeed() {
+        // Given
+        val scene = scene();
+        val settings = PathTracingSettings.builder().samples(4).seed(42L).build();
+
+        // When
+        val first = new PathTracingRenderer(settings).renderSceneThroughCamera(scene, camera).getColors();
+        val second = new PathTracingRenderer(settings).renderSceneThroughCamera(scene, camera).getColors();
+
+        // Then
+        assertThat(second).containsExactly(first);
+    }
+
+    @Test
+    public void shouldRenderTilesStraightOntoAMappedSurface() throws IOException {
+        // Given
+        val scene = scene();
+        val settings = PathTracingSettings.builder().samples(4).seed(42L).build();
+        val expected = new PathTracingRenderer(settings).renderSceneThroughCamera(scene, camera).getColors();
+
+        try (MappedRenderingSurface surface = new MappedRenderingSurface(folder.newFile().toPath(),
+                camera.getPixelWidth(), camera.getPixelHeight())) {
+            // When
+            new PathTracingRenderer(settings).renderSceneOnto(scene, camera, surface);
+
+            // Then
+            assertThat(surface.getColors()).containsExactly(expected);
+        }
+    }
+
+    @Test
+    public void shouldAddTheLightBouncedBetweenDiffuseSurfaces() {
+        // Given
+        val scene = scene();
+        val settings = PathTracingSettings.builder().samples(64).build();
+
+        // When
+        val direct = new DefaultRenderer().renderSceneThroughCamera(scene, camera).getColors();
+        val global = new PathTracingRenderer(settings).renderToFrameBuffer(scene, camera);
+
+        // Then
+        final int center = 6 * 21 + 10;
+        assertThat(global.red(center)).isGreaterThan(direct[center].r() + 0.02);
+        assertThat(global.samples(center)).isEqualTo(64);
+    }
+
+    @Test
+    public void shouldNotifyTheListenerAfterEachPass() {
+        // Given
+        val scene = scene();
+        val renderer = new PathTracingRenderer(PathTracingSettings.builder().samples(6).passes(3).build());
+        val samples = new ArrayList<Integer>();
+        renderer.setProgressListener((buffer, pass, passes) -> samples.add(buffer.samples(0)));
+
+        // When
+        renderer.renderSceneThroughCamera(scene, camera);
+
+        // Then
+        assertThat(samples).containsExactly(2, 4, 6);
+    }
+
+    @Test
+    public void shouldResumeAnInterruptedRenderingFromItsCheckpoint() throws IOException {
+        // Given
+        val scene = scene();
+        val settings = PathTracingSettings.builder().samples(6).passes(3).seed(7L).build();
+        val expected = new PathTracingRenderer(settings).renderToFrameBuffer(scene, camera);
+        val file = folder.getRoot().toPath().resolve("checkpoint");
+
+        val interrupted = new PathTracingRenderer(settings);
+        interrupted.setCheckpointFile(file, SOURCE);
+        interrupted.setProgressListener((buffer, pass, passes) -> {
+            if (pass == 2) {
+                throw new IllegalStateException("killed");
+            }
+        });
+        assertThatThrownBy(() -> interrupted.renderToFrameBuffer(scene, camera))
+                .isInstanceOf(IllegalStateException.class);
+
+        // When
+        val resumed = new PathTracingRenderer(settings);
+        resumed.setCheckpointFile(file, SOURCE);
+        val actual = resumed.renderToFrameBuffer(scene, camera);
+
+        // Then
+        for (int i = 0; i < 21 * 13; i++) {
+            assertThat(actual.red(i)).isEqualTo(expected.red(i));
+            assertThat(actual.green(i)).isEqualTo(expected.green(i));
+            assertThat(actual.blue(i)).isEqualTo(expected.blue(i));
+            assertThat(actual.samples(i)).isEqualTo(6);
+        }
+        assertThat(Files.exists(file)).isFalse();
+    }
+
+    @Test
+    public void shouldNotResumeTheCheckpointOfAnotherScene() throws IOException {
+        // Given
+        val settings = PathTracingSettings.builder().samples(6).passes(3).seed(7L).build();
+        val file = folder.getRoot().toPath().resolve("checkpoint");
+        val interrupted = new PathTracingRenderer(settings);
+        interrupted.setCheckpointFile(file, SOURCE);
+        interrupted.setProgressListener((buffer, pass, passes) -> {
+            if (pass == 2) {
+                throw new IllegalStateException("killed");
+            }
+        });
+        assertThatThrownBy(() -> interrupted.renderToFrameBuffer(scene(), camera))
+                .isInstanceOf(IllegalStateException.class);
+
+        // The edited scene samples one of its two lights at each hit
+        val edited = scene();
+        edited.addLight("other", OmnidirectionalLight.builder()
+                .position(new Vector(2., 2., 0.))
+                .color(new Color(0., 0., 1.))
+                .attenuation(new Vector(0.01, 0., 0.))
+                .build());
+        edited.setLightSamples(1);
+        val expected = new PathTracingRenderer(settings).renderToFrameBuffer(edited, camera);
+
+        // When
+        val resumed = new PathTracingRenderer(settings);
+        resumed.setCheckpointFile(file, "edited scene".getBytes(StandardCharsets.UTF_8));
+        val actual = resumed.renderToFrameBuffer(edited, camera);
+
+        // Then
+        for (int i = 0; i < 21 * 13; i++) {
+            assertThat(actual.red(i)).isEqualTo(expected.red(i));
+            assertThat(actual.blue(i)).isEqualTo(expected.blue(i));
+        }
+    }
+
+    @Test
+    public void shouldAverageToTheColorOfFlatSurfaces() {
+        // Given
+        val scene = new Scene();
+        scene.setAmbientColor(Color.black());
+        scene.addPrimitive("wall", Plane.builder()
+                .normal(new Vector(0., 0., 1.))
+                .distance(10.)
+                .material(ColorMaterial.builder().color(new Color(0.2, 0.4, 0.6)).build())
+                .build());
+
+        // When
+        val buffer = new PathTracingRenderer(PathTracingSettings.builder().samples(8).build())
+                .renderToFrameBuffer(scene, camera);
+
+        // Then
+        assertThat(buffer.red(0)).isCloseTo(0.2, offset(0.01));
+        assertThat(buffer.green(0)).isCloseTo(0.4, offset(0.01));
+        assertThat(buffer.blue(0)).isCloseTo(0.6, offset(0.01));
+    }
+
+    /**
+     * A white diffuse wall facing the camera, lit by a light behind the camera, in front of a red wall
+     * behind the camera that only receives light from the white wall.
+     */
+    private static Scene scene() {
+        val scene = new Scene();
+        scene.setAmbientColor(Color.black());
+        scene.addLight("light", OmnidirectionalLight.builder()
+                .position(new Vector(0., 0., 4.))
+                .color(new Color(1., 1., 1.))
+                .attenuation(new Vector(0.01, 0., 0.))
+                .build());
+        scene.addPrimitive("front", Plane.builder()
+                .normal(new Vector(0., 0., 1.))
+                .distance(5.)
+                .material(PhongMaterial.builder()
+                        .diffuse(0.8)
+                        .specular(20.)
+                        .subMaterial(ColorMaterial.builder().color(new Color(0.9, 0.9, 0.9)).build())
+                        .build())
+                .build());
+        scene.addPrimitive("back", Plane.builder()
+                .normal(new Vector(0., 0., -1.))
+                .distance(5.)
+                .material(PhongMaterial.builder()
+                        .diffuse(0.8)
+                        .specular(20.)
+                        .subMaterial(ColorMaterial.builder().color(new Color(0.9, 0.1, 0.1)).build())
+                        .build())
+                .build());
+        return scene;
+    }
+}
@@ -0,0 +1,82 @@
+package com.raymonde.render;
+
+import com.raymonde.core.Vector;
+import lombok.val;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Offset.offset;
+
+public class PhotonMapTest {
+
+    private static final Vector UP = new Vector(0., 1., 0.);
+
+    private static final Vector DOWN = new Vector(0., -1., 0.);
+
+    @Test
+    public void shouldEstimateTheDensityOfTheNearestPhotons() {
+        // Given
+        val photons = new PhotonBuffer(0);
+        val random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            val position = new Vector(random.nextDouble() * 100., 0., random.nextDouble() * 100.);
+            photons.add(position, DOWN, 0.1, 0.2, 0.);
+        }
+        val map = new PhotonMap(photons, 8, 10.);
+        val point = new Vector(50., 0., 50.);
+
+        // When
+        val irradiance = map.irradianceAt(point, UP);
+
+        // Then
+        val expected = bruteForce(photons, point, 8);
+        assertThat(irradiance.r()).isCloseTo(clamp(0.1 * 8 / (Math.PI * expected)), offset(0.005));
+        assertThat(irradiance.g()).isCloseTo(clamp(0.2 * 8 / (Math.PI * expected)), offset(0.005));
+        assertThat(irradiance.b()).isZero();
+    }
+
+    @Test
+    public void shouldIgnorePhotonsBeyondTheMaximumRadius() {
+        // Given
+        val photons = new PhotonBuffer(0);
+        photons.add(new Vector(20., 0., 0.), DOWN, 1., 1., 1.);
+        val map = new PhotonMap(photons, 8, 10.);
+
+        // Expect
+        assertThat(map.size()).isEqualTo(1);
+        assertThat(map.irradianceAt(Vector.zero(), UP).r()).isZero();
+    }
+
+    @Test
+    public void shouldIgnorePhotonsComingFromBehindTheSurface() {
+        // Given
+        val photons = new PhotonBuffer(0);
+        photons.add(new Vector(1., 0., 0.), UP, 0.1, 0.1, 0.1);
+        photons.add(new Vector(-1., 0., 0.), UP, 0.1, 0.1, 0.1);
+        val map = new PhotonMap(photons, 8, 10.);
+
+        // Expect
+        assertThat(map.irradianceAt(Vector.zero(), UP).r()).isZero();
+    }
+
+    /**
+     * @return the squared distance to the k-th nearest photon
+     */
+    private static double bruteForce(final PhotonBuffer photons, final Vector point, final int k) {
+        val distances = new double[photons.size()];
+        for (int i = 0; i < photons.size(); i++) {
+            val dx = photons.positions()[3 * i] - point.x();
+            val dy = photons.positions()[3 * i + 1] - point.y();
+            val dz = photons.positions()[3 * i + 2] - point.z();
+            distances[i] = dx * dx + dy * dy + dz * dz;
+        }
+        java.util.Arrays.sort(distances);
+        return distances[k - 1];
+    }
+
+    private static double clamp(final double value) {
+        return Math.min(1., value);
+    }
+}
@@ -0,0 +1,111 @@
+package com.raymonde.render;
+
+import com.raymonde.core.Color;
+import com.raymonde.core.Vector;
+import com.raymonde.render.material.ColorMaterial;
+import com.raymonde.render.material.ReflectiveMaterial;
+import com.raymonde.render.primitive.Plane;
+import com.raymonde.scene.Scene;
+import lombok.val;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Offset.offset;
+
+public class RayTreeEvaluatorTest {
+
+    private static final double DELTA = 0.01;
+
+    private final Ray ray = new Ray(Vector.zero(), new Vector(0., 0., -1.));
+
+    private Scene scene;
+
+    @Before
+    public void setUp() {
+        scene = new Scene();
+        scene.setAmbientColor(Color.black());
+        // A blue plane behind the ray origin, facing it
+        scene.addPrimitive("behind", Plane.builder()
+                .normal(new Vector(0., 0., -1.))
+                .distance(100.)
+                .material(ColorMaterial.builder().color(new Color(0., 0., 1.)).build())
+                .build());
+    }
+
+    @Test
+    public void shouldAddTheReflectedColor() {
+        // Given
+        addMirror(0.5);
+        val evaluator = new RayTreeEvaluator(8, new RussianRoulette(RussianRoulette.DEFAULT_THRESHOLD));
+
+        // When
+        val color = evaluator.evaluate(new DefaultRenderer(), scene, ray, new RenderingContext(0, 1.));
+
+        // Then
+        assertThat(color.r()).isCloseTo(0.5, offset(DELTA));
+        assertThat(color.g()).isCloseTo(0., offset(DELTA));
+        assertThat(color.b()).isCloseTo(0.5, offset(DELTA));
+    }
+
+    @Test
+    public void shouldNotTraceSecondaryRaysBeyondMaxDepth() {
+        // Given
+        addMirror(0.5);
+        val evaluator = new RayTreeEvaluator(0, new RussianRoulette(RussianRoulette.DEFAULT_THRESHOLD));
+
+        // When
+        val color = evaluator.evaluate(new DefaultRenderer(), scene, ray, new RenderingContext(0, 1.));
+
+        // Then
+        assertThat(color.r()).isCloseTo(0.5, offset(DELTA));
+        assertThat(color.b()).isCloseTo(0., offset(DELTA));
+    }
+
+    @Test
+    public void shouldKeepTheExpectedContributionOfNegligibleSecondaryRays() {
+        // Given
+        addMirror(0.01);
+        val evaluator = new RayTreeEvaluator(8, new RussianRoulette(0.1));
+        val evaluations = 20000;
+
+        // When
+        // The roulette draws from a hash of the pixel, the same ray is evaluated for many pixels
+        double blue = 0.;
+        for (int i = 0; i < evaluations; i++) {
+            blue += evaluator.evaluate(new DefaultRenderer(), scene, ray, new RenderingContext(0, 1.), null, i).b();
+        }
+
+        // Then
+        // One ray out of ten survives, with a weight of 0.1
+        assertThat(blue / evaluations).isCloseTo(0.01, offset(0.002));
+    }
+
+    @Test
+    public void shouldPlayTheRouletteTheSameWayForTheSamePixel() {
+        // Given
+        addMirror(0.01);
+        val evaluator = new RayTreeEvaluator(8, new RussianRoulette(0.1));
+
+        // When
+        val first = evaluator.evaluate(new DefaultRenderer(), scene, ray, new RenderingContext(0, 1.), null, 7);
+        val second = evaluator.evaluate(new DefaultRenderer(), scene, ray, new RenderingContext(0, 1.), null, 7);
+
+        // Then
+        assertThat(second.b()).isEqualTo(first.b());
+    }
+
+    /**
+     * Adds a red mirror in front of the ray origin.
+     */
+    private void addMirror(final double reflectivity) {
+        scene.addPrimitive("mirror", Plane.builder()
+                .normal(new Vector(0., 0., 1.))
+                .distance(100.)
+                .material(ReflectiveMaterial.builder()
+                        .reflectivity(reflectivity)
+                        .subMaterial(ColorMaterial.builder().color(new Color(1., 0., 0.)).build())
+                        .build())
+                .build());
+    }
+}
@@ -0,0 +1,52 @@
+package com.raymonde.render;
+
+import com.raymonde.core.Vector;
+import lombok.val;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RayWaveTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void shouldSortTheRaysByOctantKeepingEachOneWithItsPixel() {
+        // Given
+        val wave = new RayWave(4, new RussianRoulette(RussianRoulette.DEFAULT_THRESHOLD));
+        val count = 100;
+        val added = new Ray[count];
+        for (int i = 0; i < count; i++) {
+            added[i] = new Ray(
+                    new Vector(random.nextDouble() * 10., random.nextDouble() * 10., random.nextDouble() * 10.),
+                    new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, random.nextDouble() - 0.5));
+            wave.add(added[i], i / (double) count, new RenderingContext(1, 1.), i);
+        }
+
+        // When
+        wave.sortCoherently();
+        wave.sortCoherently();
+
+        // Then
+        assertThat(wave.size()).isEqualTo(count);
+        val pixels = new HashSet<Integer>();
+        int previousOctant = -1;
+        for (int k = 0; k < count; k++) {
+            val pixel = wave.pixel(k);
+            pixels.add(pixel);
+            assertThat(wave.ray(k)).isSameAs(added[pixel]);
+            assertThat(wave.weight(k)).isEqualTo(pixel / (double) count);
+            val octant = octant(wave.ray(k).direction());
+            assertThat(octant).isGreaterThanOrEqualTo(previousOctant);
+            previousOctant = octant;
+        }
+        assertThat(pixels).hasSize(count);
+    }
+
+    private static int octant(final Vector direction) {
+        return (direction.x() < 0. ? 1 : 0) | (direction.y() < 0. ? 2 : 0) | (direction.z() < 0. ? 4 : 0);
+    }
+}
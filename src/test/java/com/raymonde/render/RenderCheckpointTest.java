@@ -0,0 +1,115 @@
+package com.raymonde.render;
+
+import lombok.val;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RenderCheckpointTest {
+
+    private static final int WIDTH = 20;
+
+    private static final int HEIGHT = 10;
+
+    private static final long FINGERPRINT = 42L;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Tile> tiles = Tile.covering(WIDTH, HEIGHT, 8);
+
+    @Test
+    public void shouldRestoreTheRecordedTiles() throws IOException {
+        // Given
+        val file = folder.getRoot().toPath().resolve("checkpoint");
+        record(file);
+
+        // When
+        val restored = new FrameBuffer(WIDTH, HEIGHT);
+        try (RenderCheckpoint checkpoint = RenderCheckpoint.open(file, FINGERPRINT, restored, tiles)) {
+
+            // Then
+            assertThat(checkpoint.passesCompleted(0)).isEqualTo(2);
+            assertThat(checkpoint.passesCompleted(1)).isEqualTo(0);
+            assertThat(checkpoint.passesCompleted(2)).isEqualTo(1);
+        }
+        assertThat(restored.red(0)).isEqualTo(0.5);
+        assertThat(restored.samples(0)).isEqualTo(4);
+        assertThat(restored.samples(8)).isEqualTo(0);
+        assertThat(restored.blue(16)).isEqualTo(0.25);
+    }
+
+    @Test
+    public void shouldDropATornRecord() throws IOException {
+        // Given
+        val file = folder.getRoot().toPath().resolve("checkpoint");
+        record(file);
+        try (FileChannel channel = FileChannel.open(file, WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        // When
+        val restored = new FrameBuffer(WIDTH, HEIGHT);
+        try (RenderCheckpoint checkpoint = RenderCheckpoint.open(file, FINGERPRINT, restored, tiles)) {
+
+            // Then
+            assertThat(checkpoint.passesCompleted(0)).isEqualTo(2);
+            assertThat(checkpoint.passesCompleted(2)).isEqualTo(0);
+        }
+        assertThat(restored.samples(16)).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldStartOverWhenTheSettingsChanged() throws IOException {
+        // Given
+        val file = folder.getRoot().toPath().resolve("checkpoint");
+        record(file);
+
+        // When
+        val restored = new FrameBuffer(WIDTH, HEIGHT);
+        try (RenderCheckpoint checkpoint = RenderCheckpoint.open(file, FINGERPRINT + 1, restored, tiles)) {
+
+            // Then
+            assertThat(checkpoint.passesCompleted(0)).isEqualTo(0);
+        }
+        assertThat(restored.samples(0)).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldDeleteTheLogOnceTheRenderingIsCompleted() throws IOException {
+        // Given
+        val file = folder.getRoot().toPath().resolve("checkpoint");
+        val checkpoint = RenderCheckpoint.open(file, FINGERPRINT, new FrameBuffer(WIDTH, HEIGHT), tiles);
+
+        // When
+        checkpoint.delete();
+
+        // Then
+        assertThat(Files.exists(file)).isFalse();
+    }
+
+    /**
+     * Records two passes of the first tile, the second one after a compaction, then a pass of the third tile.
+     */
+    private void record(final Path file) throws IOException {
+        val buffer = new FrameBuffer(WIDTH, HEIGHT);
+        try (RenderCheckpoint checkpoint = RenderCheckpoint.open(file, FINGERPRINT, buffer, tiles)) {
+            buffer.accumulate(0, 1., 0., 0., 2);
+            checkpoint.tileCompleted(0, 1);
+            checkpoint.passCompleted();
+            buffer.accumulate(0, 1., 0., 0., 2);
+            checkpoint.tileCompleted(0, 2);
+            buffer.accumulate(16, 0., 0., 0.5, 2);
+            checkpoint.tileCompleted(2, 1);
+        }
+    }
+}
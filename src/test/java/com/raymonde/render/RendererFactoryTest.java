@@ -18,6 +18,18 @@ public class RendererFactoryTest {
         assertThat(RendererFactory.createRenderer("multi-threaded")).isInstanceOf(MultiThreadedRenderer.class);
     }
 
+    @Test
+    public void shouldReturnTheWavefrontRenderer() {
+        // Expect
+        assertThat(RendererFactory.createRenderer("wavefront")).isInstanceOf(WavefrontRenderer.class);
+    }
+
+    @Test
+    public void shouldReturnThePathTracingRenderer() {
+        // Expect
+        assertThat(RendererFactory.createRenderer("path-tracing")).isInstanceOf(PathTracingRenderer.class);
+    }
+
     @Test(expected = UnableToCreateRendererException.class)
     public void shouldRaiseExceptionIfRenderedIsUnkown() {
         // When
@@ -0,0 +1,53 @@
+package com.raymonde.render;
+
+import com.raymonde.core.Color;
+import lombok.val;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RenderingSurfaceTest {
+
+    @Test
+    public void tilesShouldCoverTheWholeSurface() {
+        // Given
+        val surface = new RenderingSurface(10, 5);
+
+        // When
+        val tiles = surface.tiles(4);
+
+        // Then
+        assertThat(tiles).hasSize(6);
+        assertThat(tiles.stream().mapToInt(Tile::size).sum()).isEqualTo(50);
+        val last = tiles.get(5);
+        assertThat(last.x()).isEqualTo(8);
+        assertThat(last.y()).isEqualTo(4);
+        assertThat(last.width()).isEqualTo(2);
+        assertThat(last.height()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotifyCompletedRows() {
+        // Given
+        val surface = new RenderingSurface(3, 2);
+        val rows = new ArrayList<Integer>();
+        surface.setRowListener((s, y) -> rows.add(y));
+
+        // When
+        surface.setPixelColor(new Pixel(0, 1), Color.black());
+        surface.setPixelColor(new Pixel(1, 1), Color.black());
+        surface.setPixelColor(new Pixel(1, 1), Color.black());
+        surface.setPixelColor(new Pixel(0, 0), Color.black());
+        surface.setPixelColor(new Pixel(2, 1), Color.black());
+
+        // Then
+        assertThat(rows).containsExactly(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tilesShouldRejectANonPositiveSize() {
+        new RenderingSurface(10, 5).tiles(0);
+    }
+}
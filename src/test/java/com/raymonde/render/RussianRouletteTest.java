@@ -0,0 +1,57 @@
+package com.raymonde.render;
+
+import lombok.val;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RussianRouletteTest {
+
+    @Test
+    public void shouldKeepRaysAboveTheThreshold() {
+        // Given
+        val roulette = new RussianRoulette(0.1);
+
+        // When
+        val throughput = roulette.survivingThroughput(0.5, 0.99);
+
+        // Then
+        assertThat(throughput).isEqualTo(0.5);
+    }
+
+    @Test
+    public void shouldRaiseTheThroughputOfSurvivingRays() {
+        // Given
+        val roulette = new RussianRoulette(0.1);
+
+        // When
+        val throughput = roulette.survivingThroughput(0.02, 0.1);
+
+        // Then
+        assertThat(throughput).isEqualTo(0.1);
+    }
+
+    @Test
+    public void shouldTerminateRaysThatLoseTheRoulette() {
+        // Given
+        val roulette = new RussianRoulette(0.1);
+
+        // When
+        val throughput = roulette.survivingThroughput(0.02, 0.5);
+
+        // Then
+        assertThat(throughput).isEqualTo(0.);
+    }
+
+    @Test
+    public void shouldTraceEveryRayWhenDisabled() {
+        // Given
+        val roulette = new RussianRoulette(0.);
+
+        // When
+        val throughput = roulette.survivingThroughput(1e-9, 0.99);
+
+        // Then
+        assertThat(throughput).isEqualTo(1e-9);
+    }
+}
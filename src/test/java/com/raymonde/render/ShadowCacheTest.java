@@ -0,0 +1,101 @@
+package com.raymonde.render;
+
+import com.raymonde.core.Color;
+import com.raymonde.core.Vector;
+import com.raymonde.render.light.OmnidirectionalLight;
+import com.raymonde.render.material.Material;
+import com.raymonde.render.primitive.Plane;
+import com.raymonde.render.primitive.Primitive;
+import com.raymonde.scene.Scene;
+import lombok.val;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShadowCacheTest {
+
+    private final OmnidirectionalLight light = OmnidirectionalLight.builder()
+            .position(new Vector(0., 10., 0.))
+            .color(new Color(1., 1., 1.))
+            .attenuation(new Vector(0.001, 0., 0.))
+            .build();
+
+    private final ShadowCache cache = new ShadowCache();
+
+    private Scene scene;
+
+    private CountingPrimitive first;
+
+    private CountingPrimitive occluder;
+
+    @Before
+    public void setUp() {
+        scene = new Scene();
+        // A plane below the origin of the shadow rays, which never occludes them
+        first = new CountingPrimitive(plane(new Vector(0., 1., 0.), 5.));
+        // A plane between the origin of the shadow rays and the light
+        occluder = new CountingPrimitive(plane(new Vector(0., -1., 0.), 5.));
+        scene.addPrimitive("first", first);
+        scene.addPrimitive("occluder", occluder);
+        scene.addLight("light", light);
+    }
+
+    @Test
+    public void shouldDetectOcclusion() {
+        // Given
+        val ray = new Ray(Vector.zero(), new Vector(0., 1., 0.));
+
+        // Expect
+        assertThat(cache.isOccluded(scene, light, ray, 10.)).isTrue();
+        assertThat(cache.isOccluded(scene, light, ray, 4.)).isFalse();
+    }
+
+    @Test
+    public void shouldTestTheLastOccluderFirst() {
+        // Given
+        cache.isOccluded(scene, light, new Ray(Vector.zero(), new Vector(0., 1., 0.)), 10.);
+        first.count = 0;
+
+        // When
+        val occluded = cache.isOccluded(scene, light, new Ray(new Vector(1., 0., 0.), new Vector(-0.1, 1., 0.)), 10.);
+
+        // Then
+        assertThat(occluded).isTrue();
+        assertThat(first.count).isZero();
+    }
+
+    private static Primitive plane(final Vector normal, final double distance) {
+        return Plane.builder().normal(normal).distance(distance).build();
+    }
+
+    /**
+     * Counts the intersection tests of the decorated primitive.
+     */
+    private static final class CountingPrimitive implements Primitive {
+
+        private final Primitive primitive;
+
+        private int count;
+
+        private CountingPrimitive(final Primitive primitive) {
+            this.primitive = primitive;
+        }
+
+        @Override
+        public Vector normalAt(final Vector point) {
+            return primitive.normalAt(point);
+        }
+
+        @Override
+        public IntersectionResult intersect(final Ray ray) {
+            count++;
+            return primitive.intersect(ray);
+        }
+
+        @Override
+        public Material getMaterial() {
+            return primitive.getMaterial();
+        }
+    }
+}
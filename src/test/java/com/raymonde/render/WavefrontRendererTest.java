@@ -0,0 +1,148 @@
+package com.raymonde.render;
+
+import com.raymonde.core.Color;
+import com.raymonde.core.Vector;
+import com.raymonde.render.light.OmnidirectionalLight;
+import com.raymonde.render.material.ColorMaterial;
+import com.raymonde.render.material.PhongMaterial;
+import com.raymonde.render.material.ReflectiveMaterial;
+import com.raymonde.render.primitive.Plane;
+import com.raymonde.render.primitive.Sphere;
+import com.raymonde.scene.Scene;
+import lombok.val;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Offset.offset;
+
+public class WavefrontRendererTest {
+
+    @Test
+    public void shouldRenderTheSameImageAsTheDefaultRenderer() {
+        // Given
+        val scene = scene();
+        val camera = camera();
+
+        // When
+        val expected = new DefaultRenderer().renderSceneThroughCamera(scene, camera).getColors();
+        val actual = new WavefrontRenderer(8, 8, new RussianRoulette(RussianRoulette.DEFAULT_THRESHOLD))
+                .renderSceneThroughCamera(scene, camera).getColors();
+
+        // Then
+        assertThat(actual).containsExactly(expected);
+    }
+
+    @Test
+    public void shouldPlayTheRouletteLikeTheDefaultRenderer() {
+        // Given
+        // Rays reflected by the mirror are weak enough to play the roulette
+        val scene = mirrorScene();
+        val camera = camera();
+
+        // When
+        val expected = new DefaultRenderer().renderSceneThroughCamera(scene, camera).getColors();
+        val actual = new WavefrontRenderer(8, 8, new RussianRoulette(RussianRoulette.DEFAULT_THRESHOLD))
+                .renderSceneThroughCamera(scene, camera).getColors();
+        val withoutRoulette = new WavefrontRenderer(8, 8, new RussianRoulette(0.))
+                .renderSceneThroughCamera(scene, camera).getColors();
+
+        // Then
+        assertThat(actual).containsExactly(expected);
+        assertThat(actual).isNotEqualTo(withoutRoulette);
+    }
+
+    @Test
+    public void shouldRecordTheSameAuxiliaryBuffersAsTheDefaultRenderer() {
+        // Given
+        val scene = scene();
+        val camera = camera();
+        val size = camera.getPixelWidth() * camera.getPixelHeight();
+        val expected = camera.createRenderingSurface();
+        expected.setAuxiliaryBuffers(new AuxiliaryBuffers(size));
+        val actual = camera.createRenderingSurface();
+        actual.setAuxiliaryBuffers(new AuxiliaryBuffers(size));
+
+        // When
+        new DefaultRenderer().renderSceneOnto(scene, camera, expected);
+        new WavefrontRenderer(8, 8, new RussianRoulette(RussianRoulette.DEFAULT_THRESHOLD))
+                .renderSceneOnto(scene, camera, actual);
+
+        // Then
+        val center = 10 * camera.getPixelWidth() + 18;
+        val aux = actual.getAuxiliaryBuffers();
+        assertThat(aux.primitiveId(center)).isEqualTo(2);
+        assertThat(aux.materialId(center)).isEqualTo(2);
+        assertThat(aux.depth(center)).isCloseTo(6., offset(0.01));
+        assertThat(aux.normal(center, 2)).isCloseTo(1., offset(0.01));
+        assertThat(aux.primitiveId(0)).isEqualTo(1);
+        for (int i = 0; i < size; i++) {
+            assertThat(aux.primitiveId(i)).isEqualTo(expected.getAuxiliaryBuffers().primitiveId(i));
+            assertThat(aux.materialId(i)).isEqualTo(expected.getAuxiliaryBuffers().materialId(i));
+            assertThat(aux.depth(i)).isEqualTo(expected.getAuxiliaryBuffers().depth(i));
+            assertThat(aux.albedo(i, 0)).isEqualTo(expected.getAuxiliaryBuffers().albedo(i, 0));
+        }
+    }
+
+    private static Camera camera() {
+        return Camera.builder()
+                .position(new Vector(0., 0., 0.))
+                .direction(new Vector(0., 0., -1.))
+                .up(new Vector(0., 1., 0.))
+                .distance(1.)
+                .width(1.)
+                .height(1.)
+                .pixelWidth(37)
+                .pixelHeight(21)
+                .build();
+    }
+
+    /**
+     * A faint red mirror in front of the camera, reflecting a blue plane behind it.
+     */
+    private static Scene mirrorScene() {
+        val scene = new Scene();
+        scene.setAmbientColor(Color.black());
+        scene.addPrimitive("mirror", Plane.builder()
+                .normal(new Vector(0., 0., 1.))
+                .distance(20.)
+                .material(ReflectiveMaterial.builder()
+                        .reflectivity(0.02)
+                        .subMaterial(ColorMaterial.builder().color(new Color(1., 0., 0.)).build())
+                        .build())
+                .build());
+        scene.addPrimitive("behind", Plane.builder()
+                .normal(new Vector(0., 0., -1.))
+                .distance(100.)
+                .material(ColorMaterial.builder().color(new Color(0., 0., 1.)).build())
+                .build());
+        return scene;
+    }
+
+    private static Scene scene() {
+        val scene = new Scene();
+        scene.setAmbientColor(new Color(0.1, 0.1, 0.1));
+        scene.addLight("light", OmnidirectionalLight.builder()
+                .position(new Vector(0., 5., 0.))
+                .color(new Color(1., 1., 1.))
+                .attenuation(new Vector(0.01, 0., 0.))
+                .build());
+        scene.addPrimitive("back", Plane.builder()
+                .normal(new Vector(0., 0., 1.))
+                .distance(20.)
+                .material(ReflectiveMaterial.builder()
+                        .reflectivity(0.3)
+                        .subMaterial(ColorMaterial.builder().color(new Color(0.2, 0.8, 0.2)).build())
+                        .build())
+                .build());
+        scene.addPrimitive("sphere", Sphere.builder()
+                .origin(new Vector(0., 0., -8.))
+                .radius(2.)
+                .material(PhongMaterial.builder()
+                        .diffuse(0.8)
+                        .specular(20.)
+                        .subMaterial(ColorMaterial.builder().color(new Color(0.9, 0.1, 0.1)).build())
+                        .build())
+                .build());
+        return scene;
+    }
+}
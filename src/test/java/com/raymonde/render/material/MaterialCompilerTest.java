@@ -0,0 +1,89 @@
+package com.raymonde.render.material;
+
+import com.raymonde.core.Color;
+import com.raymonde.core.Vector;
+import com.raymonde.render.DefaultRenderer;
+import com.raymonde.render.Ray;
+import com.raymonde.render.RenderingContext;
+import com.raymonde.render.light.OmnidirectionalLight;
+import com.raymonde.render.primitive.Plane;
+import com.raymonde.scene.Scene;
+import lombok.val;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MaterialCompilerTest {
+
+    @Test
+    public void shouldFlattenPhongOverColor() {
+        // Given
+        val color = ColorMaterial.builder().color(new Color(0.2, 0.4, 0.6)).build();
+        val phong = PhongMaterial.builder().diffuse(0.8).specular(10.).subMaterial(color).build();
+
+        // When
+        val compiled = MaterialCompiler.compile(phong);
+
+        // Then
+        assertThat(compiled).isInstanceOf(CompiledPhongMaterial.class);
+        assertThat(((CompiledPhongMaterial) compiled).getBaseColor()).isEqualTo(color.getColor());
+        assertThat(((CompiledPhongMaterial) compiled).getSubMaterial()).isSameAs(color);
+    }
+
+    @Test
+    public void shouldCompileNestedMaterials() {
+        // Given
+        val phong = PhongMaterial.builder()
+                .diffuse(0.8)
+                .specular(10.)
+                .subMaterial(ColorMaterial.builder().color(new Color(0.2, 0.4, 0.6)).build())
+                .build();
+        val reflective = ReflectiveMaterial.builder().reflectivity(0.5).subMaterial(phong).build();
+
+        // When
+        val compiled = MaterialCompiler.compile(reflective);
+
+        // Then
+        assertThat(compiled).isInstanceOf(ReflectiveMaterial.class);
+        assertThat(((ReflectiveMaterial) compiled).getReflectivity()).isEqualTo(0.5);
+        assertThat(((ReflectiveMaterial) compiled).getSubMaterial()).isInstanceOf(CompiledPhongMaterial.class);
+    }
+
+    @Test
+    public void shouldLeaveMaterialsThatCannotBeSimplifiedUntouched() {
+        // Given
+        val color = ColorMaterial.builder().color(new Color(0.2, 0.4, 0.6)).build();
+
+        // Expect
+        assertThat(MaterialCompiler.compile(color)).isSameAs(color);
+        assertThat(MaterialCompiler.compile(null)).isNull();
+    }
+
+    @Test
+    public void compiledMaterialShouldRenderTheSameColor() {
+        // Given
+        val phong = PhongMaterial.builder()
+                .diffuse(0.8)
+                .specular(10.)
+                .subMaterial(ColorMaterial.builder().color(new Color(0.2, 0.4, 0.6)).build())
+                .build();
+        val plane = Plane.builder().normal(new Vector(0., 0., 1.)).distance(10.).material(phong).build();
+        val scene = new Scene();
+        scene.setAmbientColor(new Color(0.1, 0.1, 0.1));
+        scene.addPrimitive("plane", plane);
+        scene.addLight("light", OmnidirectionalLight.builder()
+                .position(new Vector(2., 3., 0.))
+                .color(new Color(1., 1., 1.))
+                .attenuation(new Vector(0.001, 0., 0.))
+                .build());
+        val intersection = plane.intersect(new Ray(Vector.zero(), new Vector(0.1, 0.2, -1.)));
+        val ctx = new RenderingContext(0, 1.);
+
+        // When
+        val expected = phong.computeColor(new DefaultRenderer(), scene, intersection, ctx);
+        val actual = MaterialCompiler.compile(phong).computeColor(new DefaultRenderer(), scene, intersection, ctx);
+
+        // Then
+        assertThat(actual).isEqualTo(expected);
+    }
+}
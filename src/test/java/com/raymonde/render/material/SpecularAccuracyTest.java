@@ -0,0 +1,70 @@
+package com.raymonde.render.material;
+
+import lombok.val;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Offset.offset;
+
+public class SpecularAccuracyTest {
+
+    @Test
+    public void fastShouldBeExactForIntegerExponents() {
+        // Given
+        val function = SpecularAccuracy.FAST.functionFor(12.);
+
+        // Expect
+        for (double x = 0.; x <= 1.; x += 0.01) {
+            assertThat(function.apply(x)).isCloseTo(Math.pow(x, 12.), offset(1e-12));
+        }
+    }
+
+    @Test
+    public void fastShouldBeCloseForOtherExponents() {
+        // Given
+        val function = SpecularAccuracy.FAST.functionFor(12.5);
+
+        // Expect
+        for (double x = 0.; x <= 1.; x += 0.001) {
+            assertThat(function.apply(x)).isCloseTo(Math.pow(x, 12.5), offset(1e-4));
+        }
+        assertThat(function.apply(1.)).isEqualTo(1.);
+    }
+
+    @Test
+    public void approximateShouldMatchAtBothEnds() {
+        // Given
+        val function = SpecularAccuracy.APPROXIMATE.functionFor(12.);
+
+        // Expect
+        assertThat(function.apply(0.)).isEqualTo(0.);
+        assertThat(function.apply(1.)).isEqualTo(1.);
+        assertThat(function.apply(0.9)).isCloseTo(Math.pow(0.9, 12.), offset(0.2));
+    }
+
+    @Test
+    public void exactShouldUsePow() {
+        // Expect
+        assertThat(SpecularAccuracy.EXACT.functionFor(12.5).apply(0.7)).isEqualTo(Math.pow(0.7, 12.5));
+    }
+
+    @Test
+    public void exactShouldBeExactForIntegerExponents() {
+        // Given
+        val function = SpecularAccuracy.EXACT.functionFor(12.);
+
+        // Expect
+        for (double x = 0.; x <= 1.; x += 0.01) {
+            assertThat(function.apply(x)).isCloseTo(Math.pow(x, 12.), offset(1e-12));
+        }
+    }
+
+    @Test
+    public void phongMaterialsShouldBeExactByDefault() {
+        // Given
+        val material = PhongMaterial.builder().diffuse(0.8).specular(12.5).build();
+
+        // Expect
+        assertThat(material.getAccuracy()).isEqualTo(SpecularAccuracy.EXACT);
+    }
+}
@@ -0,0 +1,101 @@
+package com.raymonde.save;
+
+import com.raymonde.render.RenderingSurface;
+import lombok.val;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AsyncSceneSaverTest {
+
+    private final RenderingSurface surface = new RenderingSurface(2, 2);
+
+    @Test
+    public void shouldSaveEverySurface() throws Exception {
+        // Given
+        val saved = new CopyOnWriteArrayList<String>();
+
+        // When
+        try (AsyncSceneSaver saver = new AsyncSceneSaver(recordingSaver(saved, null), 2, 1)) {
+            for (int i = 0; i < 5; i++) {
+                saver.save(surface, "image" + i);
+            }
+        }
+
+        // Then
+        assertThat(saved).containsExactlyInAnyOrder("image0", "image1", "image2", "image3", "image4");
+    }
+
+    @Test
+    public void shouldBlockWhenEncodingFallsBehind() throws Exception {
+        // Given
+        val encoding = new CountDownLatch(1);
+        val saved = new CopyOnWriteArrayList<String>();
+        try (AsyncSceneSaver saver = new AsyncSceneSaver(recordingSaver(saved, encoding), 1, 1)) {
+            // One surface being encoded, one waiting
+            saver.save(surface, "image0");
+            saver.save(surface, "image1");
+
+            // When
+            val third = CompletableFuture.runAsync(() -> {
+                try {
+                    saver.save(surface, "image2");
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            // Then
+            assertThatThrownBy(() -> third.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+            encoding.countDown();
+            third.get(10, TimeUnit.SECONDS);
+        }
+        assertThat(saved).containsExactly("image0", "image1", "image2");
+    }
+
+    @Test
+    public void shouldThrowTheFailureOnClose() throws Exception {
+        // Given
+        val saver = new AsyncSceneSaver(new SceneSaver() {
+            @Override
+            public void save(final RenderingSurface renderingSurface, final String outputFilename)
+                    throws SaveException {
+                throw new SaveException("disk full");
+            }
+        }, 1, 1);
+
+        // When
+        saver.save(surface, "image");
+
+        // Then
+        assertThatThrownBy(saver::close).isInstanceOf(SaveException.class).hasMessage("disk full");
+    }
+
+    /**
+     * A saver that records the saved filenames, once the specified latch, if any, is released.
+     */
+    private static SceneSaver recordingSaver(final List<String> saved, final CountDownLatch latch) {
+        return new SceneSaver() {
+            @Override
+            public void save(final RenderingSurface renderingSurface, final String outputFilename)
+                    throws SaveException {
+                try {
+                    if (latch != null) {
+                        latch.await();
+                    }
+                } catch (InterruptedException e) {
+                    throw new SaveException(e);
+                }
+                saved.add(outputFilename);
+            }
+        };
+    }
+}
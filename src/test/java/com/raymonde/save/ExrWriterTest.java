@@ -0,0 +1,250 @@
+package com.raymonde.save;
+
+import com.raymonde.core.Color;
+import com.raymonde.core.Vector;
+import com.raymonde.render.FrameBuffer;
+import lombok.val;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Offset.offset;
+
+public class ExrWriterTest {
+
+    private static final int WIDTH = 40;
+
+    private static final int HEIGHT = 3;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldWriteColorsAsHalfFloats() throws IOException {
+        // Given
+        val buffer = buffer();
+
+        // When
+        val image = new ExrImage(write(buffer, new ExrWriter(ExrCompression.NONE, false)));
+
+        // Then
+        assertThat(image.channelNames).containsExactly("B", "G", "R");
+        assertThat(image.value("R", 0, 0)).isEqualTo(3.5f);
+        assertThat(image.value("G", 5, 1)).isCloseTo(0.1f, offset(1e-4f));
+        assertThat(image.value("B", 1, 2)).isEqualTo(0f);
+    }
+
+    @Test
+    public void shouldWriteAuxiliaryChannels() throws IOException {
+        // Given
+        val buffer = buffer();
+
+        // When
+        val image = new ExrImage(write(buffer, new ExrWriter(ExrCompression.NONE, true)));
+
+        // Then
+        assertThat(image.channelNames).containsExactly("B", "G", "R", "Z",
+                "albedo.B", "albedo.G", "albedo.R", "materialId", "normal.X", "normal.Y", "normal.Z", "primitiveId");
+        assertThat(image.value("Z", 3, 0)).isEqualTo(12.25f);
+        assertThat(image.value("albedo.G", 3, 0)).isCloseTo(0.5f, offset(0.01f));
+        assertThat(image.value("normal.Z", 3, 0)).isEqualTo(-1f);
+        assertThat(image.value("Z", 4, 0)).isEqualTo(0f);
+        assertThat(image.id("primitiveId", 3, 0)).isEqualTo(2);
+        assertThat(image.id("materialId", 3, 0)).isEqualTo(5);
+        assertThat(image.id("primitiveId", 4, 0)).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldCompressScanlinesWithoutLoss() throws IOException {
+        // Given
+        val buffer = buffer();
+        val uncompressed = new ExrImage(write(buffer, new ExrWriter(ExrCompression.NONE, true)));
+
+        // When
+        val compressed = new ExrImage(write(buffer, new ExrWriter(ExrCompression.RLE, true)));
+
+        // Then
+        assertThat(compressed.fileSize).isLessThan(uncompressed.fileSize);
+        assertThat(compressed.scanlines).isEqualTo(uncompressed.scanlines);
+    }
+
+    @Test
+    public void shouldStoreIncompressibleScanlinesAsIs() {
+        // Given
+        val line = new byte[64];
+        for (int i = 0; i < line.length; i++) {
+            line[i] = (byte) (i * i * 31);
+        }
+        val predicted = new byte[line.length];
+        val packed = new byte[2 * line.length + 2];
+
+        // When
+        ExrWriter.predict(line, predicted);
+        val packedBytes = ExrWriter.runLengthEncode(predicted, packed, 0);
+
+        // Then
+        assertThat(unpredict(runLengthDecode(packed, 0, packedBytes, line.length))).isEqualTo(line);
+    }
+
+    /**
+     * A colorful first row, a flat second one, and a third one without any sample.
+     */
+    private static FrameBuffer buffer() {
+        val buffer = new FrameBuffer(WIDTH, HEIGHT);
+        for (int x = 0; x < WIDTH; x++) {
+            buffer.accumulate(x, 7. + x, x / 10., x % 3, 2);
+            buffer.accumulate(WIDTH + x, 1., 0.1, 0.2, 1);
+        }
+        buffer.getAuxiliaryBuffers().accumulate(3, new Vector(0., 0., -1.), 12.25, new Color(0.25, 0.5, 1.));
+        buffer.getAuxiliaryBuffers().identify(3, 2, 5);
+        return buffer;
+    }
+
+    private Path write(final FrameBuffer buffer, final ExrWriter writer) throws IOException {
+        val file = folder.newFile().toPath();
+        try (FileChannel channel = FileChannel.open(file, WRITE, CREATE)) {
+            writer.write(buffer, channel);
+        }
+        return file;
+    }
+
+    private static byte[] runLengthDecode(final byte[] in, final int offset, final int length, final int size) {
+        val out = new byte[size];
+        int written = 0;
+        int read = offset;
+        while (read < offset + length) {
+            final int count = in[read++];
+            if (count < 0) {
+                System.arraycopy(in, read, out, written, -count);
+                read -= count;
+                written -= count;
+            } else {
+                for (int i = 0; i <= count; i++) {
+                    out[written++] = in[read];
+                }
+                read++;
+            }
+        }
+        assertThat(written).isEqualTo(size);
+        return out;
+    }
+
+    private static byte[] unpredict(final byte[] predicted) {
+        for (int i = 1; i < predicted.length; i++) {
+            predicted[i] = (byte) (predicted[i - 1] + predicted[i] - 128);
+        }
+        val line = new byte[predicted.length];
+        val half = (line.length + 1) / 2;
+        for (int i = 0; i < line.length; i++) {
+            line[i] = predicted[(i & 1) == 0 ? i / 2 : half + i / 2];
+        }
+        return line;
+    }
+
+    /**
+     * Reads back the images written by {@link ExrWriter}.
+     */
+    private static final class ExrImage {
+
+        private final long fileSize;
+
+        private final List<String> channelNames = new ArrayList<>();
+
+        private final Map<String, Integer> channelTypes = new LinkedHashMap<>();
+
+        private final List<ByteBuffer> scanlines = new ArrayList<>();
+
+        private ExrImage(final Path file) throws IOException {
+            val bytes = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+            fileSize = bytes.capacity();
+            assertThat(bytes.getInt()).isEqualTo(20000630);
+            assertThat(bytes.getInt()).isEqualTo(2);
+
+            int compression = -1;
+            for (String name = string(bytes); !name.isEmpty(); name = string(bytes)) {
+                val type = string(bytes);
+                val size = bytes.getInt();
+                val end = bytes.position() + size;
+                if (name.equals("channels")) {
+                    for (String channel = string(bytes); !channel.isEmpty(); channel = string(bytes)) {
+                        channelNames.add(channel);
+                        channelTypes.put(channel, bytes.getInt());
+                        bytes.position(bytes.position() + 12);
+                    }
+                } else if (name.equals("compression")) {
+                    compression = bytes.get();
+                } else if (name.equals("dataWindow")) {
+                    assertThat(type).isEqualTo("box2i");
+                    assertThat(new int[] {bytes.getInt(), bytes.getInt(), bytes.getInt(), bytes.getInt()})
+                            .containsExactly(0, 0, WIDTH - 1, HEIGHT - 1);
+                }
+                bytes.position(end);
+            }
+
+            int lineBytes = 0;
+            for (int type : channelTypes.values()) {
+                lineBytes += WIDTH * (type == 1 ? 2 : 4);
+            }
+            for (int y = 0; y < HEIGHT; y++) {
+                val chunk = (ByteBuffer) bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN)
+                        .position((int) bytes.getLong(bytes.position() + 8 * y));
+                assertThat(chunk.getInt()).isEqualTo(y);
+                val size = chunk.getInt();
+                byte[] line = new byte[size];
+                chunk.get(line);
+                if (size < lineBytes) {
+                    assertThat(compression).isEqualTo(ExrCompression.RLE.id());
+                    line = unpredict(runLengthDecode(line, 0, size, lineBytes));
+                }
+                assertThat(line).hasSize(lineBytes);
+                scanlines.add(ByteBuffer.wrap(line).order(ByteOrder.LITTLE_ENDIAN));
+            }
+        }
+
+        private float value(final String channel, final int x, final int y) {
+            val line = scanlines.get(y);
+            val position = position(channel, x);
+            return channelTypes.get(channel) == 1 ? HalfFloat.toFloat(line.getShort(position)) : line.getFloat(position);
+        }
+
+        private int id(final String channel, final int x, final int y) {
+            assertThat(channelTypes.get(channel)).isEqualTo(0);
+            return scanlines.get(y).getInt(position(channel, x));
+        }
+
+        private int position(final String channel, final int x) {
+            int position = 0;
+            for (String name : channelNames) {
+                val bytesPerValue = channelTypes.get(name) == 1 ? 2 : 4;
+                if (name.equals(channel)) {
+                    return position + x * bytesPerValue;
+                }
+                position += WIDTH * bytesPerValue;
+            }
+            throw new IllegalArgumentException(channel);
+        }
+
+        private static String string(final ByteBuffer bytes) {
+            val start = bytes.position();
+            while (bytes.get() != 0) {
+                // Skips the characters
+            }
+            return new String(bytes.array(), start, bytes.position() - start - 1, StandardCharsets.US_ASCII);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.raymonde.save;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HalfFloatTest {
+
+    @Test
+    public void shouldConvertExactlyRepresentableFloats() {
+        // Expect
+        assertThat(HalfFloat.fromFloat(0f)).isEqualTo((short) 0x0000);
+        assertThat(HalfFloat.fromFloat(-0f)).isEqualTo((short) 0x8000);
+        assertThat(HalfFloat.fromFloat(1f)).isEqualTo((short) 0x3c00);
+        assertThat(HalfFloat.fromFloat(-2f)).isEqualTo((short) 0xc000);
+        assertThat(HalfFloat.fromFloat(65504f)).isEqualTo((short) 0x7bff);
+        assertThat(HalfFloat.fromFloat(0x1p-14f)).isEqualTo((short) 0x0400);
+        assertThat(HalfFloat.fromFloat(0x1p-24f)).isEqualTo((short) 0x0001);
+    }
+
+    @Test
+    public void shouldRoundToTheNearestHalfFloat() {
+        // Expect
+        assertThat(HalfFloat.fromFloat(0.1f)).isEqualTo((short) 0x2e66);
+        // Halfway between 1 and the next half float, rounded to even
+        assertThat(HalfFloat.fromFloat(1f + 0x1p-11f)).isEqualTo((short) 0x3c00);
+        assertThat(HalfFloat.fromFloat(1f + 0x3p-11f)).isEqualTo((short) 0x3c02);
+        assertThat(HalfFloat.fromFloat(0x1p-26f)).isEqualTo((short) 0x0000);
+    }
+
+    @Test
+    public void shouldConvertOutOfRangeFloatsToInfinity() {
+        // Expect
+        assertThat(HalfFloat.fromFloat(65520f)).isEqualTo((short) 0x7c00);
+        assertThat(HalfFloat.fromFloat(Float.NEGATIVE_INFINITY)).isEqualTo((short) 0xfc00);
+        assertThat(HalfFloat.toFloat(HalfFloat.fromFloat(Float.NaN))).isNaN();
+    }
+
+    @Test
+    public void shouldConvertEveryHalfFloatBackAndForth() {
+        for (int bits = 0; bits <= 0xffff; bits++) {
+            // Given
+            final short half = (short) bits;
+            final float value = HalfFloat.toFloat(half);
+
+            // When
+            final short converted = HalfFloat.fromFloat(value);
+
+            // Then
+            if (Float.isNaN(value)) {
+                assertThat(HalfFloat.toFloat(converted)).isNaN();
+            } else {
+                assertThat(converted).isEqualTo(half);
+            }
+        }
+    }
+}
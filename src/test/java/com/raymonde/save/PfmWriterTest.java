@@ -0,0 +1,73 @@
+package com.raymonde.save;
+
+import com.raymonde.core.Color;
+import com.raymonde.render.FrameBuffer;
+import com.raymonde.render.Pixel;
+import com.raymonde.render.RenderingSurface;
+import lombok.val;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PfmWriterTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldWriteUnclampedColorsFromTheBottomRow() throws IOException {
+        // Given
+        val buffer = new FrameBuffer(2, 2);
+        buffer.accumulate(0, 4., 0., 0., 2);
+        buffer.accumulate(3, 0., 0., 0.5, 1);
+        val file = folder.newFile("image.pfm").toPath();
+
+        // When
+        try (FileChannel channel = FileChannel.open(file, WRITE, CREATE)) {
+            PfmWriter.write(buffer, channel);
+        }
+
+        // Then
+        val bytes = Files.readAllBytes(file);
+        val header = "PF\n2 2\n-1.0\n";
+        assertThat(new String(bytes, 0, header.length(), StandardCharsets.US_ASCII)).isEqualTo(header);
+        assertThat(bytes).hasSize(header.length() + 4 * 3 * 4);
+
+        val pixels = ByteBuffer.wrap(bytes, header.length(), 4 * 3 * 4).order(ByteOrder.LITTLE_ENDIAN);
+        // Bottom row first: pixels (0, 1) then (1, 1)
+        assertThat(new float[] {pixels.getFloat(), pixels.getFloat(), pixels.getFloat()})
+                .containsExactly(0f, 0f, 0f);
+        assertThat(new float[] {pixels.getFloat(), pixels.getFloat(), pixels.getFloat()})
+                .containsExactly(0f, 0f, 0.5f);
+        assertThat(new float[] {pixels.getFloat(), pixels.getFloat(), pixels.getFloat()})
+                .containsExactly(2f, 0f, 0f);
+    }
+
+    @Test
+    public void shouldBeUsedToSaveSurfacesToPfmFiles() throws IOException, SaveException {
+        // Given
+        val surface = new RenderingSurface(2, 1);
+        surface.setPixelColor(new Pixel(1, 0), new Color(0., 1., 0.));
+        val file = folder.getRoot().toPath().resolve("surface.pfm");
+
+        // When
+        new SceneSaver().save(surface, file.toString());
+
+        // Then
+        val bytes = Files.readAllBytes(file);
+        val header = "PF\n2 1\n-1.0\n";
+        assertThat(new String(bytes, 0, header.length(), StandardCharsets.US_ASCII)).isEqualTo(header);
+        assertThat(bytes).hasSize(header.length() + 2 * 3 * 4);
+    }
+}
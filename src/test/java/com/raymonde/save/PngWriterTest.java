@@ -0,0 +1,142 @@
+package com.raymonde.save;
+
+import com.raymonde.core.Color;
+import com.raymonde.render.Pixel;
+import com.raymonde.render.RenderingSurface;
+import lombok.val;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Adler32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PngWriterTest {
+
+    private static final int WIDTH = 37;
+
+    private static final int HEIGHT = 23;
+
+    @Test
+    public void shouldWriteAnImageReadableByImageIO() throws IOException {
+        // Given
+        val surface = surface();
+        val out = new ByteArrayOutputStream();
+
+        // When
+        PngWriter.write(surface, out, PngCompression.BALANCED);
+
+        // Then
+        assertDecodesTo(out.toByteArray(), surface);
+    }
+
+    @Test
+    public void shouldWriteImagesWithEveryCompression() throws IOException {
+        for (PngCompression compression : PngCompression.values()) {
+            // Given
+            val surface = surface();
+            val out = new ByteArrayOutputStream();
+
+            // When
+            try (PngWriter writer = new PngWriter(out, WIDTH, HEIGHT, compression, 5, ForkJoinPool.commonPool())) {
+                for (int y = 0; y < HEIGHT; y++) {
+                    writer.rowCompleted(surface, y);
+                }
+            }
+
+            // Then
+            assertDecodesTo(out.toByteArray(), surface);
+        }
+    }
+
+    @Test
+    public void shouldWriteRowsCompletedInAnyOrder() throws IOException {
+        // Given
+        val surface = surface();
+        val out = new ByteArrayOutputStream();
+
+        // When
+        try (PngWriter writer = new PngWriter(out, WIDTH, HEIGHT, PngCompression.SMALLEST, 4, ForkJoinPool.commonPool())) {
+            for (int y = HEIGHT - 1; y >= 0; y--) {
+                writer.rowCompleted(surface, y);
+            }
+        }
+
+        // Then
+        assertDecodesTo(out.toByteArray(), surface);
+    }
+
+    @Test
+    public void shouldStreamTheRowsOfASurfaceBeingRendered() throws IOException {
+        // Given
+        val source = surface();
+        val rendered = new RenderingSurface(WIDTH, HEIGHT);
+        val out = new ByteArrayOutputStream();
+
+        // When
+        try (PngWriter writer = new PngWriter(out, WIDTH, HEIGHT, PngCompression.BALANCED, 3, ForkJoinPool.commonPool())) {
+            rendered.setRowListener(writer);
+            rendered.eachPixel(pixel -> rendered.setPixelColor(pixel, source.getColors()[pixel.y() * WIDTH + pixel.x()]));
+        }
+
+        // Then
+        assertDecodesTo(out.toByteArray(), source);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailToCloseAnIncompleteImage() throws IOException {
+        // Given
+        val surface = surface();
+
+        // When
+        try (PngWriter writer = new PngWriter(new ByteArrayOutputStream(), WIDTH, HEIGHT, PngCompression.BALANCED, 4,
+                Runnable::run)) {
+            writer.rowCompleted(surface, 0);
+        }
+
+        // Then expect exception
+    }
+
+    @Test
+    public void shouldCombineChecksums() {
+        // Given
+        val first = new byte[]{1, 2, 3, 4, 5};
+        val second = new byte[]{(byte) 200, 7, 8};
+        val whole = new Adler32();
+        whole.update(first);
+        whole.update(second);
+        val adler1 = new Adler32();
+        adler1.update(first);
+        val adler2 = new Adler32();
+        adler2.update(second);
+
+        // Expect
+        assertThat(PngWriter.combine(adler1.getValue(), adler2.getValue(), second.length)).isEqualTo(whole.getValue());
+    }
+
+    /**
+     * A surface filled with a gradient.
+     */
+    private static RenderingSurface surface() {
+        val surface = new RenderingSurface(WIDTH, HEIGHT);
+        surface.eachPixel(pixel -> surface.setPixelColor(pixel,
+                new Color(pixel.x() / (double) WIDTH, pixel.y() / (double) HEIGHT, (pixel.x() * pixel.y()) % 7 / 7.)));
+        return surface;
+    }
+
+    private static void assertDecodesTo(final byte[] png, final RenderingSurface expected) throws IOException {
+        val image = ImageIO.read(new ByteArrayInputStream(png));
+        assertThat(image.getWidth()).isEqualTo(WIDTH);
+        assertThat(image.getHeight()).isEqualTo(HEIGHT);
+        val colors = expected.getColors();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertThat(image.getRGB(x, y) & 0xffffff).isEqualTo(colors[y * WIDTH + x].rgb() & 0xffffff);
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.raymonde.save;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SaverUtiliyTest {
+
+    @Test
+    public void shouldFormatTheFrameNumberWithTheSpecifierOfTheFilename() {
+        // Expect
+        assertThat(SaverUtiliy.frameFilename("frame_%03d.png", 7)).isEqualTo("frame_007.png");
+        assertThat(SaverUtiliy.frameFilename("frames/%d.png", 12)).isEqualTo("frames/12.png");
+    }
+
+    @Test
+    public void shouldAppendTheFrameNumberWithoutSpecifier() {
+        // Expect
+        assertThat(SaverUtiliy.frameFilename("out.png", 12)).isEqualTo("out_0012.png");
+        assertThat(SaverUtiliy.frameFilename("100%.png", 3)).isEqualTo("100%_0003.png");
+    }
+
+    @Test
+    public void shouldKeepThePercentSignsThatAreNotSpecifiers() {
+        // Expect
+        assertThat(SaverUtiliy.frameFilename("100%/frame_%02d.png", 4)).isEqualTo("100%/frame_04.png");
+    }
+
+    @Test
+    public void shouldAppendTheCameraNameBeforeTheExtension() {
+        // Expect
+        assertThat(SaverUtiliy.cameraFilename("renders/out.png", "front")).isEqualTo("renders/out_front.png");
+    }
+
+    @Test
+    public void shouldInsertTheSuffixBeforeTheExtension() {
+        // Expect
+        assertThat(SaverUtiliy.withSuffix("out.png", "_a")).isEqualTo("out_a.png");
+        assertThat(SaverUtiliy.withSuffix("renders.d/out", "_a")).isEqualTo("renders.d/out_a");
+        assertThat(SaverUtiliy.withSuffix("dir\\.hidden", "_a")).isEqualTo("dir\\.hidden_a");
+        assertThat(SaverUtiliy.withSuffix("archive.tar.gz", "_a")).isEqualTo("archive.tar_a.gz");
+    }
+}
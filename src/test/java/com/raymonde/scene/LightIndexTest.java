@@ -0,0 +1,62 @@
+package com.raymonde.scene;
+
+import com.raymonde.core.Color;
+import com.raymonde.core.Vector;
+import com.raymonde.render.light.Light;
+import com.raymonde.render.light.OmnidirectionalLight;
+import lombok.val;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Offset.offset;
+
+public class LightIndexTest {
+
+    @Test
+    public void influenceRadiusShouldBeWhereTheContributionBecomesNegligible() {
+        // Given
+        val light = light(new Vector(0., 0., 0.), 0.5);
+
+        // When
+        val radius = light.getInfluenceRadius();
+
+        // Then
+        assertThat(light.colorAt(new Vector(radius * 0.9, 0., 0.)).r()).isGreaterThan(0.);
+        assertThat(radius).isCloseTo(Math.sqrt(512. / 0.5), offset(0.0001));
+    }
+
+    @Test
+    public void shouldOnlyReturnTheLightsWhoseInfluenceMayContainThePoint() {
+        // Given
+        val near = light(new Vector(0., 0., 0.), 0.5);
+        val far = light(new Vector(1000., 0., 0.), 0.5);
+        val index = new LightIndex(Arrays.asList(near, far));
+
+        // Expect
+        assertThat(index.lightsAt(new Vector(10., 0., 0.))).containsExactly(near);
+        assertThat(index.lightsAt(new Vector(990., 0., 0.))).containsExactly(far);
+        assertThat(index.lightsAt(new Vector(500., 0., 0.))).isEmpty();
+    }
+
+    @Test
+    public void shouldAlwaysReturnUnboundedLights() {
+        // Given
+        val bounded = light(new Vector(0., 0., 0.), 0.5);
+        val unbounded = light(new Vector(1000., 0., 0.), 0.);
+        val index = new LightIndex(Arrays.asList(bounded, unbounded));
+
+        // Expect
+        assertThat(index.lightsAt(new Vector(1., 1., 1.))).containsOnly(bounded, unbounded);
+        assertThat(index.lightsAt(new Vector(-1e6, 0., 0.))).containsExactly(unbounded);
+    }
+
+    private static Light light(final Vector position, final double attenuation) {
+        return OmnidirectionalLight.builder()
+                .position(position)
+                .color(new Color(1., 1., 1.))
+                .attenuation(new Vector(attenuation, 0., 0.))
+                .build();
+    }
+}
@@ -0,0 +1,90 @@
+package com.raymonde.scene;
+
+import com.raymonde.core.Color;
+import com.raymonde.core.Vector;
+import com.raymonde.render.Ray;
+import com.raymonde.render.material.ColorMaterial;
+import com.raymonde.render.material.CompiledPhongMaterial;
+import com.raymonde.render.material.PhongMaterial;
+import com.raymonde.render.primitive.Primitive;
+import com.raymonde.render.primitive.Sphere;
+import lombok.val;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SceneTest {
+
+    @Test
+    public void shouldCompileTheMaterialsOfPrimitivesBuiltInCode() {
+        // Given
+        val phong = PhongMaterial.builder()
+                .diffuse(0.8)
+                .specular(20.)
+                .subMaterial(ColorMaterial.builder().color(new Color(1., 0., 0.)).build())
+                .build();
+        val scene = new Scene();
+        scene.addPrimitive("first", sphere(new Vector(0., 0., -10.), phong));
+        scene.addPrimitive("second", sphere(new Vector(5., 0., -10.), phong));
+        scene.nearestIntersection(new Ray(Vector.zero(), new Vector(0., 0., -1.)));
+
+        // When
+        scene.prepare();
+
+        // Then
+        assertThat(scene.getPrimitives()).extracting(Primitive::getMaterial)
+                .hasOnlyElementsOfType(CompiledPhongMaterial.class)
+                .containsOnly(scene.getPrimitives().iterator().next().getMaterial());
+        val hit = scene.nearestIntersection(new Ray(Vector.zero(), new Vector(0., 0., -1.)));
+        assertThat(hit.primitive().getMaterial()).isInstanceOf(CompiledPhongMaterial.class);
+        assertThat(scene.getPrimitives()).contains(hit.primitive());
+    }
+
+    @Test
+    public void shouldLeaveTheOriginalSceneUntouchedWhenTheCopyIsModified() {
+        // Given
+        val scene = new Scene();
+        val sphere = sphere(new Vector(0., 0., -10.), PhongMaterial.builder().build());
+        scene.addPrimitive("sphere", sphere);
+        val ray = new Ray(Vector.zero(), new Vector(0., 0., -1.));
+        scene.nearestIntersection(ray);
+        val copy = scene.withLights(Collections.emptyMap());
+
+        // When
+        copy.removePrimitive("sphere");
+        copy.addPrimitive("other", sphere(new Vector(0., 0., -5.), PhongMaterial.builder().build()));
+
+        // Then
+        assertThat(scene.getPrimitives()).containsExactly(sphere);
+        assertThat(scene.nearestIntersection(ray).primitive()).isSameAs(sphere);
+        assertThat(scene.primitiveId(sphere)).isEqualTo(1);
+        assertThat(copy.getPrimitives()).doesNotContain(sphere);
+        assertThat(copy.nearestIntersection(ray).primitive()).isNotSameAs(sphere);
+    }
+
+    @Test
+    public void shouldLeaveTheCopiesUntouchedWhenTheOriginalSceneIsModified() {
+        // Given
+        val scene = new Scene();
+        val sphere = sphere(new Vector(0., 0., -10.), PhongMaterial.builder().build());
+        scene.addPrimitive("sphere", sphere);
+        val ray = new Ray(Vector.zero(), new Vector(0., 0., -1.));
+        scene.nearestIntersection(ray);
+        val copy = scene.withLighting(new Scene());
+
+        // When
+        scene.replacePrimitives(Collections.singletonMap("sphere",
+                sphere(new Vector(0., 0., -5.), PhongMaterial.builder().build())));
+
+        // Then
+        assertThat(copy.getPrimitives()).containsExactly(sphere);
+        assertThat(copy.nearestIntersection(ray).primitive()).isSameAs(sphere);
+        assertThat(scene.nearestIntersection(ray).primitive()).isNotSameAs(sphere);
+    }
+
+    private static Sphere sphere(final Vector origin, final PhongMaterial material) {
+        return Sphere.builder().origin(origin).radius(1.).material(material).build();
+    }
+}
@@ -0,0 +1,237 @@
+package com.raymonde.scene;
+
+import com.raymonde.core.Color;
+import com.raymonde.core.Vector;
+import com.raymonde.render.IntersectionResult;
+import com.raymonde.render.Ray;
+import com.raymonde.render.material.ColorMaterial;
+import com.raymonde.render.material.Material;
+import com.raymonde.render.primitive.Plane;
+import com.raymonde.render.primitive.Primitive;
+import com.raymonde.render.primitive.Sphere;
+import com.raymonde.render.primitive.Triangle;
+import lombok.val;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TreeTest {
+
+    private static final double DELTA = 1e-9;
+
+    private static final Material MATERIAL = ColorMaterial.builder().color(new Color(1., 1., 1.)).build();
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void shouldFindTheSameIntersectionsAsTestingEveryPrimitive() {
+        // Given
+        val primitives = primitives(200);
+        val tree = new Tree(primitives, 4);
+
+        // Expect
+        assertSameIntersections(tree, primitives);
+    }
+
+    @Test
+    public void shouldStayConsistentWhenPrimitivesAreAddedMovedAndRemoved() {
+        // Given
+        val primitives = primitives(100);
+        val tree = new Tree(primitives, 4);
+
+        // When
+        for (int i = 0; i < 50; i++) {
+            val added = sphere();
+            tree.insert(added);
+            primitives.add(added);
+        }
+        for (int i = 0; i < primitives.size(); i += 3) {
+            val moved = sphere();
+            tree.replace(primitives.get(i), moved);
+            primitives.set(i, moved);
+        }
+        for (int i = 0; i < 60; i++) {
+            tree.remove(primitives.remove(random.nextInt(primitives.size())));
+        }
+
+        // Then
+        assertSameIntersections(tree, primitives);
+        assertThat(tree.contains(primitives.get(0))).isTrue();
+    }
+
+    @Test
+    public void shouldRefitTheBoxesOfAMovedPrimitive() {
+        // Given
+        val sphere = Sphere.builder().origin(new Vector(0., 0., 0.)).radius(1.).material(MATERIAL).build();
+        val tree = new Tree(new ArrayList<>(Collections.singletonList(sphere)), 4);
+        val moved = Sphere.builder().origin(new Vector(10., 0., 0.)).radius(1.).material(MATERIAL).build();
+
+        // When
+        tree.replace(sphere, moved);
+
+        // Then
+        assertThat(tree.bounds()).isEqualTo(moved.bounds());
+        assertThat(tree.nearestIntersection(new Ray(new Vector(10., 0., 5.), new Vector(0., 0., -1.)), DELTA)
+                .primitive()).isSameAs(moved);
+        assertThat(tree.nearestIntersection(new Ray(new Vector(0., 0., 5.), new Vector(0., 0., -1.)), DELTA))
+                .isNull();
+    }
+
+    @Test
+    public void shouldStayConsistentWhenPrimitivesAreMovedAtOnce() {
+        // Given
+        val primitives = primitives(200);
+        val tree = new Tree(primitives, 4);
+        val replacements = new IdentityHashMap<Primitive, Primitive>();
+
+        // When
+        for (int i = 1; i < primitives.size(); i += 2) {
+            val moved = i % 4 == 1 ? sphere() : triangle();
+            replacements.put(primitives.get(i), moved);
+            primitives.set(i, moved);
+        }
+        tree.replaceAll(replacements);
+
+        // Then
+        assertSameIntersections(tree, primitives);
+        assertThat(tree.contains(primitives.get(1))).isTrue();
+    }
+
+    @Test
+    public void shouldLeaveTheOriginalTreeUntouchedWhenItsCopyIsUpdated() {
+        // Given
+        val primitives = primitives(200);
+        val tree = new Tree(primitives, 4);
+        val copy = tree.copy();
+        val moved = new ArrayList<Primitive>(primitives);
+        val replacements = new IdentityHashMap<Primitive, Primitive>();
+
+        // When
+        for (int i = 1; i < moved.size(); i += 2) {
+            val replacement = i % 4 == 1 ? sphere() : triangle();
+            replacements.put(moved.get(i), replacement);
+            moved.set(i, replacement);
+        }
+        copy.replaceAll(replacements);
+        copy.remove(moved.remove(0));
+
+        // Then
+        assertSameIntersections(tree, primitives);
+        assertSameIntersections(copy, moved);
+    }
+
+    @Test
+    public void shouldRebuildTheTreeOnceRefittingDegradesIt() {
+        // Given
+        val primitives = primitives(200);
+        val rebuilt = new Tree(primitives, 4);
+        val refitOnly = new Tree(primitives, 4, Double.POSITIVE_INFINITY);
+        val builtCost = rebuilt.cost();
+        val replacements = new IdentityHashMap<Primitive, Primitive>();
+
+        // When
+        // Every bounded primitive moves far from those it was grouped with
+        for (int i = 1; i < primitives.size(); i++) {
+            val moved = i % 2 == 1 ? sphere() : triangle();
+            replacements.put(primitives.get(i), moved);
+            primitives.set(i, moved);
+        }
+        rebuilt.replaceAll(replacements);
+        refitOnly.replaceAll(replacements);
+
+        // Then
+        assertThat(refitOnly.cost()).isGreaterThan(Tree.DEFAULT_REBUILD_COST_RATIO * builtCost);
+        assertThat(rebuilt.cost()).isLessThanOrEqualTo(Tree.DEFAULT_REBUILD_COST_RATIO * builtCost);
+        assertSameIntersections(rebuilt, primitives);
+        assertSameIntersections(refitOnly, primitives);
+    }
+
+    @Test
+    public void shouldPreferThePrimitiveAddedFirstAmongCoincidentIntersections() {
+        // Given
+        val first = plane();
+        val second = plane();
+        val tree = new Tree(Arrays.asList(first, second), 4);
+
+        // When
+        val hit = tree.nearestIntersection(new Ray(new Vector(0., 0., 0.), new Vector(0., 0., -1.)), DELTA);
+
+        // Then
+        assertThat(hit.primitive()).isSameAs(first);
+    }
+
+    private void assertSameIntersections(final Tree tree, final List<Primitive> primitives) {
+        for (int i = 0; i < 500; i++) {
+            val ray = new Ray(new Vector(random.nextDouble() * 40. - 20., random.nextDouble() * 40. - 20., 30.),
+                    new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1.));
+            val expected = nearest(primitives, ray);
+            val actual = tree.nearestIntersection(ray, DELTA);
+            if (expected == null) {
+                assertThat(actual).isNull();
+            } else {
+                assertThat(actual.primitive()).isSameAs(expected.primitive());
+            }
+            val occluder = tree.firstOccluder(ray, 25., DELTA);
+            assertThat(occluder != null).isEqualTo(expected != null && expected.distance() <= 25.);
+        }
+    }
+
+    /**
+     * The nearest intersection, testing the primitives one after the other as scenes used to.
+     */
+    private static IntersectionResult nearest(final List<Primitive> primitives, final Ray ray) {
+        IntersectionResult nearest = null;
+        double distance = Double.POSITIVE_INFINITY;
+        for (Primitive primitive : primitives) {
+            val res = primitive.intersect(ray);
+            if (res.intersect() && res.distance() > DELTA && distance - res.distance() > DELTA) {
+                nearest = res;
+                distance = res.distance();
+            }
+        }
+        return nearest;
+    }
+
+    private List<Primitive> primitives(final int count) {
+        val primitives = new ArrayList<Primitive>();
+        primitives.add(Plane.builder().normal(new Vector(0., 0., 1.)).distance(30.).material(MATERIAL).build());
+        for (int i = 0; i < count; i++) {
+            primitives.add(i % 2 == 0 ? sphere() : triangle());
+        }
+        return primitives;
+    }
+
+    private Sphere sphere() {
+        return Sphere.builder()
+                .origin(point())
+                .radius(0.5 + random.nextDouble() * 2.)
+                .material(MATERIAL)
+                .build();
+    }
+
+    private Triangle triangle() {
+        val first = point();
+        return Triangle.builder()
+                .first(first)
+                .second(first.add(new Vector(random.nextDouble() * 4., random.nextDouble() * 4., 0.)))
+                .third(first.add(new Vector(random.nextDouble() * 4., 0., random.nextDouble() * 4.)))
+                .material(MATERIAL)
+                .build();
+    }
+
+    private Vector point() {
+        return new Vector(random.nextDouble() * 40. - 20., random.nextDouble() * 40. - 20.,
+                random.nextDouble() * 20. - 10.);
+    }
+
+    private static Plane plane() {
+        return Plane.builder().normal(new Vector(0., 0., 1.)).distance(10.).material(MATERIAL).build();
+    }
+}